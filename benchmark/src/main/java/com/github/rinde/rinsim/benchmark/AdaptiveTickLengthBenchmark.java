@@ -0,0 +1,246 @@
+/*
+ * Copyright (C) 2011-2018 Rinde R.S. van Lon
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rinde.rinsim.benchmark;
+
+import static com.google.common.base.Verify.verifyNotNull;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.math3.random.MersenneTwister;
+import org.apache.commons.math3.random.RandomGenerator;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.rinde.rinsim.benchmark.PDPModelBenchmark.GreedyVehicle;
+import com.github.rinde.rinsim.core.Simulator;
+import com.github.rinde.rinsim.core.SimulatorAPI;
+import com.github.rinde.rinsim.core.model.pdp.DefaultPDPModel;
+import com.github.rinde.rinsim.core.model.pdp.PDPModel;
+import com.github.rinde.rinsim.core.model.pdp.PDPModel.PDPModelEventType;
+import com.github.rinde.rinsim.core.model.pdp.PDPModelEvent;
+import com.github.rinde.rinsim.core.model.pdp.Parcel;
+import com.github.rinde.rinsim.core.model.pdp.VehicleDTO;
+import com.github.rinde.rinsim.core.model.road.RoadModelBuilders;
+import com.github.rinde.rinsim.core.model.time.TickListener;
+import com.github.rinde.rinsim.core.model.time.TimeLapse;
+import com.github.rinde.rinsim.core.model.time.TimeModel;
+import com.github.rinde.rinsim.event.Event;
+import com.github.rinde.rinsim.event.Listener;
+import com.github.rinde.rinsim.geom.Point;
+import com.github.rinde.rinsim.pdptw.common.AddParcelEvent;
+import com.github.rinde.rinsim.pdptw.common.AddVehicleEvent;
+import com.github.rinde.rinsim.scenario.Scenario;
+import com.github.rinde.rinsim.scenario.ScenarioController;
+import com.github.rinde.rinsim.scenario.StopConditions;
+import com.github.rinde.rinsim.scenario.TimedEventHandler;
+import com.github.rinde.rinsim.util.TimeWindow;
+
+/**
+ * Compares the speed and the accuracy of a simulation with a fixed tick length
+ * with the same simulation using an adaptive tick length (see
+ * {@link TimeModel.Builder#withAdaptiveTickLength(long)}). The scenario is a
+ * day with a busy period, in which most parcels are announced, and a quiet
+ * night. The ticks of the adaptive time model end at the announcement of the
+ * next parcel, in between they are as long as the maximum tick length.
+ * <p>
+ * Each invocation simulates the complete day. Besides the time, the number of
+ * ticks and the mean time between the announcement and the delivery of a
+ * parcel (in seconds) of a simulation are reported. Since all simulations use
+ * the same seed these are the same for every invocation, note that JMH sums
+ * them over the measurement iterations. The difference in mean delivery time
+ * compared to <code>maxTickLength=1000</code> (the fixed tick length) is the
+ * loss of accuracy: vehicles only decide on their next parcel at the start of
+ * a tick.
+ * @author Rinde van Lon
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = BenchmarkSettings.WARMUP_ITERATIONS)
+@Measurement(iterations = BenchmarkSettings.MEASUREMENT_ITERATIONS)
+public class AdaptiveTickLengthBenchmark {
+  static final long SECOND = 1000L;
+  static final long MIN_TICK_LENGTH = SECOND;
+  static final long HOUR = 60 * 60 * SECOND;
+  static final long DAY = 24 * HOUR;
+  static final long BUSY_START = 8 * HOUR;
+  static final long BUSY_END = 18 * HOUR;
+  static final int BUSY_PARCELS = 500;
+  static final int QUIET_PARCELS = 25;
+  static final int VEHICLES = 10;
+  static final double SPEED = 50d;
+  static final long SERVICE_DURATION = 5 * 60 * 1000L;
+  static final Point MIN = new Point(0, 0);
+  static final Point MAX = new Point(10, 10);
+
+  @Param({"1000", "10000", "60000", "600000"})
+  long maxTickLength;
+
+  Scenario scenario;
+
+  /**
+   * Creates a new instance, called by JMH.
+   */
+  public AdaptiveTickLengthBenchmark() {}
+
+  /**
+   * Generates the scenario.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+    final RandomGenerator rng = new MersenneTwister(BenchmarkSettings.SEED);
+    final TimeModel.Builder tm =
+      TimeModel.builder().withTickLength(MIN_TICK_LENGTH);
+    final Scenario.Builder b = Scenario.builder()
+      .addModel(maxTickLength == MIN_TICK_LENGTH
+        ? tm
+        : tm.withAdaptiveTickLength(maxTickLength))
+      .addModel(RoadModelBuilders.plane().withMinPoint(MIN).withMaxPoint(MAX))
+      .addModel(DefaultPDPModel.builder())
+      .setStopCondition(StopConditions.limitedTime(DAY));
+    for (int i = 0; i < VEHICLES; i++) {
+      b.addEvent(AddVehicleEvent.create(-1, VehicleDTO.builder()
+        .startPosition(randomPoint(rng))
+        .speed(SPEED)
+        .capacity(1)
+        .build()));
+    }
+    for (int i = 0; i < BUSY_PARCELS; i++) {
+      b.addEvent(parcelEvent(rng, BUSY_START
+        + (long) (rng.nextDouble() * (BUSY_END - BUSY_START))));
+    }
+    final long quietLength = DAY - (BUSY_END - BUSY_START);
+    for (int i = 0; i < QUIET_PARCELS; i++) {
+      final long t = (long) (rng.nextDouble() * quietLength);
+      b.addEvent(parcelEvent(rng,
+        t < BUSY_START ? t : t + BUSY_END - BUSY_START));
+    }
+    scenario = b.build();
+  }
+
+  /**
+   * Simulates the scenario.
+   * @param counters The counters in which the results are stored.
+   */
+  @Benchmark
+  public void simulate(Counters counters) {
+    final Simulator sim = Simulator.builder()
+      .setRandomSeed(BenchmarkSettings.SEED)
+      .addModel(ScenarioController.builder(scenario)
+        .withEventHandler(AddParcelEvent.class,
+          AddParcelEvent.defaultHandler())
+        .withEventHandler(AddVehicleEvent.class, VehicleHandler.INSTANCE))
+      .build();
+    sim.getModelProvider().getModel(PDPModel.class).getEventAPI()
+      .addListener(counters, PDPModelEventType.END_DELIVERY);
+    sim.register(counters);
+    sim.start();
+    counters.meanDeliveryTime = counters.deliveryTimeSum / SECOND
+      / Math.max(1, counters.deliveries);
+  }
+
+  static AddParcelEvent parcelEvent(RandomGenerator rng, long time) {
+    return AddParcelEvent.create(
+      Parcel.builder(randomPoint(rng), randomPoint(rng))
+        .orderAnnounceTime(time)
+        .pickupTimeWindow(TimeWindow.create(time, DAY))
+        .serviceDuration(SERVICE_DURATION)
+        .buildDTO());
+  }
+
+  static Point randomPoint(RandomGenerator rng) {
+    return new Point(MIN.x + rng.nextDouble() * (MAX.x - MIN.x),
+      MIN.y + rng.nextDouble() * (MAX.y - MIN.y));
+  }
+
+  /**
+   * The results of a single simulation, reported by JMH next to the time.
+   * @author Rinde van Lon
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class Counters implements TickListener, Listener {
+    /**
+     * The number of ticks.
+     */
+    public long ticks;
+
+    /**
+     * The number of delivered parcels.
+     */
+    public long deliveries;
+
+    /**
+     * The mean time between announcement and delivery, in seconds.
+     */
+    public long meanDeliveryTime;
+
+    long deliveryTimeSum;
+
+    /**
+     * Creates a new instance, called by JMH.
+     */
+    public Counters() {}
+
+    /**
+     * Resets the counters before every simulation, called by JMH.
+     */
+    @Setup(Level.Invocation)
+    public void reset() {
+      ticks = 0;
+      deliveries = 0;
+      meanDeliveryTime = 0;
+      deliveryTimeSum = 0;
+    }
+
+    @Override
+    public void tick(TimeLapse timeLapse) {
+      ticks++;
+    }
+
+    @Override
+    public void afterTick(TimeLapse timeLapse) {}
+
+    @Override
+    public void handleEvent(Event e) {
+      final PDPModelEvent pe = (PDPModelEvent) e;
+      deliveries++;
+      deliveryTimeSum +=
+        pe.time - verifyNotNull(pe.parcel).getOrderAnnounceTime();
+    }
+  }
+
+  enum VehicleHandler implements TimedEventHandler<AddVehicleEvent> {
+    INSTANCE {
+      @Override
+      public void handleTimedEvent(AddVehicleEvent event, SimulatorAPI sim) {
+        sim.register(new GreedyVehicle(event.getVehicleDTO()));
+      }
+    }
+  }
+}
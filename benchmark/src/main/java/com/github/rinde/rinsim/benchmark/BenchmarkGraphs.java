@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2011-2018 Rinde R.S. van Lon
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rinde.rinsim.benchmark;
+
+import com.github.rinde.rinsim.geom.Graph;
+import com.github.rinde.rinsim.geom.Graphs;
+import com.github.rinde.rinsim.geom.LengthData;
+import com.github.rinde.rinsim.geom.Point;
+import com.github.rinde.rinsim.geom.TableGraph;
+
+/**
+ * Generates the graphs that are used in the benchmarks.
+ * @author Rinde van Lon
+ */
+final class BenchmarkGraphs {
+  /**
+   * The distance between two neighboring nodes in a grid.
+   */
+  static final double SPACING = 1d;
+
+  private BenchmarkGraphs() {}
+
+  /**
+   * Creates a square grid graph in which every node is connected in both
+   * directions to its horizontal and vertical neighbors.
+   * @param size The number of nodes in each dimension.
+   * @return A new graph with <code>size * size</code> nodes.
+   */
+  static Graph<LengthData> createGrid(int size) {
+    final Graph<LengthData> graph = new TableGraph<>();
+    for (int x = 0; x < size; x++) {
+      for (int y = 0; y < size; y++) {
+        final Point p = node(x, y);
+        if (x + 1 < size) {
+          Graphs.addBiPath(graph, p, node(x + 1, y));
+        }
+        if (y + 1 < size) {
+          Graphs.addBiPath(graph, p, node(x, y + 1));
+        }
+      }
+    }
+    return graph;
+  }
+
+  static Point node(int x, int y) {
+    return new Point(x * SPACING, y * SPACING);
+  }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2011-2018 Rinde R.S. van Lon
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rinde.rinsim.benchmark;
+
+/**
+ * The default JMH settings that are shared by all benchmarks, they can be
+ * overridden via the command line.
+ * @author Rinde van Lon
+ */
+final class BenchmarkSettings {
+  /**
+   * The number of warmup iterations.
+   */
+  static final int WARMUP_ITERATIONS = 5;
+
+  /**
+   * The number of measurement iterations.
+   */
+  static final int MEASUREMENT_ITERATIONS = 5;
+
+  /**
+   * The seed that is used for all random number generators.
+   */
+  static final long SEED = 123L;
+
+  private BenchmarkSettings() {}
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2011-2018 Rinde R.S. van Lon
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rinde.rinsim.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.math3.random.RandomGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.rinde.rinsim.core.Simulator;
+import com.github.rinde.rinsim.core.model.comm.CommDevice;
+import com.github.rinde.rinsim.core.model.comm.CommDeviceBuilder;
+import com.github.rinde.rinsim.core.model.comm.CommModel;
+import com.github.rinde.rinsim.core.model.comm.CommUser;
+import com.github.rinde.rinsim.core.model.comm.MessageContents;
+import com.github.rinde.rinsim.core.model.road.RoadModel;
+import com.github.rinde.rinsim.core.model.road.RoadModelBuilders;
+import com.github.rinde.rinsim.core.model.road.RoadUser;
+import com.github.rinde.rinsim.core.model.time.TickListener;
+import com.github.rinde.rinsim.core.model.time.TimeLapse;
+import com.github.rinde.rinsim.geom.Point;
+import com.google.common.base.Optional;
+
+/**
+ * Measures the time of a single simulation tick in which all
+ * {@link CommUser}s read their messages and broadcast a new message within a
+ * limited range, this is dominated by {@link CommModel#afterTick(TimeLapse)}.
+ * @author Rinde van Lon
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = BenchmarkSettings.WARMUP_ITERATIONS)
+@Measurement(iterations = BenchmarkSettings.MEASUREMENT_ITERATIONS)
+public class CommModelBenchmark {
+  static final Point MIN = new Point(0, 0);
+  static final Point MAX = new Point(10, 10);
+
+  @Param({"100", "1000"})
+  int users;
+
+  @Param({"1", "5"})
+  double range;
+
+  Simulator sim;
+
+  /**
+   * Creates a new instance, called by JMH.
+   */
+  public CommModelBenchmark() {}
+
+  /**
+   * Creates the simulator.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+    sim = Simulator.builder()
+      .setRandomSeed(BenchmarkSettings.SEED)
+      .addModel(RoadModelBuilders.plane().withMinPoint(MIN).withMaxPoint(MAX))
+      .addModel(CommModel.builder())
+      .build();
+    for (int i = 0; i < users; i++) {
+      sim.register(new Broadcaster(sim.getRandomGenerator(), range));
+    }
+  }
+
+  /**
+   * Executes one tick.
+   */
+  @Benchmark
+  public void tick() {
+    sim.tick();
+  }
+
+  enum Ping implements MessageContents {
+    INSTANCE
+  }
+
+  static final class Broadcaster implements CommUser, RoadUser, TickListener {
+    final RandomGenerator rng;
+    final double range;
+    Optional<RoadModel> roadModel;
+    Optional<CommDevice> device;
+
+    Broadcaster(RandomGenerator r, double maxRange) {
+      rng = r;
+      range = maxRange;
+      roadModel = Optional.absent();
+      device = Optional.absent();
+    }
+
+    @Override
+    public void initRoadUser(RoadModel model) {
+      roadModel = Optional.of(model);
+      model.addObjectAt(this, model.getRandomPosition(rng));
+    }
+
+    @Override
+    public Optional<Point> getPosition() {
+      return Optional.of(roadModel.get().getPosition(this));
+    }
+
+    @Override
+    public void setCommDevice(CommDeviceBuilder builder) {
+      device = Optional.of(builder.setMaxRange(range).build());
+    }
+
+    @Override
+    public void tick(TimeLapse timeLapse) {
+      device.get().getUnreadMessages();
+      device.get().broadcast(Ping.INSTANCE);
+    }
+
+    @Override
+    public void afterTick(TimeLapse timeLapse) {}
+  }
+}
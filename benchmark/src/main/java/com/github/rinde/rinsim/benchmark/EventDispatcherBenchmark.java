@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2011-2018 Rinde R.S. van Lon
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rinde.rinsim.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.rinde.rinsim.event.Event;
+import com.github.rinde.rinsim.event.EventDispatcher;
+import com.github.rinde.rinsim.event.Listener;
+
+/**
+ * Measures {@link EventDispatcher#dispatchEvent(Event)} for different numbers
+ * of listeners.
+ * @author Rinde van Lon
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = BenchmarkSettings.WARMUP_ITERATIONS)
+@Measurement(iterations = BenchmarkSettings.MEASUREMENT_ITERATIONS)
+public class EventDispatcherBenchmark {
+  enum EventTypes {
+    LISTENED, IGNORED
+  }
+
+  @Param({"1", "10", "100"})
+  int listeners;
+
+  EventDispatcher dispatcher;
+  Event listenedEvent;
+  Event ignoredEvent;
+  long received;
+
+  /**
+   * Creates a new instance, called by JMH.
+   */
+  public EventDispatcherBenchmark() {}
+
+  /**
+   * Creates the dispatcher and its listeners.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+    dispatcher = new EventDispatcher(EventTypes.values());
+    for (int i = 0; i < listeners; i++) {
+      dispatcher.addListener(new Listener() {
+        @Override
+        public void handleEvent(Event e) {
+          received++;
+        }
+      }, EventTypes.LISTENED);
+    }
+    listenedEvent = new Event(EventTypes.LISTENED, this);
+    ignoredEvent = new Event(EventTypes.IGNORED, this);
+  }
+
+  /**
+   * Dispatches an event that is received by all listeners.
+   */
+  @Benchmark
+  public void dispatchListened() {
+    dispatcher.dispatchEvent(listenedEvent);
+  }
+
+  /**
+   * Dispatches an event that has no listeners.
+   */
+  @Benchmark
+  public void dispatchIgnored() {
+    dispatcher.dispatchEvent(ignoredEvent);
+  }
+}
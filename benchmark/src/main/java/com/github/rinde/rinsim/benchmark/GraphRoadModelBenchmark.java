@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2011-2018 Rinde R.S. van Lon
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rinde.rinsim.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.rinde.rinsim.core.Simulator;
+import com.github.rinde.rinsim.core.model.road.RoadModelBuilders;
+
+/**
+ * Measures the time of a single simulation tick in which a number of
+ * {@link PathFollower}s drive over a grid graph, this is dominated by
+ * <code>GraphRoadModelImpl.doFollowPath</code>.
+ * @author Rinde van Lon
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = BenchmarkSettings.WARMUP_ITERATIONS)
+@Measurement(iterations = BenchmarkSettings.MEASUREMENT_ITERATIONS)
+public class GraphRoadModelBenchmark {
+
+  @Param({"100", "1000"})
+  int vehicles;
+
+  @Param({"10", "50"})
+  int gridSize;
+
+  Simulator sim;
+
+  /**
+   * Creates a new instance, called by JMH.
+   */
+  public GraphRoadModelBenchmark() {}
+
+  /**
+   * Creates the simulator.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+    sim = Simulator.builder()
+      .setRandomSeed(BenchmarkSettings.SEED)
+      .addModel(RoadModelBuilders.staticGraph(
+        BenchmarkGraphs.createGrid(gridSize)))
+      .build();
+    for (int i = 0; i < vehicles; i++) {
+      sim.register(new PathFollower(sim.getRandomGenerator()));
+    }
+  }
+
+  /**
+   * Executes one tick.
+   */
+  @Benchmark
+  public void tick() {
+    sim.tick();
+  }
+}
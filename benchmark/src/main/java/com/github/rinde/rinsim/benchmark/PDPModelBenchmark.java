@@ -0,0 +1,206 @@
+/*
+ * Copyright (C) 2011-2018 Rinde R.S. van Lon
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rinde.rinsim.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.math3.random.RandomGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.rinde.rinsim.core.Simulator;
+import com.github.rinde.rinsim.core.SimulatorAPI;
+import com.github.rinde.rinsim.core.SimulatorUser;
+import com.github.rinde.rinsim.core.model.pdp.DefaultPDPModel;
+import com.github.rinde.rinsim.core.model.pdp.PDPModel;
+import com.github.rinde.rinsim.core.model.pdp.PDPModel.ParcelState;
+import com.github.rinde.rinsim.core.model.pdp.PDPModel.PDPModelEventType;
+import com.github.rinde.rinsim.core.model.pdp.Parcel;
+import com.github.rinde.rinsim.core.model.pdp.Vehicle;
+import com.github.rinde.rinsim.core.model.pdp.VehicleDTO;
+import com.github.rinde.rinsim.core.model.road.RoadModel;
+import com.github.rinde.rinsim.core.model.road.RoadModelBuilders;
+import com.github.rinde.rinsim.core.model.road.RoadModels;
+import com.github.rinde.rinsim.core.model.time.TickListener;
+import com.github.rinde.rinsim.core.model.time.TimeLapse;
+import com.github.rinde.rinsim.event.Event;
+import com.github.rinde.rinsim.event.Listener;
+import com.github.rinde.rinsim.geom.Point;
+import com.google.common.base.Optional;
+
+/**
+ * Measures the time of a single simulation tick of a pickup-and-delivery
+ * simulation in steady state. Vehicles greedily pickup and deliver parcels,
+ * every delivered parcel is replaced by a new one such that the number of
+ * parcels remains constant. This exercises {@link DefaultPDPModel#tick}
+ * (continuation of service actions) and the pickup and delivery operations.
+ * @author Rinde van Lon
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = BenchmarkSettings.WARMUP_ITERATIONS)
+@Measurement(iterations = BenchmarkSettings.MEASUREMENT_ITERATIONS)
+public class PDPModelBenchmark {
+  static final double SPEED = 50d;
+  static final long SERVICE_DURATION = 60 * 1000L;
+  static final Point MIN = new Point(0, 0);
+  static final Point MAX = new Point(10, 10);
+
+  @Param({"10", "100"})
+  int vehicles;
+
+  @Param({"100", "1000"})
+  int parcels;
+
+  Simulator sim;
+
+  /**
+   * Creates a new instance, called by JMH.
+   */
+  public PDPModelBenchmark() {}
+
+  /**
+   * Creates the simulator.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+    sim = Simulator.builder()
+      .setRandomSeed(BenchmarkSettings.SEED)
+      .addModel(RoadModelBuilders.plane().withMinPoint(MIN).withMaxPoint(MAX))
+      .addModel(DefaultPDPModel.builder())
+      .build();
+    final RandomGenerator rng = sim.getRandomGenerator();
+    final RoadModel rm = sim.getModelProvider().getModel(RoadModel.class);
+    final PDPModel pm = sim.getModelProvider().getModel(PDPModel.class);
+    sim.register(new ParcelReplenisher(rm, pm, rng));
+    for (int i = 0; i < parcels; i++) {
+      sim.register(newParcel(rm, rng));
+    }
+    for (int i = 0; i < vehicles; i++) {
+      sim.register(new GreedyVehicle(VehicleDTO.builder()
+        .startPosition(rm.getRandomPosition(rng))
+        .speed(SPEED)
+        .capacity(1)
+        .build()));
+    }
+  }
+
+  /**
+   * Executes one tick.
+   */
+  @Benchmark
+  public void tick() {
+    sim.tick();
+  }
+
+  static Parcel newParcel(RoadModel rm, RandomGenerator rng) {
+    return Parcel
+      .builder(rm.getRandomPosition(rng), rm.getRandomPosition(rng))
+      .serviceDuration(SERVICE_DURATION)
+      .build();
+  }
+
+  // registers a new parcel for each delivered parcel
+  static final class ParcelReplenisher
+      implements TickListener, SimulatorUser, Listener {
+    final RoadModel roadModel;
+    final RandomGenerator rng;
+    Optional<SimulatorAPI> simulator;
+    int delivered;
+
+    ParcelReplenisher(RoadModel rm, PDPModel pm, RandomGenerator r) {
+      roadModel = rm;
+      rng = r;
+      simulator = Optional.absent();
+      pm.getEventAPI().addListener(this, PDPModelEventType.END_DELIVERY);
+    }
+
+    @Override
+    public void setSimulator(SimulatorAPI api) {
+      simulator = Optional.of(api);
+    }
+
+    @Override
+    public void handleEvent(Event e) {
+      delivered++;
+    }
+
+    @Override
+    public void tick(TimeLapse timeLapse) {}
+
+    @Override
+    public void afterTick(TimeLapse timeLapse) {
+      for (; delivered > 0; delivered--) {
+        simulator.get().register(newParcel(roadModel, rng));
+      }
+    }
+  }
+
+  // drives to the closest parcel, picks it up and delivers it
+  static final class GreedyVehicle extends Vehicle {
+    Optional<Parcel> current;
+
+    GreedyVehicle(VehicleDTO dto) {
+      super(dto);
+      current = Optional.absent();
+    }
+
+    @Override
+    protected void tickImpl(TimeLapse time) {
+      final RoadModel rm = getRoadModel();
+      final PDPModel pm = getPDPModel();
+      if (!time.hasTimeLeft()) {
+        return;
+      }
+      if (!current.isPresent()) {
+        current = Optional.fromNullable(RoadModels.findClosestObject(
+          rm.getPosition(this), rm, Parcel.class));
+        if (!current.isPresent()) {
+          return;
+        }
+      }
+      final Parcel parcel = current.get();
+      if (pm.containerContains(this, parcel)) {
+        rm.moveTo(this, parcel.getDeliveryLocation(), time);
+        if (rm.getPosition(this).equals(parcel.getDeliveryLocation())) {
+          pm.deliver(this, parcel, time);
+          current = Optional.absent();
+        }
+      } else if (pm.getParcelState(parcel) != ParcelState.AVAILABLE
+        || !rm.containsObject(parcel)) {
+        // another vehicle was faster
+        current = Optional.absent();
+      } else {
+        rm.moveTo(this, parcel, time);
+        if (rm.equalPosition(this, parcel)) {
+          pm.pickup(this, parcel, time);
+        }
+      }
+    }
+  }
+}
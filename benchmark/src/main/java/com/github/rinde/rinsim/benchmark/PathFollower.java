@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2011-2018 Rinde R.S. van Lon
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rinde.rinsim.benchmark;
+
+import java.util.LinkedList;
+import java.util.Queue;
+
+import org.apache.commons.math3.random.RandomGenerator;
+
+import com.github.rinde.rinsim.core.model.road.MovingRoadUser;
+import com.github.rinde.rinsim.core.model.road.RoadModel;
+import com.github.rinde.rinsim.core.model.time.TickListener;
+import com.github.rinde.rinsim.core.model.time.TimeLapse;
+import com.github.rinde.rinsim.geom.Point;
+import com.google.common.base.Optional;
+
+/**
+ * A {@link MovingRoadUser} that continuously drives to random destinations.
+ * A path is only computed when the previous destination is reached, most of
+ * its time is therefore spent in
+ * {@link RoadModel#followPath(MovingRoadUser, Queue, TimeLapse)}.
+ * @author Rinde van Lon
+ */
+final class PathFollower implements MovingRoadUser, TickListener {
+  private static final double SPEED = 50d;
+
+  private final RandomGenerator rng;
+  private final Queue<Point> path;
+  private Optional<RoadModel> roadModel;
+
+  PathFollower(RandomGenerator r) {
+    rng = r;
+    path = new LinkedList<>();
+    roadModel = Optional.absent();
+  }
+
+  @Override
+  public void initRoadUser(RoadModel model) {
+    roadModel = Optional.of(model);
+    model.addObjectAt(this, model.getRandomPosition(rng));
+  }
+
+  @Override
+  public double getSpeed() {
+    return SPEED;
+  }
+
+  @Override
+  public void tick(TimeLapse timeLapse) {
+    final RoadModel rm = roadModel.get();
+    if (path.isEmpty()) {
+      path.addAll(rm.getShortestPathTo(this, rm.getRandomPosition(rng)));
+    }
+    if (!path.isEmpty()) {
+      rm.followPath(this, path, timeLapse);
+    }
+  }
+
+  @Override
+  public void afterTick(TimeLapse timeLapse) {}
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2011-2018 Rinde R.S. van Lon
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rinde.rinsim.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.math3.random.MersenneTwister;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.rinde.rinsim.core.model.pdp.DefaultPDPModel;
+import com.github.rinde.rinsim.core.model.pdp.VehicleDTO;
+import com.github.rinde.rinsim.core.model.road.RoadModelBuilders;
+import com.github.rinde.rinsim.pdptw.common.PDPRoadModel;
+import com.github.rinde.rinsim.scenario.Scenario;
+import com.github.rinde.rinsim.scenario.ScenarioIO;
+import com.github.rinde.rinsim.scenario.gendreau06.Gendreau06Parser;
+import com.github.rinde.rinsim.scenario.gendreau06.Gendreau06Scenario;
+import com.github.rinde.rinsim.scenario.generator.Parcels;
+import com.github.rinde.rinsim.scenario.generator.ScenarioGenerator;
+import com.github.rinde.rinsim.scenario.generator.TimeSeries;
+import com.github.rinde.rinsim.scenario.generator.Vehicles;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Resources;
+
+/**
+ * Measures parsing and serialization of scenarios: the parsing of a Gendreau06
+ * scenario file and {@link ScenarioIO} reading and writing of scenarios that
+ * are generated by a {@link ScenarioGenerator}.
+ * @author Rinde van Lon
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = BenchmarkSettings.WARMUP_ITERATIONS)
+@Measurement(iterations = BenchmarkSettings.MEASUREMENT_ITERATIONS)
+public class ScenarioIOBenchmark {
+  static final String GENDREAU_FILE = "req_rapide_1_240_24";
+  static final long SCENARIO_LENGTH = 4 * 60 * 60 * 1000L;
+  static final int NUM_VEHICLES = 10;
+
+  @Param({"100", "1000"})
+  int parcels;
+
+  byte[] gendreauBytes;
+  String gendreauJson;
+  Scenario generated;
+  String generatedJson;
+
+  /**
+   * Creates a new instance, called by JMH.
+   */
+  public ScenarioIOBenchmark() {}
+
+  /**
+   * Loads the Gendreau06 fixture and generates a scenario.
+   * @throws IOException If the fixture can not be read.
+   */
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    gendreauBytes = Resources.toByteArray(
+      Resources.getResource("gendreau06/" + GENDREAU_FILE));
+    gendreauJson = ScenarioIO.write(parseGendreau06().get(0));
+
+    final double interArrivalTime = (double) SCENARIO_LENGTH / parcels;
+    generated = ScenarioGenerator.builder()
+      .parcels(Parcels.builder()
+        .announceTimes(TimeSeries.uniform(SCENARIO_LENGTH, parcels,
+          interArrivalTime / 2d))
+        .build())
+      .vehicles(Vehicles.homogenous(VehicleDTO.builder().build(),
+        NUM_VEHICLES))
+      .scenarioLength(SCENARIO_LENGTH)
+      .addModel(PDPRoadModel.builder(RoadModelBuilders.plane()))
+      .addModel(DefaultPDPModel.builder())
+      .build()
+      .generate(new MersenneTwister(BenchmarkSettings.SEED), "benchmark");
+    generatedJson = ScenarioIO.write(generated);
+  }
+
+  /**
+   * Parses the Gendreau06 scenario file.
+   * @return The parsed scenario.
+   */
+  @Benchmark
+  public ImmutableList<Gendreau06Scenario> parseGendreau06() {
+    return Gendreau06Parser.parser()
+      .addFile(new ByteArrayInputStream(gendreauBytes), GENDREAU_FILE)
+      .parse();
+  }
+
+  /**
+   * Reads the JSON representation of the Gendreau06 scenario.
+   * @return The scenario.
+   */
+  @Benchmark
+  public Scenario readGendreau06Json() {
+    return ScenarioIO.read(gendreauJson);
+  }
+
+  /**
+   * Reads the JSON representation of the generated scenario.
+   * @return The scenario.
+   */
+  @Benchmark
+  public Scenario readGeneratedJson() {
+    return ScenarioIO.read(generatedJson);
+  }
+
+  /**
+   * Writes the generated scenario to JSON.
+   * @return The JSON string.
+   */
+  @Benchmark
+  public String writeGeneratedJson() {
+    return ScenarioIO.write(generated);
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2011-2018 Rinde R.S. van Lon
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rinde.rinsim.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.math3.random.MersenneTwister;
+import org.apache.commons.math3.random.RandomGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.rinde.rinsim.geom.GeomHeuristic;
+import com.github.rinde.rinsim.geom.GeomHeuristics;
+import com.github.rinde.rinsim.geom.Graph;
+import com.github.rinde.rinsim.geom.Graphs;
+import com.github.rinde.rinsim.geom.LengthData;
+import com.github.rinde.rinsim.geom.Point;
+
+/**
+ * Measures {@link Graphs#shortestPath(Graph, Point, Point, GeomHeuristic)}
+ * between random pairs of nodes in a grid graph.
+ * @author Rinde van Lon
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = BenchmarkSettings.WARMUP_ITERATIONS)
+@Measurement(iterations = BenchmarkSettings.MEASUREMENT_ITERATIONS)
+public class ShortestPathBenchmark {
+  static final int NUM_PAIRS = 1024;
+
+  @Param({"10", "50", "100"})
+  int gridSize;
+
+  Graph<LengthData> graph;
+  Point[] from;
+  Point[] to;
+  int index;
+  GeomHeuristic heuristic;
+
+  /**
+   * Creates a new instance, called by JMH.
+   */
+  public ShortestPathBenchmark() {}
+
+  /**
+   * Creates the graph and the pairs of nodes.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+    graph = BenchmarkGraphs.createGrid(gridSize);
+    heuristic = GeomHeuristics.euclidean();
+    final List<Point> nodes = new ArrayList<>(graph.getNodes());
+    final RandomGenerator rng = new MersenneTwister(BenchmarkSettings.SEED);
+    from = new Point[NUM_PAIRS];
+    to = new Point[NUM_PAIRS];
+    for (int i = 0; i < NUM_PAIRS; i++) {
+      from[i] = nodes.get(rng.nextInt(nodes.size()));
+      to[i] = nodes.get(rng.nextInt(nodes.size()));
+    }
+  }
+
+  /**
+   * Computes the shortest path between the next pair of nodes.
+   * @return The path.
+   */
+  @Benchmark
+  public List<Point> shortestPath() {
+    index = (index + 1) % NUM_PAIRS;
+    return Graphs.shortestPath(graph, from[index], to[index], heuristic);
+  }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2011-2018 Rinde R.S. van Lon
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rinde.rinsim.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.rinde.rinsim.event.Event;
+import com.github.rinde.rinsim.event.Listener;
+import com.github.rinde.rinsim.fsm.AbstractState;
+import com.github.rinde.rinsim.fsm.StateMachine;
+import com.github.rinde.rinsim.fsm.StateMachine.StateMachineEvent;
+
+/**
+ * Measures a single tick of 10,000 vehicle-like {@link StateMachine}s, each
+ * machine cycles through a wait, goto and service state similar to the
+ * <code>RouteFollowingVehicle</code>.
+ * @author Rinde van Lon
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = BenchmarkSettings.WARMUP_ITERATIONS)
+@Measurement(iterations = BenchmarkSettings.MEASUREMENT_ITERATIONS)
+public class StateMachineBenchmark {
+  static final int VEHICLES = 10000;
+
+  enum Trigger {
+    GOTO, ARRIVED, DONE
+  }
+
+  @Param({"false", "true"})
+  boolean listener;
+
+  List<StateMachine<Trigger, Counter>> machines;
+  Counter context;
+  long transitions;
+
+  /**
+   * Creates a new instance, called by JMH.
+   */
+  public StateMachineBenchmark() {}
+
+  /**
+   * Creates the state machines.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+    context = new Counter();
+    machines = new ArrayList<>();
+    final Listener l = new Listener() {
+      @Override
+      public void handleEvent(Event e) {
+        transitions++;
+      }
+    };
+    for (int i = 0; i < VEHICLES; i++) {
+      final CyclingState wait = new CyclingState(Trigger.GOTO, 2);
+      final CyclingState gotoState = new CyclingState(Trigger.ARRIVED, 3);
+      final CyclingState service = new CyclingState(Trigger.DONE, 1);
+      final StateMachine<Trigger, Counter> fsm = StateMachine
+        .<Trigger, Counter>create(wait)
+        .addTransition(wait, Trigger.GOTO, gotoState)
+        .addTransition(gotoState, Trigger.ARRIVED, service)
+        .addTransition(gotoState, Trigger.GOTO, gotoState)
+        .addTransition(service, Trigger.DONE, wait)
+        .build();
+      if (listener) {
+        fsm.getEventAPI().addListener(l, StateMachineEvent.STATE_TRANSITION);
+      }
+      machines.add(fsm);
+    }
+  }
+
+  /**
+   * Handles one tick for all state machines.
+   * @return The context, to avoid dead code elimination.
+   */
+  @Benchmark
+  public Counter tick() {
+    for (int i = 0; i < machines.size(); i++) {
+      machines.get(i).handle(context);
+    }
+    return context;
+  }
+
+  static final class Counter {
+    long ticks;
+
+    Counter() {}
+  }
+
+  // emits its trigger every 'period' invocations
+  static final class CyclingState extends AbstractState<Trigger, Counter> {
+    private final Trigger trigger;
+    private final int period;
+    private int count;
+
+    CyclingState(Trigger t, int p) {
+      trigger = t;
+      period = p;
+    }
+
+    @Nullable
+    @Override
+    public Trigger handle(@Nullable Trigger event, Counter context) {
+      context.ticks++;
+      if (event != null) {
+        return null;
+      }
+      count++;
+      if (count % period == 0) {
+        return trigger;
+      }
+      return null;
+    }
+  }
+}
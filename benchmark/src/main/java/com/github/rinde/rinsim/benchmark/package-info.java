@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) 2011-2018 Rinde R.S. van Lon
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/**
+ * JMH benchmarks of the simulation hot paths of RinSim. The benchmarks are
+ * packaged in an executable jar, all results can be written in a machine
+ * readable format such that they can be compared across releases:
+ *
+ * <pre>
+ * mvn package -pl benchmark -am -DskipTests
+ * java -jar benchmark/target/benchmarks.jar -rf json -rff results.json
+ * </pre>
+ *
+ * A subset of the benchmarks can be selected by specifying a regular
+ * expression, the parameters can be overridden using <code>-p</code>, e.g.:
+ *
+ * <pre>
+ * java -jar benchmark/target/benchmarks.jar GraphRoadModel -p vehicles=5000
+ * </pre>
+ */
+@ParametersAreNonnullByDefault
+package com.github.rinde.rinsim.benchmark;
+
+import javax.annotation.ParametersAreNonnullByDefault;
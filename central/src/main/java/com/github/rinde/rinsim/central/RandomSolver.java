@@ -19,6 +19,7 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.collect.Lists.newArrayList;
 import static com.google.common.collect.Sets.newLinkedHashSet;
 
+import java.io.Serializable;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
@@ -40,7 +41,9 @@ import com.google.common.collect.LinkedListMultimap;
  *
  * @author Rinde van Lon
  */
-public final class RandomSolver implements Solver {
+public final class RandomSolver implements Solver, Serializable {
+  private static final long serialVersionUID = 5835125679553493388L;
+
   private final RandomGenerator randomGenerator;
 
   RandomSolver(RandomGenerator rng) {
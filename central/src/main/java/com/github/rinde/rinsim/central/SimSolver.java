@@ -19,6 +19,7 @@ import static com.github.rinde.rinsim.core.model.pdp.PDPModel.ParcelState.ANNOUN
 import static com.github.rinde.rinsim.core.model.pdp.PDPModel.ParcelState.AVAILABLE;
 import static com.github.rinde.rinsim.core.model.pdp.PDPModel.ParcelState.PICKING_UP;
 
+import java.io.Serializable;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
@@ -41,7 +42,9 @@ import com.google.common.collect.ImmutableSet;
  * Adapter for {@link Solver}s.
  * @author Rinde van Lon
  */
-public final class SimSolver implements SimulationConverter {
+public final class SimSolver implements SimulationConverter, Serializable {
+  private static final long serialVersionUID = 1631350073392793365L;
+
   final Optional<Solver> solver;
   final Clock clock;
   final PDPRoadModel roadModel;
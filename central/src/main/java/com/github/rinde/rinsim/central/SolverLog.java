@@ -0,0 +1,380 @@
+/*
+ * Copyright (C) 2011-2018 Rinde R.S. van Lon
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rinde.rinsim.central;
+
+import static com.google.common.base.Preconditions.checkState;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileLock;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import com.github.rinde.rinsim.central.GlobalStateObject.VehicleStateObject;
+import com.github.rinde.rinsim.core.model.pdp.Parcel;
+import com.github.rinde.rinsim.core.model.pdp.VehicleDTO;
+import com.github.rinde.rinsim.geom.Connection;
+import com.github.rinde.rinsim.geom.Point;
+import com.github.rinde.rinsim.util.TimeWindow;
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+/**
+ * A log of schedules computed by a solver, see {@link SolverRecorder}. Each
+ * record consists of a key and a schedule. The key is computed from the seed
+ * of the solver and the {@link #fingerprint(GlobalStateObject)} of the state
+ * for which the schedule was computed. Parcels in a schedule are stored as an
+ * index in the list of parcels of the state, such that a schedule can be
+ * replayed in a different simulation that contains different (but equal)
+ * parcel instances.
+ * <p>
+ * A solver may compute several schedules for the same state (e.g. a
+ * {@link com.github.rinde.rinsim.central.rt.RealtimeSolver} that improves its
+ * schedule over time), each instance therefore numbers the records of a key in
+ * the order in which they were recorded.
+ * {@link #replaySequence(GlobalStateObject)} returns this sequence,
+ * {@link #replay(GlobalStateObject)} returns its last schedule. When the
+ * same key is recorded again by another instance (e.g. because a simulation
+ * is recorded twice), the new sequence replaces the old one.
+ * <p>
+ * The log is a binary file to which records are appended. Several instances
+ * (e.g. for different simulations running in parallel) can record to the same
+ * file, the combination of seed and fingerprint identifies the simulation.
+ * Each record is appended while holding a {@link FileLock} on the file, such
+ * that records of different processes (e.g. the worker processes of an
+ * experiment) are never interleaved.
+ * @author Rinde van Lon
+ */
+public final class SolverLog {
+  static final int MAGIC = 0x52534c47;
+  static final Object LOCK = new Object();
+  static final HashFunction HASH = Hashing.murmur3_128();
+
+  private final File file;
+  private final long seed;
+  private final Map<Long, Integer> recordCounts;
+  @Nullable
+  private Map<Long, List<int[][]>> records;
+
+  SolverLog(File f, long sd) {
+    file = f;
+    seed = sd;
+    recordCounts = new HashMap<>();
+  }
+
+  /**
+   * Creates a new log for a solver with the specified seed.
+   * @param file The file that contains the log.
+   * @param seed The seed of the solver.
+   * @return A new instance.
+   */
+  public static SolverLog create(File file, long seed) {
+    return new SolverLog(file, seed);
+  }
+
+  /**
+   * Appends a record with the specified state and schedule to the log. The
+   * record is the next schedule in the sequence of schedules of the state.
+   * @param state The state that was the input of the solver.
+   * @param schedule The schedule that was computed for the state.
+   */
+  public void record(GlobalStateObject state,
+      ImmutableList<ImmutableList<Parcel>> schedule) {
+    final Map<Parcel, Integer> indices = new HashMap<>();
+    final List<Parcel> parcels = parcels(state);
+    for (int i = 0; i < parcels.size(); i++) {
+      indices.put(parcels.get(i), i);
+    }
+    final long key = key(seed, state);
+    final int seqIndex;
+    synchronized (recordCounts) {
+      final Integer count = recordCounts.get(key);
+      seqIndex = count == null ? 0 : count;
+      recordCounts.put(key, seqIndex + 1);
+    }
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeLong(key);
+      out.writeInt(seqIndex);
+      out.writeInt(schedule.size());
+      for (final ImmutableList<Parcel> route : schedule) {
+        out.writeInt(route.size());
+        for (final Parcel p : route) {
+          final Integer index = indices.get(p);
+          checkState(index != null,
+            "Parcel %s in the schedule is not part of the state.", p);
+          out.writeInt(index);
+        }
+      }
+    } catch (final IOException e) {
+      throw new IllegalStateException(e);
+    }
+    // LOCK guards against overlapping file locks within this JVM, the file
+    // lock against appends of other processes
+    synchronized (LOCK) {
+      try (FileOutputStream os = new FileOutputStream(file, true);
+          FileLock lock = os.getChannel().lock()) {
+        final DataOutputStream out = new DataOutputStream(os);
+        if (os.getChannel().size() == 0) {
+          out.writeInt(MAGIC);
+        }
+        bytes.writeTo(out);
+        out.flush();
+      } catch (final IOException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+  }
+
+  /**
+   * Looks up the last schedule that was recorded for the specified state.
+   * @param state The state.
+   * @return The schedule, the parcels are the parcels of the specified state.
+   * @throws IllegalStateException if no schedule was recorded for the state
+   *           or if the recorded schedule does not fit the state.
+   */
+  public ImmutableList<ImmutableList<Parcel>> replay(GlobalStateObject state) {
+    final List<ImmutableList<ImmutableList<Parcel>>> sequence =
+      replaySequence(state);
+    return sequence.get(sequence.size() - 1);
+  }
+
+  /**
+   * Looks up all schedules that were recorded for the specified state, in the
+   * order in which they were recorded.
+   * @param state The state.
+   * @return The non-empty list of schedules, the parcels are the parcels of
+   *         the specified state.
+   * @throws IllegalStateException if no schedule was recorded for the state
+   *           or if a recorded schedule does not fit the state.
+   */
+  public ImmutableList<ImmutableList<ImmutableList<Parcel>>> replaySequence(
+      GlobalStateObject state) {
+    final List<int[][]> sequence = records().get(key(seed, state));
+    checkState(sequence != null,
+      "No schedule was recorded in %s for a state at time %s with seed %s "
+        + "(fingerprint %s).",
+      file, state.getTime(), seed, Long.toHexString(fingerprint(state)));
+    final List<Parcel> parcels = parcels(state);
+    final ImmutableList.Builder<ImmutableList<ImmutableList<Parcel>>> b =
+      ImmutableList.builder();
+    for (final int[][] schedule : sequence) {
+      b.add(toSchedule(schedule, state, parcels));
+    }
+    return b.build();
+  }
+
+  /**
+   * Checks whether a schedule was recorded for the specified state.
+   * @param state The state.
+   * @return <code>true</code> if {@link #replaySequence(GlobalStateObject)}
+   *         finds a recorded sequence for the state, <code>false</code>
+   *         otherwise.
+   */
+  public boolean contains(GlobalStateObject state) {
+    return records().containsKey(key(seed, state));
+  }
+
+  synchronized Map<Long, List<int[][]>> records() {
+    if (records == null) {
+      records = read(file);
+    }
+    return records;
+  }
+
+  static ImmutableList<ImmutableList<Parcel>> toSchedule(int[][] schedule,
+      GlobalStateObject state, List<Parcel> parcels) {
+    checkState(schedule.length == state.getVehicles().size(),
+      "The recorded schedule has %s routes but the state has %s vehicles.",
+      schedule.length, state.getVehicles().size());
+    final ImmutableList.Builder<ImmutableList<Parcel>> b =
+      ImmutableList.builder();
+    for (final int[] route : schedule) {
+      final ImmutableList.Builder<Parcel> rb = ImmutableList.builder();
+      for (final int index : route) {
+        checkState(index < parcels.size(),
+          "The recorded schedule refers to parcel %s but the state has only "
+            + "%s parcels.",
+          index, parcels.size());
+        rb.add(parcels.get(index));
+      }
+      b.add(rb.build());
+    }
+    return b.build();
+  }
+
+  /**
+   * Computes a fingerprint of the specified state. The fingerprint depends on
+   * the time, the available parcels and the state of the vehicles (including
+   * their routes), parcels are compared by their properties instead of by
+   * identity.
+   * @param state The state.
+   * @return The fingerprint.
+   */
+  public static long fingerprint(GlobalStateObject state) {
+    final Hasher h = HASH.newHasher();
+    h.putLong(state.getTime());
+    final List<Parcel> parcels = parcels(state);
+    final Map<Parcel, Integer> indices = new HashMap<>();
+    h.putInt(parcels.size());
+    for (int i = 0; i < parcels.size(); i++) {
+      indices.put(parcels.get(i), i);
+      putParcel(h, parcels.get(i));
+    }
+    h.putInt(state.getAvailableParcels().size());
+    h.putInt(state.getVehicles().size());
+    for (final VehicleStateObject v : state.getVehicles()) {
+      putVehicleDto(h, v.getDto());
+      putPoint(h, v.getLocation());
+      if (v.getConnection().isPresent()) {
+        final Connection<?> conn = v.getConnection().get();
+        putPoint(h, conn.from());
+        putPoint(h, conn.to());
+      }
+      h.putLong(v.getRemainingServiceTime());
+      putIndices(h, v.getContents(), indices);
+      h.putInt(v.getDestination().isPresent()
+        ? indices.get(v.getDestination().get()) : -1);
+      if (v.getRoute().isPresent()) {
+        putIndices(h, v.getRoute().get(), indices);
+      } else {
+        h.putInt(-1);
+      }
+    }
+    return h.hash().asLong();
+  }
+
+  static long key(long seed, GlobalStateObject state) {
+    return HASH.newHasher()
+      .putLong(seed)
+      .putLong(fingerprint(state))
+      .hash().asLong();
+  }
+
+  // all parcels of the state in a deterministic order: available parcels
+  // followed by the parcels in the vehicles
+  static List<Parcel> parcels(GlobalStateObject state) {
+    final Map<Parcel, Boolean> parcels = new LinkedHashMap<>();
+    for (final Parcel p : state.getAvailableParcels()) {
+      parcels.put(p, Boolean.TRUE);
+    }
+    for (final VehicleStateObject v : state.getVehicles()) {
+      for (final Parcel p : v.getContents()) {
+        parcels.put(p, Boolean.TRUE);
+      }
+      if (v.getDestination().isPresent()) {
+        parcels.put(v.getDestination().get(), Boolean.TRUE);
+      }
+      if (v.getRoute().isPresent()) {
+        for (final Parcel p : v.getRoute().get()) {
+          parcels.put(p, Boolean.TRUE);
+        }
+      }
+    }
+    return new ArrayList<>(parcels.keySet());
+  }
+
+  static Map<Long, List<int[][]>> read(File file) {
+    final Map<Long, List<int[][]>> map = new HashMap<>();
+    if (!file.exists()) {
+      return map;
+    }
+    synchronized (LOCK) {
+      try (FileInputStream fis = new FileInputStream(file);
+          FileLock lock = fis.getChannel().lock(0L, Long.MAX_VALUE, true)) {
+        final DataInputStream in =
+          new DataInputStream(new BufferedInputStream(fis));
+        if (fis.getChannel().size() == 0) {
+          return map;
+        }
+        checkState(in.readInt() == MAGIC, "%s is not a solver log.", file);
+        while (true) {
+          final long key;
+          try {
+            key = in.readLong();
+          } catch (final EOFException e) {
+            break;
+          }
+          final int index = in.readInt();
+          final int[][] schedule = new int[in.readInt()][];
+          for (int i = 0; i < schedule.length; i++) {
+            schedule[i] = new int[in.readInt()];
+            for (int j = 0; j < schedule[i].length; j++) {
+              schedule[i][j] = in.readInt();
+            }
+          }
+          // the first schedule of a sequence replaces older recordings
+          if (index == 0 || !map.containsKey(key)) {
+            map.put(key, new ArrayList<int[][]>());
+          }
+          map.get(key).add(schedule);
+        }
+      } catch (final IOException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+    return map;
+  }
+
+  static void putIndices(Hasher h, Iterable<Parcel> ps,
+      Map<Parcel, Integer> indices) {
+    int size = 0;
+    for (final Parcel p : ps) {
+      h.putInt(indices.get(p));
+      size++;
+    }
+    h.putInt(size);
+  }
+
+  static void putParcel(Hasher h, Parcel p) {
+    putPoint(h, p.getPickupLocation());
+    putPoint(h, p.getDeliveryLocation());
+    putTimeWindow(h, p.getPickupTimeWindow());
+    putTimeWindow(h, p.getDeliveryTimeWindow());
+    h.putLong(p.getPickupDuration())
+      .putLong(p.getDeliveryDuration())
+      .putDouble(p.getNeededCapacity())
+      .putLong(p.getOrderAnnounceTime());
+  }
+
+  static void putVehicleDto(Hasher h, VehicleDTO dto) {
+    putPoint(h, dto.getStartPosition());
+    putTimeWindow(h, dto.getAvailabilityTimeWindow());
+    h.putDouble(dto.getSpeed()).putInt(dto.getCapacity());
+  }
+
+  static void putPoint(Hasher h, Point p) {
+    h.putDouble(p.x).putDouble(p.y);
+  }
+
+  static void putTimeWindow(Hasher h, TimeWindow tw) {
+    h.putLong(tw.begin()).putLong(tw.end());
+  }
+}
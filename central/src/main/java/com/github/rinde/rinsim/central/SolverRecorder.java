@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2011-2018 Rinde R.S. van Lon
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rinde.rinsim.central;
+
+import java.io.File;
+
+import com.github.rinde.rinsim.core.model.pdp.Parcel;
+import com.github.rinde.rinsim.util.StochasticSupplier;
+import com.github.rinde.rinsim.util.StochasticSuppliers;
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Allows recording the schedules that are computed by a {@link Solver} in a
+ * {@link SolverLog}, and replaying them afterwards without calling the solver.
+ * This makes it possible to re-run a simulation with the same scenario and
+ * seed (e.g. to compute other metrics or to debug the vehicles) in a fraction
+ * of the time. During replay, the fingerprint of every state is checked
+ * against the log, a {@link IllegalStateException} is thrown when a state is
+ * encountered for which no schedule was recorded.
+ * <p>
+ * The seed that is passed to {@link StochasticSupplier#get(long)} is part of
+ * the key of each record, a single log file can therefore be used for all
+ * simulations of an experiment that use the same solver configuration.
+ * @author Rinde van Lon
+ */
+public final class SolverRecorder {
+
+  static final String RECORD = "record";
+  static final String REPLAY = "replay";
+
+  private SolverRecorder() {}
+
+  /**
+   * Decorates the specified {@link Solver} such that all schedules it computes
+   * are recorded in the specified log.
+   * @param delegate The solver to record.
+   * @param log The log to record to.
+   * @return The wrapped solver.
+   */
+  public static Solver record(Solver delegate, SolverLog log) {
+    return new RecordingSolver(delegate, log);
+  }
+
+  /**
+   * Creates a {@link Solver} that replays the schedules from the specified
+   * log.
+   * @param log The log to replay.
+   * @return The replaying solver.
+   */
+  public static Solver replay(SolverLog log) {
+    return new ReplayingSolver(log);
+  }
+
+  /**
+   * Decorates the original {@link StochasticSupplier} such that all generated
+   * {@link Solver} instances record to the specified file using
+   * {@link #record(Solver, SolverLog)}.
+   * @param sup The supplier to wrap.
+   * @param file The file of the log, records are appended if it already
+   *          exists.
+   * @return The wrapper supplier.
+   */
+  public static StochasticSupplier<Solver> record(
+      StochasticSupplier<? extends Solver> sup, File file) {
+    return new RecordingSupplier(sup, file);
+  }
+
+  /**
+   * Creates a {@link StochasticSupplier} of {@link Solver}s that replay the
+   * schedules from the specified file using {@link #replay(SolverLog)}.
+   * @param file The file of the log.
+   * @return The supplier.
+   */
+  public static StochasticSupplier<Solver> replay(File file) {
+    return new ReplayingSupplier(file);
+  }
+
+  static String name(String method, Object... args) {
+    return SolverRecorder.class.getSimpleName() + "." + method + "("
+      + Joiner.on(", ").join(args) + ")";
+  }
+
+  static class RecordingSolver implements Solver {
+    private final Solver delegate;
+    private final SolverLog log;
+
+    RecordingSolver(Solver deleg, SolverLog l) {
+      delegate = deleg;
+      log = l;
+    }
+
+    @Override
+    public ImmutableList<ImmutableList<Parcel>> solve(GlobalStateObject state)
+        throws InterruptedException {
+      final ImmutableList<ImmutableList<Parcel>> result =
+        delegate.solve(state);
+      log.record(state, result);
+      return result;
+    }
+
+    @Override
+    public String toString() {
+      return name(RECORD, delegate);
+    }
+  }
+
+  static class ReplayingSolver implements Solver {
+    private final SolverLog log;
+
+    ReplayingSolver(SolverLog l) {
+      log = l;
+    }
+
+    @Override
+    public ImmutableList<ImmutableList<Parcel>> solve(
+        GlobalStateObject state) {
+      return log.replay(state);
+    }
+
+    @Override
+    public String toString() {
+      return name(REPLAY);
+    }
+  }
+
+  private static final class RecordingSupplier extends
+      StochasticSuppliers.AbstractStochasticSupplier<Solver> {
+    private static final long serialVersionUID = -6212305429346127374L;
+    private final StochasticSupplier<? extends Solver> supplier;
+    private final File file;
+
+    RecordingSupplier(StochasticSupplier<? extends Solver> sup, File f) {
+      supplier = sup;
+      file = f;
+    }
+
+    @Override
+    public Solver get(long seed) {
+      return record(supplier.get(seed), SolverLog.create(file, seed));
+    }
+
+    @Override
+    public String toString() {
+      return name(RECORD, supplier, file);
+    }
+  }
+
+  private static final class ReplayingSupplier extends
+      StochasticSuppliers.AbstractStochasticSupplier<Solver> {
+    private static final long serialVersionUID = 1931047412271386935L;
+    private final File file;
+
+    ReplayingSupplier(File f) {
+      file = f;
+    }
+
+    @Override
+    public Solver get(long seed) {
+      return replay(SolverLog.create(file, seed));
+    }
+
+    @Override
+    public String toString() {
+      return name(REPLAY, file);
+    }
+  }
+}
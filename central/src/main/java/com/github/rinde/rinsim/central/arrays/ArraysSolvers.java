@@ -37,7 +37,11 @@ import javax.measure.unit.Unit;
 import com.github.rinde.rinsim.central.GlobalStateObject;
 import com.github.rinde.rinsim.central.GlobalStateObject.VehicleStateObject;
 import com.github.rinde.rinsim.core.model.pdp.Parcel;
+import com.github.rinde.rinsim.core.model.road.RoadModelSnapshot;
 import com.github.rinde.rinsim.core.model.road.RoadModels;
+import com.github.rinde.rinsim.geom.Connection;
+import com.github.rinde.rinsim.geom.GeomHeuristic;
+import com.github.rinde.rinsim.geom.GeomHeuristics;
 import com.github.rinde.rinsim.geom.Point;
 import com.github.rinde.rinsim.util.TimeWindow;
 import com.google.common.collect.ImmutableList;
@@ -105,10 +109,10 @@ public final class ArraysSolvers {
       for (int j = 0; j < i; j++) {
         if (i != j) {
           // compute distance
-          final Measure<Double, Length> dist = Measure.valueOf(
-            Point.distance(points.get(i), points.get(j)), distUnit);
+          final double dist = Point.distance(points.get(i), points.get(j));
           // calculate duration in desired unit
-          final double duration = RoadModels.computeTravelTime(speed, dist,
+          final double duration = RoadModels.computeTravelTime(
+            speed.getValue(), speed.getUnit(), dist, distUnit,
             outputTimeUnit);
           // round duration
           final int tt = DoubleMath.roundToInt(duration, rm);
@@ -130,6 +134,29 @@ public final class ArraysSolvers {
    */
   public static ArraysObject toSingleVehicleArrays(GlobalStateObject state,
       Unit<Duration> outputTimeUnit) {
+    return toSingleVehicleArrays(state, outputTimeUnit,
+      TravelTimeMatrix.create(state, outputTimeUnit));
+  }
+
+  /**
+   * Converts the {@link GlobalStateObject} into an {@link ArraysObject} using
+   * the specified output time unit. The travel times between the locations
+   * are looked up in the specified {@link TravelTimeMatrix}, locations that
+   * are not yet part of the matrix are added to it. By reusing the same matrix
+   * for consecutive states only the travel times of new locations are
+   * computed.
+   * @param state The state to convert.
+   * @param outputTimeUnit The {@link Unit} to use as time in the resulting
+   *          object.
+   * @param matrix The travel time matrix, must be
+   *          {@link TravelTimeMatrix#isCompatibleWith(GlobalStateObject, Unit)
+   *          compatible} with the state.
+   * @return An {@link ArraysObject} using the specified output time unit.
+   */
+  public static ArraysObject toSingleVehicleArrays(GlobalStateObject state,
+      Unit<Duration> outputTimeUnit, TravelTimeMatrix matrix) {
+    checkArgument(matrix.isCompatibleWith(state, outputTimeUnit),
+      "The travel time matrix is not compatible with the state: %s.", matrix);
 
     final UnitConverter timeConverter = state.getTimeUnit()
       .getConverterTo(outputTimeUnit);
@@ -228,10 +255,6 @@ public final class ArraysSolvers {
 
     releaseDates[index] = Math.min(0, dueDates[index]);
 
-    final Measure<Double, Velocity> speed = Measure.valueOf(
-      v.getDto().getSpeed(),
-      state.getSpeedUnit());
-
     final ImmutableList<Point> pointList = points.build();
     final ImmutableMap<Parcel, ParcelIndexObj> parcel2indexMap =
       parcel2indexBuilder
@@ -240,8 +263,8 @@ public final class ArraysSolvers {
       index2parcelBuilder
         .build();
 
-    final int[][] travelTime = ArraysSolvers.toTravelTimeMatrix(pointList,
-      state.getDistUnit(), speed, outputTimeUnit, RoundingMode.CEILING);
+    final int[][] travelTime = toTravelTimeMatrix(state, v, pointList,
+      matrix, outputTimeUnit);
 
     @Nullable
     SolutionObject[] sol = null;
@@ -256,6 +279,27 @@ public final class ArraysSolvers {
       serviceTimes, sol, pointList, parcel2indexMap, index2parcelMap);
   }
 
+  static int[][] toTravelTimeMatrix(GlobalStateObject state,
+      VehicleStateObject v, List<Point> points, TravelTimeMatrix matrix,
+      Unit<Duration> outputTimeUnit) {
+    if (!v.getConnection().isPresent()) {
+      return matrix.toArray(points);
+    }
+    // the vehicle is on a connection of a graph, its location is not a node
+    // and can therefore not be part of the matrix
+    final int n = points.size();
+    final int[][] inner = matrix.toArray(points.subList(1, n));
+    final int[] fromVehicle = toVehicleTravelTimes(state, v,
+      points.subList(1, n), outputTimeUnit);
+    final int[][] travelTime = new int[n][n];
+    for (int i = 1; i < n; i++) {
+      travelTime[0][i] = fromVehicle[i - 1];
+      travelTime[i][0] = fromVehicle[i - 1];
+      System.arraycopy(inner[i - 1], 0, travelTime[i], 1, n - 1);
+    }
+    return travelTime;
+  }
+
   @Nullable
   static SolutionObject[] toCurrentSolutions(GlobalStateObject state,
       Map<Parcel, ParcelIndexObj> mapping, int[][] travelTime,
@@ -354,8 +398,26 @@ public final class ArraysSolvers {
    */
   public static MVArraysObject toMultiVehicleArrays(GlobalStateObject state,
       Unit<Duration> outputTimeUnit) {
+    return toMultiVehicleArrays(state, outputTimeUnit,
+      TravelTimeMatrix.create(state, outputTimeUnit));
+  }
+
+  /**
+   * Converts the specified {@link GlobalStateObject} into an
+   * {@link MVArraysObject} using the specified time unit and
+   * {@link TravelTimeMatrix}, see
+   * {@link #toSingleVehicleArrays(GlobalStateObject, Unit, TravelTimeMatrix)}.
+   * @param state The state to convert.
+   * @param outputTimeUnit The unit to use for time.
+   * @param matrix The travel time matrix, must be
+   *          {@link TravelTimeMatrix#isCompatibleWith(GlobalStateObject, Unit)
+   *          compatible} with the state.
+   * @return A {@link MVArraysObject} using the specified output time unit.
+   */
+  public static MVArraysObject toMultiVehicleArrays(GlobalStateObject state,
+      Unit<Duration> outputTimeUnit, TravelTimeMatrix matrix) {
     final ArraysObject singleVehicleArrays = toSingleVehicleArrays(state,
-      outputTimeUnit);
+      outputTimeUnit, matrix);
     checkArgument(!state.getVehicles().isEmpty(),
       "We need at least one vehicle");
 
@@ -439,10 +501,6 @@ public final class ArraysSolvers {
 
     for (int i = 0; i < v; i++) {
       final VehicleStateObject cur = iterator.next();
-      final Measure<Double, Velocity> speed = Measure.valueOf(
-        cur.getDto().getSpeed(),
-        state.getSpeedUnit());
-
       if (cur.getDestination().isPresent()) {
         final Parcel dest = cur.getDestination().get();
         // only add travel time for current dest
@@ -454,32 +512,47 @@ public final class ArraysSolvers {
         final int index = isInCargo ? pio.deliveryIndex : pio.pickupIndex;
 
         checkArgument(index > 0);
-        vehicleTravelTimes[i][index] = computeRoundedTravelTime(speed,
-          Measure.valueOf(
-            Point.distance(cur.getLocation(),
-              sva.location2index.get(index)),
-            state.getDistUnit()),
-          outputTimeUnit);
-
+        vehicleTravelTimes[i][index] = toVehicleTravelTimes(state, cur,
+          ImmutableList.of(sva.location2index.get(index)), outputTimeUnit)[0];
       } else {
         // add travel time for every location
-        for (int j = 1; j < n; j++) {
-          vehicleTravelTimes[i][j] = computeRoundedTravelTime(speed,
-            Measure.valueOf(
-              Point.distance(cur.getLocation(), sva.location2index.get(j)),
-              state.getDistUnit()),
-            outputTimeUnit);
-        }
+        final int[] tts = toVehicleTravelTimes(state, cur,
+          sva.location2index.subList(1, n), outputTimeUnit);
+        System.arraycopy(tts, 0, vehicleTravelTimes[i], 1, n - 1);
       }
     }
     return vehicleTravelTimes;
   }
 
-  static int computeRoundedTravelTime(Measure<Double, Velocity> speed,
-      Measure<Double, Length> dist, Unit<Duration> outputTimeUnit) {
-    return DoubleMath.roundToInt(
-      RoadModels.computeTravelTime(speed, dist, outputTimeUnit),
-      RoundingMode.CEILING);
+  // computes the rounded travel times from the location of the vehicle to all
+  // targets using a single one-to-many search on the road model snapshot
+  static int[] toVehicleTravelTimes(GlobalStateObject state,
+      VehicleStateObject vehicle, List<Point> targets,
+      Unit<Duration> outputTimeUnit) {
+    final RoadModelSnapshot snapshot = state.getRoadModelSnapshot();
+    final Measure<Double, Velocity> speed = Measure.valueOf(
+      vehicle.getDto().getSpeed(), state.getSpeedUnit());
+    final GeomHeuristic heuristic = GeomHeuristics.euclidean();
+
+    Point start = vehicle.getLocation();
+    double exitTime = 0d;
+    if (vehicle.getConnection().isPresent()) {
+      // the vehicle first needs to drive to the end of its connection
+      final Connection<?> conn = vehicle.getConnection().get();
+      start = conn.to();
+      exitTime = snapshot.getPathTo(conn.from(), conn.to(), outputTimeUnit,
+        speed, heuristic).getTravelTime()
+        * Point.distance(vehicle.getLocation(), conn.to())
+        / Point.distance(conn.from(), conn.to());
+    }
+    final double[] travelTimes = RoadModels.computeTravelTimes(snapshot,
+      start, targets, outputTimeUnit, speed, heuristic);
+    final int[] rounded = new int[travelTimes.length];
+    for (int i = 0; i < rounded.length; i++) {
+      rounded[i] = DoubleMath.roundToInt(exitTime + travelTimes[i],
+        RoundingMode.CEILING);
+    }
+    return rounded;
   }
 
   static int[][] toInventoriesArray(GlobalStateObject state, ArraysObject sva) {
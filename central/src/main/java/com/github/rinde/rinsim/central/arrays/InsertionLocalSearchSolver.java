@@ -0,0 +1,903 @@
+/*
+ * Copyright (C) 2011-2018 Rinde R.S. van Lon
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rinde.rinsim.central.arrays;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.annotation.Nullable;
+import javax.measure.quantity.Duration;
+import javax.measure.unit.Unit;
+
+import com.github.rinde.rinsim.central.Solver;
+import com.github.rinde.rinsim.central.arrays.ArraysSolvers.MVArraysObject;
+import com.github.rinde.rinsim.util.StochasticSupplier;
+import com.github.rinde.rinsim.util.StochasticSuppliers;
+import com.google.common.base.Optional;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * A {@link MultiVehicleArraysSolver} that constructs a solution using cheapest
+ * insertion and improves it using local search. The solver works directly on
+ * the arrays representation of the problem, it minimizes the sum of travel
+ * time and tardiness (as computed by
+ * {@link ArraysSolvers#computeTotalTravelTime(int[], int[][], int[])} and
+ * {@link ArraysSolvers#computeRouteTardiness(int[], int[], int[], int[], int)}
+ * ).
+ * <p>
+ * The construction inserts the service pairs ordered by the due date of the
+ * pickup, each pair is inserted at the position (in any route) that increases
+ * the objective the least. The local search then repeatedly applies the best
+ * improving move of the following neighbourhoods, until no improving move
+ * exists or the maximum number of iterations is reached:
+ * <ul>
+ * <li><i>relocate</i>, moves a service pair to its best position in any
+ * route,</li>
+ * <li><i>exchange</i>, swaps two service pairs of different routes, each
+ * pair is inserted at its best position in the other route,</li>
+ * <li><i>2-opt</i>, reverses a part of a route.</li>
+ * </ul>
+ * The neighbourhood is evaluated in parallel when more than one thread is
+ * configured, see {@link Builder#withThreads(int)}. Moves are evaluated
+ * incrementally: the arrival times, travel times and tardiness of each route
+ * are cached per position, the evaluation of a move starts at the first
+ * changed position and stops as soon as the arrival time at an unchanged part
+ * of the route equals the cached arrival time. Candidates whose travel time
+ * increase alone already exceeds the best known move are not evaluated.
+ * <p>
+ * Computations can be interrupted, in that case the best solution found so
+ * far is returned (the construction is always completed). Instances are
+ * immutable and thread-safe, the threads that evaluate the neighbourhood only
+ * live for the duration of a single call to <code>solve</code>.
+ * @author Rinde van Lon
+ */
+public final class InsertionLocalSearchSolver
+    implements MultiVehicleArraysSolver, Serializable {
+  static final String EVALUATION_FAILED = "Evaluating a neighbourhood failed.";
+  private static final long serialVersionUID = 6245780318537106412L;
+
+  final int numThreads;
+  final int maxIterations;
+
+  InsertionLocalSearchSolver(Builder b) {
+    numThreads = b.threads;
+    maxIterations = b.iterations;
+  }
+
+  @Override
+  public SolutionObject[] solve(int[][] travelTime, int[] releaseDates,
+      int[] dueDates, int[][] servicePairs, int[] serviceTimes,
+      int[][] vehicleTravelTimes, int[][] inventories,
+      int[] remainingServiceTimes, int[] currentDestinations,
+      @Nullable SolutionObject[] currentSolutions) {
+    return solve(travelTime, releaseDates, dueDates, servicePairs,
+      serviceTimes, vehicleTravelTimes, inventories, remainingServiceTimes,
+      currentDestinations, (ImprovementListener) null);
+  }
+
+  /**
+   * Computes a solution for the specified problem while reporting every
+   * improvement to the specified listener.
+   * @param o The problem.
+   * @param listener The listener that is notified of the solution after the
+   *          construction and after every improvement.
+   * @return The best solution.
+   */
+  public SolutionObject[] solve(MVArraysObject o,
+      ImprovementListener listener) {
+    return solve(o.travelTime, o.releaseDates, o.dueDates, o.servicePairs,
+      o.serviceTimes, o.vehicleTravelTimes, o.inventories,
+      o.remainingServiceTimes, o.currentDestinations, listener);
+  }
+
+  SolutionObject[] solve(int[][] travelTime, int[] releaseDates,
+      int[] dueDates, int[][] servicePairs, int[] serviceTimes,
+      int[][] vehicleTravelTimes, int[][] inventories,
+      int[] remainingServiceTimes, int[] currentDestinations,
+      @Nullable ImprovementListener listener) {
+    final Problem problem = new Problem(travelTime, releaseDates, dueDates,
+      servicePairs, serviceTimes, vehicleTravelTimes, inventories,
+      remainingServiceTimes, currentDestinations);
+    final Optional<ExecutorService> executor = createExecutor();
+    try {
+      final Search search = new Search(problem, executor);
+      search.construct();
+      if (listener != null) {
+        listener.improved(search.toSolution());
+      }
+      for (int i = 0; i < maxIterations
+        && !Thread.currentThread().isInterrupted(); i++) {
+        final Optional<Move> move;
+        try {
+          move = search.findBestMove();
+        } catch (final InterruptedException e) {
+          Thread.currentThread().interrupt();
+          break;
+        }
+        if (!move.isPresent()) {
+          break;
+        }
+        search.apply(move.get());
+        if (listener != null) {
+          listener.improved(search.toSolution());
+        }
+      }
+      return search.toSolution();
+    } finally {
+      if (executor.isPresent()) {
+        executor.get().shutdownNow();
+      }
+    }
+  }
+
+  // a pool of daemon threads that is owned by a single call to solve
+  Optional<ExecutorService> createExecutor() {
+    if (numThreads == 1) {
+      return Optional.absent();
+    }
+    return Optional.of(Executors.newFixedThreadPool(numThreads,
+      new ThreadFactoryBuilder()
+        .setDaemon(true)
+        .setNameFormat(
+          InsertionLocalSearchSolver.class.getSimpleName() + "-%d")
+        .build()));
+  }
+
+  /**
+   * Adapts this solver to the {@link Solver} interface.
+   * @param timeUnit The time unit that is used for the arrays representation.
+   * @return A new {@link Solver}.
+   */
+  public Solver asSolver(Unit<Duration> timeUnit) {
+    return new MultiVehicleSolverAdapter(this, timeUnit);
+  }
+
+  /**
+   * Creates a supplier that adapts a solver with the settings of this solver
+   * to the {@link Solver} interface, the solver is deterministic and ignores
+   * the seed. The supplier only holds the settings and is serializable, a new
+   * solver is constructed for every call to
+   * {@link StochasticSupplier#get(long)}.
+   * @param timeUnit The time unit that is used for the arrays representation.
+   * @return A new supplier.
+   */
+  public StochasticSupplier<Solver> asSolverSupplier(Unit<Duration> timeUnit) {
+    return new SolverSupplier(numThreads, maxIterations, timeUnit);
+  }
+
+  @Override
+  public String toString() {
+    return InsertionLocalSearchSolver.class.getSimpleName() + "{threads="
+      + numThreads + ",maxIterations=" + maxIterations + "}";
+  }
+
+  /**
+   * @return A new {@link Builder}.
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  static <T> List<T> invokeAll(Optional<ExecutorService> executor,
+      List<Callable<T>> tasks) throws InterruptedException {
+    final List<T> results = new ArrayList<>();
+    if (executor.isPresent()) {
+      try {
+        for (final Future<T> f : executor.get().invokeAll(tasks)) {
+          results.add(f.get());
+        }
+      } catch (final ExecutionException e) {
+        throw new IllegalStateException(EVALUATION_FAILED, e.getCause());
+      }
+    } else {
+      for (final Callable<T> task : tasks) {
+        if (Thread.currentThread().isInterrupted()) {
+          throw new InterruptedException();
+        }
+        try {
+          results.add(task.call());
+        } catch (final Exception e) {
+          throw new IllegalStateException(EVALUATION_FAILED, e);
+        }
+      }
+    }
+    return results;
+  }
+
+  // the cheapest insertion of the pair in the route with a cost lower than
+  // the bound
+  static Insertion bestInsertion(Route r, int p, int d, int bound, Cursor c1,
+      Cursor c2) {
+    final Problem pr = r.problem;
+    final int[][] tt = pr.travelTime;
+    final int[] ns = r.nodes;
+    final int base = r.cost();
+    final Insertion best = new Insertion(bound);
+    for (int i = r.fixed; i < ns.length; i++) {
+      final int prev = ns[i - 1];
+      final int next = ns[i];
+      final int direct = pr.travel(r.vehicle, i, prev, next);
+      final int toP = pr.travel(r.vehicle, i, prev, p);
+      // lower bounds on the cost increase, assuming the triangle inequality
+      // holds such that the tardiness can not decrease
+      final int detourP = toP + tt[p][next] - direct;
+      final int detourPD = toP + tt[p][d] + tt[d][next] - direct;
+      if (base + Math.min(detourP, detourPD) >= best.cost) {
+        continue;
+      }
+      c1.start(r, i - 1);
+      c1.visit(p);
+      if (base + detourPD < best.cost) {
+        c2.set(c1);
+        c2.visit(d);
+        final int cost = c2.complete(r, i);
+        if (cost < best.cost) {
+          best.cost = cost;
+          best.i = i;
+          best.j = i;
+        }
+      }
+      for (int j = i + 1; j < ns.length; j++) {
+        c1.visit(ns[j - 1]);
+        if (base + c1.tardiness - r.tardiness[j - 1] + detourP >= best.cost) {
+          // the tardiness up to j only increases for larger j
+          break;
+        }
+        final int detourD = tt[ns[j - 1]][d] + tt[d][ns[j]]
+          - tt[ns[j - 1]][ns[j]];
+        if (base + detourP + detourD < best.cost) {
+          c2.set(c1);
+          c2.visit(d);
+          final int cost = c2.complete(r, j);
+          if (cost < best.cost) {
+            best.cost = cost;
+            best.i = i;
+            best.j = j;
+          }
+        }
+      }
+    }
+    return best;
+  }
+
+  // the cheapest insertion of a single node in the route with a cost lower
+  // than the bound
+  static Insertion bestInsertion(Route r, int d, int bound, Cursor c) {
+    final Problem pr = r.problem;
+    final int[] ns = r.nodes;
+    final int base = r.cost();
+    final Insertion best = new Insertion(bound);
+    for (int j = r.fixed; j < ns.length; j++) {
+      final int prev = ns[j - 1];
+      final int detour = pr.travel(r.vehicle, j, prev, d)
+        + pr.travelTime[d][ns[j]] - pr.travel(r.vehicle, j, prev, ns[j]);
+      if (base + detour >= best.cost) {
+        continue;
+      }
+      c.start(r, j - 1);
+      c.visit(d);
+      final int cost = c.complete(r, j);
+      if (cost < best.cost) {
+        best.cost = cost;
+        best.i = j;
+        best.j = j;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Listener for improvements of the solution.
+   * @author Rinde van Lon
+   */
+  public interface ImprovementListener {
+    /**
+     * Is called each time the solution has improved.
+     * @param solution The improved solution, one {@link SolutionObject} per
+     *          vehicle.
+     */
+    void improved(SolutionObject[] solution);
+  }
+
+  /**
+   * Builder for {@link InsertionLocalSearchSolver}.
+   * @author Rinde van Lon
+   */
+  public static final class Builder {
+    int threads;
+    int iterations;
+
+    Builder() {
+      threads = 1;
+      iterations = Integer.MAX_VALUE;
+    }
+
+    /**
+     * Sets the number of threads that are used for evaluating the
+     * neighbourhood, the default is <code>1</code>.
+     * @param num The number of threads, must be positive.
+     * @return This, as per the builder pattern.
+     */
+    public Builder withThreads(int num) {
+      checkArgument(num > 0, "The number of threads must be positive, found %s.",
+        num);
+      threads = num;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of local search iterations (i.e. the maximum
+     * number of applied moves), by default the search continues until a local
+     * optimum is found.
+     * @param max The maximum, must be non-negative. <code>0</code> means that
+     *          only the construction is performed.
+     * @return This, as per the builder pattern.
+     */
+    public Builder withMaxIterations(int max) {
+      checkArgument(max >= 0,
+        "The maximum number of iterations may not be negative, found %s.", max);
+      iterations = max;
+      return this;
+    }
+
+    /**
+     * @return A new {@link InsertionLocalSearchSolver}. When more than one
+     *         thread is used, every call to <code>solve</code> uses its own
+     *         pool of daemon threads which is shut down before it returns.
+     */
+    public InsertionLocalSearchSolver build() {
+      return new InsertionLocalSearchSolver(this);
+    }
+  }
+
+  static final class Problem {
+    final int[][] travelTime;
+    final int[] releaseDates;
+    final int[] dueDates;
+    final int[] serviceTimes;
+    final int[][] vehicleTravelTimes;
+    final int[] remainingServiceTimes;
+    final int[] currentDestinations;
+    final int[][] inventories;
+    final int[][] servicePairs;
+    // pickupOf[delivery] = pickup, or -1 if it is not part of a pair
+    final int[] pickupOf;
+    final int[] deliveryOf;
+
+    Problem(int[][] tt, int[] rd, int[] dd, int[][] sp, int[] st, int[][] vtt,
+        int[][] inv, int[] rst, int[] cd) {
+      travelTime = tt;
+      releaseDates = rd;
+      dueDates = dd;
+      serviceTimes = st;
+      vehicleTravelTimes = vtt;
+      remainingServiceTimes = rst;
+      currentDestinations = cd;
+      inventories = inv;
+      servicePairs = sp;
+      pickupOf = new int[tt.length];
+      deliveryOf = new int[tt.length];
+      Arrays.fill(pickupOf, -1);
+      Arrays.fill(deliveryOf, -1);
+      for (final int[] pair : sp) {
+        pickupOf[pair[1]] = pair[0];
+        deliveryOf[pair[0]] = pair[1];
+      }
+    }
+
+    int numLocations() {
+      return travelTime.length;
+    }
+
+    int numVehicles() {
+      return vehicleTravelTimes.length;
+    }
+
+    // the travel time to 'to' when it is visited at position 'pos'
+    int travel(int vehicle, int pos, int from, int to) {
+      return pos == 1 ? vehicleTravelTimes[vehicle][to] : travelTime[from][to];
+    }
+  }
+
+  /**
+   * A route of a vehicle with cached arrival times, travel times and
+   * tardiness per position. Instances are immutable.
+   */
+  static final class Route {
+    final Problem problem;
+    final int vehicle;
+    // the number of positions at the start of the route that can not change
+    final int fixed;
+    final int[] nodes;
+    final int[] arrivalTimes;
+    // cumulative travel time and tardiness up to and including a position
+    final int[] travel;
+    final int[] tardiness;
+
+    Route(Problem p, int v, int[] ns) {
+      problem = p;
+      vehicle = v;
+      fixed = p.currentDestinations[v] > 0 ? 2 : 1;
+      nodes = ns;
+      arrivalTimes = new int[ns.length];
+      travel = new int[ns.length];
+      tardiness = new int[ns.length];
+      final Cursor c = new Cursor(p);
+      c.vehicle = v;
+      for (int i = 1; i < ns.length; i++) {
+        c.visit(ns[i]);
+        arrivalTimes[i] = c.arrivalTime;
+        travel[i] = c.travel;
+        tardiness[i] = c.tardiness;
+      }
+    }
+
+    int size() {
+      return nodes.length;
+    }
+
+    int cost() {
+      return travel[nodes.length - 1] + tardiness[nodes.length - 1];
+    }
+
+    // removes the specified nodes, if present
+    Route without(int a, int b) {
+      final int[] ns = new int[nodes.length];
+      int size = 0;
+      for (final int n : nodes) {
+        if (n != a && n != b) {
+          ns[size++] = n;
+        }
+      }
+      return new Route(problem, vehicle, Arrays.copyOf(ns, size));
+    }
+
+    // the pickup is inserted before index i, the delivery before index j
+    int[] insert(int p, int i, int d, int j) {
+      final int[] ns = new int[nodes.length + 2];
+      System.arraycopy(nodes, 0, ns, 0, i);
+      ns[i] = p;
+      System.arraycopy(nodes, i, ns, i + 1, j - i);
+      ns[j + 1] = d;
+      System.arraycopy(nodes, j, ns, j + 2, nodes.length - j);
+      return ns;
+    }
+
+    // the node is inserted before index j
+    int[] insert(int d, int j) {
+      final int[] ns = new int[nodes.length + 1];
+      System.arraycopy(nodes, 0, ns, 0, j);
+      ns[j] = d;
+      System.arraycopy(nodes, j, ns, j + 1, nodes.length - j);
+      return ns;
+    }
+
+    // reverses the nodes at indices [i,j]
+    int[] reverse(int i, int j) {
+      final int[] ns = Arrays.copyOf(nodes, nodes.length);
+      for (int k = i; k <= j; k++) {
+        ns[k] = nodes[i + j - k];
+      }
+      return ns;
+    }
+
+    SolutionObject toSolution() {
+      return new SolutionObject(nodes, arrivalTimes, cost());
+    }
+  }
+
+  /**
+   * Walks over a (virtual) route and computes its arrival times, travel time
+   * and tardiness in the same way as {@link ArraysSolvers}. Instances are
+   * mutable and should not be shared between threads.
+   */
+  static final class Cursor {
+    final Problem problem;
+    int vehicle;
+    int pos;
+    int node;
+    int arrivalTime;
+    int travel;
+    int tardiness;
+
+    Cursor(Problem p) {
+      problem = p;
+    }
+
+    // the state after visiting the specified index of the route
+    void start(Route r, int index) {
+      vehicle = r.vehicle;
+      pos = index;
+      node = r.nodes[index];
+      arrivalTime = r.arrivalTimes[index];
+      travel = r.travel[index];
+      tardiness = r.tardiness[index];
+    }
+
+    void set(Cursor c) {
+      vehicle = c.vehicle;
+      pos = c.pos;
+      node = c.node;
+      arrivalTime = c.arrivalTime;
+      travel = c.travel;
+      tardiness = c.tardiness;
+    }
+
+    void visit(int next) {
+      final int tt = problem.travel(vehicle, pos + 1, node, next);
+      arrivalTime = Math.max(arrivalTime + serviceTime(pos, node) + tt,
+        problem.releaseDates[next]);
+      pos++;
+      node = next;
+      travel += tt;
+      final int lateness = arrivalTime + serviceTime(pos, node)
+        - problem.dueDates[node];
+      if (lateness > 0) {
+        tardiness += lateness;
+      }
+    }
+
+    int serviceTime(int p, int n) {
+      final int rst = problem.remainingServiceTimes[vehicle];
+      return p == 1 && rst > 0 ? rst : problem.serviceTimes[n];
+    }
+
+    // visits the remaining nodes of the route starting at the specified index
+    // and returns the cost of the complete route
+    int complete(Route r, int from) {
+      for (int k = from; k < r.size(); k++) {
+        visit(r.nodes[k]);
+        if (pos > 1 && k > 1 && arrivalTime == r.arrivalTimes[k]) {
+          // the remainder of the route is not affected
+          return travel + tardiness + r.cost() - r.travel[k]
+            - r.tardiness[k];
+        }
+      }
+      return travel + tardiness;
+    }
+  }
+
+  static final class Insertion {
+    int cost;
+    int i;
+    int j;
+
+    Insertion(int bound) {
+      cost = bound;
+      i = -1;
+      j = -1;
+    }
+
+    boolean isPresent() {
+      return i >= 0;
+    }
+  }
+
+  static final class Move {
+    final int delta;
+    final int[] vehicles;
+    final int[][] routes;
+
+    Move(int d, int[] vs, int[][] rs) {
+      delta = d;
+      vehicles = vs;
+      routes = rs;
+    }
+
+    Move(int d, int v, int[] r) {
+      this(d, new int[] {v}, new int[][] {r});
+    }
+  }
+
+  static final class SolverSupplier
+      extends StochasticSuppliers.AbstractStochasticSupplier<Solver> {
+    private static final long serialVersionUID = -2150616512437406713L;
+    final int threads;
+    final int iterations;
+    final Unit<Duration> timeUnit;
+
+    SolverSupplier(int thr, int it, Unit<Duration> unit) {
+      threads = thr;
+      iterations = it;
+      timeUnit = unit;
+    }
+
+    @Override
+    public Solver get(long seed) {
+      return create().asSolver(timeUnit);
+    }
+
+    InsertionLocalSearchSolver create() {
+      return builder()
+        .withThreads(threads)
+        .withMaxIterations(iterations)
+        .build();
+    }
+
+    @Override
+    public String toString() {
+      return create() + ".asSolverSupplier(" + timeUnit + ")";
+    }
+  }
+
+  final class Search {
+    final Problem problem;
+    final Optional<ExecutorService> executor;
+    final Route[] routes;
+    // service pairs that can be moved between vehicles
+    final List<int[]> pairs;
+    // nodes that can only be moved within the route of their vehicle
+    final List<int[]> singles;
+    final int[] vehicleOf;
+    final int[] positionOf;
+
+    Search(Problem p, Optional<ExecutorService> exec) {
+      problem = p;
+      executor = exec;
+      routes = new Route[p.numVehicles()];
+      pairs = new ArrayList<>();
+      singles = new ArrayList<>();
+      vehicleOf = new int[p.numLocations()];
+      positionOf = new int[p.numLocations()];
+    }
+
+    void construct() {
+      final int[] dests = problem.currentDestinations;
+      final boolean[] isDest = new boolean[problem.numLocations()];
+      for (int v = 0; v < routes.length; v++) {
+        final int last = problem.numLocations() - 1;
+        routes[v] = new Route(problem, v, dests[v] > 0
+          ? new int[] {0, dests[v], last}
+          : new int[] {0, last});
+        isDest[dests[v]] = true;
+        if (dests[v] > 0 && problem.deliveryOf[dests[v]] >= 0) {
+          singles.add(new int[] {v, problem.deliveryOf[dests[v]]});
+        }
+      }
+      for (final int[] inv : problem.inventories) {
+        if (!isDest[inv[1]]) {
+          singles.add(new int[] {inv[0], inv[1]});
+        }
+      }
+      for (final int[] pair : problem.servicePairs) {
+        if (!isDest[pair[0]]) {
+          pairs.add(pair);
+        }
+      }
+      final Cursor c1 = new Cursor(problem);
+      final Cursor c2 = new Cursor(problem);
+      for (final int[] single : singles) {
+        final Route r = routes[single[0]];
+        final Insertion ins =
+          bestInsertion(r, single[1], Integer.MAX_VALUE, c1);
+        routes[single[0]] =
+          new Route(problem, single[0], r.insert(single[1], ins.i));
+      }
+      final List<int[]> sorted = new ArrayList<>(pairs);
+      Collections.sort(sorted, new Comparator<int[]>() {
+        @Override
+        public int compare(int[] o1, int[] o2) {
+          return Integer.compare(problem.dueDates[o1[0]],
+            problem.dueDates[o2[0]]);
+        }
+      });
+      for (final int[] pair : sorted) {
+        int bestVehicle = -1;
+        Insertion best = new Insertion(Integer.MAX_VALUE);
+        for (int v = 0; v < routes.length; v++) {
+          final Route r = routes[v];
+          final Insertion ins = bestInsertion(r, pair[0], pair[1],
+            best.isPresent() ? best.cost - routes[bestVehicle].cost() + r.cost()
+              : Integer.MAX_VALUE,
+            c1, c2);
+          if (ins.isPresent()) {
+            best = ins;
+            bestVehicle = v;
+          }
+        }
+        final Route r = routes[bestVehicle];
+        routes[bestVehicle] = new Route(problem, bestVehicle,
+          r.insert(pair[0], best.i, pair[1], best.j));
+      }
+    }
+
+    Optional<Move> findBestMove() throws InterruptedException {
+      for (final Route r : routes) {
+        for (int i = 1; i < r.size() - 1; i++) {
+          vehicleOf[r.nodes[i]] = r.vehicle;
+          positionOf[r.nodes[i]] = i;
+        }
+      }
+      // routes without each pair, used for relocate and exchange moves
+      final List<Callable<Route>> removals = new ArrayList<>();
+      for (final int[] pair : pairs) {
+        removals.add(new Callable<Route>() {
+          @Override
+          public Route call() {
+            return routes[vehicleOf[pair[0]]].without(pair[0], pair[1]);
+          }
+        });
+      }
+      final List<Route> removed = invokeAll(executor, removals);
+
+      final List<Callable<Optional<Move>>> tasks = new ArrayList<>();
+      for (int k = 0; k < pairs.size(); k++) {
+        final int index = k;
+        tasks.add(new Callable<Optional<Move>>() {
+          @Override
+          public Optional<Move> call() {
+            return relocateOrExchange(index, removed);
+          }
+        });
+      }
+      for (final int[] single : singles) {
+        tasks.add(new Callable<Optional<Move>>() {
+          @Override
+          public Optional<Move> call() {
+            return relocate(single[0], single[1]);
+          }
+        });
+      }
+      for (final Route r : routes) {
+        tasks.add(new Callable<Optional<Move>>() {
+          @Override
+          public Optional<Move> call() {
+            return twoOpt(r);
+          }
+        });
+      }
+      // ties are broken by task order, such that the result does not depend
+      // on the number of threads
+      Optional<Move> best = Optional.absent();
+      for (final Optional<Move> m : invokeAll(executor, tasks)) {
+        if (m.isPresent()
+          && (!best.isPresent() || m.get().delta < best.get().delta)) {
+          best = m;
+        }
+      }
+      return best;
+    }
+
+    Optional<Move> relocateOrExchange(int index, List<Route> removed) {
+      final Cursor c1 = new Cursor(problem);
+      final Cursor c2 = new Cursor(problem);
+      final int[] pair = pairs.get(index);
+      final int va = vehicleOf[pair[0]];
+      final Route ra = routes[va];
+      final Route without = removed.get(index);
+      final int removalDelta = without.cost() - ra.cost();
+
+      Optional<Move> best = Optional.absent();
+      int bestDelta = 0;
+      // relocate
+      for (int v = 0; v < routes.length; v++) {
+        final Route target = v == va ? without : routes[v];
+        final int offset = v == va ? ra.cost() : routes[v].cost();
+        final Insertion ins = bestInsertion(target, pair[0], pair[1],
+          offset + bestDelta - (v == va ? 0 : removalDelta), c1, c2);
+        if (ins.isPresent()) {
+          final int[] inserted = target.insert(pair[0], ins.i, pair[1], ins.j);
+          if (v == va) {
+            bestDelta = ins.cost - ra.cost();
+            best = Optional.of(new Move(bestDelta, va, inserted));
+          } else {
+            bestDelta = removalDelta + ins.cost - routes[v].cost();
+            best = Optional.of(new Move(bestDelta, new int[] {va, v},
+              new int[][] {without.nodes, inserted}));
+          }
+        }
+      }
+      // exchange with pairs of routes with a higher index
+      for (int k = 0; k < pairs.size(); k++) {
+        final int[] other = pairs.get(k);
+        final int vb = vehicleOf[other[0]];
+        if (vb <= va) {
+          continue;
+        }
+        final Route rb = routes[vb];
+        final Route otherWithout = removed.get(k);
+        final int otherRemovalDelta = otherWithout.cost() - rb.cost();
+        final Insertion insA = bestInsertion(without, other[0], other[1],
+          ra.cost() + bestDelta - otherRemovalDelta, c1, c2);
+        if (!insA.isPresent()) {
+          continue;
+        }
+        final int deltaA = insA.cost - ra.cost();
+        final Insertion insB = bestInsertion(otherWithout, pair[0], pair[1],
+          rb.cost() + bestDelta - deltaA, c1, c2);
+        if (insB.isPresent()) {
+          bestDelta = deltaA + insB.cost - rb.cost();
+          best = Optional.of(new Move(bestDelta, new int[] {va, vb},
+            new int[][] {
+              without.insert(other[0], insA.i, other[1], insA.j),
+              otherWithout.insert(pair[0], insB.i, pair[1], insB.j)}));
+        }
+      }
+      return best;
+    }
+
+    Optional<Move> relocate(int vehicle, int node) {
+      final Route r = routes[vehicle];
+      final Route without = r.without(node, node);
+      final Insertion ins =
+        bestInsertion(without, node, r.cost(), new Cursor(problem));
+      if (ins.isPresent()) {
+        return Optional.of(new Move(ins.cost - r.cost(), vehicle,
+          without.insert(node, ins.i)));
+      }
+      return Optional.absent();
+    }
+
+    Optional<Move> twoOpt(Route r) {
+      final Cursor c = new Cursor(problem);
+      final int[] ns = r.nodes;
+      int bestCost = r.cost();
+      int bestI = -1;
+      int bestJ = -1;
+      for (int i = r.fixed; i < ns.length - 2; i++) {
+        for (int j = i + 1; j < ns.length - 1; j++) {
+          final int pickup = problem.pickupOf[ns[j]];
+          if (pickup >= 0 && positionOf[pickup] >= i) {
+            // the delivery would be visited before its pickup, this holds
+            // for all longer segments as well
+            break;
+          }
+          c.start(r, i - 1);
+          for (int k = j; k >= i; k--) {
+            c.visit(ns[k]);
+          }
+          final int cost = c.complete(r, j + 1);
+          if (cost < bestCost) {
+            bestCost = cost;
+            bestI = i;
+            bestJ = j;
+          }
+        }
+      }
+      if (bestI >= 0) {
+        return Optional.of(new Move(bestCost - r.cost(), r.vehicle,
+          r.reverse(bestI, bestJ)));
+      }
+      return Optional.absent();
+    }
+
+    void apply(Move move) {
+      for (int i = 0; i < move.vehicles.length; i++) {
+        routes[move.vehicles[i]] =
+          new Route(problem, move.vehicles[i], move.routes[i]);
+      }
+    }
+
+    SolutionObject[] toSolution() {
+      final SolutionObject[] sols = new SolutionObject[routes.length];
+      for (int i = 0; i < routes.length; i++) {
+        sols[i] = routes[i].toSolution();
+      }
+      return sols;
+    }
+  }
+}
@@ -22,6 +22,7 @@ import com.github.rinde.rinsim.central.GlobalStateObject;
 import com.github.rinde.rinsim.central.Solver;
 import com.github.rinde.rinsim.central.arrays.ArraysSolvers.MVArraysObject;
 import com.github.rinde.rinsim.core.model.pdp.Parcel;
+import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableList;
 
 /**
@@ -33,6 +34,7 @@ public class MultiVehicleSolverAdapter implements Solver {
 
   private final MultiVehicleArraysSolver solver;
   private final Unit<Duration> outputTimeUnit;
+  private Optional<TravelTimeMatrix> matrix;
 
   /**
    * @param s The solver to use.
@@ -42,12 +44,13 @@ public class MultiVehicleSolverAdapter implements Solver {
       Unit<Duration> timeUnit) {
     solver = s;
     outputTimeUnit = timeUnit;
+    matrix = Optional.absent();
   }
 
   @Override
   public ImmutableList<ImmutableList<Parcel>> solve(GlobalStateObject state) {
     final MVArraysObject o = ArraysSolvers.toMultiVehicleArrays(state,
-      outputTimeUnit);
+      outputTimeUnit, travelTimeMatrix(state));
 
     final SolutionObject[] sols = solver.solve(o.travelTime, o.releaseDates,
       o.dueDates, o.servicePairs, o.serviceTimes, o.vehicleTravelTimes,
@@ -60,4 +63,12 @@ public class MultiVehicleSolverAdapter implements Solver {
     }
     return b.build();
   }
+
+  TravelTimeMatrix travelTimeMatrix(GlobalStateObject state) {
+    if (!matrix.isPresent()
+      || !matrix.get().isCompatibleWith(state, outputTimeUnit)) {
+      matrix = Optional.of(TravelTimeMatrix.create(state, outputTimeUnit));
+    }
+    return matrix.get();
+  }
 }
@@ -27,6 +27,7 @@ import com.github.rinde.rinsim.central.GlobalStateObject.VehicleStateObject;
 import com.github.rinde.rinsim.central.Solver;
 import com.github.rinde.rinsim.central.arrays.ArraysSolvers.ArraysObject;
 import com.github.rinde.rinsim.core.model.pdp.Parcel;
+import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableList;
 
 /**
@@ -38,6 +39,7 @@ public class SingleVehicleSolverAdapter implements Solver {
 
   private final SingleVehicleArraysSolver solver;
   private final Unit<Duration> outputTimeUnit;
+  private Optional<TravelTimeMatrix> matrix;
 
   /**
    * @param s The solver to use.
@@ -47,6 +49,7 @@ public class SingleVehicleSolverAdapter implements Solver {
       Unit<Duration> timeUnit) {
     solver = s;
     outputTimeUnit = timeUnit;
+    matrix = Optional.absent();
   }
 
   @Override
@@ -87,7 +90,7 @@ public class SingleVehicleSolverAdapter implements Solver {
     // else, we are going to look for the optimal solution
 
     final ArraysObject ao = ArraysSolvers.toSingleVehicleArrays(state,
-      outputTimeUnit);
+      outputTimeUnit, travelTimeMatrix(state));
 
     final SolutionObject[] curSols = ao.currentSolutions;
     final SolutionObject sol = solver.solve(ao.travelTime, ao.releaseDates,
@@ -97,4 +100,12 @@ public class SingleVehicleSolverAdapter implements Solver {
     return ImmutableList.of(ArraysSolvers.convertSolutionObject(sol,
       ao.index2parcel));
   }
+
+  TravelTimeMatrix travelTimeMatrix(GlobalStateObject state) {
+    if (!matrix.isPresent()
+      || !matrix.get().isCompatibleWith(state, outputTimeUnit)) {
+      matrix = Optional.of(TravelTimeMatrix.create(state, outputTimeUnit));
+    }
+    return matrix.get();
+  }
 }
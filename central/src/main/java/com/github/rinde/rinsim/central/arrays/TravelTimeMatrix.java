@@ -0,0 +1,361 @@
+/*
+ * Copyright (C) 2011-2018 Rinde R.S. van Lon
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rinde.rinsim.central.arrays;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.measure.Measure;
+import javax.measure.quantity.Duration;
+import javax.measure.quantity.Velocity;
+import javax.measure.unit.Unit;
+
+import com.github.rinde.rinsim.central.GlobalStateObject;
+import com.github.rinde.rinsim.core.model.road.RoadModelSnapshot;
+import com.github.rinde.rinsim.core.model.road.RoadModels;
+import com.github.rinde.rinsim.geom.GeomHeuristic;
+import com.github.rinde.rinsim.geom.GeomHeuristics;
+import com.github.rinde.rinsim.geom.Point;
+import com.google.common.math.DoubleMath;
+
+/**
+ * A travel time matrix between points, based on the shortest paths in a
+ * {@link RoadModelSnapshot}, see
+ * {@link RoadModels#computeTravelTimes(RoadModelSnapshot, Point, List, Unit, Measure, GeomHeuristic)}
+ * . For snapshots of graph road models the travel times follow the graph, for
+ * plane road models they are equal to the straight-line travel times of
+ * {@link ArraysSolvers#toTravelTimeMatrix(List, Unit, Measure, Unit, RoundingMode)}
+ * .
+ * <p>
+ * The matrix is stored in a flat row-major <code>int[]</code> buffer and can
+ * be updated incrementally: {@link #update(List)} only computes the rows and
+ * columns of points that are not yet part of the matrix, using one-to-many
+ * searches on the snapshot that can be executed in parallel. Reusing an
+ * instance between consecutive solver calls (as long as it
+ * {@link #isCompatibleWith(GlobalStateObject, Unit)} the state) therefore
+ * avoids recomputing the travel times between points that were already
+ * known.
+ * <p>
+ * The number of points in the matrix is bounded by a maximum size. When an
+ * update would grow the matrix beyond this size, all points that are not part
+ * of the update are removed first. An update that by itself contains more
+ * points than the maximum size is still performed.
+ * <p>
+ * This class is thread-safe.
+ * @author Rinde van Lon
+ */
+public final class TravelTimeMatrix {
+  /**
+   * The default maximum number of points in a matrix.
+   */
+  public static final int DEFAULT_MAX_SIZE = 1000;
+  private static final int MIN_CAPACITY = 16;
+
+  final RoadModelSnapshot snapshot;
+  final Measure<Double, Velocity> speed;
+  final Unit<Duration> timeUnit;
+  final GeomHeuristic heuristic;
+  final int numThreads;
+  final int maxSize;
+  private final Map<Point, Integer> slots;
+  private final List<Point> points;
+  private int[] buffer;
+  private int capacity;
+
+  TravelTimeMatrix(RoadModelSnapshot ss, Measure<Double, Velocity> sp,
+      Unit<Duration> unit, GeomHeuristic h, int threads, int max) {
+    snapshot = ss;
+    speed = sp;
+    timeUnit = unit;
+    heuristic = h;
+    numThreads = threads;
+    maxSize = max;
+    slots = new HashMap<>();
+    points = new ArrayList<>();
+    buffer = new int[0];
+  }
+
+  /**
+   * Creates a new empty matrix for the specified state. The travel times are
+   * computed using the snapshot of the state and the speed of the first
+   * vehicle of the state, they are rounded up.
+   * @param state The state.
+   * @param timeUnit The time unit of the travel times.
+   * @return A new instance.
+   */
+  public static TravelTimeMatrix create(GlobalStateObject state,
+      Unit<Duration> timeUnit) {
+    return create(state, timeUnit, 1);
+  }
+
+  /**
+   * Creates a new empty matrix for the specified state, see
+   * {@link #create(GlobalStateObject, Unit)}.
+   * @param state The state.
+   * @param timeUnit The time unit of the travel times.
+   * @param numThreads The number of threads to use for the searches.
+   * @return A new instance.
+   */
+  public static TravelTimeMatrix create(GlobalStateObject state,
+      Unit<Duration> timeUnit, int numThreads) {
+    return create(state, timeUnit, numThreads, DEFAULT_MAX_SIZE);
+  }
+
+  /**
+   * Creates a new empty matrix for the specified state, see
+   * {@link #create(GlobalStateObject, Unit)}.
+   * @param state The state.
+   * @param timeUnit The time unit of the travel times.
+   * @param numThreads The number of threads to use for the searches.
+   * @param maxSize The maximum number of points in the matrix.
+   * @return A new instance.
+   */
+  public static TravelTimeMatrix create(GlobalStateObject state,
+      Unit<Duration> timeUnit, int numThreads, int maxSize) {
+    checkArgument(!state.getVehicles().isEmpty(),
+      "At least one vehicle is required.");
+    checkArgument(numThreads > 0,
+      "The number of threads must be positive, found %s.", numThreads);
+    checkArgument(maxSize > 0,
+      "The maximum size must be positive, found %s.", maxSize);
+    return new TravelTimeMatrix(state.getRoadModelSnapshot(),
+      speedOf(state), timeUnit, GeomHeuristics.euclidean(), numThreads,
+      maxSize);
+  }
+
+  static Measure<Double, Velocity> speedOf(GlobalStateObject state) {
+    return Measure.valueOf(state.getVehicles().get(0).getDto().getSpeed(),
+      state.getSpeedUnit());
+  }
+
+  /**
+   * Checks whether this matrix can be used for the specified state, this is
+   * the case when the state has the same road model snapshot and the first
+   * vehicle has the same speed.
+   * @param state The state.
+   * @param unit The time unit.
+   * @return <code>true</code> if this matrix can be used for the state.
+   */
+  public boolean isCompatibleWith(GlobalStateObject state,
+      Unit<Duration> unit) {
+    final Measure<Double, Velocity> sp = speedOf(state);
+    return snapshot == state.getRoadModelSnapshot()
+      && timeUnit.equals(unit)
+      && speed.getValue().equals(sp.getValue())
+      && speed.getUnit().equals(sp.getUnit());
+  }
+
+  /**
+   * @return The number of distinct points in the matrix.
+   */
+  public synchronized int size() {
+    return points.size();
+  }
+
+  /**
+   * Adds all specified points that are not yet part of the matrix, only the
+   * travel times from and to these points are computed. If the matrix would
+   * grow beyond its maximum size, all points that are not specified are
+   * removed first.
+   * @param pts The points.
+   */
+  public synchronized void update(List<Point> pts) {
+    final Set<Point> unknown = new HashSet<>(pts);
+    unknown.removeAll(slots.keySet());
+    if (points.size() + unknown.size() > maxSize) {
+      retainAll(pts);
+    }
+    final List<Point> added = new ArrayList<>();
+    for (final Point p : pts) {
+      if (!slots.containsKey(p)) {
+        slots.put(p, points.size());
+        points.add(p);
+        added.add(p);
+      }
+    }
+    if (added.isEmpty()) {
+      return;
+    }
+    ensureCapacity(points.size());
+    final int numOld = points.size() - added.size();
+    final List<Point> all = new ArrayList<>(points);
+
+    // rows of the new points, columns of the new points for the old points
+    final List<Callable<double[]>> tasks = new ArrayList<>();
+    for (final Point from : all) {
+      final List<Point> to = slots.get(from) < numOld ? added : all;
+      tasks.add(new Callable<double[]>() {
+        @Override
+        public double[] call() {
+          return RoadModels.computeTravelTimes(snapshot, from, to, timeUnit,
+            speed, heuristic);
+        }
+      });
+    }
+    final List<double[]> results = invokeAll(tasks);
+    for (int i = 0; i < all.size(); i++) {
+      final int row = i * capacity;
+      final double[] tts = results.get(i);
+      final int first = i < numOld ? numOld : 0;
+      for (int j = 0; j < tts.length; j++) {
+        buffer[row + first + j] =
+          DoubleMath.roundToInt(tts[j], RoundingMode.CEILING);
+      }
+    }
+  }
+
+  /**
+   * Looks up the travel time between two points.
+   * @param from The start point, must be part of the matrix.
+   * @param to The destination point, must be part of the matrix.
+   * @return The travel time.
+   */
+  public synchronized int get(Point from, Point to) {
+    return buffer[slot(from) * capacity + slot(to)];
+  }
+
+  /**
+   * Creates a <code>n x n</code> travel time matrix for the specified points,
+   * the matrix is updated with any points that are not yet part of it.
+   * @param pts The points.
+   * @return The matrix, the value at <code>[i][j]</code> is the travel time
+   *         from <code>pts.get(i)</code> to <code>pts.get(j)</code>.
+   */
+  public synchronized int[][] toArray(List<Point> pts) {
+    update(pts);
+    final int[] indices = new int[pts.size()];
+    for (int i = 0; i < indices.length; i++) {
+      indices[i] = slot(pts.get(i));
+    }
+    final int[][] matrix = new int[indices.length][indices.length];
+    for (int i = 0; i < indices.length; i++) {
+      final int row = indices[i] * capacity;
+      for (int j = 0; j < indices.length; j++) {
+        matrix[i][j] = buffer[row + indices[j]];
+      }
+    }
+    return matrix;
+  }
+
+  /**
+   * Removes all points from the matrix that are not specified, the travel
+   * times between the remaining points are kept.
+   * @param pts The points to keep.
+   */
+  public synchronized void retainAll(Collection<Point> pts) {
+    final Set<Point> keep = new HashSet<>(pts);
+    final List<Point> retained = new ArrayList<>();
+    for (final Point p : points) {
+      if (keep.contains(p)) {
+        retained.add(p);
+      }
+    }
+    if (retained.size() == points.size()) {
+      return;
+    }
+    final int[] oldSlots = new int[retained.size()];
+    for (int i = 0; i < oldSlots.length; i++) {
+      oldSlots[i] = slots.get(retained.get(i));
+    }
+    final int newCapacity = Math.max(MIN_CAPACITY, retained.size());
+    final int[] newBuffer = new int[newCapacity * newCapacity];
+    for (int i = 0; i < oldSlots.length; i++) {
+      final int row = oldSlots[i] * capacity;
+      for (int j = 0; j < oldSlots.length; j++) {
+        newBuffer[i * newCapacity + j] = buffer[row + oldSlots[j]];
+      }
+    }
+    slots.clear();
+    points.clear();
+    for (final Point p : retained) {
+      slots.put(p, points.size());
+      points.add(p);
+    }
+    buffer = newBuffer;
+    capacity = newCapacity;
+  }
+
+  int slot(Point p) {
+    final Integer slot = slots.get(p);
+    checkArgument(slot != null, "%s is not part of the matrix.", p);
+    return slot;
+  }
+
+  void ensureCapacity(int size) {
+    if (size <= capacity) {
+      return;
+    }
+    final int newCapacity = Math.max(size, Math.max(MIN_CAPACITY,
+      2 * capacity));
+    final int[] newBuffer = new int[newCapacity * newCapacity];
+    final int numRows = Math.min(capacity, size);
+    for (int i = 0; i < numRows; i++) {
+      System.arraycopy(buffer, i * capacity, newBuffer, i * newCapacity,
+        capacity);
+    }
+    buffer = newBuffer;
+    capacity = newCapacity;
+  }
+
+  List<double[]> invokeAll(List<Callable<double[]>> tasks) {
+    final List<double[]> results = new ArrayList<>();
+    if (numThreads == 1 || tasks.size() == 1) {
+      for (final Callable<double[]> task : tasks) {
+        try {
+          results.add(task.call());
+        } catch (final Exception e) {
+          throw new IllegalStateException(e);
+        }
+      }
+      return results;
+    }
+    final ExecutorService executor = Executors.newFixedThreadPool(
+      Math.min(numThreads, tasks.size()));
+    try {
+      for (final Future<double[]> f : executor.invokeAll(tasks)) {
+        results.add(f.get());
+      }
+      return results;
+    } catch (final ExecutionException e) {
+      throw new IllegalStateException("Computing travel times failed.",
+        e.getCause());
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Override
+  public synchronized String toString() {
+    return TravelTimeMatrix.class.getSimpleName() + "{points=" + points.size()
+      + ",speed=" + speed + ",timeUnit=" + timeUnit + "}";
+  }
+}
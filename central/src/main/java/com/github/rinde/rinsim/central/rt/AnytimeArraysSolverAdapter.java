@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2011-2018 Rinde R.S. van Lon
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rinde.rinsim.central.rt;
+
+import static com.google.common.base.Preconditions.checkState;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+
+import javax.annotation.Nullable;
+import javax.measure.quantity.Duration;
+import javax.measure.unit.Unit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.rinde.rinsim.central.GlobalStateObject;
+import com.github.rinde.rinsim.central.arrays.ArraysSolvers;
+import com.github.rinde.rinsim.central.arrays.ArraysSolvers.MVArraysObject;
+import com.github.rinde.rinsim.central.arrays.InsertionLocalSearchSolver;
+import com.github.rinde.rinsim.central.arrays.InsertionLocalSearchSolver.ImprovementListener;
+import com.github.rinde.rinsim.central.arrays.SolutionObject;
+import com.github.rinde.rinsim.central.arrays.TravelTimeMatrix;
+import com.github.rinde.rinsim.core.model.pdp.Parcel;
+import com.google.common.base.Joiner;
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
+/**
+ * Adapts {@link InsertionLocalSearchSolver} to {@link RealtimeSolver}, every
+ * improvement that is found by the solver is immediately published via
+ * {@link Scheduler#updateSchedule(GlobalStateObject, ImmutableList)}.
+ * @author Rinde van Lon
+ */
+final class AnytimeArraysSolverAdapter implements RealtimeSolver {
+  static final Logger LOGGER =
+    LoggerFactory.getLogger(AnytimeArraysSolverAdapter.class);
+
+  Optional<Scheduler> scheduler;
+  Optional<ListenableFuture<Object>> currentFuture;
+  final InsertionLocalSearchSolver solver;
+  final Unit<Duration> timeUnit;
+  Optional<TravelTimeMatrix> matrix;
+
+  AnytimeArraysSolverAdapter(InsertionLocalSearchSolver s,
+      Unit<Duration> unit) {
+    solver = s;
+    timeUnit = unit;
+    currentFuture = Optional.absent();
+    scheduler = Optional.absent();
+    matrix = Optional.absent();
+  }
+
+  @Override
+  public void init(Scheduler s) {
+    scheduler = Optional.of(s);
+  }
+
+  @Override
+  public void problemChanged(final GlobalStateObject snapshot) {
+    checkState(scheduler.isPresent(), "Not yet initialized.");
+    cancel();
+    if (!matrix.isPresent()
+      || !matrix.get().isCompatibleWith(snapshot, timeUnit)) {
+      matrix = Optional.of(TravelTimeMatrix.create(snapshot, timeUnit));
+    }
+    final TravelTimeMatrix ttm = matrix.get();
+    currentFuture = Optional.of(
+      scheduler.get().getSharedExecutor().submit(new Callable<Object>() {
+        @Override
+        public Object call() {
+          final MVArraysObject o =
+            ArraysSolvers.toMultiVehicleArrays(snapshot, timeUnit, ttm);
+          solver.solve(o, new ImprovementListener() {
+            @Override
+            public void improved(SolutionObject[] solution) {
+              if (!Thread.currentThread().isInterrupted()) {
+                scheduler.get().updateSchedule(snapshot, convert(solution, o));
+              }
+            }
+          });
+          return snapshot;
+        }
+      }));
+
+    Futures.addCallback(currentFuture.get(), new FutureCallback<Object>() {
+      @Override
+      public void onSuccess(@Nullable Object result) {
+        scheduler.get().doneForNow();
+      }
+
+      @Override
+      public void onFailure(Throwable t) {
+        if (t instanceof CancellationException) {
+          LOGGER.trace("Solver execution got cancelled");
+          return;
+        }
+        scheduler.get().reportException(t);
+      }
+    });
+  }
+
+  static ImmutableList<ImmutableList<Parcel>> convert(
+      SolutionObject[] solution, MVArraysObject o) {
+    final ImmutableList.Builder<ImmutableList<Parcel>> b =
+      ImmutableList.builder();
+    for (final SolutionObject sol : solution) {
+      b.add(ArraysSolvers.convertSolutionObject(sol, o.index2parcel));
+    }
+    return b.build();
+  }
+
+  @Override
+  public void cancel() {
+    if (isComputing()) {
+      LOGGER.trace("attempt to cancel running Solver..");
+      currentFuture.get().cancel(true);
+      scheduler.get().doneForNow();
+    }
+  }
+
+  @Override
+  public boolean isComputing() {
+    return currentFuture.isPresent() && !currentFuture.get().isDone();
+  }
+
+  @Override
+  public void receiveSnapshot(GlobalStateObject snapshot) {}
+
+  @Override
+  public String toString() {
+    return Joiner.on("").join(getClass().getSimpleName(), "(", solver, ",",
+      timeUnit, ")");
+  }
+}
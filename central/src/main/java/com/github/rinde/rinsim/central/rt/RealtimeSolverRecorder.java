@@ -0,0 +1,303 @@
+/*
+ * Copyright (C) 2011-2018 Rinde R.S. van Lon
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rinde.rinsim.central.rt;
+
+import static com.google.common.base.Preconditions.checkState;
+
+import java.io.File;
+
+import com.github.rinde.rinsim.central.GlobalStateObject;
+import com.github.rinde.rinsim.central.SolverLog;
+import com.github.rinde.rinsim.central.SolverRecorder;
+import com.github.rinde.rinsim.core.model.pdp.Parcel;
+import com.github.rinde.rinsim.util.StochasticSupplier;
+import com.github.rinde.rinsim.util.StochasticSuppliers;
+import com.google.common.base.Joiner;
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListeningExecutorService;
+
+/**
+ * Real-time version of {@link SolverRecorder}. A recording
+ * {@link RealtimeSolver} records every schedule that the delegate passes to
+ * {@link Scheduler#updateSchedule(GlobalStateObject, ImmutableList)}, in
+ * order, as the sequence of schedules of the state that was passed along.
+ * <p>
+ * A replaying {@link RealtimeSolver} guarantees the following:
+ * <ul>
+ * <li>When {@link RealtimeSolver#problemChanged(GlobalStateObject)} or
+ * {@link RealtimeSolver#receiveSnapshot(GlobalStateObject)} is called with a
+ * recorded state, every recorded schedule of that state is passed to
+ * {@link Scheduler#updateSchedule(GlobalStateObject, ImmutableList)} in the
+ * recorded order, followed by {@link Scheduler#doneForNow()}. All of this
+ * happens synchronously, i.e. within the same tick.</li>
+ * <li>When {@link RealtimeSolver#problemChanged(GlobalStateObject)} is called
+ * with a state for which nothing was recorded, an
+ * {@link IllegalStateException} is reported via
+ * {@link Scheduler#reportException(Throwable)}. An unknown snapshot received
+ * via {@link RealtimeSolver#receiveSnapshot(GlobalStateObject)} is ignored,
+ * as the recorded solver may not have computed anything for it.</li>
+ * </ul>
+ * The timing of the schedules is <i>not</i> reproduced: in the recorded
+ * simulation an intermediate schedule may have been followed by the vehicles
+ * for several ticks before it was replaced, during replay it is replaced
+ * immediately. A replay is therefore only identical to the recorded
+ * simulation when, in the recorded simulation, the final schedule of every
+ * state arrived before the vehicles acted on an intermediate schedule of that
+ * state (e.g. when the solver only sends one schedule per state). Otherwise the
+ * replay diverges, which is detected as soon as a state is encountered that
+ * was not recorded.
+ * @author Rinde van Lon
+ */
+public final class RealtimeSolverRecorder {
+
+  static final String RECORD = "record";
+  static final String REPLAY = "replay";
+
+  private RealtimeSolverRecorder() {}
+
+  /**
+   * Decorates the specified {@link RealtimeSolver} such that all schedules it
+   * computes are recorded in the specified log.
+   * @param delegate The solver to record.
+   * @param log The log to record to.
+   * @return The wrapped solver.
+   */
+  public static RealtimeSolver record(RealtimeSolver delegate, SolverLog log) {
+    return new RecordingRtSolver(delegate, log);
+  }
+
+  /**
+   * Creates a {@link RealtimeSolver} that replays the schedules from the
+   * specified log.
+   * @param log The log to replay.
+   * @return The replaying solver.
+   */
+  public static RealtimeSolver replay(SolverLog log) {
+    return new ReplayingRtSolver(log);
+  }
+
+  /**
+   * Decorates the original {@link StochasticSupplier} such that all generated
+   * {@link RealtimeSolver} instances record to the specified file using
+   * {@link #record(RealtimeSolver, SolverLog)}.
+   * @param sup The supplier to wrap.
+   * @param file The file of the log, records are appended if it already
+   *          exists.
+   * @return The wrapper supplier.
+   */
+  public static StochasticSupplier<RealtimeSolver> record(
+      StochasticSupplier<? extends RealtimeSolver> sup, File file) {
+    return new RecordingSupplier(sup, file);
+  }
+
+  /**
+   * Creates a {@link StochasticSupplier} of {@link RealtimeSolver}s that
+   * replay the schedules from the specified file using
+   * {@link #replay(SolverLog)}.
+   * @param file The file of the log.
+   * @return The supplier.
+   */
+  public static StochasticSupplier<RealtimeSolver> replay(File file) {
+    return new ReplayingSupplier(file);
+  }
+
+  static String name(String method, Object... args) {
+    return RealtimeSolverRecorder.class.getSimpleName() + "." + method + "("
+      + Joiner.on(", ").join(args) + ")";
+  }
+
+  static class RecordingRtSolver implements RealtimeSolver {
+    final RealtimeSolver delegate;
+    final SolverLog log;
+
+    RecordingRtSolver(RealtimeSolver deleg, SolverLog l) {
+      delegate = deleg;
+      log = l;
+    }
+
+    @Override
+    public void init(Scheduler scheduler) {
+      delegate.init(new RecordingScheduler(scheduler, log));
+    }
+
+    @Override
+    public void problemChanged(GlobalStateObject snapshot) {
+      delegate.problemChanged(snapshot);
+    }
+
+    @Override
+    public void receiveSnapshot(GlobalStateObject snapshot) {
+      delegate.receiveSnapshot(snapshot);
+    }
+
+    @Override
+    public void cancel() {
+      delegate.cancel();
+    }
+
+    @Override
+    public boolean isComputing() {
+      return delegate.isComputing();
+    }
+
+    @Override
+    public String toString() {
+      return name(RECORD, delegate);
+    }
+  }
+
+  static class ReplayingRtSolver implements RealtimeSolver {
+    final SolverLog log;
+    Optional<Scheduler> scheduler;
+
+    ReplayingRtSolver(SolverLog l) {
+      log = l;
+      scheduler = Optional.absent();
+    }
+
+    @Override
+    public void init(Scheduler s) {
+      scheduler = Optional.of(s);
+    }
+
+    @Override
+    public void problemChanged(GlobalStateObject snapshot) {
+      checkInitialized();
+      final ImmutableList<ImmutableList<ImmutableList<Parcel>>> sequence;
+      try {
+        sequence = log.replaySequence(snapshot);
+      } catch (final IllegalStateException e) {
+        scheduler.get().reportException(e);
+        return;
+      }
+      replay(snapshot, sequence);
+    }
+
+    @Override
+    public void receiveSnapshot(GlobalStateObject snapshot) {
+      checkInitialized();
+      if (log.contains(snapshot)) {
+        replay(snapshot, log.replaySequence(snapshot));
+      }
+    }
+
+    void checkInitialized() {
+      checkState(scheduler.isPresent(), "Not yet initialized.");
+    }
+
+    void replay(GlobalStateObject snapshot,
+        ImmutableList<ImmutableList<ImmutableList<Parcel>>> sequence) {
+      for (final ImmutableList<ImmutableList<Parcel>> schedule : sequence) {
+        scheduler.get().updateSchedule(snapshot, schedule);
+      }
+      scheduler.get().doneForNow();
+    }
+
+    @Override
+    public void cancel() {}
+
+    @Override
+    public boolean isComputing() {
+      return false;
+    }
+
+    @Override
+    public String toString() {
+      return name(REPLAY);
+    }
+  }
+
+  static class RecordingScheduler extends Scheduler {
+    final Scheduler delegate;
+    final SolverLog log;
+
+    RecordingScheduler(Scheduler deleg, SolverLog l) {
+      delegate = deleg;
+      log = l;
+    }
+
+    @Override
+    public void updateSchedule(GlobalStateObject state,
+        ImmutableList<ImmutableList<Parcel>> routes) {
+      log.record(state, routes);
+      delegate.updateSchedule(state, routes);
+    }
+
+    @Override
+    public ImmutableList<ImmutableList<Parcel>> getCurrentSchedule() {
+      return delegate.getCurrentSchedule();
+    }
+
+    @Override
+    public void doneForNow() {
+      delegate.doneForNow();
+    }
+
+    @Override
+    public ListeningExecutorService getSharedExecutor() {
+      return delegate.getSharedExecutor();
+    }
+
+    @Override
+    public void reportException(Throwable t) {
+      delegate.reportException(t);
+    }
+  }
+
+  private static final class RecordingSupplier extends
+      StochasticSuppliers.AbstractStochasticSupplier<RealtimeSolver> {
+    private static final long serialVersionUID = 3315830296412960215L;
+    private final StochasticSupplier<? extends RealtimeSolver> supplier;
+    private final File file;
+
+    RecordingSupplier(StochasticSupplier<? extends RealtimeSolver> sup,
+        File f) {
+      supplier = sup;
+      file = f;
+    }
+
+    @Override
+    public RealtimeSolver get(long seed) {
+      return record(supplier.get(seed), SolverLog.create(file, seed));
+    }
+
+    @Override
+    public String toString() {
+      return name(RECORD, supplier, file);
+    }
+  }
+
+  private static final class ReplayingSupplier extends
+      StochasticSuppliers.AbstractStochasticSupplier<RealtimeSolver> {
+    private static final long serialVersionUID = -2729771316331101932L;
+    private final File file;
+
+    ReplayingSupplier(File f) {
+      file = f;
+    }
+
+    @Override
+    public RealtimeSolver get(long seed) {
+      return replay(SolverLog.create(file, seed));
+    }
+
+    @Override
+    public String toString() {
+      return name(REPLAY, file);
+    }
+  }
+}
@@ -0,0 +1,531 @@
+/*
+ * Copyright (C) 2011-2018 Rinde R.S. van Lon
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rinde.rinsim.central.rt;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.lang.Thread.UncaughtExceptionHandler;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.math3.random.MersenneTwister;
+import org.apache.commons.math3.random.RandomGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.rinde.rinsim.central.GlobalStateObject;
+import com.github.rinde.rinsim.central.Solver;
+import com.github.rinde.rinsim.central.Solvers;
+import com.github.rinde.rinsim.core.model.pdp.Parcel;
+import com.github.rinde.rinsim.pdptw.common.ObjectiveFunction;
+import com.github.rinde.rinsim.util.StochasticSupplier;
+import com.github.rinde.rinsim.util.StochasticSuppliers;
+import com.google.auto.value.AutoValue;
+import com.google.common.base.Joiner;
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * A {@link RealtimeSolver} that races a portfolio of {@link RealtimeSolver}s.
+ * Each time the problem changes all members of the portfolio start computing a
+ * schedule for the same {@link GlobalStateObject} at the same time. Every
+ * schedule that a member publishes is evaluated using an
+ * {@link ObjectiveFunction}, a schedule is forwarded to the
+ * {@link Scheduler} of the portfolio only if it is better than all schedules
+ * that were published for the same state before. The members that are still
+ * computing are cancelled as soon as the time budget has elapsed or as soon as
+ * a schedule is found that reaches the quality threshold.
+ * <p>
+ * Every member has its own single thread executor which is returned by
+ * {@link Scheduler#getSharedExecutor()}, such that members do not compete for
+ * the threads of the executor that is shared by {@link RtSolverModel}. When
+ * thread grouping is enabled these threads are created by an
+ * {@link AffinityGroupThreadFactory}, all threads of one member then run on
+ * the same CPU. Idle threads are discarded after a short time.
+ * <p>
+ * For each race the winner (the member that found the best schedule), the
+ * cost of the best schedule and the time it took to find it are recorded, see
+ * {@link #getRaceResults()}.
+ * <p>
+ * Instances can be used in {@link RtCentral} or {@link RtSolverUser}s via
+ * the supplier that is created by {@link Builder#build()}.
+ * @author Rinde van Lon
+ */
+public final class RtSolverPortfolio implements RealtimeSolver {
+  static final Logger LOGGER =
+    LoggerFactory.getLogger(RtSolverPortfolio.class);
+  static final long KEEP_ALIVE_MS = 1000L;
+
+  final ImmutableList<RealtimeSolver> members;
+  final ObjectiveFunction objectiveFunction;
+  final long timeBudget;
+  final double qualityThreshold;
+  final boolean threadGrouping;
+  final AtomicInteger pendingMembers;
+  final AtomicInteger openRequests;
+  final List<RaceResult> raceResults;
+
+  Optional<Scheduler> scheduler;
+  Optional<ScheduledThreadPoolExecutor> timer;
+  Optional<ScheduledFuture<?>> timeout;
+  Optional<Race> currentRace;
+
+  RtSolverPortfolio(ImmutableList<RealtimeSolver> ms, ObjectiveFunction of,
+      long budget, double threshold, boolean grouping) {
+    members = ms;
+    objectiveFunction = of;
+    timeBudget = budget;
+    qualityThreshold = threshold;
+    threadGrouping = grouping;
+    pendingMembers = new AtomicInteger();
+    openRequests = new AtomicInteger();
+    raceResults = new ArrayList<>();
+    scheduler = Optional.absent();
+    timer = Optional.absent();
+    timeout = Optional.absent();
+    currentRace = Optional.absent();
+  }
+
+  /**
+   * Creates a new {@link Builder} for portfolios that compare schedules using
+   * the specified objective function.
+   * @param objFunc The objective function, lower costs are better.
+   * @return A new builder.
+   */
+  public static Builder builder(ObjectiveFunction objFunc) {
+    return new Builder(objFunc);
+  }
+
+  @Override
+  public void init(final Scheduler s) {
+    checkState(!scheduler.isPresent(), "Already initialized.");
+    scheduler = Optional.of(s);
+    final UncaughtExceptionHandler handler = new UncaughtExceptionHandler() {
+      @Override
+      public void uncaughtException(Thread t, Throwable e) {
+        s.reportException(e);
+      }
+    };
+    for (int i = 0; i < members.size(); i++) {
+      final String name = String.format("%s-%s",
+        RtSolverPortfolio.class.getSimpleName(), i);
+      final ThreadFactory factory;
+      if (threadGrouping) {
+        factory = new AffinityGroupThreadFactory(name, handler);
+      } else {
+        factory = new ThreadFactoryBuilder()
+          .setDaemon(true)
+          .setNameFormat(name + "-%d")
+          .setUncaughtExceptionHandler(handler)
+          .build();
+      }
+      final ThreadPoolExecutor ex = new ThreadPoolExecutor(1, 1,
+        KEEP_ALIVE_MS, TimeUnit.MILLISECONDS,
+        new LinkedBlockingQueue<Runnable>(), factory);
+      ex.allowCoreThreadTimeOut(true);
+      members.get(i).init(
+        new MemberScheduler(i, MoreExecutors.listeningDecorator(ex)));
+    }
+    if (timeBudget > 0) {
+      final ScheduledThreadPoolExecutor t = new ScheduledThreadPoolExecutor(1,
+        new ThreadFactoryBuilder()
+          .setDaemon(true)
+          .setNameFormat(RtSolverPortfolio.class.getSimpleName() + "-timer")
+          .build());
+      t.setKeepAliveTime(KEEP_ALIVE_MS, TimeUnit.MILLISECONDS);
+      t.allowCoreThreadTimeOut(true);
+      t.setRemoveOnCancelPolicy(true);
+      timer = Optional.of(t);
+    }
+  }
+
+  @Override
+  public void problemChanged(GlobalStateObject snapshot) {
+    checkState(scheduler.isPresent(), "Not yet initialized.");
+    final Race race = new Race(snapshot);
+    synchronized (this) {
+      finishRace();
+      if (timeout.isPresent()) {
+        timeout.get().cancel(false);
+        timeout = Optional.absent();
+      }
+      currentRace = Optional.of(race);
+    }
+    // the pending members are incremented before the open requests to make
+    // sure that doneForNow() is not called before all members are done
+    pendingMembers.addAndGet(members.size());
+    openRequests.incrementAndGet();
+    for (final RealtimeSolver member : members) {
+      member.problemChanged(snapshot);
+    }
+    if (timer.isPresent()) {
+      final ScheduledFuture<?> f = timer.get().schedule(new Runnable() {
+        @Override
+        public void run() {
+          stop(race);
+        }
+      }, timeBudget, TimeUnit.MILLISECONDS);
+      synchronized (this) {
+        timeout = Optional.<ScheduledFuture<?>>of(f);
+      }
+    }
+  }
+
+  @Override
+  public void receiveSnapshot(GlobalStateObject snapshot) {
+    for (final RealtimeSolver member : members) {
+      member.receiveSnapshot(snapshot);
+    }
+  }
+
+  @Override
+  public void cancel() {
+    for (final RealtimeSolver member : members) {
+      member.cancel();
+    }
+  }
+
+  @Override
+  public boolean isComputing() {
+    for (final RealtimeSolver member : members) {
+      if (member.isComputing()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return The members of this portfolio, the index of a member in this list
+   *         is used in {@link RaceResult#getWinner()}.
+   */
+  public ImmutableList<RealtimeSolver> getMembers() {
+    return members;
+  }
+
+  /**
+   * @return The results of all finished races in which at least one schedule
+   *         was found, in chronological order.
+   */
+  public synchronized ImmutableList<RaceResult> getRaceResults() {
+    return ImmutableList.copyOf(raceResults);
+  }
+
+  /**
+   * @return For each member the number of races it has won, in the same order
+   *         as {@link #getMembers()}.
+   */
+  public synchronized ImmutableList<Integer> getWinCounts() {
+    final int[] wins = new int[members.size()];
+    for (final RaceResult rr : raceResults) {
+      wins[rr.getWinner()]++;
+    }
+    final ImmutableList.Builder<Integer> b = ImmutableList.builder();
+    for (final int w : wins) {
+      b.add(w);
+    }
+    return b.build();
+  }
+
+  void stop(Race race) {
+    synchronized (this) {
+      if (!currentRace.isPresent() || currentRace.get() != race
+        || race.stopped) {
+        return;
+      }
+      race.stopped = true;
+      finishRace();
+    }
+    LOGGER.trace("Stop race, cancel members.");
+    cancel();
+  }
+
+  // must be called while holding the lock
+  void finishRace() {
+    if (currentRace.isPresent() && !currentRace.get().recorded
+      && currentRace.get().winner >= 0) {
+      final Race race = currentRace.get();
+      race.recorded = true;
+      final RaceResult result = RaceResult.create(race.winner, race.bestCost,
+        race.timeToBest, race.improvements);
+      LOGGER.debug("Race finished: {}.", result);
+      raceResults.add(result);
+    }
+  }
+
+  void memberUpdate(int member, GlobalStateObject state,
+      ImmutableList<ImmutableList<Parcel>> routes) {
+    final Race race;
+    synchronized (this) {
+      if (!currentRace.isPresent() || currentRace.get().state != state
+        || currentRace.get().stopped) {
+        LOGGER.trace("Ignore schedule of member {} of an old race.", member);
+        return;
+      }
+      race = currentRace.get();
+    }
+    final double cost =
+      objectiveFunction.computeCost(Solvers.computeStats(state, routes));
+    final boolean reached;
+    synchronized (this) {
+      if (race.stopped || cost >= race.bestCost) {
+        return;
+      }
+      race.bestCost = cost;
+      race.winner = member;
+      race.timeToBest = System.nanoTime() - race.startTime;
+      race.improvements++;
+      reached = cost <= qualityThreshold;
+      scheduler.get().updateSchedule(state, routes);
+    }
+    if (reached) {
+      stop(race);
+    }
+  }
+
+  void memberDone() {
+    if (pendingMembers.decrementAndGet() == 0) {
+      synchronized (this) {
+        finishRace();
+      }
+      final int owed = openRequests.getAndSet(0);
+      for (int i = 0; i < owed; i++) {
+        scheduler.get().doneForNow();
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return Joiner.on("").join(getClass().getSimpleName(), members);
+  }
+
+  /**
+   * The result of a single race.
+   * @author Rinde van Lon
+   */
+  @AutoValue
+  public abstract static class RaceResult {
+    RaceResult() {}
+
+    /**
+     * @return The index of the member that found the best schedule.
+     */
+    public abstract int getWinner();
+
+    /**
+     * @return The cost of the best schedule.
+     */
+    public abstract double getCost();
+
+    /**
+     * @return The wall clock time in nanoseconds between the start of the
+     *         race and the moment the best schedule was published.
+     */
+    public abstract long getTimeToBest();
+
+    /**
+     * @return The number of schedules that were forwarded during the race.
+     */
+    public abstract int getImprovements();
+
+    static RaceResult create(int winner, double cost, long time,
+        int improvements) {
+      return new AutoValue_RtSolverPortfolio_RaceResult(winner, cost, time,
+        improvements);
+    }
+  }
+
+  /**
+   * Builder for {@link RtSolverPortfolio}.
+   * @author Rinde van Lon
+   */
+  public static final class Builder {
+    final ObjectiveFunction objFunc;
+    final List<StochasticSupplier<? extends RealtimeSolver>> suppliers;
+    long budget;
+    double threshold;
+    boolean grouping;
+
+    Builder(ObjectiveFunction of) {
+      objFunc = of;
+      suppliers = new ArrayList<>();
+      budget = 0L;
+      threshold = Double.NEGATIVE_INFINITY;
+      grouping = false;
+    }
+
+    /**
+     * Adds a member to the portfolio. A supplier can be added multiple times,
+     * each member receives a different seed.
+     * @param supplier The supplier of the member.
+     * @return This, as per the builder pattern.
+     */
+    public Builder add(StochasticSupplier<? extends RealtimeSolver> supplier) {
+      suppliers.add(supplier);
+      return this;
+    }
+
+    /**
+     * Adds a {@link Solver} to the portfolio, it is adapted using
+     * {@link RtStAdapters#toRealtime(StochasticSupplier)}.
+     * @param supplier The supplier of the solver.
+     * @return This, as per the builder pattern.
+     */
+    public Builder addAdapt(StochasticSupplier<? extends Solver> supplier) {
+      return add(RtStAdapters.toRealtime(supplier));
+    }
+
+    /**
+     * Sets the time budget of each race, after this time all members that are
+     * still computing are cancelled. By default there is no time budget, all
+     * members can compute until they are done.
+     * @param ms The time budget in milliseconds (wall clock time), must be
+     *          positive.
+     * @return This, as per the builder pattern.
+     */
+    public Builder withTimeBudget(long ms) {
+      checkArgument(ms > 0, "Time budget must be positive, found %s.", ms);
+      budget = ms;
+      return this;
+    }
+
+    /**
+     * Sets the quality threshold, as soon as a schedule is found with a cost
+     * lower or equal to this threshold all members are cancelled. By default
+     * there is no threshold.
+     * @param cost The cost threshold.
+     * @return This, as per the builder pattern.
+     */
+    public Builder withQualityThreshold(double cost) {
+      threshold = cost;
+      return this;
+    }
+
+    /**
+     * Enables or disables thread grouping, if enabled the threads of each
+     * member are created by an {@link AffinityGroupThreadFactory}. Default:
+     * <code>false</code>.
+     * @param flag <code>true</code> to enable thread grouping.
+     * @return This, as per the builder pattern.
+     */
+    public Builder withThreadGrouping(boolean flag) {
+      grouping = flag;
+      return this;
+    }
+
+    /**
+     * Creates a supplier of portfolios. The seed that is passed to the
+     * supplier is used to generate a seed for each member.
+     * @return A new supplier.
+     */
+    public StochasticSupplier<RtSolverPortfolio> build() {
+      checkArgument(!suppliers.isEmpty(),
+        "At least one member must be added.");
+      final ImmutableList<StochasticSupplier<? extends RealtimeSolver>> sups =
+        ImmutableList.copyOf(suppliers);
+      final ObjectiveFunction of = objFunc;
+      final long b = budget;
+      final double t = threshold;
+      final boolean g = grouping;
+      return new StochasticSuppliers.AbstractStochasticSupplier<RtSolverPortfolio>() {
+        private static final long serialVersionUID = -4360436128720254577L;
+
+        @Override
+        public RtSolverPortfolio get(long seed) {
+          final RandomGenerator rng = new MersenneTwister(seed);
+          final ImmutableList.Builder<RealtimeSolver> ms =
+            ImmutableList.builder();
+          for (final StochasticSupplier<? extends RealtimeSolver> s : sups) {
+            ms.add(s.get(rng.nextLong()));
+          }
+          return new RtSolverPortfolio(ms.build(), of, b, t, g);
+        }
+
+        @Override
+        public String toString() {
+          return Joiner.on("").join(RtSolverPortfolio.class.getSimpleName(),
+            sups);
+        }
+      };
+    }
+  }
+
+  static class Race {
+    final GlobalStateObject state;
+    final long startTime;
+    double bestCost;
+    int winner;
+    long timeToBest;
+    int improvements;
+    boolean stopped;
+    boolean recorded;
+
+    Race(GlobalStateObject s) {
+      state = s;
+      startTime = System.nanoTime();
+      bestCost = Double.POSITIVE_INFINITY;
+      winner = -1;
+    }
+  }
+
+  class MemberScheduler extends Scheduler {
+    final int index;
+    final ListeningExecutorService executor;
+
+    MemberScheduler(int i, ListeningExecutorService ex) {
+      index = i;
+      executor = ex;
+    }
+
+    @Override
+    public void updateSchedule(GlobalStateObject state,
+        ImmutableList<ImmutableList<Parcel>> routes) {
+      memberUpdate(index, state, routes);
+    }
+
+    @Override
+    public ImmutableList<ImmutableList<Parcel>> getCurrentSchedule() {
+      return scheduler.get().getCurrentSchedule();
+    }
+
+    @Override
+    public void doneForNow() {
+      memberDone();
+    }
+
+    @Override
+    public ListeningExecutorService getSharedExecutor() {
+      return executor;
+    }
+
+    @Override
+    public void reportException(Throwable t) {
+      scheduler.get().reportException(t);
+    }
+  }
+}
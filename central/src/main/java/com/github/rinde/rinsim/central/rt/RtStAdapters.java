@@ -15,10 +15,15 @@
  */
 package com.github.rinde.rinsim.central.rt;
 
+import javax.measure.quantity.Duration;
+import javax.measure.unit.Unit;
+
 import com.github.rinde.rinsim.central.GlobalStateObject;
 import com.github.rinde.rinsim.central.Solver;
 import com.github.rinde.rinsim.central.SolverUser;
+import com.github.rinde.rinsim.central.arrays.InsertionLocalSearchSolver;
 import com.github.rinde.rinsim.util.StochasticSupplier;
+import com.github.rinde.rinsim.util.StochasticSuppliers;
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableList;
 
@@ -27,6 +32,7 @@ import com.google.common.collect.ImmutableList;
  * @author Rinde van Lon
  */
 public final class RtStAdapters {
+  private static final String R_BRACE = ")";
 
   private RtStAdapters() {}
 
@@ -71,6 +77,50 @@ public final class RtStAdapters {
     return new Sup(solver);
   }
 
+  /**
+   * Adapts {@link InsertionLocalSearchSolver} to {@link RealtimeSolver}. Upon
+   * receiving a new snapshot the solver starts computing, any ongoing
+   * computation of a previous snapshot is cancelled. The constructed solution
+   * and every subsequent improvement are published via
+   * {@link Scheduler#updateSchedule(GlobalStateObject,ImmutableList)} as soon
+   * as they are found. When the local search is finished
+   * {@link Scheduler#doneForNow()} is called.
+   * @param solver The solver to adapt.
+   * @param timeUnit The time unit that is used for the arrays representation.
+   * @return The adapted solver.
+   */
+  public static RealtimeSolver toRealtime(InsertionLocalSearchSolver solver,
+      Unit<Duration> timeUnit) {
+    return new AnytimeArraysSolverAdapter(solver, timeUnit);
+  }
+
+  /**
+   * Creates a supplier of {@link RealtimeSolver}s, see
+   * {@link #toRealtime(InsertionLocalSearchSolver, Unit)}. All created
+   * instances share the specified solver, which is immutable and
+   * serializable.
+   * @param solver The solver to adapt.
+   * @param timeUnit The time unit that is used for the arrays representation.
+   * @return The adapted solver supplier.
+   */
+  public static StochasticSupplier<RealtimeSolver> toRealtimeSupplier(
+      final InsertionLocalSearchSolver solver, final Unit<Duration> timeUnit) {
+    return new StochasticSuppliers.AbstractStochasticSupplier<RealtimeSolver>() {
+      private static final long serialVersionUID = 2706447287926376478L;
+
+      @Override
+      public RealtimeSolver get(long seed) {
+        return toRealtime(solver, timeUnit);
+      }
+
+      @Override
+      public String toString() {
+        return Joiner.on("").join(RtStAdapters.class.getSimpleName(),
+          ".toRealtimeSupplier(", solver, ",", timeUnit, R_BRACE);
+      }
+    };
+  }
+
   public static SolverUser toSimTime(RtSolverUser solverUser) {
     return new RtSolverUserAdapter(solverUser);
   }
@@ -90,7 +140,7 @@ public final class RtStAdapters {
     @Override
     public String toString() {
       return Joiner.on("").join(RtStAdapters.class.getSimpleName(),
-        ".toRealtime(", solver, ")");
+        ".toRealtime(", solver, R_BRACE);
     }
   }
 
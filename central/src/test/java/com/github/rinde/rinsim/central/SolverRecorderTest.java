@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2011-2018 Rinde R.S. van Lon
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rinde.rinsim.central;
+
+import static com.github.rinde.rinsim.central.GlobalStateObjectBuilder.globalBuilder;
+import static com.github.rinde.rinsim.central.GlobalStateObjectBuilder.vehicleBuilder;
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.rinde.rinsim.core.model.pdp.Parcel;
+import com.github.rinde.rinsim.experiment.Experiment;
+import com.github.rinde.rinsim.experiment.Experiment.SimulationResult;
+import com.github.rinde.rinsim.experiment.ExperimentResults;
+import com.github.rinde.rinsim.experiment.PostProcessors;
+import com.github.rinde.rinsim.geom.Point;
+import com.github.rinde.rinsim.scenario.gendreau06.Gendreau06ObjectiveFunction;
+import com.github.rinde.rinsim.scenario.gendreau06.Gendreau06Parser;
+import com.github.rinde.rinsim.scenario.gendreau06.Gendreau06Scenario;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Tests for {@link SolverRecorder} and {@link SolverLog}.
+ * @author Rinde van Lon
+ */
+public class SolverRecorderTest {
+  static final Point MIN = new Point(0, 0);
+  static final Point MAX = new Point(10, 10);
+
+  /**
+   * Temporary folder for the log files.
+   */
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  /**
+   * A recorded schedule is replayed using the parcel instances of an equal
+   * state.
+   * @throws IOException When the log file can not be created.
+   */
+  @Test
+  public void testRecordReplay() throws IOException {
+    final File file = folder.newFile();
+    final GlobalStateObject s1 = state(parcel(1, 2), parcel(3, 4));
+    final Parcel a = s1.getAvailableParcels().asList().get(0);
+    final Parcel b = s1.getAvailableParcels().asList().get(1);
+    SolverLog.create(file, 0L)
+      .record(s1, ImmutableList.of(ImmutableList.of(b, a, a, b)));
+
+    final GlobalStateObject s2 = state(parcel(1, 2), parcel(3, 4));
+    assertThat(SolverLog.fingerprint(s2))
+      .isEqualTo(SolverLog.fingerprint(s1));
+    final ImmutableList<ImmutableList<Parcel>> replayed =
+      SolverLog.create(file, 0L).replay(s2);
+    // replayed parcels are the instances of s2
+    final Parcel a2 = s2.getAvailableParcels().asList().get(0);
+    final Parcel b2 = s2.getAvailableParcels().asList().get(1);
+    assertThat(replayed).isEqualTo(
+      ImmutableList.of(ImmutableList.of(b2, a2, a2, b2)));
+  }
+
+  /**
+   * Replaying a state that was not recorded must fail.
+   * @throws IOException When the log file can not be created.
+   */
+  @Test
+  public void testReplayUnknownState()
+      throws IOException, InterruptedException {
+    final File file = folder.newFile();
+    final GlobalStateObject s1 = state(parcel(1, 2));
+    final Parcel a = s1.getAvailableParcels().iterator().next();
+    SolverLog.create(file, 0L)
+      .record(s1, ImmutableList.of(ImmutableList.of(a, a)));
+
+    final Solver otherSeed = SolverRecorder.replay(SolverLog.create(file, 1L));
+    try {
+      otherSeed.solve(s1);
+      fail();
+    } catch (final IllegalStateException e) {
+      assertThat(e.getMessage()).contains("No schedule was recorded");
+    }
+
+    final Solver sameSeed = SolverRecorder.replay(SolverLog.create(file, 0L));
+    try {
+      sameSeed.solve(state(parcel(1, 3)));
+      fail();
+    } catch (final IllegalStateException e) {
+      assertThat(e.getMessage()).contains("No schedule was recorded");
+    }
+  }
+
+  /**
+   * Replaying a recorded experiment must yield the same results.
+   * @throws IOException When the log file can not be created.
+   */
+  @Test
+  public void testExperimentReplay() throws IOException {
+    final File file = new File(folder.getRoot(), "experiment.log");
+    final Gendreau06Scenario scenario = Gendreau06Parser.parse(
+      new File(ScenarioPaths.GENDREAU));
+
+    final ExperimentResults recorded = Experiment.builder()
+      .addScenario(scenario)
+      .addConfiguration(Central.solverConfiguration(
+        SolverRecorder.record(RandomSolver.supplier(), file)))
+      .usePostProcessor(PostProcessors.statisticsPostProcessor(
+        Gendreau06ObjectiveFunction.instance()))
+      .withRandomSeed(123)
+      .repeat(2)
+      .perform();
+    assertThat(file.length()).isGreaterThan(0L);
+
+    final ExperimentResults replayed = Experiment.builder()
+      .addScenario(scenario)
+      .addConfiguration(Central.solverConfiguration(
+        SolverRecorder.replay(file)))
+      .usePostProcessor(PostProcessors.statisticsPostProcessor(
+        Gendreau06ObjectiveFunction.instance()))
+      .withRandomSeed(123)
+      .repeat(2)
+      .perform();
+
+    assertThat(resultsBySeed(replayed)).isEqualTo(resultsBySeed(recorded));
+  }
+
+  static Map<Long, Object> resultsBySeed(ExperimentResults results) {
+    final Map<Long, Object> map = new HashMap<>();
+    for (final SimulationResult r : results.getResults()) {
+      map.put(r.getSimArgs().getRandomSeed(), r.getResultObject());
+    }
+    return map;
+  }
+
+  static Parcel parcel(double x, double y) {
+    return Parcel.builder(new Point(x, y), new Point(y, x)).build();
+  }
+
+  static GlobalStateObject state(Parcel... parcels) {
+    return globalBuilder()
+      .addAvailableParcels(parcels)
+      .addVehicle(vehicleBuilder().build())
+      .setPlaneTravelTimes(MIN, MAX)
+      .build();
+  }
+}
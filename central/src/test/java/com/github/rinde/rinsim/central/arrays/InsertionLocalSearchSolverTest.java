@@ -0,0 +1,212 @@
+/*
+ * Copyright (C) 2011-2018 Rinde R.S. van Lon
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rinde.rinsim.central.arrays;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.measure.quantity.Duration;
+import javax.measure.unit.SI;
+import javax.measure.unit.Unit;
+
+import org.junit.Test;
+
+import com.github.rinde.rinsim.central.Central;
+import com.github.rinde.rinsim.central.GlobalStateObject;
+import com.github.rinde.rinsim.central.ScenarioPaths;
+import com.github.rinde.rinsim.central.Solver;
+import com.github.rinde.rinsim.central.SolverValidator;
+import com.github.rinde.rinsim.central.arrays.ArraysSolvers.MVArraysObject;
+import com.github.rinde.rinsim.central.arrays.InsertionLocalSearchSolver.ImprovementListener;
+import com.github.rinde.rinsim.core.model.pdp.Parcel;
+import com.github.rinde.rinsim.experiment.Experiment;
+import com.github.rinde.rinsim.experiment.Experiment.SimulationResult;
+import com.github.rinde.rinsim.experiment.ExperimentResults;
+import com.github.rinde.rinsim.experiment.MASConfiguration;
+import com.github.rinde.rinsim.experiment.PostProcessors;
+import com.github.rinde.rinsim.pdptw.common.StatisticsDTO;
+import com.github.rinde.rinsim.scenario.gendreau06.Gendreau06ObjectiveFunction;
+import com.github.rinde.rinsim.scenario.gendreau06.Gendreau06Parser;
+import com.github.rinde.rinsim.scenario.gendreau06.Gendreau06Scenario;
+import com.github.rinde.rinsim.util.StochasticSupplier;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Tests for {@link InsertionLocalSearchSolver}.
+ * @author Rinde van Lon
+ */
+public class InsertionLocalSearchSolverTest {
+  static final Unit<Duration> TIME_UNIT = SI.MILLI(SI.SECOND);
+
+  /**
+   * The solver produces valid solutions that are better than random solutions
+   * and the results do not depend on the number of threads.
+   */
+  @Test
+  public void testExperiment() {
+    final Gendreau06Scenario scenario =
+      Gendreau06Parser.parse(new File(ScenarioPaths.GENDREAU));
+    final Gendreau06ObjectiveFunction objFunc =
+      Gendreau06ObjectiveFunction.instance();
+
+    final MASConfiguration random =
+      Central.solverConfiguration(RandomMVArraysSolver.solverSupplier(), "r");
+    final MASConfiguration sequential =
+      Central.solverConfiguration(validated(1), "s");
+    final MASConfiguration parallel =
+      Central.solverConfiguration(validated(3), "p");
+
+    final ExperimentResults results = Experiment.builder()
+      .addScenario(scenario)
+      .addConfigurations(ImmutableList.of(random, sequential, parallel))
+      .usePostProcessor(PostProcessors.statisticsPostProcessor(objFunc))
+      .withRandomSeed(123)
+      .perform();
+
+    double randomCost = 0;
+    double sequentialCost = 0;
+    double parallelCost = 0;
+    for (final SimulationResult sr : results.getResults()) {
+      final StatisticsDTO stats = (StatisticsDTO) sr.getResultObject();
+      assertThat(objFunc.isValidResult(stats)).isTrue();
+      final double cost = objFunc.computeCost(stats);
+      if (sr.getSimArgs().getMasConfig() == random) {
+        randomCost = cost;
+      } else if (sr.getSimArgs().getMasConfig() == sequential) {
+        sequentialCost = cost;
+      } else {
+        parallelCost = cost;
+      }
+    }
+    assertThat(sequentialCost).isLessThan(randomCost);
+    assertThat(parallelCost).isEqualTo(sequentialCost);
+  }
+
+  /**
+   * The objective value of the published solutions never increases and each
+   * published solution is valid.
+   */
+  @Test
+  public void testImprovements() {
+    final Gendreau06Scenario scenario = Gendreau06Parser.parser()
+      .addFile(ScenarioPaths.GENDREAU)
+      .offline()
+      .parse()
+      .get(0);
+    final InsertionLocalSearchSolver solver =
+      InsertionLocalSearchSolver.builder()
+        .withThreads(2)
+        .withMaxIterations(25)
+        .build();
+    final List<Integer> objectives = new ArrayList<>();
+    Experiment.builder()
+      .addScenario(scenario)
+      .addConfiguration(Central.solverConfiguration(
+        new StochasticSupplier<Solver>() {
+          @Override
+          public Solver get(long seed) {
+            return new ListeningSolver(solver, objectives);
+          }
+        }))
+      .perform();
+    assertThat(objectives.size()).isGreaterThan(1);
+    for (int i = 1; i < objectives.size(); i++) {
+      assertThat(objectives.get(i)).isLessThan(objectives.get(i - 1));
+    }
+  }
+
+  /**
+   * The supplier only holds the settings of the solver and can be serialized.
+   * @throws IOException If serialization fails.
+   * @throws ClassNotFoundException If deserialization fails.
+   */
+  @Test
+  public void testSupplierSerializable()
+      throws IOException, ClassNotFoundException {
+    final StochasticSupplier<Solver> supplier =
+      InsertionLocalSearchSolver.builder()
+        .withThreads(2)
+        .withMaxIterations(10)
+        .build()
+        .asSolverSupplier(TIME_UNIT);
+
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(supplier);
+    }
+    final Object copy;
+    try (ObjectInputStream in = new ObjectInputStream(
+      new ByteArrayInputStream(bytes.toByteArray()))) {
+      copy = in.readObject();
+    }
+    assertThat(copy.toString()).isEqualTo(supplier.toString());
+    assertThat(((StochasticSupplier<?>) copy).get(0))
+      .isInstanceOf(MultiVehicleSolverAdapter.class);
+  }
+
+  static StochasticSupplier<Solver> validated(final int threads) {
+    final InsertionLocalSearchSolver solver =
+      InsertionLocalSearchSolver.builder().withThreads(threads).build();
+    return new StochasticSupplier<Solver>() {
+      @Override
+      public Solver get(long seed) {
+        return SolverValidator.wrap(new MultiVehicleSolverAdapter(
+          ArraysSolverValidator.wrap(solver), TIME_UNIT));
+      }
+    };
+  }
+
+  static class ListeningSolver implements Solver {
+    final InsertionLocalSearchSolver solver;
+    final List<Integer> objectives;
+
+    ListeningSolver(InsertionLocalSearchSolver s, List<Integer> objs) {
+      solver = s;
+      objectives = objs;
+    }
+
+    @Override
+    public ImmutableList<ImmutableList<Parcel>> solve(
+        GlobalStateObject state) {
+      final MVArraysObject o =
+        ArraysSolvers.toMultiVehicleArrays(state, TIME_UNIT);
+      final SolutionObject[] sols = solver.solve(o, new ImprovementListener() {
+        @Override
+        public void improved(SolutionObject[] solution) {
+          ArraysSolverValidator.validateOutputs(solution, o.travelTime,
+            o.releaseDates, o.dueDates, o.servicePairs, o.serviceTimes,
+            o.vehicleTravelTimes, o.inventories, o.remainingServiceTimes,
+            o.currentDestinations);
+          objectives.add(ArraysSolvers.computeTotalObjectiveValue(solution));
+        }
+      });
+      final ImmutableList.Builder<ImmutableList<Parcel>> b =
+        ImmutableList.builder();
+      for (final SolutionObject sol : sols) {
+        b.add(ArraysSolvers.convertSolutionObject(sol, o.index2parcel));
+      }
+      return b.build();
+    }
+  }
+}
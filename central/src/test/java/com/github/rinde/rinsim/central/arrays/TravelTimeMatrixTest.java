@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2011-2018 Rinde R.S. van Lon
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rinde.rinsim.central.arrays;
+
+import static com.github.rinde.rinsim.central.GlobalStateObjectBuilder.globalBuilder;
+import static com.github.rinde.rinsim.central.GlobalStateObjectBuilder.vehicleBuilder;
+import static com.google.common.truth.Truth.assertThat;
+
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.measure.Measure;
+import javax.measure.quantity.Duration;
+import javax.measure.unit.NonSI;
+import javax.measure.unit.SI;
+import javax.measure.unit.Unit;
+
+import org.apache.commons.math3.random.MersenneTwister;
+import org.apache.commons.math3.random.RandomGenerator;
+import org.junit.Test;
+
+import com.github.rinde.rinsim.central.GlobalStateObject;
+import com.github.rinde.rinsim.central.arrays.ArraysSolvers.MVArraysObject;
+import com.github.rinde.rinsim.core.model.pdp.Parcel;
+import com.github.rinde.rinsim.core.model.pdp.VehicleDTO;
+import com.github.rinde.rinsim.core.model.road.RoadModelSnapshot;
+import com.github.rinde.rinsim.core.model.road.RoadModelSnapshotTestUtil;
+import com.github.rinde.rinsim.geom.Graph;
+import com.github.rinde.rinsim.geom.Graphs;
+import com.github.rinde.rinsim.geom.LengthData;
+import com.github.rinde.rinsim.geom.Point;
+import com.github.rinde.rinsim.geom.TableGraph;
+import com.github.rinde.rinsim.util.TimeWindow;
+
+/**
+ * Tests for {@link TravelTimeMatrix}.
+ * @author Rinde van Lon
+ */
+public class TravelTimeMatrixTest {
+  static final Unit<Duration> TIME_UNIT = SI.MILLI(SI.SECOND);
+  static final double SPEED = 50d;
+
+  /**
+   * Incrementally updating gives the same result as creating the matrix at
+   * once, which is equal to the straight-line travel times on a plane.
+   */
+  @Test
+  public void testIncrementalPlane() {
+    final RandomGenerator rng = new MersenneTwister(123L);
+    final List<Point> points = new ArrayList<>();
+    for (int i = 0; i < 40; i++) {
+      points.add(new Point(rng.nextDouble() * 10, rng.nextDouble() * 10));
+    }
+    points.add(points.get(5));
+    final GlobalStateObject state = globalBuilder()
+      .setPlaneTravelTimes(new Point(0, 0), new Point(10, 10))
+      .addVehicle(vehicleBuilder()
+        .setVehicleDTO(VehicleDTO.builder().speed(SPEED).build())
+        .build())
+      .buildUnsafe();
+
+    final TravelTimeMatrix incremental = TravelTimeMatrix.create(state,
+      TIME_UNIT, 3);
+    incremental.update(points.subList(0, 7));
+    incremental.update(points.subList(3, 25));
+    assertThat(incremental.size()).isEqualTo(25);
+    final int[][] actual = incremental.toArray(points);
+    assertThat(incremental.size()).isEqualTo(40);
+
+    final int[][] fresh =
+      TravelTimeMatrix.create(state, TIME_UNIT).toArray(points);
+    final int[][] expected = ArraysSolvers.toTravelTimeMatrix(points,
+      SI.KILOMETER, Measure.valueOf(SPEED, NonSI.KILOMETERS_PER_HOUR),
+      TIME_UNIT, RoundingMode.CEILING);
+    assertThat(actual).isEqualTo(expected);
+    assertThat(fresh).isEqualTo(expected);
+    assertThat(incremental.get(points.get(2), points.get(9)))
+      .isEqualTo(expected[2][9]);
+  }
+
+  /**
+   * The matrix does not grow beyond its maximum size, points that are no
+   * longer needed are removed.
+   */
+  @Test
+  public void testMaxSize() {
+    final RandomGenerator rng = new MersenneTwister(456L);
+    final List<Point> points = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      points.add(new Point(rng.nextDouble() * 10, rng.nextDouble() * 10));
+    }
+    final GlobalStateObject state = globalBuilder()
+      .setPlaneTravelTimes(new Point(0, 0), new Point(10, 10))
+      .addVehicle(vehicleBuilder()
+        .setVehicleDTO(VehicleDTO.builder().speed(SPEED).build())
+        .build())
+      .buildUnsafe();
+    final TravelTimeMatrix matrix =
+      TravelTimeMatrix.create(state, TIME_UNIT, 1, 10);
+
+    matrix.update(points.subList(0, 8));
+    assertThat(matrix.size()).isEqualTo(8);
+    // the matrix would grow to 12 points, the ones that are not needed are
+    // removed first
+    final List<Point> next = points.subList(5, 12);
+    final int[][] actual = matrix.toArray(next);
+    assertThat(matrix.size()).isEqualTo(7);
+    assertThat(actual).isEqualTo(
+      TravelTimeMatrix.create(state, TIME_UNIT).toArray(next));
+
+    // an update that needs more points than the maximum is still performed
+    assertThat(matrix.toArray(points)).isEqualTo(
+      TravelTimeMatrix.create(state, TIME_UNIT).toArray(points));
+    assertThat(matrix.size()).isEqualTo(20);
+
+    matrix.retainAll(points.subList(2, 4));
+    assertThat(matrix.size()).isEqualTo(2);
+    assertThat(matrix.get(points.get(2), points.get(3)))
+      .isEqualTo(TravelTimeMatrix.create(state, TIME_UNIT)
+        .toArray(points)[2][3]);
+  }
+
+  /**
+   * The travel times of a graph snapshot follow the shortest paths in the
+   * graph.
+   */
+  @Test
+  public void testGraph() {
+    final Point a = new Point(0, 0);
+    final Point b = new Point(1, 0);
+    final Point c = new Point(1, 1);
+    final Point d = new Point(0, 1);
+    final Graph<LengthData> graph = new TableGraph<>();
+    Graphs.addBiPath(graph, a, b, c, d);
+    final RoadModelSnapshot snapshot =
+      RoadModelSnapshotTestUtil.createGraphRoadModelSnapshot(graph,
+        SI.KILOMETER);
+
+    final TimeWindow tw = TimeWindow.create(0, 1000000);
+    final Parcel p = Parcel.builder(b, d).timeWindows(tw).build();
+    final GlobalStateObject state = globalBuilder()
+      .setSnapshot(snapshot)
+      .addAvailableParcel(p)
+      .addVehicle(vehicleBuilder()
+        .setVehicleDTO(
+          VehicleDTO.builder()
+            .speed(SPEED)
+            .startPosition(a)
+            .availabilityTimeWindow(tw)
+            .build())
+        .setLocation(a)
+        .build())
+      .buildUnsafe();
+
+    final TravelTimeMatrix matrix = TravelTimeMatrix.create(state, TIME_UNIT);
+    final MVArraysObject o =
+      ArraysSolvers.toMultiVehicleArrays(state, TIME_UNIT, matrix);
+    assertThat(matrix.isCompatibleWith(state, TIME_UNIT)).isTrue();
+
+    // one km takes 72 seconds at 50 km/h
+    final int km = 72000;
+    // points: vehicle, pickup, delivery, depot
+    assertThat(o.travelTime[0]).isEqualTo(new int[] {0, km, 3 * km, 0});
+    assertThat(o.travelTime[1][2]).isEqualTo(2 * km);
+    assertThat(o.travelTime[2][1]).isEqualTo(2 * km);
+    assertThat(o.vehicleTravelTimes[0])
+      .isEqualTo(new int[] {0, km, 3 * km, 0});
+
+    final GlobalStateObject other = globalBuilder()
+      .setPlaneTravelTimes(new Point(0, 0), new Point(1, 1))
+      .addVehicle(vehicleBuilder()
+        .setVehicleDTO(VehicleDTO.builder().speed(SPEED).build())
+        .build())
+      .buildUnsafe();
+    assertThat(matrix.isCompatibleWith(other, TIME_UNIT)).isFalse();
+  }
+}
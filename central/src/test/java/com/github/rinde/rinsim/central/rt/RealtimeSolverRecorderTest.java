@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) 2011-2018 Rinde R.S. van Lon
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rinde.rinsim.central.rt;
+
+import static com.github.rinde.rinsim.central.GlobalStateObjectBuilder.globalBuilder;
+import static com.github.rinde.rinsim.central.GlobalStateObjectBuilder.vehicleBuilder;
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.rinde.rinsim.central.GlobalStateObject;
+import com.github.rinde.rinsim.central.SolverLog;
+import com.github.rinde.rinsim.core.model.pdp.Parcel;
+import com.github.rinde.rinsim.geom.Point;
+import com.github.rinde.rinsim.util.StochasticSupplier;
+import com.github.rinde.rinsim.util.StochasticSuppliers;
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListeningExecutorService;
+
+/**
+ * Tests for {@link RealtimeSolverRecorder}.
+ * @author Rinde van Lon
+ */
+public class RealtimeSolverRecorderTest {
+  static final long SEED = 123L;
+
+  /**
+   * Temporary folder for the log files.
+   */
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  /**
+   * All schedules of a state are replayed in the recorded order, using the
+   * parcel instances of an equal state.
+   */
+  @Test
+  public void testRoundTrip() {
+    final File file = new File(folder.getRoot(), "rt.log");
+    final StochasticSupplier<RealtimeSolver> recording =
+      RealtimeSolverRecorder.record(
+        StochasticSuppliers.constant(new TwoStepSolver()), file);
+
+    final GlobalStateObject s1 = state(parcel(1, 2), parcel(3, 4));
+    final ListScheduler recorded = new ListScheduler();
+    final RealtimeSolver recorder = recording.get(SEED);
+    recorder.init(recorded);
+    recorder.problemChanged(s1);
+    assertThat(recorded.schedules).hasSize(2);
+    assertThat(recorded.doneForNow).isEqualTo(1);
+
+    final GlobalStateObject s2 = state(parcel(1, 2), parcel(3, 4));
+    final ListScheduler replayed = new ListScheduler();
+    final RealtimeSolver replayer =
+      RealtimeSolverRecorder.replay(file).get(SEED);
+    replayer.init(replayed);
+    replayer.problemChanged(s2);
+
+    final Parcel a2 = s2.getAvailableParcels().asList().get(0);
+    final Parcel b2 = s2.getAvailableParcels().asList().get(1);
+    assertThat(replayed.schedules).containsExactly(
+      ImmutableList.of(ImmutableList.of(a2, a2)),
+      ImmutableList.of(ImmutableList.of(b2, a2, a2, b2))).inOrder();
+    assertThat(replayed.states).containsExactly(s2, s2);
+    assertThat(replayed.doneForNow).isEqualTo(1);
+    assertThat(replayed.exceptions).isEmpty();
+
+    // a state that was not recorded is reported
+    replayer.problemChanged(state(parcel(1, 3)));
+    assertThat(replayed.exceptions).hasSize(1);
+    assertThat(replayed.exceptions.get(0))
+      .isInstanceOf(IllegalStateException.class);
+    assertThat(replayed.schedules).hasSize(2);
+
+    // an unknown snapshot is ignored
+    replayer.receiveSnapshot(state(parcel(1, 3)));
+    assertThat(replayed.exceptions).hasSize(1);
+    assertThat(replayed.schedules).hasSize(2);
+  }
+
+  /**
+   * Recording the same simulation twice must replace the sequence instead of
+   * appending to it.
+   */
+  @Test
+  public void testRecordTwice() {
+    final File file = new File(folder.getRoot(), "twice.log");
+    final GlobalStateObject s = state(parcel(1, 2), parcel(3, 4));
+    for (int i = 0; i < 2; i++) {
+      final RealtimeSolver recorder = RealtimeSolverRecorder
+        .record(new TwoStepSolver(), SolverLog.create(file, SEED));
+      recorder.init(new ListScheduler());
+      recorder.problemChanged(s);
+    }
+    assertThat(SolverLog.create(file, SEED).replaySequence(s)).hasSize(2);
+  }
+
+  static Parcel parcel(double x, double y) {
+    return Parcel.builder(new Point(x, y), new Point(y, x)).build();
+  }
+
+  static GlobalStateObject state(Parcel... parcels) {
+    return globalBuilder()
+      .addAvailableParcels(parcels)
+      .addVehicle(vehicleBuilder().build())
+      .setPlaneTravelTimes(new Point(0, 0), new Point(10, 10))
+      .build();
+  }
+
+  // sends an intermediate and a final schedule for each problem
+  static class TwoStepSolver implements RealtimeSolver {
+    Optional<Scheduler> scheduler = Optional.absent();
+
+    @Override
+    public void init(Scheduler s) {
+      scheduler = Optional.of(s);
+    }
+
+    @Override
+    public void problemChanged(GlobalStateObject snapshot) {
+      final ImmutableList<Parcel> ps = snapshot.getAvailableParcels().asList();
+      final Parcel a = ps.get(0);
+      scheduler.get().updateSchedule(snapshot,
+        ImmutableList.of(ImmutableList.of(a, a)));
+      if (ps.size() > 1) {
+        final Parcel b = ps.get(1);
+        scheduler.get().updateSchedule(snapshot,
+          ImmutableList.of(ImmutableList.of(b, a, a, b)));
+      }
+      scheduler.get().doneForNow();
+    }
+
+    @Override
+    public void receiveSnapshot(GlobalStateObject snapshot) {}
+
+    @Override
+    public void cancel() {}
+
+    @Override
+    public boolean isComputing() {
+      return false;
+    }
+  }
+
+  static class ListScheduler extends Scheduler {
+    final List<GlobalStateObject> states = new ArrayList<>();
+    final List<ImmutableList<ImmutableList<Parcel>>> schedules =
+      new ArrayList<>();
+    final List<Throwable> exceptions = new ArrayList<>();
+    int doneForNow;
+
+    @Override
+    public void updateSchedule(GlobalStateObject state,
+        ImmutableList<ImmutableList<Parcel>> routes) {
+      states.add(state);
+      schedules.add(routes);
+    }
+
+    @Override
+    public ImmutableList<ImmutableList<Parcel>> getCurrentSchedule() {
+      return schedules.get(schedules.size() - 1);
+    }
+
+    @Override
+    public void doneForNow() {
+      doneForNow++;
+    }
+
+    @Override
+    public ListeningExecutorService getSharedExecutor() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void reportException(Throwable t) {
+      exceptions.add(t);
+    }
+  }
+}
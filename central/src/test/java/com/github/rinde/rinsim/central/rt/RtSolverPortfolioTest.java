@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2011-2018 Rinde R.S. van Lon
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rinde.rinsim.central.rt;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.github.rinde.rinsim.central.RandomSolver;
+import com.github.rinde.rinsim.central.Solver;
+import com.github.rinde.rinsim.core.model.time.RealtimeClockController.ClockMode;
+import com.github.rinde.rinsim.core.model.time.TimeModel;
+import com.github.rinde.rinsim.experiment.Experiment;
+import com.github.rinde.rinsim.experiment.ExperimentResults;
+import com.github.rinde.rinsim.experiment.PostProcessors;
+import com.github.rinde.rinsim.pdptw.common.StatisticsDTO;
+import com.github.rinde.rinsim.scenario.Scenario;
+import com.github.rinde.rinsim.scenario.TimeOutEvent;
+import com.github.rinde.rinsim.scenario.TimedEvent;
+import com.github.rinde.rinsim.scenario.gendreau06.Gendreau06ObjectiveFunction;
+import com.github.rinde.rinsim.scenario.gendreau06.Gendreau06Parser;
+import com.github.rinde.rinsim.util.StochasticSupplier;
+
+/**
+ * Tests for {@link RtSolverPortfolio}.
+ * @author Rinde van Lon
+ */
+public class RtSolverPortfolioTest {
+  static final String SCENARIO =
+    "../scenario-util/files/test/gendreau06/req_rapide_1_240_24";
+  static final Gendreau06ObjectiveFunction OBJ_FUNC =
+    Gendreau06ObjectiveFunction.instance();
+
+  /**
+   * A portfolio of random solvers produces valid results and records the
+   * winner of each race.
+   */
+  @Test
+  public void testRace() {
+    final List<RtSolverPortfolio> portfolios = new ArrayList<>();
+    final StochasticSupplier<Solver> slow =
+      SleepySolver.create(50L, RandomSolver.supplier());
+    final StatisticsDTO stats = run(capture(RtSolverPortfolio.builder(OBJ_FUNC)
+      .addAdapt(RandomSolver.supplier())
+      .addAdapt(RandomSolver.supplier())
+      .addAdapt(slow)
+      .build(), portfolios));
+
+    assertThat(OBJ_FUNC.isValidResult(stats)).isTrue();
+    assertThat(portfolios).hasSize(1);
+    final RtSolverPortfolio portfolio = portfolios.get(0);
+    assertThat(portfolio.getMembers()).hasSize(3);
+    assertThat(portfolio.getRaceResults()).isNotEmpty();
+    int total = 0;
+    for (final int wins : portfolio.getWinCounts()) {
+      total += wins;
+    }
+    assertThat(total).isEqualTo(portfolio.getRaceResults().size());
+    for (final RtSolverPortfolio.RaceResult rr : portfolio.getRaceResults()) {
+      assertThat(rr.getWinner()).isAtLeast(0);
+      assertThat(rr.getWinner()).isLessThan(3);
+      assertThat(rr.getTimeToBest()).isAtLeast(0L);
+      assertThat(rr.getImprovements()).isAtLeast(1);
+    }
+  }
+
+  /**
+   * When the quality threshold is reached by the first schedule, the race is
+   * stopped immediately.
+   */
+  @Test
+  public void testQualityThreshold() {
+    final List<RtSolverPortfolio> portfolios = new ArrayList<>();
+    final StatisticsDTO stats = run(capture(RtSolverPortfolio.builder(OBJ_FUNC)
+      .addAdapt(RandomSolver.supplier())
+      .addAdapt(SleepySolver.create(50L, RandomSolver.supplier()))
+      .withQualityThreshold(Double.POSITIVE_INFINITY)
+      .withTimeBudget(1000L)
+      .build(), portfolios));
+
+    assertThat(OBJ_FUNC.isValidResult(stats)).isTrue();
+    final RtSolverPortfolio portfolio = portfolios.get(0);
+    assertThat(portfolio.getRaceResults()).isNotEmpty();
+    for (final RtSolverPortfolio.RaceResult rr : portfolio.getRaceResults()) {
+      assertThat(rr.getImprovements()).isEqualTo(1);
+    }
+  }
+
+  static StatisticsDTO run(StochasticSupplier<RtSolverPortfolio> supplier) {
+    final List<TimedEvent> events = Gendreau06Parser.parse(new File(SCENARIO))
+      .getEvents().subList(0, 20);
+    final Scenario s = Scenario.builder(Gendreau06Parser.parse(
+      new File(SCENARIO)))
+      .removeModelsOfType(TimeModel.AbstractBuilder.class)
+      .addModel(TimeModel.builder()
+        .withRealTime()
+        .withStartInClockMode(ClockMode.SIMULATED))
+      .clearEvents()
+      .addEvents(events)
+      .addEvent(TimeOutEvent.create(3 * 60 * 60 * 1000))
+      .build();
+
+    final ExperimentResults er = Experiment.builder()
+      .addScenario(s)
+      .withThreads(1)
+      .addConfiguration(RtCentral.solverConfiguration(supplier, ""))
+      .usePostProcessor(PostProcessors.statisticsPostProcessor(OBJ_FUNC))
+      .perform();
+    return (StatisticsDTO) er.getResults().asList().get(0).getResultObject();
+  }
+
+  static StochasticSupplier<RtSolverPortfolio> capture(
+      final StochasticSupplier<RtSolverPortfolio> supplier,
+      final List<RtSolverPortfolio> list) {
+    return new StochasticSupplier<RtSolverPortfolio>() {
+      @Override
+      public RtSolverPortfolio get(long seed) {
+        final RtSolverPortfolio p = supplier.get(seed);
+        list.add(p);
+        return p;
+      }
+    };
+  }
+}
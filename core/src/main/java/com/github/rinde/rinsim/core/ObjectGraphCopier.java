@@ -0,0 +1,354 @@
+/*
+ * Copyright (C) 2011-2018 Rinde R.S. van Lon
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rinde.rinsim.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.lang.management.PlatformManagedObject;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.Nullable;
+import javax.measure.Measure;
+import javax.measure.converter.UnitConverter;
+import javax.measure.unit.Unit;
+
+import org.slf4j.Logger;
+
+import com.github.rinde.rinsim.geom.ImmutableGraph;
+import com.github.rinde.rinsim.geom.Point;
+import com.google.common.collect.ImmutableCollection;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.ImmutableTable;
+import com.google.common.collect.Multiset;
+import com.google.common.collect.Table.Cell;
+
+/**
+ * Creates deep copies of object graphs using Java serialization. All objects
+ * of the graph must therefore be {@link Serializable}, with the exception of
+ * deeply immutable objects: these are shared between the original and the
+ * copies instead of being serialized. Shared are instances of well known
+ * immutable types (e.g. {@link String}, {@link Point}, {@link Unit},
+ * {@link ImmutableGraph}), Guava immutable collections of which all elements
+ * are shared and objects of classes outside of the JDK of which all fields are
+ * final and refer to shared objects (e.g. AutoValue DTOs). {@link ThreadLocal}s
+ * are shared as well, such that their identity is preserved.
+ * <p>
+ * Since serialization is used, all classes of the JDK (e.g. collections,
+ * {@link java.util.Random}) are copied by their own serialization methods,
+ * which preserves their complete state (e.g. the access order of a
+ * {@link java.util.LinkedHashMap}). Objects that can not be serialized (e.g.
+ * threads, executors and streams) cause an {@link IllegalStateException}, a
+ * class can exclude such fields by declaring them <code>transient</code> and
+ * restoring them in a <code>readObject</code> method.
+ * <p>
+ * A {@link Snapshot} contains the serialized form of an object graph, any
+ * number of copies can be restored from it concurrently. Static fields are
+ * never copied.
+ * @author Rinde van Lon
+ */
+final class ObjectGraphCopier {
+  static final ImmutableList<Class<?>> SHARED_TYPES = ImmutableList.of(
+    Boolean.class, Character.class, Byte.class, Short.class, Integer.class,
+    Long.class, Float.class, Double.class, String.class, Enum.class,
+    Class.class, Member.class, Point.class, Unit.class, Measure.class,
+    UnitConverter.class, ImmutableGraph.class, Logger.class, File.class,
+    PlatformManagedObject.class, ThreadLocal.class);
+  static final ImmutableList<String> JDK_PACKAGES = ImmutableList.of(
+    "java.", "javax.", "sun.", "com.sun.", "jdk.");
+
+  private static final ConcurrentMap<Class<?>, Field[]> FIELDS =
+    new ConcurrentHashMap<>();
+
+  private ObjectGraphCopier() {}
+
+  /**
+   * Creates a deep copy of the specified object.
+   * @param root The root of the object graph to copy.
+   * @param <T> The type of the object.
+   * @return The copy.
+   * @throws IllegalStateException if the object graph contains objects that
+   *           can not be serialized.
+   */
+  static <T> T deepCopy(T root) {
+    return snapshot(root).restore();
+  }
+
+  /**
+   * Creates a snapshot of the object graph of the specified object. The
+   * snapshot only reads the object graph, it is therefore safe to create
+   * snapshots of the same (unmodified) object graph concurrently.
+   * @param root The root of the object graph.
+   * @param <T> The type of the object.
+   * @return The snapshot.
+   * @throws IllegalStateException if the object graph contains objects that
+   *           can not be serialized.
+   */
+  static <T> Snapshot<T> snapshot(T root) {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    final List<Object> shared;
+    try (SharingOutputStream out = new SharingOutputStream(bytes)) {
+      out.writeObject(root);
+      shared = out.shared;
+    } catch (final NotSerializableException e) {
+      throw new IllegalStateException("Can not copy an instance of "
+        + e.getMessage() + ", all objects that are reachable from "
+        + root.getClass().getName() + " must be serializable or deeply "
+        + "immutable.", e);
+    } catch (final IOException e) {
+      throw new IllegalStateException(e);
+    }
+    @SuppressWarnings("unchecked")
+    final Class<T> type = (Class<T>) root.getClass();
+    return new Snapshot<>(type, bytes.toByteArray(), shared);
+  }
+
+  static boolean isJdkClass(Class<?> cls) {
+    if (cls.getClassLoader() == null) {
+      return true;
+    }
+    for (final String pkg : JDK_PACKAGES) {
+      if (cls.getName().startsWith(pkg)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  static boolean isImmutableCollection(Object o) {
+    return o instanceof ImmutableCollection || o instanceof ImmutableMap
+      || o instanceof ImmutableMultimap || o instanceof ImmutableTable;
+  }
+
+  static Iterable<?> children(Object o) {
+    final List<Object> list = new ArrayList<>();
+    if (o instanceof ImmutableMap) {
+      for (final Entry<?, ?> e : ((ImmutableMap<?, ?>) o).entrySet()) {
+        list.add(e.getKey());
+        list.add(e.getValue());
+      }
+    } else if (o instanceof ImmutableMultimap) {
+      for (final Entry<?, ?> e : ((ImmutableMultimap<?, ?>) o).entries()) {
+        list.add(e.getKey());
+        list.add(e.getValue());
+      }
+    } else if (o instanceof ImmutableTable) {
+      for (final Cell<?, ?, ?> c : ((ImmutableTable<?, ?, ?>) o).cellSet()) {
+        list.add(c.getRowKey());
+        list.add(c.getColumnKey());
+        list.add(c.getValue());
+      }
+    } else if (o instanceof Multiset) {
+      list.addAll(((Multiset<?>) o).elementSet());
+    } else {
+      list.addAll((ImmutableCollection<?>) o);
+    }
+    if (o instanceof ImmutableSortedSet) {
+      list.add(((ImmutableSortedSet<?>) o).comparator());
+    } else if (o instanceof ImmutableSortedMap) {
+      list.add(((ImmutableSortedMap<?, ?>) o).comparator());
+    }
+    return list;
+  }
+
+  // only used for classes outside of the JDK
+  static Field[] fields(Class<?> cls) {
+    Field[] fs = FIELDS.get(cls);
+    if (fs == null) {
+      final List<Field> list = new ArrayList<>();
+      for (Class<?> c = cls; c != null; c = c.getSuperclass()) {
+        for (final Field f : c.getDeclaredFields()) {
+          if (!Modifier.isStatic(f.getModifiers())) {
+            f.setAccessible(true);
+            list.add(f);
+          }
+        }
+      }
+      fs = list.toArray(new Field[list.size()]);
+      FIELDS.putIfAbsent(cls, fs);
+    }
+    return fs;
+  }
+
+  @Nullable
+  static Object get(Field f, Object o) {
+    try {
+      return f.get(o);
+    } catch (final IllegalAccessException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * The serialized form of an object graph.
+   * @author Rinde van Lon
+   * @param <T> The type of the root of the object graph.
+   */
+  static final class Snapshot<T> {
+    private final Class<T> type;
+    private final byte[] bytes;
+    private final ImmutableList<Object> shared;
+
+    Snapshot(Class<T> t, byte[] b, List<Object> s) {
+      type = t;
+      bytes = b;
+      shared = ImmutableList.copyOf(s);
+    }
+
+    /**
+     * @return A new deep copy of the object graph.
+     */
+    T restore() {
+      try (SharingInputStream in =
+        new SharingInputStream(new ByteArrayInputStream(bytes), shared)) {
+        return type.cast(in.readObject());
+      } catch (final IOException | ClassNotFoundException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+  }
+
+  // placeholder for a shared object in the serialized form
+  static final class SharedRef implements Serializable {
+    private static final long serialVersionUID = -4049146322155347436L;
+    final int index;
+
+    SharedRef(int i) {
+      index = i;
+    }
+  }
+
+  static final class SharingOutputStream extends ObjectOutputStream {
+    final List<Object> shared;
+    final Map<Object, Integer> sharedIndices;
+    // memoization of isShared()
+    final Map<Object, Boolean> memo;
+
+    SharingOutputStream(OutputStream out) throws IOException {
+      super(out);
+      shared = new ArrayList<>();
+      sharedIndices = new IdentityHashMap<>();
+      memo = new IdentityHashMap<>();
+      enableReplaceObject(true);
+    }
+
+    @Override
+    protected Object replaceObject(@Nullable Object obj) {
+      if (obj == null || obj instanceof String || obj instanceof Enum
+        || obj instanceof SharedRef || !isShared(obj)) {
+        return obj;
+      }
+      Integer index = sharedIndices.get(obj);
+      if (index == null) {
+        index = shared.size();
+        shared.add(obj);
+        sharedIndices.put(obj, index);
+      }
+      return new SharedRef(index);
+    }
+
+    boolean isShared(Object o) {
+      final Boolean m = memo.get(o);
+      if (m != null) {
+        return m;
+      }
+      // guards against cycles, objects in a cycle are conservatively copied
+      memo.put(o, Boolean.FALSE);
+      final boolean result = computeShared(o);
+      memo.put(o, result);
+      return result;
+    }
+
+    boolean computeShared(Object o) {
+      final Class<?> cls = o.getClass();
+      if (cls.isArray()) {
+        return false;
+      }
+      for (final Class<?> type : SHARED_TYPES) {
+        if (type.isInstance(o)) {
+          return true;
+        }
+      }
+      if (isImmutableCollection(o)) {
+        for (final Object child : children(o)) {
+          if (!isSharedOrNull(child)) {
+            return false;
+          }
+        }
+        return true;
+      }
+      // the JDK is never inspected using reflection
+      if (isJdkClass(cls)) {
+        return false;
+      }
+      final Field[] fs = fields(cls);
+      for (final Field f : fs) {
+        if (!Modifier.isFinal(f.getModifiers())) {
+          return false;
+        }
+      }
+      for (final Field f : fs) {
+        if (!f.getType().isPrimitive() && !isSharedOrNull(get(f, o))) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    boolean isSharedOrNull(@Nullable Object o) {
+      return o == null || isShared(o);
+    }
+  }
+
+  static final class SharingInputStream extends ObjectInputStream {
+    final ImmutableList<Object> shared;
+
+    SharingInputStream(InputStream in, ImmutableList<Object> sh)
+        throws IOException {
+      super(in);
+      shared = sh;
+      enableResolveObject(true);
+    }
+
+    @Override
+    protected Object resolveObject(@Nullable Object obj) {
+      if (obj instanceof SharedRef) {
+        return shared.get(((SharedRef) obj).index);
+      }
+      return obj;
+    }
+  }
+}
@@ -16,7 +16,9 @@
 package com.github.rinde.rinsim.core;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
 
+import java.io.Serializable;
 import java.util.LinkedHashSet;
 import java.util.Set;
 
@@ -67,7 +69,8 @@ import com.google.common.collect.ImmutableSet;
  * @author Rinde van Lon
  * @author Bartosz Michalik
  */
-public final class Simulator implements SimulatorAPI {
+public final class Simulator implements SimulatorAPI, Serializable {
+  private static final long serialVersionUID = -975448083045593274L;
   private static final Logger LOGGER = LoggerFactory.getLogger(Simulator.class);
 
   private final ModelManager modelManager;
@@ -110,6 +113,19 @@ public final class Simulator implements SimulatorAPI {
     modelManager.register(obj);
   }
 
+  /**
+   * Registers all given objects in iteration order, this has the same effect
+   * as calling {@link #register(Object)} for each object but is more efficient
+   * when many objects are registered at once.
+   * @param objects The objects to register.
+   * @throws IllegalArgumentException when an object can not be registered to
+   *           any model.
+   */
+  public void registerAll(Iterable<?> objects) {
+    LOGGER.info("{} - registerAll({})", clock.getCurrentTime(), objects);
+    modelManager.registerAll(objects);
+  }
+
   /**
    * {@inheritDoc} Unregistration from the models is delayed until all ticks are
    * processed.
@@ -124,9 +140,7 @@ public final class Simulator implements SimulatorAPI {
 
   void checkUnregister() {
     if (!toUnregister.isEmpty()) {
-      for (final Object o : toUnregister) {
-        modelManager.unregister(o);
-      }
+      modelManager.unregisterAll(toUnregister);
       toUnregister.clear();
     }
   }
@@ -230,6 +244,24 @@ public final class Simulator implements SimulatorAPI {
     return rand.get(RandomProvider.class).masterInstance();
   }
 
+  /**
+   * Creates a checkpoint of the complete current state of this simulator, see
+   * {@link SimulatorCheckpoint} for details. The simulator must not be
+   * playing, must not have a user interface and all objects that are
+   * reachable from the simulator must be serializable or deeply immutable:
+   * threads, executors (e.g. of a real-time clock) and streams are not
+   * supported.
+   * @return A new {@link SimulatorCheckpoint}.
+   * @throws IllegalStateException if the simulator is playing, has a user
+   *           interface or contains objects that can not be serialized.
+   */
+  public SimulatorCheckpoint checkpoint() {
+    checkState(!isPlaying(), "Can not create a checkpoint while playing.");
+    checkState(!modelManager.getUserInterface().isPresent(),
+      "Can not create a checkpoint of a simulator with a user interface.");
+    return new SimulatorCheckpoint(this);
+  }
+
   /**
    * @return The unit of time that is used for generating ticks.
    */
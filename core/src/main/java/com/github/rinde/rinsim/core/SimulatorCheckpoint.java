@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2011-2018 Rinde R.S. van Lon
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rinde.rinsim.core;
+
+import com.github.rinde.rinsim.util.ParallelExecution;
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * A snapshot of the complete state of a {@link Simulator}, including the state
+ * of all models, all registered objects and the random generators. Any number
+ * of independent simulators can be forked from a checkpoint, each fork
+ * continues from the exact state at which the checkpoint was created. This
+ * allows to explore several what-if continuations of the same simulation
+ * without simulating the shared history again. Instances can be obtained via
+ * {@link Simulator#checkpoint()}.
+ * <p>
+ * A checkpoint holds the serialized form of the simulator, each fork is
+ * deserialized from it. All objects that are reachable from the simulator are
+ * part of the checkpoint, including listeners that were registered by objects
+ * outside of the simulator, and must therefore be {@link java.io.Serializable}
+ * . The only exception are deeply immutable objects (e.g. DTOs, points,
+ * immutable graphs and immutable collections thereof), these are shared
+ * between the simulator and all forks. The models and objects of RinSim are
+ * serializable, agents and custom models must be serializable as well. A
+ * field that refers to something that can not be copied (e.g. a stream) can
+ * be declared <code>transient</code> and restored in a
+ * <code>readObject</code> method. Since the checkpoint itself is never
+ * modified, {@link #fork()} can be called concurrently and forks can run in
+ * parallel.
+ * @author Rinde van Lon
+ */
+public final class SimulatorCheckpoint {
+  private final ObjectGraphCopier.Snapshot<Simulator> snapshot;
+  private final long time;
+
+  SimulatorCheckpoint(Simulator sim) {
+    snapshot = ObjectGraphCopier.snapshot(sim);
+    time = sim.getCurrentTime();
+  }
+
+  /**
+   * @return The simulation time at which this checkpoint was created.
+   */
+  public long getTime() {
+    return time;
+  }
+
+  /**
+   * Creates a new simulator that continues from this checkpoint. The returned
+   * simulator is completely independent of the simulator from which the
+   * checkpoint was created and of all other forks.
+   * @return A new {@link Simulator}.
+   */
+  public Simulator fork() {
+    return snapshot.restore();
+  }
+
+  /**
+   * Runs each of the specified continuations on its own fork of this
+   * checkpoint, using at most the specified number of threads.
+   * @param continuations The continuations, each continuation receives a new
+   *          fork and typically registers additional objects, starts the fork
+   *          and computes a result from the final state.
+   * @param numThreads The maximum number of threads to use, must be positive.
+   * @param <T> The result type.
+   * @return The results of the continuations, in the same order as the
+   *         continuations.
+   * @throws IllegalStateException if one of the continuations failed, the
+   *           cause is the original exception.
+   */
+  public <T> ImmutableList<T> runForks(
+      Iterable<? extends Function<? super Simulator, ? extends T>> continuations,
+      int numThreads) {
+    return ParallelExecution.map(continuations,
+      new Function<Function<? super Simulator, ? extends T>, T>() {
+        @Override
+        public T apply(Function<? super Simulator, ? extends T> c) {
+          return c.apply(fork());
+        }
+      }, numThreads, "A continuation failed.");
+  }
+}
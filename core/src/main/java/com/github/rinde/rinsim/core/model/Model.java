@@ -15,6 +15,8 @@
  */
 package com.github.rinde.rinsim.core.model;
 
+import java.io.Serializable;
+
 import javax.annotation.Nonnull;
 
 import com.google.common.reflect.TypeToken;
@@ -72,7 +74,8 @@ public interface Model<T> {
    * @author Rinde van Lon
    * @param <T> The type that is supported by this model.
    */
-  abstract class AbstractModel<T> implements Model<T> {
+  abstract class AbstractModel<T> implements Model<T>, Serializable {
+    private static final long serialVersionUID = 5232342427045788262L;
 
     private final Class<T> supportedType;
 
@@ -19,15 +19,18 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 
-import java.util.Collection;
+import java.io.Serializable;
 import java.util.LinkedHashSet;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 import com.github.rinde.rinsim.core.model.Model.AbstractModel;
 import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSetMultimap;
 
@@ -40,14 +43,19 @@ import com.google.common.collect.ImmutableSetMultimap;
  * <li>Registering and unregistering objects to models, via
  * {@link #register(Object)} and {@link #unregister(Object)}.</li>
  * </ul>
+ * The models that receive an object only depend on the runtime class of that
+ * object, they are therefore resolved once per class and cached.
  *
  * @author Bartosz Michalik
  * @author Rinde van Lon
  */
-public final class ModelManager implements ModelProvider {
+public final class ModelManager implements ModelProvider, Serializable {
+  private static final long serialVersionUID = 3503992185959866960L;
+
   private final ImmutableSet<Model<?>> models;
   private final ImmutableSetMultimap<Class<?>, Model<?>> registry;
   private final Optional<UserInterface> userInterface;
+  private final ConcurrentMap<Class<?>, ImmutableList<Model<?>>> receivers;
 
   @SuppressWarnings("unchecked")
   ModelManager(ImmutableSet<? extends Model<?>> ms) {
@@ -78,23 +86,52 @@ public final class ModelManager implements ModelProvider {
     }
 
     registry = builder.build();
+    receivers = new ConcurrentHashMap<>();
     for (final Model<?> m : models) {
       doRegister(m);
     }
   }
 
-  @SuppressWarnings("unchecked")
-  <T> boolean doRegister(T object) {
-    boolean success = false;
-    final Set<Class<?>> modelSupportedTypes = registry.keySet();
-    for (final Class<?> modelSupportedType : modelSupportedTypes) {
-      if (modelSupportedType.isAssignableFrom(object.getClass())) {
-        final Collection<Model<?>> assignableModels = registry
-          .get(modelSupportedType);
-        for (final Model<?> m : assignableModels) {
-          success |= ((Model<T>) m).register(object);
+  /**
+   * Returns the models that support the specified class, in the order in which
+   * they were added. The result is computed once per class.
+   * @param clazz The runtime class of an object.
+   * @return The list of models.
+   */
+  ImmutableList<Model<?>> getReceivers(Class<?> clazz) {
+    ImmutableList<Model<?>> list = receivers.get(clazz);
+    if (list == null) {
+      final ImmutableList.Builder<Model<?>> builder = ImmutableList.builder();
+      for (final Class<?> modelSupportedType : registry.keySet()) {
+        if (modelSupportedType.isAssignableFrom(clazz)) {
+          builder.addAll(registry.get(modelSupportedType));
         }
       }
+      list = builder.build();
+      receivers.putIfAbsent(clazz, list);
+    }
+    return list;
+  }
+
+  <T> boolean doRegister(T object) {
+    return doRegister(object, getReceivers(object.getClass()));
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> boolean doRegister(T object, ImmutableList<Model<?>> ms) {
+    boolean success = false;
+    for (int i = 0; i < ms.size(); i++) {
+      success |= ((Model<T>) ms.get(i)).register(object);
+    }
+    return success;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> boolean doUnregister(T object,
+      ImmutableList<Model<?>> ms) {
+    boolean success = false;
+    for (int i = 0; i < ms.size(); i++) {
+      success |= ((Model<T>) ms.get(i)).unregister(object);
     }
     return success;
   }
@@ -107,16 +144,29 @@ public final class ModelManager implements ModelProvider {
    *           provided or if the model could not be registered to any model.
    */
   public <T> void register(T object) {
-    checkArgument(
-      !(object instanceof Model<?>),
-      "Can not register a model: %s. "
-        + "Models can be added via Simulator.builder().",
-      object);
-    final boolean success = doRegister(object);
-    checkArgument(
-      success,
-      "The object %s with type %s can not be registered to any model.",
-      object, object.getClass());
+    checkNotModel(object);
+    checkRegister(object, doRegister(object));
+  }
+
+  /**
+   * Registers all given objects in iteration order, this is equivalent to
+   * calling {@link #register(Object)} for each object but avoids resolving the
+   * receiving models for consecutive objects of the same class.
+   * @param objects The objects to register.
+   * @throws IllegalArgumentException if an instance of {@link Model} is
+   *           provided or if an object could not be registered to any model.
+   */
+  public void registerAll(Iterable<?> objects) {
+    Class<?> prevClass = null;
+    ImmutableList<Model<?>> ms = ImmutableList.of();
+    for (final Object object : objects) {
+      checkNotModel(object);
+      if (object.getClass() != prevClass) {
+        prevClass = object.getClass();
+        ms = getReceivers(prevClass);
+      }
+      checkRegister(object, doRegister(object, ms));
+    }
   }
 
   /**
@@ -127,22 +177,55 @@ public final class ModelManager implements ModelProvider {
    *           provided or if the model could not be unregistered from any
    *           model.
    */
-  @SuppressWarnings("unchecked")
   public <T> void unregister(T object) {
-    checkArgument(!(object instanceof Model), "can not unregister a model");
-    boolean result = false;
-    final Set<Class<?>> modelSupportedTypes = registry.keySet();
-    for (final Class<?> modelSupportedType : modelSupportedTypes) {
-      // check if object is from a known type
-      if (modelSupportedType.isAssignableFrom(object.getClass())) {
-        final Collection<Model<?>> assignableModels = registry
-          .get(modelSupportedType);
-        for (final Model<?> m : assignableModels) {
-          result |= ((Model<T>) m).unregister(object);
-        }
+    checkUnregister(object);
+    checkUnregister(object,
+      doUnregister(object, getReceivers(object.getClass())));
+  }
+
+  /**
+   * Unregisters all given objects in iteration order, this is equivalent to
+   * calling {@link #unregister(Object)} for each object but avoids resolving
+   * the receiving models for consecutive objects of the same class.
+   * @param objects The objects to unregister.
+   * @throws IllegalArgumentException if an instance of {@link Model} is
+   *           provided or if an object could not be unregistered from any
+   *           model.
+   */
+  public void unregisterAll(Iterable<?> objects) {
+    Class<?> prevClass = null;
+    ImmutableList<Model<?>> ms = ImmutableList.of();
+    for (final Object object : objects) {
+      checkUnregister(object);
+      if (object.getClass() != prevClass) {
+        prevClass = object.getClass();
+        ms = getReceivers(prevClass);
       }
+      checkUnregister(object, doUnregister(object, ms));
     }
-    checkArgument(result, "Object %s with type %s can not be unregistered.",
+  }
+
+  private static void checkNotModel(Object object) {
+    checkArgument(
+      !(object instanceof Model<?>),
+      "Can not register a model: %s. "
+        + "Models can be added via Simulator.builder().",
+      object);
+  }
+
+  private static void checkRegister(Object object, boolean success) {
+    checkArgument(
+      success,
+      "The object %s with type %s can not be registered to any model.",
+      object, object.getClass());
+  }
+
+  private static void checkUnregister(Object object) {
+    checkArgument(!(object instanceof Model), "can not unregister a model");
+  }
+
+  private static void checkUnregister(Object object, boolean success) {
+    checkArgument(success, "Object %s with type %s can not be unregistered.",
       object, object.getClass());
   }
 
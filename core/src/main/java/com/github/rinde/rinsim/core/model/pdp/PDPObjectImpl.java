@@ -17,6 +17,8 @@ package com.github.rinde.rinsim.core.model.pdp;
 
 import static com.google.common.base.Preconditions.checkState;
 
+import java.io.Serializable;
+
 import com.github.rinde.rinsim.core.model.road.RoadModel;
 import com.github.rinde.rinsim.geom.Point;
 import com.google.common.base.Optional;
@@ -26,7 +28,8 @@ import com.google.common.base.Optional;
  *
  * @author Rinde van Lon
  */
-public abstract class PDPObjectImpl implements PDPObject {
+public abstract class PDPObjectImpl implements PDPObject, Serializable {
+  private static final long serialVersionUID = -3298797457311120871L;
 
   Optional<PDPModel> pdpModel;
   private Optional<RoadModel> roadModel;
@@ -15,6 +15,8 @@
  */
 package com.github.rinde.rinsim.core.model.rand;
 
+import java.io.Serializable;
+
 import javax.annotation.Nullable;
 
 import org.apache.commons.math3.random.RandomGenerator;
@@ -22,7 +24,9 @@ import org.apache.commons.math3.random.RandomGenerator;
 /**
  * @author Rinde van Lon
  */
-class UnmodifiableRandomGenerator implements RandomGenerator {
+class UnmodifiableRandomGenerator
+    implements RandomGenerator, Serializable {
+  private static final long serialVersionUID = 2368295972882562515L;
 
   private final RandomGenerator delegateRng;
 
@@ -20,6 +20,7 @@ import static com.google.common.base.Verify.verifyNotNull;
 import static com.google.common.collect.Lists.newArrayList;
 import static com.google.common.collect.Maps.newLinkedHashMap;
 
+import java.io.Serializable;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -33,8 +34,15 @@ import javax.measure.quantity.Length;
 import javax.measure.quantity.Velocity;
 import javax.measure.unit.Unit;
 
+import com.github.rinde.rinsim.core.model.ModelProvider;
+import com.github.rinde.rinsim.core.model.ModelReceiver;
+import com.github.rinde.rinsim.core.model.time.Clock.ClockEventType;
+import com.github.rinde.rinsim.core.model.time.TickListener;
 import com.github.rinde.rinsim.core.model.time.TimeLapse;
+import com.github.rinde.rinsim.core.model.time.TimeModel;
+import com.github.rinde.rinsim.event.Event;
 import com.github.rinde.rinsim.event.EventAPI;
+import com.github.rinde.rinsim.event.Listener;
 import com.github.rinde.rinsim.geom.GeomHeuristic;
 import com.github.rinde.rinsim.geom.GeomHeuristics;
 import com.github.rinde.rinsim.geom.Point;
@@ -48,9 +56,28 @@ import com.google.common.collect.Sets;
  * A common space neutral implementation of {@link RoadModel}. It implements a
  * data structure for managing objects and locations and checks many
  * preconditions as defined in {@link RoadModel}.
+ * <p>
+ * A {@link MoveEvent} is dispatched for every move only if there is a listener
+ * for {@link RoadEventType#MOVE}. If there is a listener for
+ * {@link RoadEventType#AGGREGATED_MOVE}, all moves are collected during a tick
+ * and a single {@link AggregatedMoveEvent} is dispatched at the end of the
+ * tick. For this, the model registers itself with the {@link TimeModel} as
+ * soon as the first listener for {@link RoadEventType#AGGREGATED_MOVE} is
+ * added, without such a listener the model is not involved in ticks at all.
+ * <p>
+ * The aggregated event is dispatched in the order in which the tick listeners
+ * are called: the moves of a tick are not yet visible to a listener of
+ * {@link RoadEventType#AGGREGATED_MOVE} during the
+ * {@link TickListener#afterTick(TimeLapse)} of tick listeners that are called
+ * before this model. Moves that are made later in the tick (or outside of a
+ * tick) are dispatched at the start of the next tick, the moves of the last
+ * tick are dispatched when the clock is stopped
+ * ({@link ClockEventType#STOPPED}). Listeners that need to observe every move
+ * as soon as it happens should listen to {@link RoadEventType#MOVE} instead.
  * @author Rinde van Lon
  */
-public abstract class AbstractRoadModel extends GenericRoadModel {
+public abstract class AbstractRoadModel extends GenericRoadModel
+    implements ModelReceiver {
 
   /**
    * A mapping of {@link MovingRoadUser}s to {@link DestinationPath}s.
@@ -62,6 +89,13 @@ public abstract class AbstractRoadModel extends GenericRoadModel {
    */
   protected final RoadUnits unitConversion;
 
+  private final TypeIndex typeIndex;
+  private final MoveAggregator moveAggregator;
+  @Nullable
+  private TimeModel clock;
+  @Nullable
+  private MoveFlusher moveFlusher;
+
   /**
    * Create a new instance.
    * @param distanceUnit The distance unit used to interpret all supplied
@@ -73,6 +107,8 @@ public abstract class AbstractRoadModel extends GenericRoadModel {
     super();
     unitConversion = new RoadUnits(distanceUnit, speedUnit);
     objDestinations = newLinkedHashMap();
+    typeIndex = new TypeIndex();
+    moveAggregator = new MoveAggregator();
   }
 
   /**
@@ -92,7 +128,7 @@ public abstract class AbstractRoadModel extends GenericRoadModel {
     final Point dest = newArrayList(path).get(path.size() - 1);
     objDestinations.put(object, new DestinationPath(dest, path));
     final MoveProgress mp = doFollowPath(object, path, time);
-    eventDispatcher.dispatchEvent(new MoveEvent(self, object, mp));
+    dispatchMove(object, mp);
     return mp;
   }
 
@@ -131,10 +167,49 @@ public abstract class AbstractRoadModel extends GenericRoadModel {
       objDestinations.put(object, new DestinationPath(destination, path));
     }
     final MoveProgress mp = doFollowPath(object, path, time);
-    eventDispatcher.dispatchEvent(new MoveEvent(self, object, mp));
+    dispatchMove(object, mp);
     return mp;
   }
 
+  private void dispatchMove(MovingRoadUser object, MoveProgress mp) {
+    if (eventDispatcher.hasListenerFor(RoadEventType.MOVE)) {
+      eventDispatcher.dispatchEvent(new MoveEvent(self, object, mp));
+    }
+    if (eventDispatcher.hasListenerFor(RoadEventType.AGGREGATED_MOVE)) {
+      registerMoveFlusher();
+      moveAggregator.record(object, mp);
+    }
+  }
+
+  @Override
+  public void registerModelProvider(ModelProvider mp) {
+    clock = mp.tryGetModel(TimeModel.class);
+    registerMoveFlusher();
+  }
+
+  // the flusher is registered lazily since listeners may be added at any time
+  private void registerMoveFlusher() {
+    if (moveFlusher == null && clock != null
+      && eventDispatcher.hasListenerFor(RoadEventType.AGGREGATED_MOVE)) {
+      final MoveFlusher flusher = new MoveFlusher();
+      clock.register(flusher);
+      clock.getEventAPI().addListener(flusher, ClockEventType.STOPPED);
+      moveFlusher = flusher;
+    }
+  }
+
+  /**
+   * Dispatches an {@link AggregatedMoveEvent} containing all moves since the
+   * previous invocation of this method, if any.
+   */
+  protected void dispatchAggregatedMoves() {
+    final AggregatedMoveEvent event =
+      moveAggregator.flush(self, unitConversion.getExDistUnit());
+    if (event != null) {
+      eventDispatcher.dispatchEvent(event);
+    }
+  }
+
   /**
    * Should be overridden by subclasses to define actual
    * {@link RoadModel#followPath(MovingRoadUser, Queue, TimeLapse)} behavior.
@@ -161,6 +236,7 @@ public abstract class AbstractRoadModel extends GenericRoadModel {
     checkArgument(!registry().containsObject(newObj),
       "Object is already added: %s.", newObj);
     registry().addAt(newObj, pos);
+    typeIndex.add(newObj);
     eventDispatcher.dispatchEvent(new RoadModelEvent(
       RoadEventType.ADD_ROAD_USER, this, newObj));
   }
@@ -172,6 +248,7 @@ public abstract class AbstractRoadModel extends GenericRoadModel {
     checkArgument(registry().containsObject(existingObj),
       "Object %s does not exist.", existingObj);
     registry().addAt(newObj, registry().getPosition(existingObj));
+    typeIndex.add(newObj);
     eventDispatcher.dispatchEvent(new RoadModelEvent(
       RoadEventType.ADD_ROAD_USER, this, newObj));
   }
@@ -181,7 +258,11 @@ public abstract class AbstractRoadModel extends GenericRoadModel {
     checkArgument(registry().containsObject(roadUser),
       "RoadUser: %s does not exist.", roadUser);
     registry().removeObject(roadUser);
+    typeIndex.remove(roadUser);
     objDestinations.remove(roadUser);
+    if (roadUser instanceof MovingRoadUser) {
+      moveAggregator.remove((MovingRoadUser) roadUser);
+    }
     eventDispatcher.dispatchEvent(new RoadModelEvent(
       RoadEventType.REMOVE_ROAD_USER, this, roadUser));
   }
@@ -189,7 +270,9 @@ public abstract class AbstractRoadModel extends GenericRoadModel {
   @Override
   public void clear() {
     registry().clear();
+    typeIndex.clear();
     objDestinations.clear();
+    moveAggregator.clear();
   }
 
   @Override
@@ -248,15 +331,12 @@ public abstract class AbstractRoadModel extends GenericRoadModel {
     return result;
   }
 
+  // backed by an index per queried type, the returned set is an immutable
+  // snapshot that is shared between calls as long as no object of that type
+  // is added or removed
   @Override
-  @SuppressWarnings("unchecked")
-  public <Y extends RoadUser> Set<Y> getObjectsOfType(final Class<Y> type) {
-    return (Set<Y>) getObjects(new Predicate<RoadUser>() {
-      @Override
-      public boolean apply(@Nullable RoadUser input) {
-        return type.isInstance(input);
-      }
-    });
+  public <Y extends RoadUser> Set<Y> getObjectsOfType(Class<Y> type) {
+    return typeIndex.get(type, getObjects());
   }
 
   @Override
@@ -330,11 +410,36 @@ public abstract class AbstractRoadModel extends GenericRoadModel {
     }
   }
 
+  // moves that are done outside of a tick are dispatched at the start of the
+  // next tick, the moves of the last tick when the clock stops
+  class MoveFlusher implements TickListener, Listener, Serializable {
+    private static final long serialVersionUID = -2795330513524867196L;
+
+    MoveFlusher() {}
+
+    @Override
+    public void tick(TimeLapse timeLapse) {
+      dispatchAggregatedMoves();
+    }
+
+    @Override
+    public void afterTick(TimeLapse timeLapse) {
+      dispatchAggregatedMoves();
+    }
+
+    @Override
+    public void handleEvent(Event e) {
+      dispatchAggregatedMoves();
+    }
+  }
+
   /**
    * Simple class for storing destinations and paths leading to them.
    * @author Rinde van Lon
    */
-  protected class DestinationPath {
+  protected class DestinationPath implements Serializable {
+    private static final long serialVersionUID = -571172038973933024L;
+
     /**
      * The destination of the path.
      */
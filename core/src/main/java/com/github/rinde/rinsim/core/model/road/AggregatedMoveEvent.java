@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2011-2018 Rinde R.S. van Lon
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rinde.rinsim.core.model.road;
+
+import javax.measure.quantity.Duration;
+import javax.measure.quantity.Length;
+import javax.measure.unit.Unit;
+
+import com.github.rinde.rinsim.core.model.road.GenericRoadModel.RoadEventType;
+import com.github.rinde.rinsim.event.Event;
+import com.google.common.base.MoreObjects;
+
+/**
+ * Event representing all moves of {@link MovingRoadUser}s during a single
+ * tick, see {@link RoadEventType#AGGREGATED_MOVE}. For each
+ * {@link MovingRoadUser} that moved, the total distance and time of all its
+ * moves in the tick are stored. The moves are indexed from <code>0</code> to
+ * <code>{@link #size()} - 1</code> in the order in which the road users first
+ * moved.
+ * @author Rinde van Lon
+ */
+public class AggregatedMoveEvent extends Event {
+
+  /**
+   * The {@link RoadModel} that dispatched this event.
+   */
+  public final RoadModel roadModel;
+
+  private final MovingRoadUser[] roadUsers;
+  private final double[] distances;
+  private final long[] times;
+  private final Unit<Length> distanceUnit;
+  private final Unit<Duration> timeUnit;
+
+  AggregatedMoveEvent(RoadModel rm, MovingRoadUser[] users, double[] dists,
+      long[] ts, Unit<Length> distUnit, Unit<Duration> tUnit) {
+    super(RoadEventType.AGGREGATED_MOVE, rm);
+    roadModel = rm;
+    roadUsers = users;
+    distances = dists;
+    times = ts;
+    distanceUnit = distUnit;
+    timeUnit = tUnit;
+  }
+
+  /**
+   * @return The number of {@link MovingRoadUser}s that moved.
+   */
+  public int size() {
+    return roadUsers.length;
+  }
+
+  /**
+   * @param index The index of the move.
+   * @return The {@link MovingRoadUser} that moved.
+   */
+  public MovingRoadUser getRoadUser(int index) {
+    return roadUsers[index];
+  }
+
+  /**
+   * @param index The index of the move.
+   * @return The total distance traveled expressed in
+   *         {@link #getDistanceUnit()}.
+   */
+  public double getDistance(int index) {
+    return distances[index];
+  }
+
+  /**
+   * @param index The index of the move.
+   * @return The total time spent traveling expressed in
+   *         {@link #getTimeUnit()}.
+   */
+  public long getTime(int index) {
+    return times[index];
+  }
+
+  /**
+   * @return The unit of all distances in this event.
+   */
+  public Unit<Length> getDistanceUnit() {
+    return distanceUnit;
+  }
+
+  /**
+   * @return The unit of all times in this event.
+   */
+  public Unit<Duration> getTimeUnit() {
+    return timeUnit;
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper("AggregatedMoveEvent")
+      .add("roadModel", roadModel)
+      .add("size", size())
+      .toString();
+  }
+}
@@ -19,11 +19,8 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Verify.verify;
 
 import java.util.Queue;
-import java.util.Set;
 
-import javax.measure.Measure;
 import javax.measure.quantity.Duration;
-import javax.measure.quantity.Length;
 import javax.measure.unit.Unit;
 
 import com.github.rinde.rinsim.core.model.time.TimeLapse;
@@ -33,10 +30,7 @@ import com.github.rinde.rinsim.geom.Connection;
 import com.github.rinde.rinsim.geom.ListenableGraph;
 import com.github.rinde.rinsim.geom.ListenableGraph.GraphEvent;
 import com.github.rinde.rinsim.geom.Point;
-import com.github.rinde.rinsim.util.CategoryMap;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Multimaps;
-import com.google.common.collect.SetMultimap;
 
 /**
  * Graph road model that avoids collisions between {@link RoadUser}s. When a
@@ -48,6 +42,13 @@ import com.google.common.collect.SetMultimap;
  * <p>
  * The graph can be modified at runtime, for information about modifying the
  * graph see {@link DynamicGraphRoadModel}.
+ * <p>
+ * Node occupancy and the order of vehicles on each connection are kept in a
+ * dedicated index, such that checking whether a node is occupied takes
+ * constant time and finding the nearest vehicle ahead on a connection takes
+ * logarithmic time in the number of vehicles on that connection. Objects that
+ * are not a {@link MovingRoadUser} can only be added on a node, therefore the
+ * vehicles in the index are the only obstacles on a connection.
  * @author Rinde van Lon
  */
 public class CollisionGraphRoadModelImpl
@@ -57,7 +58,7 @@ public class CollisionGraphRoadModelImpl
   private final double minConnLength;
   private final double vehicleLength;
   private final double minDistance;
-  private final SetMultimap<MovingRoadUser, Point> occupiedNodes;
+  private final OccupancyIndex occupancy;
 
   CollisionGraphRoadModelImpl(ListenableGraph<?> g, double pMinConnLength,
       RoadModelBuilders.CollisionGraphRMB builder) {
@@ -65,8 +66,7 @@ public class CollisionGraphRoadModelImpl
     vehicleLength = unitConversion.toInDist(builder.getVehicleLength());
     minDistance = unitConversion.toInDist(builder.getMinDistance());
     minConnLength = unitConversion.toInDist(pMinConnLength);
-    occupiedNodes = Multimaps.synchronizedSetMultimap(CategoryMap
-      .<MovingRoadUser, Point>create());
+    occupancy = new OccupancyIndex();
     getGraph().getEventAPI().addListener(
       new ModificationChecker(minConnLength),
       ListenableGraph.EventTypes.ADD_CONNECTION,
@@ -76,9 +76,8 @@ public class CollisionGraphRoadModelImpl
   @Override
   protected MoveProgress doFollowPath(MovingRoadUser object, Queue<Point> path,
       TimeLapse time) {
-    if (occupiedNodes.containsKey(object)) {
-      occupiedNodes.removeAll(object);
-    }
+    occupancy.release(object);
+    occupancy.updateConnection(object, null, 0d);
 
     MoveProgress mp = null;
     try {
@@ -92,8 +91,8 @@ public class CollisionGraphRoadModelImpl
         final Connection<?> conn = registry().getConnection(object);
         final double relPos = registry().getRelativePosition(object);
         if (relPos < vehicleLength + minDistance) {
-          verify(!occupiedNodes.containsValue(conn.from()));
-          verify(occupiedNodes.put(object, conn.from()));
+          verify(!occupancy.isOccupied(conn.from()));
+          occupancy.occupy(object, conn.from());
         }
 
         final double distToTo =
@@ -102,27 +101,29 @@ public class CollisionGraphRoadModelImpl
         // if 'to' is already occupied and the current object has moved onto it
         // but still within the DELTA margin, then we have to move it back as
         // this is due to a rounding error.
-        if (occupiedNodes.containsValue(conn.to())
+        if (occupancy.isOccupied(conn.to())
           && distToTo > 0
           && distToTo < DELTA) {
 
           registry().addAt(object, conn, relPos - distToTo, DELTA);
           if (mp != null) {
             final double correctedDist =
-              unitConversion.toInDist(mp.distance().getValue().doubleValue())
-                - distToTo;
-            final Measure<Double, Length> distTraveled = unitConversion
-              .toExDistMeasure(correctedDist);
-            mp =
-              MoveProgress.create(distTraveled, mp.time(), mp.travelledNodes());
+              unitConversion.toInDist(mp.distanceValue()) - distToTo;
+            mp = MoveProgress.create(unitConversion.toExDist(correctedDist),
+              unitConversion.getExDistUnit(), mp.timeValue(), mp.timeUnit(),
+              mp.travelledNodes());
           }
         } else if (distToTo > 0) {
-          verify(!occupiedNodes.containsValue(conn.to()));
-          verify(occupiedNodes.put(object, conn.to()));
+          verify(!occupancy.isOccupied(conn.to()));
+          occupancy.occupy(object, conn.to());
+        }
+        if (registry().isOnConnection(object)) {
+          occupancy.updateConnection(object, conn,
+            registry().getRelativePosition(object));
         }
       } else {
-        verify(!occupiedNodes.containsValue(loc));
-        verify(occupiedNodes.put(object, loc));
+        verify(!occupancy.isOccupied(loc));
+        occupancy.occupy(object, loc);
       }
     }
     return mp;
@@ -135,30 +136,25 @@ public class CollisionGraphRoadModelImpl
     if (!from.equals(to)) {
       final Connection<?> conn = getConnection(from, to);
       // check if the node is occupied
-      if (occupiedNodes.containsValue(conn.to())) {
+      if (occupancy.isOccupied(conn.to())) {
         closestDist = (registry().isOnConnection(from)
           ? registry().getConnection(from).getLength()
             - registry().getRelativePosition(from)
           : conn.getLength())
           - vehicleLength - minDistance;
       }
-      // check if there is an obstacle on the connection
-      if (registry().hasObjectOn(conn)) {
-        // if yes, how far is it from 'from'
-        final Set<RoadUser> potentialObstacles =
-          registry().getObjectsOn(conn);
-        for (final RoadUser ru : potentialObstacles) {
-          final Point loc = registry().getPosition(ru);
-
-          if (registry().isOnConnection(loc) && registry()
-            .getRelativePosition(loc) > registry().getRelativePosition(from)) {
-            final double dist = registry().getRelativePosition(loc)
-              - registry().getRelativePosition(from)
-              - vehicleLength - minDistance;
-            if (dist < closestDist) {
-              closestDist = dist;
-            }
-          }
+      // check if there is an obstacle on the connection, if yes, how far is
+      // the nearest one from 'from'. Only MovingRoadUsers can be on a
+      // connection (all other objects are added on a node and never move,
+      // see addObjectAt), these are all in the occupancy index.
+      final double fromRelPos = registry().getRelativePosition(from);
+      final double obstacleRelPos =
+        occupancy.findNearestAhead(conn, fromRelPos);
+      if (obstacleRelPos < Double.POSITIVE_INFINITY) {
+        final double dist =
+          obstacleRelPos - fromRelPos - vehicleLength - minDistance;
+        if (dist < closestDist) {
+          closestDist = dist;
         }
       }
     }
@@ -185,11 +181,11 @@ public class CollisionGraphRoadModelImpl
   public void addObjectAt(RoadUser newObj, Point pos) {
     if (newObj instanceof MovingRoadUser) {
       checkArgument(
-        !occupiedNodes.containsValue(pos),
+        !occupancy.isOccupied(pos),
         "A MovingRoadUser can not be added on an already occupied position "
           + "%s.",
         pos);
-      occupiedNodes.put((MovingRoadUser) newObj, pos);
+      occupancy.occupy((MovingRoadUser) newObj, pos);
     }
     super.addObjectAt(newObj, pos);
   }
@@ -203,10 +199,18 @@ public class CollisionGraphRoadModelImpl
   @Override
   public void removeObject(RoadUser object) {
     checkExists(object);
-    occupiedNodes.removeAll(object);
+    if (object instanceof MovingRoadUser) {
+      occupancy.remove((MovingRoadUser) object);
+    }
     super.removeObject(object);
   }
 
+  @Override
+  public void clear() {
+    occupancy.clear();
+    super.clear();
+  }
+
   /**
    * Checks whether the specified node is occupied.
    * @param node The node to check for occupancy.
@@ -215,7 +219,7 @@ public class CollisionGraphRoadModelImpl
    */
   @Override
   public boolean isOccupied(Point node) {
-    return occupiedNodes.containsValue(node);
+    return occupancy.isOccupied(node);
   }
 
   /**
@@ -230,7 +234,7 @@ public class CollisionGraphRoadModelImpl
   @Override
   public boolean isOccupiedBy(Point node, MovingRoadUser user) {
     checkExists(user);
-    return occupiedNodes.containsEntry(user, node);
+    return occupancy.isOccupiedBy(node, user);
   }
 
   void checkExists(RoadUser user) {
@@ -243,11 +247,7 @@ public class CollisionGraphRoadModelImpl
    */
   @Override
   public ImmutableSet<Point> getOccupiedNodes() {
-    final ImmutableSet<Point> set;
-    synchronized (occupiedNodes) {
-      set = ImmutableSet.copyOf(occupiedNodes.values());
-    }
-    return set;
+    return occupancy.getOccupiedNodes();
   }
 
   /**
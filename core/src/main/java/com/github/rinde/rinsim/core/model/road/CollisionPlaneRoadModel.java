@@ -17,10 +17,10 @@ package com.github.rinde.rinsim.core.model.road;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
-import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Queue;
-import java.util.Set;
 
+import javax.annotation.Nullable;
 import javax.measure.quantity.Duration;
 import javax.measure.unit.Unit;
 
@@ -28,9 +28,10 @@ import org.apache.commons.math3.random.RandomGenerator;
 
 import com.github.rinde.rinsim.core.model.road.RoadModelBuilders.CollisionPlaneRMB;
 import com.github.rinde.rinsim.core.model.time.Clock;
+import com.github.rinde.rinsim.core.model.time.TickLengthPolicy;
+import com.github.rinde.rinsim.core.model.time.TickListener;
 import com.github.rinde.rinsim.core.model.time.TimeLapse;
 import com.github.rinde.rinsim.geom.Point;
-import com.google.common.collect.ImmutableSet;
 
 /**
  * Adds collision detection to the {@link PlaneRoadModel}. All
@@ -40,17 +41,34 @@ import com.google.common.collect.ImmutableSet;
  * non-blocking objects (e.g. an object on the ground such as a parcel).
  * <p>
  * This model handles collisions between {@link MovingRoadUser}s by stopping the
- * movements of colliding objects.
+ * movements of colliding objects. The {@link MovingRoadUser}s are indexed in a
+ * {@link GridSpatialRegistry} such that a collision check only considers the
+ * objects in the direct neighborhood of the moving object.
+ * <p>
+ * Collisions are only detected correctly when an object can not travel more
+ * than half its radius during a single tick. When the time model has an
+ * adaptive tick length, this model acts as a {@link TickLengthPolicy} that
+ * enforces this limit, the check in the constructor then applies to the
+ * minimum tick length. For this purpose the model is a {@link TickListener}
+ * that does nothing in its tick.
  *
  * @author Rinde van Lon
  */
-public class CollisionPlaneRoadModel extends PlaneRoadModel {
+public class CollisionPlaneRoadModel extends PlaneRoadModel
+    implements TickLengthPolicy, TickListener {
 
   private static final double DMAX_RAD_RATIO = .5;
+  private static final double SEARCH_RAD_RATIO = 4;
+  // x and y for at most two intersection points
+  private static final int MAX_INTERSECTION_COORDS = 4;
   private final double deltaMax;
   private final double objRadius;
+  private final long maxTickLength;
 
-  private final SpatialRegistry<MovingRoadUser> blockingRegistry;
+  private final GridSpatialRegistry<MovingRoadUser> blockingRegistry;
+  private final double[] intersections;
+  @Nullable
+  private MovingRoadUser mover;
 
   /**
    * Constructs a new instance.
@@ -68,8 +86,14 @@ public class CollisionPlaneRoadModel extends PlaneRoadModel {
         + "tickLength (%s %s).",
       deltaMax, DMAX_RAD_RATIO, objRadius, maxSpeed, getSpeedUnit(),
       c.getTickLength(), c.getTimeUnit());
-
-    blockingRegistry = MapSpatialRegistry.create();
+    maxTickLength = (long) Math.floor(unitConversion.toExTime(
+      DMAX_RAD_RATIO * objRadius / maxSpeed, c.getTimeUnit()));
+
+    // all collision queries search within a radius of
+    // SEARCH_RAD_RATIO * objRadius
+    blockingRegistry =
+      GridSpatialRegistry.create(SEARCH_RAD_RATIO * objRadius);
+    intersections = new double[MAX_INTERSECTION_COORDS];
   }
 
   /**
@@ -79,6 +103,21 @@ public class CollisionPlaneRoadModel extends PlaneRoadModel {
     return objRadius;
   }
 
+  /**
+   * {@inheritDoc} Returns the longest tick during which an object at maximum
+   * speed travels at most half the object radius.
+   */
+  @Override
+  public long getMaxTickLength(long time) {
+    return maxTickLength;
+  }
+
+  @Override
+  public void tick(TimeLapse timeLapse) {}
+
+  @Override
+  public void afterTick(TimeLapse timeLapse) {}
+
   /**
    * Checks whether the specified {@link Point} is occupied or not. A
    * {@link Point} is considered occupied if a {@link MovingRoadUser} cannot be
@@ -122,10 +161,17 @@ public class CollisionPlaneRoadModel extends PlaneRoadModel {
   @Override
   protected MoveProgress doFollowPath(MovingRoadUser object, Queue<Point> path,
       TimeLapse time) {
-    blockingRegistry.removeObject(object);
-    final MoveProgress mp = super.doFollowPath(object, path, time);
-    blockingRegistry.addAt(object, getPosition(object));
-    return mp;
+    // the object is not removed from the blocking registry during its move,
+    // instead it is ignored by the collision checks, its new position is
+    // committed with a single update afterwards
+    mover = object;
+    try {
+      final MoveProgress mp = super.doFollowPath(object, path, time);
+      blockingRegistry.addAt(object, getPosition(object));
+      return mp;
+    } finally {
+      mover = null;
+    }
   }
 
   @Override
@@ -135,86 +181,101 @@ public class CollisionPlaneRoadModel extends PlaneRoadModel {
     final double travelableDistance =
       super.computeTravelableDistance(from, to, speed, tLeft, tUnit);
 
-    final Point diff = Point.diff(to, from);
     final double perc =
       travelableDistance / unitConversion.toInDist(Point.distance(from, to));
-    final Point destDuringTick =
-      new Point(from.x + perc * diff.x, from.y + perc * diff.y);
+    final double destX = from.x + perc * (to.x - from.x);
+    final double destY = from.y + perc * (to.y - from.y);
 
-    final ImmutableSet<MovingRoadUser> set =
-      blockingRegistry.findObjectsWithinRadius(destDuringTick, 4 * objRadius);
+    final double collisionDist = 2 * objRadius;
+    final double searchRadius = SEARCH_RAD_RATIO * objRadius;
 
-    // find intersection of line [from <-> to] with any MovingRoadUser in the
-    // set.
-    final Set<Point> intersectPoints = new LinkedHashSet<>();
     // indicates whether we are currently colliding
     boolean hit = false;
-    for (final MovingRoadUser ru : set) {
-      final Point pos = getPosition(ru);
-      if (Point.distance(pos, from) <= objRadius * 2) {
-        hit = true;
-      }
+    // indicates whether there is an intersection with the line
+    // [from <-> destDuringTick]
+    boolean intersects = false;
+    double minDist = Double.POSITIVE_INFINITY;
 
-      final Set<Point> pts =
-        findIntersectionPoints(pos, 2 * objRadius, from, destDuringTick);
-
-      // destination is invalid
-      if (Point.distance(pos, destDuringTick) <= objRadius * 2) {
-        intersectPoints.addAll(pts);
-      } else {
-        // destination is valid, this means we can ignore any intersection
-        // points that are within DELTA of our current position (as this is how
-        // we can stop colliding with another object)
-        for (final Point p : pts) {
-          // only include points on the travelline and whom are not too close to
-          // origin
-          if (isBetween(from, destDuringTick, p)
-            && Point.distance(from, p) > DELTA) {
-            intersectPoints.add(p);
+    // broad phase: only visit the grid cells that overlap with the search
+    // radius around the destination during this tick
+    final int minCx = blockingRegistry.cellIndex(destX - searchRadius);
+    final int maxCx = blockingRegistry.cellIndex(destX + searchRadius);
+    final int minCy = blockingRegistry.cellIndex(destY - searchRadius);
+    final int maxCy = blockingRegistry.cellIndex(destY + searchRadius);
+    for (int cx = minCx; cx <= maxCx; cx++) {
+      for (int cy = minCy; cy <= maxCy; cy++) {
+        final List<MovingRoadUser> cell =
+          blockingRegistry.objectsInCell(cx, cy);
+        if (cell == null) {
+          continue;
+        }
+        for (int i = 0; i < cell.size(); i++) {
+          final MovingRoadUser ru = cell.get(i);
+          if (ru == mover) {
+            continue;
+          }
+          final Point pos = blockingRegistry.positionOf(ru);
+          final double destDist = distance(pos.x, pos.y, destX, destY);
+          if (destDist >= searchRadius) {
+            continue;
+          }
+
+          // narrow phase: find intersection of line [from <-> to] with the
+          // circle around ru
+          if (distance(pos.x, pos.y, from.x, from.y) <= collisionDist) {
+            hit = true;
+          }
+          final int numPoints = findIntersectionPoints(pos.x, pos.y,
+            collisionDist, from.x, from.y, destX, destY, intersections);
+
+          // destination is invalid
+          final boolean destInvalid = destDist <= collisionDist;
+          for (int j = 0; j < numPoints; j++) {
+            final double px = intersections[2 * j];
+            final double py = intersections[2 * j + 1];
+            final double dist = distance(from.x, from.y, px, py);
+            // if destination is valid, we can ignore any intersection points
+            // that are within DELTA of our current position (as this is how we
+            // can stop colliding with another object), we only include points
+            // on the travel line and whom are not too close to origin
+            if (destInvalid
+              || isBetween(from.x, from.y, destX, destY, px, py)
+                && dist > DELTA) {
+              intersects = true;
+              minDist = Math.min(minDist, dist);
+            }
           }
         }
       }
     }
 
-    if (intersectPoints.isEmpty()) {
+    if (!intersects) {
       return travelableDistance;
     } else if (hit) {
       return 0d;
     }
-
-    // find closest intersection
-    final double minDist = findMinDist(from, intersectPoints);
     return Math.min(travelableDistance, Math.max(0, minDist));
   }
 
-  static double findMinDist(Point pos, Iterable<Point> points) {
-    double minDist = Double.POSITIVE_INFINITY;
-    for (final Point p : points) {
-      final double dist = Point.distance(pos, p);
-      if (dist < minDist) {
-        minDist = dist;
-      }
-    }
-    return minDist;
-  }
-
   // http://mathworld.wolfram.com/Circle-LineIntersection.html
-  static ImmutableSet<Point> findIntersectionPoints(Point circleCenter,
-      double circleRadius, Point lineFrom, Point lineTo) {
+  // writes the coordinates of the intersection points (x1, y1, x2, y2) in the
+  // specified array and returns the number of intersection points
+  static int findIntersectionPoints(double cx, double cy, double circleRadius,
+      double fromX, double fromY, double toX, double toY, double[] out) {
     // translate points such that circle center is at origin (0,0)
-    final Point p1 =
-      new Point(lineFrom.x - circleCenter.x, lineFrom.y - circleCenter.y);
-    final Point p2 =
-      new Point(lineTo.x - circleCenter.x, lineTo.y - circleCenter.y);
+    final double p1x = fromX - cx;
+    final double p1y = fromY - cy;
+    final double p2x = toX - cx;
+    final double p2y = toY - cy;
 
-    final double dx = p2.x - p1.x;
-    final double dy = p2.y - p1.y;
+    final double dx = p2x - p1x;
+    final double dy = p2y - p1y;
     final double drSquared = dx * dx + dy * dy;
-    final double d = p1.x * p2.y - p2.x * p1.y;
+    final double d = p1x * p2y - p2x * p1y;
 
     final double delta = circleRadius * circleRadius * drSquared - d * d;
     if (delta < 0) {
-      return ImmutableSet.of();
+      return 0;
     }
 
     final double xPart1 = d * dy;
@@ -222,25 +283,31 @@ public class CollisionPlaneRoadModel extends PlaneRoadModel {
     final double yPart1 = -d * dx;
     final double yPart2 = Math.abs(dy) * Math.sqrt(delta);
 
-    final double x1 = (xPart1 - xPart2) / drSquared + circleCenter.x;
-    final double y1 = (yPart1 - yPart2) / drSquared + circleCenter.y;
+    out[0] = (xPart1 - xPart2) / drSquared + cx;
+    out[1] = (yPart1 - yPart2) / drSquared + cy;
     if (delta > 0) {
       // two intersection points
-      final double x2 = (xPart1 + xPart2) / drSquared + circleCenter.x;
-      final double y2 = (yPart1 + yPart2) / drSquared + circleCenter.y;
-      return ImmutableSet.of(new Point(x1, y1), new Point(x2, y2));
+      out[2] = (xPart1 + xPart2) / drSquared + cx;
+      out[2 + 1] = (yPart1 + yPart2) / drSquared + cy;
+      return 2;
     }
     // else: tangent, one intersection point
-    return ImmutableSet.of(new Point(x1, y1));
+    return 1;
   }
 
   static double sign(double x) {
     return x < 0 ? -1 : 1;
   }
 
-  static boolean isBetween(Point from, Point to, Point pointOnLine) {
-    return Math.abs(
-      Point.distance(from, pointOnLine) + Point.distance(pointOnLine, to)
-        - Point.distance(from, to)) < DELTA;
+  static boolean isBetween(double fromX, double fromY, double toX, double toY,
+      double x, double y) {
+    return Math.abs(distance(fromX, fromY, x, y) + distance(x, y, toX, toY)
+      - distance(fromX, fromY, toX, toY)) < DELTA;
+  }
+
+  static double distance(double x1, double y1, double x2, double y2) {
+    final double dx = x1 - x2;
+    final double dy = y1 - y2;
+    return Math.sqrt(dx * dx + dy * dy);
   }
 }
@@ -33,6 +33,8 @@ import org.apache.commons.math3.random.RandomGenerator;
 
 import com.github.rinde.rinsim.core.model.ModelBuilder;
 import com.github.rinde.rinsim.core.model.ModelBuilder.AbstractModelBuilder;
+import com.github.rinde.rinsim.core.model.ModelProvider;
+import com.github.rinde.rinsim.core.model.ModelReceiver;
 import com.github.rinde.rinsim.core.model.time.TimeLapse;
 import com.github.rinde.rinsim.event.EventAPI;
 import com.github.rinde.rinsim.geom.GeomHeuristic;
@@ -50,7 +52,7 @@ import com.google.common.collect.ImmutableList;
  * @param <T> The type of {@link RoadModel} is being forwarded.
  */
 public class ForwardingRoadModel<T extends GenericRoadModel>
-    extends GenericRoadModel {
+    extends GenericRoadModel implements ModelReceiver {
   private final T delegate;
 
   /**
@@ -264,6 +266,13 @@ public class ForwardingRoadModel<T extends GenericRoadModel>
     return delegate().getSnapshot();
   }
 
+  @Override
+  public void registerModelProvider(ModelProvider mp) {
+    if (delegate() instanceof ModelReceiver) {
+      ((ModelReceiver) delegate()).registerModelProvider(mp);
+    }
+  }
+
   /**
    * Abstract base builder for creating subclasses of
    * {@link ForwardingRoadModel}.
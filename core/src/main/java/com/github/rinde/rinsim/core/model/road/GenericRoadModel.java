@@ -59,7 +59,15 @@ public abstract class GenericRoadModel extends AbstractModel<RoadUser>
     /**
      * Is dispatched when a {@link RoadUser} has been removed from the model.
      */
-    REMOVE_ROAD_USER
+    REMOVE_ROAD_USER,
+
+    /**
+     * Is dispatched at the end of every tick in which at least one
+     * {@link MovingRoadUser} has moved, it contains the total distance and
+     * time of all moves of the tick, see {@link AggregatedMoveEvent}. Moves are
+     * only collected when there is a listener for this event type.
+     */
+    AGGREGATED_MOVE
   }
 
   // TODO event dispatching has to be tested
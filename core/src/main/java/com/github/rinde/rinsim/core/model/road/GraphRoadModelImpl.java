@@ -92,8 +92,7 @@ public class GraphRoadModelImpl extends AbstractRoadModel
     snapshot = GraphRoadModelSnapshot.create(
       ImmutableGraph.copyOf(graph), b.getDistanceUnit());
 
-    registry =
-      GraphSpatialRegistry.create(MapSpatialRegistry.<RoadUser>create());
+    registry = GraphSpatialRegistry.create();
   }
 
   @Override
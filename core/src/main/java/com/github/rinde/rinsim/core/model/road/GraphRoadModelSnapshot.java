@@ -17,6 +17,7 @@ package com.github.rinde.rinsim.core.model.road;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
+import java.io.Serializable;
 import java.util.Iterator;
 import java.util.List;
 
@@ -41,7 +42,8 @@ import com.google.auto.value.AutoValue;
  */
 @AutoValue
 abstract class GraphRoadModelSnapshot
-    implements RoadModelSnapshot {
+    implements RoadModelSnapshot, Serializable {
+  private static final long serialVersionUID = -6815582518855640696L;
 
   GraphRoadModelSnapshot() {}
 
@@ -15,192 +15,542 @@
  */
 package com.github.rinde.rinsim.core.model.road;
 
-import java.util.Collections;
-import java.util.LinkedHashMap;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
 import java.util.Set;
 
 import javax.annotation.Nullable;
 
+import com.github.rinde.rinsim.core.model.road.MapSpatialRegistry.ObjDist;
 import com.github.rinde.rinsim.geom.Connection;
 import com.github.rinde.rinsim.geom.Point;
-import com.google.auto.value.AutoValue;
 import com.google.common.base.Optional;
-import com.google.common.collect.LinkedHashMultimap;
-import com.google.common.collect.SetMultimap;
-
-// adapter that includes graph specific info
-public class GraphSpatialRegistry<T> extends ForwardingSpatialRegistry<T> {
-  // contains map: RoadUser -> Point
-  final SpatialRegistry<T> delegate;
-  final Map<T, ConnLoc> connLocMap;
-  final SetMultimap<Point, T> posMap;
-  final SetMultimap<Connection<?>, T> connMap;
-
-  GraphSpatialRegistry(SpatialRegistry<T> deleg) {
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * A {@link SpatialRegistry} that includes graph specific information: for each
+ * object it knows whether it is on a connection and if so, what its relative
+ * position on that connection is.
+ * <p>
+ * Each object is assigned a dense id that indexes a set of parallel arrays
+ * containing its position and its relative position. Objects that share the
+ * same position and objects that are on the same connection are linked in
+ * intrusive lists that are stored in the same arrays. As a result, moving an
+ * object only requires a handful of array writes and at most a few hash
+ * lookups of the position buckets, no objects are allocated besides the new
+ * position itself. The immutable views returned by
+ * {@link #getObjectsAndPositions()} and {@link #getObjects()} are built lazily
+ * and are reused until the registry is modified. Objects are ordered by the
+ * time they were last added or moved, an object that is moved is placed last,
+ * both in the registry and in the lists of its position and connection.
+ * <p>
+ * All public methods are synchronized such that the registry can be safely
+ * queried from other threads (e.g. a renderer).
+ * @author Rinde van Lon
+ * @param <T> The type of element in this data structure.
+ */
+public class GraphSpatialRegistry<T>
+    implements SpatialRegistry<T>, Serializable {
+  private static final long serialVersionUID = -3745958962958516975L;
+  private static final int NONE = -1;
+  private static final int INITIAL_CAPACITY = 16;
+
+  @Nullable
+  private final SpatialRegistry<T> delegate;
+  private final Map<T, Integer> ids;
+  private final Map<Point, Bucket> posBuckets;
+  private final Map<Connection<?>, Bucket> connBuckets;
+  // all objects in insertion order
+  private final Bucket all;
+
+  // per object state, indexed by object id
+  private Object[] objects;
+  private Point[] positions;
+  private double[] xs;
+  private double[] ys;
+  private double[] relPositions;
+  private Connection<?>[] connections;
+  private int[] allNext;
+  private int[] allPrev;
+  private int[] posNext;
+  private int[] posPrev;
+  private int[] connNext;
+  private int[] connPrev;
+
+  private int[] freeIds;
+  private int numFreeIds;
+  private int nextId;
+
+  @Nullable
+  private ImmutableMap<T, Point> positionsView;
+  @Nullable
+  private ImmutableSet<T> objectsView;
+
+  GraphSpatialRegistry(@Nullable SpatialRegistry<T> deleg) {
     delegate = deleg;
-    connMap = LinkedHashMultimap.create();
-    posMap = LinkedHashMultimap.create();
-    connLocMap = new LinkedHashMap<>();
+    ids = new HashMap<>();
+    posBuckets = new HashMap<>();
+    connBuckets = new HashMap<>();
+    all = new Bucket();
+    objects = new Object[INITIAL_CAPACITY];
+    positions = new Point[INITIAL_CAPACITY];
+    xs = new double[INITIAL_CAPACITY];
+    ys = new double[INITIAL_CAPACITY];
+    relPositions = new double[INITIAL_CAPACITY];
+    connections = new Connection<?>[INITIAL_CAPACITY];
+    allNext = new int[INITIAL_CAPACITY];
+    allPrev = new int[INITIAL_CAPACITY];
+    posNext = new int[INITIAL_CAPACITY];
+    posPrev = new int[INITIAL_CAPACITY];
+    connNext = new int[INITIAL_CAPACITY];
+    connPrev = new int[INITIAL_CAPACITY];
+    freeIds = new int[INITIAL_CAPACITY];
   }
 
   @Override
-  SpatialRegistry<T> delegate() {
-    return delegate;
+  public synchronized boolean containsObject(T object) {
+    return ids.containsKey(object);
   }
 
   @Override
-  public void addAt(T obj, Point position) {
-    addAt(obj, position, null);
+  public synchronized Point getPosition(T object) {
+    return positions[id(object)];
   }
 
-  public Point addAt(T obj, Connection<?> conn, double relPos,
+  @Override
+  public synchronized void addAt(T obj, Point position) {
+    checkNotNull(position);
+    // if the position is known to be on a connection, we can use that conn
+    // instead.
+    final Bucket bucket = posBuckets.get(position);
+    if (bucket != null && connections[bucket.head] != null) {
+      addAt(obj, position, connections[bucket.head],
+        relPositions[bucket.head]);
+    } else {
+      addAt(obj, position, null, 0d);
+    }
+  }
+
+  /**
+   * Adds the specified object on the specified connection.
+   * @param obj The object to add.
+   * @param conn The connection.
+   * @param relPos The relative position on the connection.
+   * @param precision If the object is within this precision of the end of the
+   *          connection, it is placed on the end node of the connection.
+   * @return The new position of the object.
+   */
+  public synchronized Point addAt(T obj, Connection<?> conn, double relPos,
       double precision) {
-    final Point diff = Point.diff(conn.to(), conn.from());
     final double perc = relPos / conn.getLength();
-    final Point pos;
-    final ConnLoc connLoc;
     if (perc + precision >= 1) {
-      connLoc = null;
-      pos = conn.to();
-    } else {
-      pos = new Point(
-        conn.from().x + perc * diff.x,
-        conn.from().y + perc * diff.y);
-      connLoc = ConnLoc.create(pos, conn, relPos);
+      addAt(obj, conn.to());
+      return conn.to();
     }
-    addAt(obj, pos, connLoc);
+    final Point pos = new Point(
+      conn.from().x + perc * (conn.to().x - conn.from().x),
+      conn.from().y + perc * (conn.to().y - conn.from().y));
+    addAt(obj, pos, conn, relPos);
     return pos;
   }
 
-  void addAt(T obj, Point position, @Nullable ConnLoc connLoc) {
-    @Nullable
-    ConnLoc cl = connLoc;
-    // if no ConnLoc is provided but the position is known to be on a
-    // connection, we can use that conn instead.
-    if (cl == null && isOnConnection(position)) {
-      cl = connLocMap.get(posMap.get(position).iterator().next());
+  private void addAt(T obj, Point position, @Nullable Connection<?> conn,
+      double relPos) {
+    final Integer existingId = ids.get(obj);
+    final int id;
+    if (existingId == null) {
+      id = allocateId();
+      ids.put(obj, id);
+      objects[id] = obj;
+      connections[id] = null;
+    } else {
+      // a moved object is placed last, as if it was removed and added again
+      id = existingId;
+      unlink(all, id, allNext, allPrev);
+      unlinkPosition(id);
+      if (connections[id] != null) {
+        unlinkConnection(id);
+      }
+      if (delegate != null) {
+        delegate.removeObject(obj);
+      }
+    }
+    link(all, id, allNext, allPrev);
+    if (delegate != null) {
+      delegate.addAt(obj, position);
     }
 
-    // remove from old position
-    if (containsObject(obj)) {
-      removeObject(obj);
+    positions[id] = position;
+    xs[id] = position.x;
+    ys[id] = position.y;
+    Bucket posBucket = posBuckets.get(position);
+    if (posBucket == null) {
+      posBucket = new Bucket();
+      posBuckets.put(position, posBucket);
+    }
+    link(posBucket, id, posNext, posPrev);
+
+    relPositions[id] = conn == null ? 0d : relPos;
+    if (conn != null) {
+      Bucket connBucket = connBuckets.get(conn);
+      if (connBucket == null) {
+        connBucket = new Bucket();
+        connBuckets.put(conn, connBucket);
+      }
+      link(connBucket, id, connNext, connPrev);
+      connections[id] = conn;
     }
+    invalidateViews();
+  }
 
-    delegate().addAt(obj, position);
-    posMap.put(position, obj);
-    if (cl != null) {
-      connMap.put(cl.connection(), obj);
-      connLocMap.put(obj, cl);
+  @Override
+  public synchronized void removeObject(T object) {
+    final int id = id(object);
+    unlinkPosition(id);
+    if (connections[id] != null) {
+      unlinkConnection(id);
+    }
+    unlink(all, id, allNext, allPrev);
+    if (delegate != null) {
+      delegate.removeObject(object);
     }
+    ids.remove(object);
+    objects[id] = null;
+    positions[id] = null;
+    freeIds[numFreeIds++] = id;
+    invalidateViews();
   }
 
   @Override
-  public void removeObject(T object) {
-    final Point pos = getPosition(object);
-    delegate.removeObject(object);
-    posMap.remove(pos, object);
+  public synchronized void clear() {
+    if (delegate != null) {
+      delegate.clear();
+    }
+    ids.clear();
+    posBuckets.clear();
+    connBuckets.clear();
+    all.head = NONE;
+    all.tail = NONE;
+    all.size = 0;
+    Arrays.fill(objects, null);
+    Arrays.fill(positions, null);
+    Arrays.fill(connections, null);
+    numFreeIds = 0;
+    nextId = 0;
+    invalidateViews();
+  }
 
-    if (connLocMap.containsKey(object)) {
-      final ConnLoc connLoc = connLocMap.get(object);
-      connMap.remove(connLoc.connection(), object);
-      connLocMap.remove(object);
+  @Override
+  public synchronized ImmutableMap<T, Point> getObjectsAndPositions() {
+    if (delegate != null) {
+      return delegate.getObjectsAndPositions();
+    }
+    ImmutableMap<T, Point> view = positionsView;
+    if (view == null) {
+      final ImmutableMap.Builder<T, Point> builder = ImmutableMap.builder();
+      for (int id = all.head; id != NONE; id = allNext[id]) {
+        builder.put(object(id), positions[id]);
+      }
+      view = builder.build();
+      positionsView = view;
     }
+    return view;
   }
 
   @Override
-  public void clear() {
-    super.clear();
-    connMap.clear();
-    posMap.clear();
+  public synchronized ImmutableSet<T> getObjects() {
+    if (delegate != null) {
+      return delegate.getObjects();
+    }
+    ImmutableSet<T> view = objectsView;
+    if (view == null) {
+      view = getObjectsAndPositions().keySet();
+      objectsView = view;
+    }
+    return view;
+  }
+
+  // excludes objects on border of radius
+  @Override
+  public synchronized ImmutableSet<T> findObjectsWithinRadius(Point position,
+      double radius) {
+    checkArgument(radius > 0, "radius should be strictly positive, found %s.",
+      radius);
+    if (delegate != null) {
+      return delegate.findObjectsWithinRadius(position, radius);
+    }
+    final ImmutableSet.Builder<T> builder = ImmutableSet.builder();
+    for (int id = all.head; id != NONE; id = allNext[id]) {
+      final double dx = position.x - xs[id];
+      final double dy = position.y - ys[id];
+      if (Math.sqrt(dx * dx + dy * dy) < radius) {
+        builder.add(object(id));
+      }
+    }
+    return builder.build();
+  }
+
+  // include objects on border of rect
+  @Override
+  public synchronized ImmutableSet<T> findObjectsInRect(Point min, Point max) {
+    checkArgument(min.x < max.x && min.y < max.y,
+      "Invalid rectangle, expected 'min' < 'max', found %s and %s.", min, max);
+    if (delegate != null) {
+      return delegate.findObjectsInRect(min, max);
+    }
+    final ImmutableSet.Builder<T> builder = ImmutableSet.builder();
+    for (int id = all.head; id != NONE; id = allNext[id]) {
+      if (xs[id] >= min.x && xs[id] <= max.x
+        && ys[id] >= min.y && ys[id] <= max.y) {
+        builder.add(object(id));
+      }
+    }
+    return builder.build();
+  }
+
+  // in case multiple objects with the same distance exist, the object that was
+  // added to the registry first is prioritized
+  @Override
+  public synchronized ImmutableSet<T> findNearestObjects(Point position,
+      int n) {
+    checkArgument(n > 0, "n should be strictly positive, found %s.", n);
+    if (delegate != null) {
+      return delegate.findNearestObjects(position, n);
+    } else if (all.size == 0) {
+      return ImmutableSet.of();
+    } else if (all.size <= n) {
+      return getObjects();
+    }
+    final Queue<ObjDist<T>> queue = new PriorityQueue<>(n);
+    for (int id = all.head; id != NONE; id = allNext[id]) {
+      final double dx = position.x - xs[id];
+      final double dy = position.y - ys[id];
+      final double dist = Math.sqrt(dx * dx + dy * dy);
+      if (queue.size() < n) {
+        queue.add(ObjDist.create(object(id), dist));
+      } else if (queue.peek().dist() > dist) {
+        queue.remove();
+        queue.add(ObjDist.create(object(id), dist));
+      }
+    }
+    final ImmutableSet.Builder<T> objs = ImmutableSet.builder();
+    for (final ObjDist<T> od : queue) {
+      objs.add(od.obj());
+    }
+    return objs.build();
   }
 
   // returns true if it is known that point p is on a connection. this can only
   // the case if a roaduser resides at that location
-  public boolean isOnConnection(Point p) {
-    return posMap.containsKey(p)
-      && isOnConnection(posMap.get(p).iterator().next());
+  public synchronized boolean isOnConnection(Point p) {
+    final Bucket bucket = posBuckets.get(p);
+    return bucket != null && connections[bucket.head] != null;
   }
 
-  public boolean isOnConnection(T ru) {
-    return connLocMap.containsKey(ru);
+  public synchronized boolean isOnConnection(T ru) {
+    final Integer id = ids.get(ru);
+    return id != null && connections[id] != null;
   }
 
-  public Connection<?> getConnection(Point p) {
-    return getConnection(posMap.get(p).iterator().next());
+  public synchronized Connection<?> getConnection(Point p) {
+    final Bucket bucket = posBuckets.get(p);
+    checkArgument(bucket != null && connections[bucket.head] != null,
+      "Point %s is not known to be on a connection.", p);
+    return connections[bucket.head];
   }
 
-  public Connection<?> getConnection(T ru) {
-    return connLocMap.get(ru).connection();
+  public synchronized Connection<?> getConnection(T ru) {
+    final Connection<?> conn = connections[id(ru)];
+    checkArgument(conn != null, "RoadUser %s is not on a connection.", ru);
+    return conn;
   }
 
-  public Optional<? extends Connection<?>> getOptionalConnection(T ru) {
-    final ConnLoc cl = connLocMap.get(ru);
-    if (cl == null) {
+  public synchronized Optional<? extends Connection<?>> getOptionalConnection(
+      T ru) {
+    final Integer id = ids.get(ru);
+    if (id == null) {
       return Optional.absent();
     }
-    return Optional.of(cl.connection());
+    return Optional.fromNullable(connections[id]);
   }
 
-  public double getRelativePosition(Point p) {
-    if (!posMap.containsKey(p)) {
+  public synchronized double getRelativePosition(Point p) {
+    final Bucket bucket = posBuckets.get(p);
+    if (bucket == null) {
       return 0d;
     }
-    return getRelativePosition(posMap.get(p).iterator().next());
+    return relPositions[bucket.head];
   }
 
-  public double getRelativePosition(T ru) {
-    if (!connLocMap.containsKey(ru)) {
+  public synchronized double getRelativePosition(T ru) {
+    final Integer id = ids.get(ru);
+    if (id == null) {
       return 0d;
     }
-    return connLocMap.get(ru).relativePosition();
+    return relPositions[id];
   }
 
   // excluding from/to
-  public boolean hasObjectOn(Connection<?> conn) {
-    return connMap.containsKey(conn);
+  public synchronized boolean hasObjectOn(Connection<?> conn) {
+    return connBuckets.containsKey(conn);
   }
 
-  public boolean hasObjectOn(Point pos) {
-    return posMap.containsKey(pos);
+  public synchronized boolean hasObjectOn(Point pos) {
+    return posBuckets.containsKey(pos);
   }
 
-  public Set<T> getObjectsOn(Connection<?> conn) {
-    return Collections.unmodifiableSet(connMap.get(conn));
+  public synchronized Set<T> getObjectsOn(Connection<?> conn) {
+    return collect(connBuckets.get(conn), connNext);
   }
 
-  public Set<T> getObjectsOn(Point pos) {
-    return Collections.unmodifiableSet(posMap.get(pos));
+  public synchronized Set<T> getObjectsOn(Point pos) {
+    return collect(posBuckets.get(pos), posNext);
   }
 
-  public static <T> GraphSpatialRegistry<T> create(
-      SpatialRegistry<T> delegate) {
-    return new GraphSpatialRegistry<>(delegate);
+  private ImmutableSet<T> collect(@Nullable Bucket bucket, int[] next) {
+    if (bucket == null) {
+      return ImmutableSet.of();
+    }
+    final ImmutableSet.Builder<T> builder = ImmutableSet.builder();
+    for (int id = bucket.head; id != NONE; id = next[id]) {
+      builder.add(object(id));
+    }
+    return builder.build();
   }
 
-  @AutoValue
-  abstract static class ConnLoc {
+  private int id(T object) {
+    final Integer id = ids.get(object);
+    checkArgument(id != null, "RoadUser does not exist: %s.", object);
+    return id;
+  }
 
-    abstract Point position();
+  @SuppressWarnings("unchecked")
+  private T object(int id) {
+    return (T) objects[id];
+  }
 
-    abstract Connection<?> connection();
+  private void invalidateViews() {
+    positionsView = null;
+    objectsView = null;
+  }
 
-    abstract double relativePosition();
+  private void unlinkPosition(int id) {
+    final Bucket bucket = posBuckets.get(positions[id]);
+    unlink(bucket, id, posNext, posPrev);
+    if (bucket.size == 0) {
+      posBuckets.remove(positions[id]);
+    }
+  }
 
-    /**
-     * Check if this position is on the same connection as the provided
-     * location.
-     * @param l The location to compare with.
-     * @return <code>true</code> if both {@link ConnLoc}s are on the same
-     *         connection, <code>false</code> otherwise.
-     */
-    boolean isOnSameConnection(ConnLoc l) {
-      return connection().equals(l.connection());
+  private void unlinkConnection(int id) {
+    final Bucket bucket = connBuckets.get(connections[id]);
+    unlink(bucket, id, connNext, connPrev);
+    if (bucket.size == 0) {
+      connBuckets.remove(connections[id]);
     }
+    connections[id] = null;
+  }
 
-    static ConnLoc create(Point p, Connection<?> c, double relPos) {
-      return new AutoValue_GraphSpatialRegistry_ConnLoc(p, c, relPos);
+  private int allocateId() {
+    if (numFreeIds > 0) {
+      return freeIds[--numFreeIds];
     }
+    if (nextId == objects.length) {
+      grow();
+    }
+    return nextId++;
   }
 
+  private void grow() {
+    final int capacity = objects.length * 2;
+    objects = Arrays.copyOf(objects, capacity);
+    positions = Arrays.copyOf(positions, capacity);
+    xs = Arrays.copyOf(xs, capacity);
+    ys = Arrays.copyOf(ys, capacity);
+    relPositions = Arrays.copyOf(relPositions, capacity);
+    connections = Arrays.copyOf(connections, capacity);
+    allNext = Arrays.copyOf(allNext, capacity);
+    allPrev = Arrays.copyOf(allPrev, capacity);
+    posNext = Arrays.copyOf(posNext, capacity);
+    posPrev = Arrays.copyOf(posPrev, capacity);
+    connNext = Arrays.copyOf(connNext, capacity);
+    connPrev = Arrays.copyOf(connPrev, capacity);
+    freeIds = Arrays.copyOf(freeIds, capacity);
+  }
+
+  // appends id to the tail of the list
+  static void link(Bucket bucket, int id, int[] next, int[] prev) {
+    next[id] = NONE;
+    prev[id] = bucket.tail;
+    if (bucket.tail == NONE) {
+      bucket.head = id;
+    } else {
+      next[bucket.tail] = id;
+    }
+    bucket.tail = id;
+    bucket.size++;
+  }
+
+  static void unlink(Bucket bucket, int id, int[] next, int[] prev) {
+    if (prev[id] == NONE) {
+      bucket.head = next[id];
+    } else {
+      next[prev[id]] = next[id];
+    }
+    if (next[id] == NONE) {
+      bucket.tail = prev[id];
+    } else {
+      prev[next[id]] = prev[id];
+    }
+    bucket.size--;
+  }
+
+  /**
+   * Creates a new empty registry.
+   * @param <T> The type of element in the registry.
+   * @return A new instance.
+   */
+  public static <T> GraphSpatialRegistry<T> create() {
+    return new GraphSpatialRegistry<>(null);
+  }
+
+  /**
+   * Creates a new registry that keeps the specified registry in sync with its
+   * contents. The delegate is used for {@link #getObjects()},
+   * {@link #getObjectsAndPositions()} and the <code>find*</code> queries, all
+   * graph specific information is stored by the new registry.
+   * @param delegate The registry to keep in sync, must be empty.
+   * @param <T> The type of element in the registry.
+   * @return A new instance.
+   * @deprecated The registry stores all positions itself, use
+   *             {@link #create()} instead.
+   */
+  @Deprecated
+  public static <T> GraphSpatialRegistry<T> create(
+      SpatialRegistry<T> delegate) {
+    checkArgument(delegate.getObjects().isEmpty(),
+      "The delegate registry must be empty.");
+    return new GraphSpatialRegistry<>(delegate);
+  }
+
+  // head and tail of an intrusive doubly linked list
+  static final class Bucket implements Serializable {
+    private static final long serialVersionUID = 4605893253311378781L;
+    int head;
+    int tail;
+    int size;
+
+    Bucket() {
+      head = NONE;
+      tail = NONE;
+    }
+  }
 }
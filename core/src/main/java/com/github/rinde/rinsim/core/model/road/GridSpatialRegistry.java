@@ -0,0 +1,289 @@
+/*
+ * Copyright (C) 2011-2018 Rinde R.S. van Lon
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rinde.rinsim.core.model.road;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.PriorityQueue;
+import java.util.Queue;
+
+import javax.annotation.Nullable;
+
+import com.github.rinde.rinsim.core.model.road.MapSpatialRegistry.ObjDist;
+import com.github.rinde.rinsim.geom.Point;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * A {@link SpatialRegistry} that indexes its objects in a uniform hashed grid.
+ * Radius and rectangle queries only visit the grid cells that overlap with the
+ * queried area, which makes these queries independent of the total number of
+ * objects as long as the objects are reasonably spread out. The cell size
+ * should be chosen close to the typical query radius.
+ * <p>
+ * Moving an object to a position in the same cell only updates its position,
+ * moving it to another cell additionally moves it between two cell lists.
+ * <p>
+ * <b>This class is not thread-safe.</b>
+ * @author Rinde van Lon
+ * @param <T> The type of element in this data structure.
+ */
+public final class GridSpatialRegistry<T> implements SpatialRegistry<T> {
+  private static final long INT_MASK = 0xffffffffL;
+  private static final int INT_BITS = 32;
+
+  private final double cellSize;
+  private final Map<T, Point> objLocs;
+  private final Map<Long, List<T>> cells;
+
+  private GridSpatialRegistry(double size) {
+    cellSize = size;
+    objLocs = new LinkedHashMap<>();
+    cells = new HashMap<>();
+  }
+
+  /**
+   * @return The size (width and height) of a single grid cell.
+   */
+  public double getCellSize() {
+    return cellSize;
+  }
+
+  @Override
+  public boolean containsObject(T object) {
+    return objLocs.containsKey(object);
+  }
+
+  @Override
+  public void removeObject(T object) {
+    final Point pos = objLocs.remove(object);
+    if (pos != null) {
+      removeFromCell(object, cellKey(cellIndex(pos.x), cellIndex(pos.y)));
+    }
+  }
+
+  @Override
+  public void clear() {
+    objLocs.clear();
+    cells.clear();
+  }
+
+  @Override
+  public Point getPosition(T object) {
+    final Point pos = objLocs.get(object);
+    checkArgument(pos != null, "RoadUser does not exist: %s.", object);
+    return pos;
+  }
+
+  @Override
+  public void addAt(T object, Point position) {
+    checkNotNull(position);
+    final long newKey =
+      cellKey(cellIndex(position.x), cellIndex(position.y));
+    final Point oldPos = objLocs.put(object, position);
+    if (oldPos != null) {
+      final long oldKey = cellKey(cellIndex(oldPos.x), cellIndex(oldPos.y));
+      if (oldKey == newKey) {
+        return;
+      }
+      removeFromCell(object, oldKey);
+    }
+    List<T> cell = cells.get(newKey);
+    if (cell == null) {
+      cell = new ArrayList<>();
+      cells.put(newKey, cell);
+    }
+    cell.add(object);
+  }
+
+  @Override
+  public ImmutableMap<T, Point> getObjectsAndPositions() {
+    return ImmutableMap.copyOf(objLocs);
+  }
+
+  @Override
+  public ImmutableSet<T> getObjects() {
+    return ImmutableSet.copyOf(objLocs.keySet());
+  }
+
+  // excludes objects on border of radius
+  @Override
+  public ImmutableSet<T> findObjectsWithinRadius(Point position,
+      double radius) {
+    checkArgument(radius > 0, "radius should be strictly positive, found %s.",
+      radius);
+    final ImmutableSet.Builder<T> builder = ImmutableSet.builder();
+    final int minX = cellIndex(position.x - radius);
+    final int maxX = cellIndex(position.x + radius);
+    final int minY = cellIndex(position.y - radius);
+    final int maxY = cellIndex(position.y + radius);
+    if (isLargeArea(minX, maxX, minY, maxY)) {
+      for (final Entry<T, Point> entry : objLocs.entrySet()) {
+        if (Point.distance(position, entry.getValue()) < radius) {
+          builder.add(entry.getKey());
+        }
+      }
+      return builder.build();
+    }
+    for (int cx = minX; cx <= maxX; cx++) {
+      for (int cy = minY; cy <= maxY; cy++) {
+        final List<T> cell = objectsInCell(cx, cy);
+        if (cell == null) {
+          continue;
+        }
+        for (int i = 0; i < cell.size(); i++) {
+          final T obj = cell.get(i);
+          if (Point.distance(position, objLocs.get(obj)) < radius) {
+            builder.add(obj);
+          }
+        }
+      }
+    }
+    return builder.build();
+  }
+
+  // include objects on border of rect
+  @Override
+  public ImmutableSet<T> findObjectsInRect(Point min, Point max) {
+    checkArgument(min.x < max.x && min.y < max.y,
+      "Invalid rectangle, expected 'min' < 'max', found %s and %s.", min, max);
+    final ImmutableSet.Builder<T> builder = ImmutableSet.builder();
+    final int minX = cellIndex(min.x);
+    final int maxX = cellIndex(max.x);
+    final int minY = cellIndex(min.y);
+    final int maxY = cellIndex(max.y);
+    if (isLargeArea(minX, maxX, minY, maxY)) {
+      for (final Entry<T, Point> entry : objLocs.entrySet()) {
+        if (MapSpatialRegistry.isInRect(min, max, entry.getValue())) {
+          builder.add(entry.getKey());
+        }
+      }
+      return builder.build();
+    }
+    for (int cx = minX; cx <= maxX; cx++) {
+      for (int cy = minY; cy <= maxY; cy++) {
+        final List<T> cell = objectsInCell(cx, cy);
+        if (cell == null) {
+          continue;
+        }
+        for (int i = 0; i < cell.size(); i++) {
+          final T obj = cell.get(i);
+          if (MapSpatialRegistry.isInRect(min, max, objLocs.get(obj))) {
+            builder.add(obj);
+          }
+        }
+      }
+    }
+    return builder.build();
+  }
+
+  // in case multiple objects with the same distance exist, the object that was
+  // added to the registry first is prioritized
+  @Override
+  public ImmutableSet<T> findNearestObjects(Point position, int n) {
+    checkArgument(n > 0, "n should be strictly positive, found %s.", n);
+    if (objLocs.isEmpty()) {
+      return ImmutableSet.of();
+    } else if (objLocs.size() <= n) {
+      return getObjects();
+    }
+    final Queue<ObjDist<T>> queue = new PriorityQueue<>(n);
+    for (final Entry<T, Point> entry : objLocs.entrySet()) {
+      final double dist = Point.distance(position, entry.getValue());
+      if (queue.size() < n) {
+        queue.add(ObjDist.create(entry.getKey(), dist));
+      } else if (queue.peek().dist() > dist) {
+        queue.remove();
+        queue.add(ObjDist.create(entry.getKey(), dist));
+      }
+    }
+    final ImmutableSet.Builder<T> objs = ImmutableSet.builder();
+    for (final ObjDist<T> od : queue) {
+      objs.add(od.obj());
+    }
+    return objs.build();
+  }
+
+  /**
+   * Computes the index of the cell (in one dimension) that contains the
+   * specified coordinate.
+   * @param coordinate The x or y coordinate.
+   * @return The cell index.
+   */
+  int cellIndex(double coordinate) {
+    return (int) Math.floor(coordinate / cellSize);
+  }
+
+  /**
+   * Gives direct access to the contents of a cell, this list should not be
+   * modified.
+   * @param cx The cell index in x direction.
+   * @param cy The cell index in y direction.
+   * @return The objects in the cell or <code>null</code> if the cell is empty.
+   */
+  @Nullable
+  List<T> objectsInCell(int cx, int cy) {
+    return cells.get(cellKey(cx, cy));
+  }
+
+  /**
+   * Looks up the position of an object without checking its existence.
+   * @param object The object.
+   * @return The position or <code>null</code> if the object does not exist.
+   */
+  @Nullable
+  Point positionOf(T object) {
+    return objLocs.get(object);
+  }
+
+  // visiting more cells than there are objects is slower than a linear scan
+  private boolean isLargeArea(int minX, int maxX, int minY, int maxY) {
+    final double numCells =
+      ((double) maxX - minX + 1) * ((double) maxY - minY + 1);
+    return numCells > objLocs.size();
+  }
+
+  private void removeFromCell(T object, long key) {
+    final List<T> cell = cells.get(key);
+    cell.remove(object);
+    if (cell.isEmpty()) {
+      cells.remove(key);
+    }
+  }
+
+  static long cellKey(int cx, int cy) {
+    return (long) cx << INT_BITS | cy & INT_MASK;
+  }
+
+  /**
+   * Creates a new empty grid based registry.
+   * @param cellSize The size of a grid cell, must be strictly positive.
+   * @param <T> The type of element in the registry.
+   * @return A new instance.
+   */
+  public static <T> GridSpatialRegistry<T> create(double cellSize) {
+    checkArgument(cellSize > 0,
+      "cellSize should be strictly positive, found %s.", cellSize);
+    return new GridSpatialRegistry<>(cellSize);
+  }
+}
@@ -18,6 +18,7 @@ package com.github.rinde.rinsim.core.model.road;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.io.Serializable;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -25,19 +26,44 @@ import java.util.Map.Entry;
 import java.util.PriorityQueue;
 import java.util.Queue;
 
+import javax.annotation.Nullable;
+
 import com.github.rinde.rinsim.geom.Point;
 import com.google.auto.value.AutoValue;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 
-public final class MapSpatialRegistry<T> implements SpatialRegistry<T> {
+public final class MapSpatialRegistry<T>
+    implements SpatialRegistry<T>, Serializable {
+  private static final long serialVersionUID = 153550005480057666L;
 
   volatile Map<T, Point> objLocs;
 
+  // all fields below are guarded by objLocs
+  private long version;
+  @Nullable
+  private ImmutableMap<T, Point> positionsView;
+  private long positionsViewVersion;
+  @Nullable
+  private ImmutableSet<T> objectsView;
+  private long objectsViewVersion;
+
   private MapSpatialRegistry() {
     objLocs = Collections.synchronizedMap(new LinkedHashMap<T, Point>());
   }
 
+  /**
+   * The version of this registry is incremented on every modification. Two
+   * calls that return the same version are guaranteed to observe the same
+   * objects and positions.
+   * @return The current version.
+   */
+  public long getVersion() {
+    synchronized (objLocs) {
+      return version;
+    }
+  }
+
   @Override
   public boolean containsObject(T object) {
     return objLocs.containsKey(object);
@@ -45,12 +71,21 @@ public final class MapSpatialRegistry<T> implements SpatialRegistry<T> {
 
   @Override
   public void removeObject(T object) {
-    objLocs.remove(object);
+    synchronized (objLocs) {
+      if (objLocs.remove(object) != null) {
+        version++;
+      }
+    }
   }
 
   @Override
   public void clear() {
-    objLocs.clear();
+    synchronized (objLocs) {
+      if (!objLocs.isEmpty()) {
+        objLocs.clear();
+        version++;
+      }
+    }
   }
 
   @Override
@@ -65,25 +100,35 @@ public final class MapSpatialRegistry<T> implements SpatialRegistry<T> {
   @Override
   public void addAt(T object, Point position) {
     checkNotNull(position);
-    objLocs.put(object, position);
+    synchronized (objLocs) {
+      objLocs.put(object, position);
+      version++;
+    }
   }
 
+  // the immutable views are rebuilt at most once per version
   @Override
   public ImmutableMap<T, Point> getObjectsAndPositions() {
-    final ImmutableMap<T, Point> copy;
     synchronized (objLocs) {
-      copy = ImmutableMap.copyOf(objLocs);
+      if (positionsView == null || positionsViewVersion != version) {
+        positionsView = ImmutableMap.copyOf(objLocs);
+        positionsViewVersion = version;
+      }
+      return positionsView;
     }
-    return copy;
   }
 
   @Override
   public ImmutableSet<T> getObjects() {
-    final ImmutableSet<T> copy;
     synchronized (objLocs) {
-      copy = ImmutableSet.copyOf(objLocs.keySet());
+      if (objectsView == null || objectsViewVersion != version) {
+        objectsView = positionsView != null && positionsViewVersion == version
+          ? positionsView.keySet()
+          : ImmutableSet.copyOf(objLocs.keySet());
+        objectsViewVersion = version;
+      }
+      return objectsView;
     }
-    return copy;
   }
 
   // excludes objects on border of radius
@@ -150,7 +195,7 @@ public final class MapSpatialRegistry<T> implements SpatialRegistry<T> {
     }
   }
 
-  public static <T> SpatialRegistry<T> create() {
+  public static <T> MapSpatialRegistry<T> create() {
     return new MapSpatialRegistry<>();
   }
 
@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) 2011-2018 Rinde R.S. van Lon
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rinde.rinsim.core.model.road;
+
+import static com.google.common.base.Verify.verifyNotNull;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+import javax.measure.quantity.Duration;
+import javax.measure.quantity.Length;
+import javax.measure.unit.Unit;
+
+/**
+ * Collects the distance and time of all moves during a tick in primitive
+ * arrays, each {@link MovingRoadUser} is assigned a slot in these arrays that
+ * is reused in subsequent ticks. A slot is released when its road user is
+ * removed from the road model. If the road user already moved in the current
+ * tick, its slot is only released after the next flush such that these moves
+ * are still dispatched, a road user that is added again before this flush
+ * keeps its slot.
+ * @author Rinde van Lon
+ */
+final class MoveAggregator implements Serializable {
+  private static final long serialVersionUID = 8049366990342108742L;
+  private static final int INITIAL_CAPACITY = 16;
+
+  private final Map<MovingRoadUser, Integer> slots;
+  private MovingRoadUser[] users;
+  private double[] distances;
+  private long[] times;
+  private boolean[] moved;
+  // slots that moved in the current tick, in order of their first move
+  private int[] order;
+  private int numMoved;
+  // removed users whose slot is released in the next flush
+  private boolean[] removed;
+  private boolean[] releasing;
+  private int[] free;
+  private int numFree;
+  private int[] released;
+  private int numReleased;
+  private int numSlots;
+  @Nullable
+  private Unit<Duration> timeUnit;
+
+  MoveAggregator() {
+    slots = new HashMap<>();
+    users = new MovingRoadUser[INITIAL_CAPACITY];
+    distances = new double[INITIAL_CAPACITY];
+    times = new long[INITIAL_CAPACITY];
+    moved = new boolean[INITIAL_CAPACITY];
+    order = new int[INITIAL_CAPACITY];
+    removed = new boolean[INITIAL_CAPACITY];
+    releasing = new boolean[INITIAL_CAPACITY];
+    free = new int[INITIAL_CAPACITY];
+    released = new int[INITIAL_CAPACITY];
+  }
+
+  void record(MovingRoadUser user, MoveProgress mp) {
+    final int slot = slot(user);
+    if (!moved[slot]) {
+      moved[slot] = true;
+      order[numMoved++] = slot;
+    }
+    distances[slot] += mp.distanceValue();
+    times[slot] += mp.timeValue();
+    timeUnit = mp.timeUnit();
+  }
+
+  void remove(MovingRoadUser user) {
+    final Integer slot = slots.get(user);
+    if (slot == null) {
+      return;
+    }
+    if (moved[slot]) {
+      removed[slot] = true;
+      if (!releasing[slot]) {
+        releasing[slot] = true;
+        released[numReleased++] = slot;
+      }
+    } else {
+      slots.remove(user);
+      users[slot] = null;
+      free[numFree++] = slot;
+    }
+  }
+
+  /**
+   * Creates an event containing all moves since the previous flush and
+   * resets the collected moves.
+   * @param rm The road model that dispatches the event.
+   * @param distUnit The distance unit.
+   * @return The event or <code>null</code> if there were no moves.
+   */
+  @Nullable
+  AggregatedMoveEvent flush(RoadModel rm, Unit<Length> distUnit) {
+    if (numMoved == 0) {
+      releaseSlots();
+      return null;
+    }
+    final MovingRoadUser[] us = new MovingRoadUser[numMoved];
+    final double[] ds = new double[numMoved];
+    final long[] ts = new long[numMoved];
+    for (int i = 0; i < numMoved; i++) {
+      final int slot = order[i];
+      us[i] = users[slot];
+      ds[i] = distances[slot];
+      ts[i] = times[slot];
+      distances[slot] = 0d;
+      times[slot] = 0L;
+      moved[slot] = false;
+    }
+    numMoved = 0;
+    releaseSlots();
+    return new AggregatedMoveEvent(rm, us, ds, ts, distUnit,
+      verifyNotNull(timeUnit));
+  }
+
+  private void releaseSlots() {
+    for (int i = 0; i < numReleased; i++) {
+      final int slot = released[i];
+      releasing[slot] = false;
+      if (removed[slot]) {
+        removed[slot] = false;
+        slots.remove(users[slot]);
+        users[slot] = null;
+        free[numFree++] = slot;
+      }
+    }
+    numReleased = 0;
+  }
+
+  void clear() {
+    slots.clear();
+    Arrays.fill(users, null);
+    Arrays.fill(distances, 0d);
+    Arrays.fill(times, 0L);
+    Arrays.fill(moved, false);
+    Arrays.fill(removed, false);
+    Arrays.fill(releasing, false);
+    numMoved = 0;
+    numFree = 0;
+    numReleased = 0;
+    numSlots = 0;
+  }
+
+  private int slot(MovingRoadUser user) {
+    final Integer existing = slots.get(user);
+    if (existing != null) {
+      removed[existing] = false;
+      return existing;
+    }
+    final int slot;
+    if (numFree > 0) {
+      slot = free[--numFree];
+    } else {
+      if (numSlots == users.length) {
+        grow();
+      }
+      slot = numSlots++;
+    }
+    users[slot] = user;
+    slots.put(user, slot);
+    return slot;
+  }
+
+  private void grow() {
+    final int capacity = users.length * 2;
+    users = Arrays.copyOf(users, capacity);
+    distances = Arrays.copyOf(distances, capacity);
+    times = Arrays.copyOf(times, capacity);
+    moved = Arrays.copyOf(moved, capacity);
+    order = Arrays.copyOf(order, capacity);
+    removed = Arrays.copyOf(removed, capacity);
+    releasing = Arrays.copyOf(releasing, capacity);
+    free = Arrays.copyOf(free, capacity);
+    released = Arrays.copyOf(released, capacity);
+  }
+}
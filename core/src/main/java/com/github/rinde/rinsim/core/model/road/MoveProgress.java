@@ -24,6 +24,7 @@ import java.util.List;
 import javax.measure.Measure;
 import javax.measure.quantity.Duration;
 import javax.measure.quantity.Length;
+import javax.measure.unit.Unit;
 
 import com.github.rinde.rinsim.core.model.time.TimeLapse;
 import com.github.rinde.rinsim.geom.Point;
@@ -43,27 +44,61 @@ public abstract class MoveProgress {
   MoveProgress() {}
 
   /**
-   * @return the distance traveled.
+   * @return the distance traveled expressed in {@link #distanceUnit()}.
    */
-  public abstract Measure<Double, Length> distance();
+  public abstract double distanceValue();
 
   /**
-   * @return the time spend on traveling the distance.
+   * @return the unit of {@link #distanceValue()}.
    */
-  public abstract Measure<Long, Duration> time();
+  public abstract Unit<Length> distanceUnit();
+
+  /**
+   * @return the time spend on traveling the distance expressed in
+   *         {@link #timeUnit()}.
+   */
+  public abstract long timeValue();
+
+  /**
+   * @return the unit of {@link #timeValue()}.
+   */
+  public abstract Unit<Duration> timeUnit();
 
   /**
    * @return the nodes that were traveled.
    */
   public abstract ImmutableList<Point> travelledNodes();
 
+  /**
+   * @return the distance traveled, a new {@link Measure} is created on every
+   *         invocation, use {@link #distanceValue()} to avoid this.
+   */
+  public Measure<Double, Length> distance() {
+    return Measure.valueOf(distanceValue(), distanceUnit());
+  }
+
+  /**
+   * @return the time spend on traveling the distance, a new {@link Measure} is
+   *         created on every invocation, use {@link #timeValue()} to avoid
+   *         this.
+   */
+  public Measure<Long, Duration> time() {
+    return Measure.valueOf(timeValue(), timeUnit());
+  }
+
   static MoveProgress create(Measure<Double, Length> dist,
       Measure<Long, Duration> pTime, List<Point> pTravelledNodes) {
-    checkArgument(dist.getValue() >= 0d,
+    return create(dist.getValue(), dist.getUnit(), pTime.getValue(),
+      pTime.getUnit(), pTravelledNodes);
+  }
+
+  static MoveProgress create(double dist, Unit<Length> distUnit, long pTime,
+      Unit<Duration> pTimeUnit, List<Point> pTravelledNodes) {
+    checkArgument(dist >= 0d,
       "Distance must be greater than or equal to 0.");
-    checkArgument(pTime.getValue() >= 0L,
+    checkArgument(pTime >= 0L,
       "Time must be greather than or equal to 0.");
-    return new AutoValue_MoveProgress(dist, pTime,
+    return new AutoValue_MoveProgress(dist, distUnit, pTime, pTimeUnit,
       ImmutableList.copyOf(pTravelledNodes));
   }
 
@@ -131,11 +166,10 @@ public abstract class MoveProgress {
     public MoveProgress build() {
       checkState(!used, "This method may be called only once.");
       used = true;
-      final Measure<Double, Length> distTraveled = unitConversion
-        .toExDistMeasure(travelDistance);
-      final Measure<Long, Duration> timeConsumed = Measure.valueOf(
-        time.getTimeConsumed() - startTimeConsumed, time.getTimeUnit());
-      return create(distTraveled, timeConsumed, traveledNodes);
+      return create(unitConversion.toExDist(travelDistance),
+        unitConversion.getExDistUnit(),
+        time.getTimeConsumed() - startTimeConsumed, time.getTimeUnit(),
+        traveledNodes);
     }
   }
 }
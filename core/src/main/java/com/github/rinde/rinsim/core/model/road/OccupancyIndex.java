@@ -0,0 +1,214 @@
+/*
+ * Copyright (C) 2011-2018 Rinde R.S. van Lon
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rinde.rinsim.core.model.road;
+
+import static com.google.common.base.Verify.verify;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import javax.annotation.Nullable;
+
+import com.github.rinde.rinsim.geom.Connection;
+import com.github.rinde.rinsim.geom.Point;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Occupancy index of the {@link CollisionGraphRoadModelImpl}. It keeps track
+ * of:
+ * <ul>
+ * <li>which node is occupied by which {@link MovingRoadUser} and vice versa, a
+ * {@link MovingRoadUser} can occupy at most two nodes at the same time (both
+ * ends of a connection),</li>
+ * <li>the {@link MovingRoadUser}s on each connection sorted by their relative
+ * position on that connection.</li>
+ * </ul>
+ * All node lookups take constant time, finding the nearest
+ * {@link MovingRoadUser} ahead on a connection takes <i>O(log k)</i> time
+ * where <i>k</i> is the number of {@link MovingRoadUser}s on that connection.
+ * Other {@link RoadUser}s are not indexed, they can only be positioned on a
+ * node and are therefore never an obstacle on a connection.
+ * <p>
+ * All methods are synchronized as {@link #getOccupiedNodes()} may be called
+ * from other threads (e.g. a renderer).
+ * @author Rinde van Lon
+ */
+final class OccupancyIndex {
+  private final Map<Point, MovingRoadUser> nodeOccupants;
+  private final Map<MovingRoadUser, Occupant> occupants;
+  private final Map<Connection<?>,
+      NavigableMap<Double, MovingRoadUser>> connOccupants;
+
+  OccupancyIndex() {
+    nodeOccupants = new LinkedHashMap<>();
+    occupants = new HashMap<>();
+    connOccupants = new HashMap<>();
+  }
+
+  synchronized boolean isOccupied(Point node) {
+    return nodeOccupants.containsKey(node);
+  }
+
+  synchronized boolean isOccupiedBy(Point node, MovingRoadUser user) {
+    return nodeOccupants.get(node) == user;
+  }
+
+  /**
+   * Let the specified user occupy the specified node.
+   * @param user The user.
+   * @param node The node, must not be occupied by another user.
+   */
+  synchronized void occupy(MovingRoadUser user, Point node) {
+    final MovingRoadUser current = nodeOccupants.get(node);
+    if (current == user) {
+      return;
+    }
+    verify(current == null, "Node %s is already occupied by %s.", node,
+      current);
+    final Occupant occ = occupant(user);
+    verify(occ.secondNode == null, "%s already occupies two nodes.", user);
+    if (occ.firstNode == null) {
+      occ.firstNode = node;
+    } else {
+      occ.secondNode = node;
+    }
+    nodeOccupants.put(node, user);
+  }
+
+  /**
+   * Releases all nodes that are occupied by the specified user.
+   * @param user The user.
+   */
+  synchronized void release(MovingRoadUser user) {
+    final Occupant occ = occupants.get(user);
+    if (occ == null) {
+      return;
+    }
+    if (occ.firstNode != null) {
+      nodeOccupants.remove(occ.firstNode);
+      occ.firstNode = null;
+    }
+    if (occ.secondNode != null) {
+      nodeOccupants.remove(occ.secondNode);
+      occ.secondNode = null;
+    }
+  }
+
+  /**
+   * Updates the connection position of the specified user.
+   * @param user The user.
+   * @param conn The connection the user is on or <code>null</code> if the user
+   *          is not on a connection.
+   * @param relPos The relative position on the connection, ignored when
+   *          <code>conn</code> is <code>null</code>.
+   */
+  synchronized void updateConnection(MovingRoadUser user,
+      @Nullable Connection<?> conn, double relPos) {
+    final Occupant occ = occupant(user);
+    removeFromConnection(user, occ);
+    if (conn != null) {
+      NavigableMap<Double, MovingRoadUser> onConn = connOccupants.get(conn);
+      if (onConn == null) {
+        onConn = new TreeMap<>();
+        connOccupants.put(conn, onConn);
+      }
+      final MovingRoadUser prev = onConn.put(relPos, user);
+      verify(prev == null, "%s and %s have the same position on %s.", user,
+        prev, conn);
+      occ.connection = conn;
+      occ.relPos = relPos;
+    }
+  }
+
+  /**
+   * Finds the relative position of the nearest {@link MovingRoadUser} on the
+   * specified connection that is strictly ahead of the specified relative
+   * position.
+   * @param conn The connection.
+   * @param relPos The relative position.
+   * @return The relative position of the nearest user ahead, or
+   *         {@link Double#POSITIVE_INFINITY} if there is none.
+   */
+  synchronized double findNearestAhead(Connection<?> conn, double relPos) {
+    final NavigableMap<Double, MovingRoadUser> onConn = connOccupants.get(conn);
+    if (onConn == null) {
+      return Double.POSITIVE_INFINITY;
+    }
+    final Entry<Double, MovingRoadUser> entry = onConn.higherEntry(relPos);
+    return entry == null ? Double.POSITIVE_INFINITY : entry.getKey();
+  }
+
+  /**
+   * Removes all occupancy information of the specified user.
+   * @param user The user.
+   */
+  synchronized void remove(MovingRoadUser user) {
+    release(user);
+    final Occupant occ = occupants.remove(user);
+    if (occ != null) {
+      removeFromConnection(user, occ);
+    }
+  }
+
+  synchronized ImmutableSet<Point> getOccupiedNodes() {
+    return ImmutableSet.copyOf(nodeOccupants.keySet());
+  }
+
+  synchronized void clear() {
+    nodeOccupants.clear();
+    occupants.clear();
+    connOccupants.clear();
+  }
+
+  private Occupant occupant(MovingRoadUser user) {
+    Occupant occ = occupants.get(user);
+    if (occ == null) {
+      occ = new Occupant();
+      occupants.put(user, occ);
+    }
+    return occ;
+  }
+
+  private void removeFromConnection(MovingRoadUser user, Occupant occ) {
+    if (occ.connection == null) {
+      return;
+    }
+    final NavigableMap<Double, MovingRoadUser> onConn =
+      connOccupants.get(occ.connection);
+    verify(onConn.remove(occ.relPos) == user);
+    if (onConn.isEmpty()) {
+      connOccupants.remove(occ.connection);
+    }
+    occ.connection = null;
+  }
+
+  // mutable per user state, avoids allocations when a user moves
+  static final class Occupant {
+    @Nullable
+    Point firstNode;
+    @Nullable
+    Point secondNode;
+    @Nullable
+    Connection<?> connection;
+    double relPos;
+
+    Occupant() {}
+  }
+}
@@ -134,11 +134,8 @@ public class PlaneRoadModel extends AbstractRoadModel {
       maxSpeed);
     if (speed == 0d) {
       // FIXME add test for this case, also check GraphRoadModel
-      final Measure<Double, Length> dist = Measure.valueOf(0d,
-        getDistanceUnit());
-      final Measure<Long, Duration> dur = Measure.valueOf(0L,
-        time.getTimeUnit());
-      return MoveProgress.create(dist, dur, new ArrayList<Point>());
+      return MoveProgress.create(0d, getDistanceUnit(), 0L, time.getTimeUnit(),
+        new ArrayList<Point>());
     }
 
     final List<Point> travelledNodes = new ArrayList<>();
@@ -185,11 +182,10 @@ public class PlaneRoadModel extends AbstractRoadModel {
     registry().addAt(object, loc);
 
     // convert to external units
-    final Measure<Double, Length> distTraveled = unitConversion
-      .toExDistMeasure(traveled);
-    final Measure<Long, Duration> timeConsumed = Measure.valueOf(
-      time.getTimeConsumed() - startTimeConsumed, time.getTimeUnit());
-    return MoveProgress.create(distTraveled, timeConsumed, travelledNodes);
+    return MoveProgress.create(unitConversion.toExDist(traveled),
+      unitConversion.getExDistUnit(),
+      time.getTimeConsumed() - startTimeConsumed, time.getTimeUnit(),
+      travelledNodes);
   }
 
   /**
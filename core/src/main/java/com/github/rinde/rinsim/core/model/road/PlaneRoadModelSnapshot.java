@@ -15,6 +15,7 @@
  */
 package com.github.rinde.rinsim.core.model.road;
 
+import java.io.Serializable;
 import javax.measure.Measure;
 import javax.measure.quantity.Duration;
 import javax.measure.quantity.Length;
@@ -31,7 +32,8 @@ import com.google.auto.value.AutoValue;
  */
 @AutoValue
 abstract class PlaneRoadModelSnapshot
-    implements RoadModelSnapshot {
+    implements RoadModelSnapshot, Serializable {
+  private static final long serialVersionUID = 1168169611857939666L;
 
   PlaneRoadModelSnapshot() {}
 
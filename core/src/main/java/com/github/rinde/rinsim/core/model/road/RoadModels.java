@@ -25,10 +25,11 @@ import javax.measure.Measure;
 import javax.measure.quantity.Duration;
 import javax.measure.quantity.Length;
 import javax.measure.quantity.Velocity;
-import javax.measure.unit.SI;
 import javax.measure.unit.Unit;
 
+import com.github.rinde.rinsim.geom.GeomHeuristic;
 import com.github.rinde.rinsim.geom.Graphs;
+import com.github.rinde.rinsim.geom.LinearConversion;
 import com.github.rinde.rinsim.geom.Point;
 import com.google.common.base.Function;
 import com.google.common.base.Predicate;
@@ -264,14 +265,75 @@ public final class RoadModels {
    */
   public static double computeTravelTime(Measure<Double, Velocity> speed,
       Measure<Double, Length> distance, Unit<Duration> outputTimeUnit) {
-    // meters
-    return Measure.valueOf(distance.doubleValue(SI.METER)
-      // divided by m/s
-      / speed.doubleValue(SI.METERS_PER_SECOND),
-      // gives seconds
-      SI.SECOND)
-      // convert to desired unit
-      .doubleValue(outputTimeUnit);
+    return computeTravelTime(speed.getValue(), speed.getUnit(),
+      distance.getValue(), distance.getUnit(), outputTimeUnit);
+  }
+
+  /**
+   * Computes the duration which is required to travel the specified distance
+   * with the given velocity, see
+   * {@link #computeTravelTime(Measure, Measure, Unit)}. This variant does not
+   * require the creation of {@link Measure} instances.
+   * @param speed The travel speed.
+   * @param speedUnit The unit of the speed.
+   * @param distance The distance to travel.
+   * @param distanceUnit The unit of the distance.
+   * @param outputTimeUnit The time unit to use for the output.
+   * @return The time it takes to travel the specified distance with the
+   *         specified speed.
+   */
+  public static double computeTravelTime(double speed,
+      Unit<Velocity> speedUnit, double distance, Unit<Length> distanceUnit,
+      Unit<Duration> outputTimeUnit) {
+    // meters divided by m/s gives seconds
+    final double seconds =
+      LinearConversion.toStandard(distanceUnit).convert(distance)
+        / LinearConversion.toStandard(speedUnit).convert(speed);
+    // convert to desired unit
+    return LinearConversion.fromStandard(outputTimeUnit).convert(seconds);
+  }
+
+  /**
+   * Computes the travel times from one point to many points on a static view
+   * of a road model. For snapshots of graph road models the travel times of
+   * the shortest paths in the graph are computed using a single one-to-many
+   * search. For snapshots of plane road models the straight-line travel times
+   * are computed using {@link #computeTravelTime(Measure, Measure, Unit)}, for
+   * any other snapshot
+   * {@link RoadModelSnapshot#getPathTo(Point, Point, Unit, Measure, GeomHeuristic)}
+   * is called for each destination.
+   * @param snapshot The snapshot of the road model.
+   * @param from The starting point.
+   * @param to The destinations.
+   * @param timeUnit The unit of time.
+   * @param speed The maximum speed of the {@link RoadUser} that will travel on
+   *          the paths.
+   * @param heuristic The heuristic to use for finding optimal paths, it is
+   *          ignored for plane road models.
+   * @return The travel times, the value at index <code>i</code> is the travel
+   *         time to <code>to.get(i)</code>.
+   */
+  public static double[] computeTravelTimes(RoadModelSnapshot snapshot,
+      Point from, List<Point> to, Unit<Duration> timeUnit,
+      Measure<Double, Velocity> speed, GeomHeuristic heuristic) {
+    if (snapshot instanceof GraphRoadModelSnapshot) {
+      final GraphRoadModelSnapshot graph = (GraphRoadModelSnapshot) snapshot;
+      return Graphs.shortestPathTravelTimes(graph.getGraph(), from, to,
+        heuristic, graph.getModelDistanceUnit(), speed, timeUnit);
+    }
+    final double[] travelTimes = new double[to.size()];
+    for (int i = 0; i < travelTimes.length; i++) {
+      if (snapshot instanceof PlaneRoadModelSnapshot) {
+        travelTimes[i] = computeTravelTime(speed,
+          Measure.valueOf(Point.distance(from, to.get(i)),
+            ((PlaneRoadModelSnapshot) snapshot).getModel().getDistanceUnit()),
+          timeUnit);
+      } else if (!from.equals(to.get(i))) {
+        travelTimes[i] = snapshot.getPathTo(from, to.get(i), timeUnit, speed,
+          heuristic).getTravelTime();
+      }
+    }
+    return travelTimes;
   }
 
   @SuppressWarnings("null")
@@ -15,23 +15,26 @@
  */
 package com.github.rinde.rinsim.core.model.road;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.io.Serializable;
 
+import javax.annotation.Nullable;
 import javax.measure.Measure;
-import javax.measure.converter.UnitConverter;
 import javax.measure.quantity.Duration;
 import javax.measure.quantity.Length;
 import javax.measure.quantity.Velocity;
 import javax.measure.unit.SI;
 import javax.measure.unit.Unit;
 
+import com.github.rinde.rinsim.geom.LinearConversion;
+
 /**
  * Utility class for managing {@link Unit} conversions for {@link RoadModel}s.
+ * All conversions are resolved to {@link LinearConversion}s when this object is
+ * constructed, converting a value is therefore plain <code>double</code>
+ * arithmetic. {@link Measure}s are only created by {@link #toExDistMeasure}.
  * @author Rinde van Lon
  */
-public final class RoadUnits {
-
+public final class RoadUnits implements Serializable {
   /**
    * The unit that is used to represent time internally.
    */
@@ -46,6 +49,7 @@ public final class RoadUnits {
    * The unit that is used to represent speed internally.
    */
   public static final Unit<Velocity> INTERNAL_SPEED_UNIT = SI.METERS_PER_SECOND;
+  private static final long serialVersionUID = -6001141583328742916L;
 
   /**
    * The unit that is used to represent distance externally.
@@ -61,28 +65,32 @@ public final class RoadUnits {
    * Converter that converts distances in {@link #INTERNAL_DIST_UNIT} to
    * distances in {@link #externalDistanceUnit}.
    */
-  private final UnitConverter toExternalDistConv;
+  private final LinearConversion toExternalDistConv;
 
   /**
    * Converter that converts distances in {@link #externalDistanceUnit} to
    * {@link #INTERNAL_DIST_UNIT}.
    */
-  private final UnitConverter toInternalDistConv;
+  private final LinearConversion toInternalDistConv;
 
   /**
    * Converter that converts speed in {@link #INTERNAL_SPEED_UNIT} to speed in
    * {@link #externalSpeedUnit}.
    */
-  private final UnitConverter toExternalSpeedConv;
+  private final LinearConversion toExternalSpeedConv;
 
   /**
    * Converter that converts speed in {@link #externalSpeedUnit} to speed in
    * {@link #INTERNAL_SPEED_UNIT}.
    */
-  private final UnitConverter toInternalSpeedConv;
+  private final LinearConversion toInternalSpeedConv;
 
-  private final Map<Unit<Duration>, UnitConverter> toInternalTimeCache;
-  private final Map<Unit<Duration>, UnitConverter> toExternalTimeCache;
+  /**
+   * The time conversions of the most recently used time unit, in practice a
+   * model always uses the same time unit.
+   */
+  @Nullable
+  private TimeConversion lastTimeConversion;
 
   /**
    * Create a new instance using the specified external units.
@@ -93,15 +101,14 @@ public final class RoadUnits {
       Unit<Velocity> speedUnit) {
     externalDistanceUnit = distanceUnit;
     externalSpeedUnit = speedUnit;
-    toExternalDistConv = INTERNAL_DIST_UNIT
-      .getConverterTo(externalDistanceUnit);
-    toInternalDistConv = externalDistanceUnit
-      .getConverterTo(INTERNAL_DIST_UNIT);
-    toExternalSpeedConv = INTERNAL_SPEED_UNIT.getConverterTo(externalSpeedUnit);
-    toInternalSpeedConv = externalSpeedUnit.getConverterTo(INTERNAL_SPEED_UNIT);
-
-    toInternalTimeCache = new HashMap<>();
-    toExternalTimeCache = new HashMap<>();
+    toExternalDistConv = LinearConversion.create(
+      INTERNAL_DIST_UNIT.getConverterTo(externalDistanceUnit));
+    toInternalDistConv = LinearConversion.create(
+      externalDistanceUnit.getConverterTo(INTERNAL_DIST_UNIT));
+    toExternalSpeedConv = LinearConversion.create(
+      INTERNAL_SPEED_UNIT.getConverterTo(externalSpeedUnit));
+    toInternalSpeedConv = LinearConversion.create(
+      externalSpeedUnit.getConverterTo(INTERNAL_SPEED_UNIT));
   }
 
   /**
@@ -140,10 +147,7 @@ public final class RoadUnits {
    * @return The converted time.
    */
   public double toInTime(long time, final Unit<Duration> unit) {
-    if (!toInternalTimeCache.containsKey(unit)) {
-      toInternalTimeCache.put(unit, unit.getConverterTo(INTERNAL_TIME_UNIT));
-    }
-    return toInternalTimeCache.get(unit).convert(time);
+    return timeConversion(unit).toInternal.convert(time);
   }
 
   /**
@@ -153,10 +157,7 @@ public final class RoadUnits {
    * @return The converted time.
    */
   public double toExTime(double time, Unit<Duration> unit) {
-    if (!toExternalTimeCache.containsKey(unit)) {
-      toExternalTimeCache.put(unit, INTERNAL_TIME_UNIT.getConverterTo(unit));
-    }
-    return toExternalTimeCache.get(unit).convert(time);
+    return timeConversion(unit).toExternal.convert(time);
   }
 
   /**
@@ -200,4 +201,30 @@ public final class RoadUnits {
   public Unit<Velocity> getExSpeedUnit() {
     return externalSpeedUnit;
   }
+
+  private TimeConversion timeConversion(Unit<Duration> unit) {
+    final TimeConversion last = lastTimeConversion;
+    if (last != null && last.unit.equals(unit)) {
+      return last;
+    }
+    final TimeConversion tc = new TimeConversion(unit);
+    lastTimeConversion = tc;
+    return tc;
+  }
+
+  // immutable, can be safely published by a single reference assignment
+  static final class TimeConversion implements Serializable {
+    private static final long serialVersionUID = -267855008941845050L;
+    final Unit<Duration> unit;
+    final LinearConversion toInternal;
+    final LinearConversion toExternal;
+
+    TimeConversion(Unit<Duration> u) {
+      unit = u;
+      toInternal =
+        LinearConversion.create(unit.getConverterTo(INTERNAL_TIME_UNIT));
+      toExternal =
+        LinearConversion.create(INTERNAL_TIME_UNIT.getConverterTo(unit));
+    }
+  }
 }
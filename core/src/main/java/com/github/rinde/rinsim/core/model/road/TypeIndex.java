@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2011-2018 Rinde R.S. van Lon
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rinde.rinsim.core.model.road;
+
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Index of {@link RoadUser}s by type, used by {@link AbstractRoadModel} to
+ * answer {@link RoadModel#getObjectsOfType(Class)} without scanning all
+ * objects. An entry for a type is created on the first query for that type by
+ * scanning all objects once, after that it is kept up to date incrementally.
+ * Each entry caches an immutable snapshot that is rebuilt at most once after
+ * each modification of that entry.
+ * <p>
+ * All methods are synchronized as the index may be queried from other threads
+ * (e.g. a renderer).
+ * @author Rinde van Lon
+ */
+final class TypeIndex implements Serializable {
+  private static final long serialVersionUID = -2221841567385819960L;
+  private final Map<Class<?>, Entry> entries;
+
+  TypeIndex() {
+    entries = new LinkedHashMap<>();
+  }
+
+  /**
+   * Returns all objects that are an instance of the specified type.
+   * @param type The type.
+   * @param allObjects All objects that are currently in the road model, only
+   *          used when the type is queried for the first time.
+   * @param <Y> The type.
+   * @return An immutable snapshot of all instances of the specified type.
+   */
+  @SuppressWarnings("unchecked")
+  synchronized <Y extends RoadUser> ImmutableSet<Y> get(Class<Y> type,
+      Iterable<RoadUser> allObjects) {
+    Entry entry = entries.get(type);
+    if (entry == null) {
+      entry = new Entry(type);
+      for (final RoadUser ru : allObjects) {
+        entry.add(ru);
+      }
+      entries.put(type, entry);
+    }
+    return (ImmutableSet<Y>) entry.view();
+  }
+
+  synchronized void add(RoadUser obj) {
+    for (final Entry entry : entries.values()) {
+      entry.add(obj);
+    }
+  }
+
+  synchronized void remove(RoadUser obj) {
+    for (final Entry entry : entries.values()) {
+      entry.remove(obj);
+    }
+  }
+
+  synchronized void clear() {
+    entries.clear();
+  }
+
+  static final class Entry implements Serializable {
+    private static final long serialVersionUID = -4078357776694463513L;
+    final Class<?> type;
+    final Set<RoadUser> objects;
+    @Nullable
+    ImmutableSet<RoadUser> view;
+
+    Entry(Class<?> t) {
+      type = t;
+      objects = new LinkedHashSet<>();
+    }
+
+    void add(RoadUser obj) {
+      if (type.isInstance(obj) && objects.add(obj)) {
+        view = null;
+      }
+    }
+
+    void remove(RoadUser obj) {
+      if (objects.remove(obj)) {
+        view = null;
+      }
+    }
+
+    ImmutableSet<RoadUser> view() {
+      if (view == null) {
+        view = ImmutableSet.copyOf(objects);
+      }
+      return view;
+    }
+  }
+}
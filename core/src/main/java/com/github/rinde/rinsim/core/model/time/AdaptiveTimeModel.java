@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2011-2018 Rinde R.S. van Lon
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rinde.rinsim.core.model.time;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Simulated time model of which the length of each tick is determined at the
+ * start of the tick by the registered {@link TickLengthPolicy} instances.
+ * @author Rinde van Lon
+ */
+class AdaptiveTimeModel extends SimulatedTimeModel {
+  final long minTickLength;
+  final long maxTickLength;
+  private final List<TickLengthPolicy> policies;
+
+  AdaptiveTimeModel(AdaptiveBuilder builder) {
+    super(builder);
+    minTickLength = builder.getTickLength();
+    maxTickLength = builder.getMaxTickLength();
+    policies = new CopyOnWriteArrayList<>();
+  }
+
+  @Override
+  public boolean register(TickListener element) {
+    super.register(element);
+    if (element instanceof TickLengthPolicy) {
+      policies.add((TickLengthPolicy) element);
+    }
+    return true;
+  }
+
+  @Override
+  public boolean unregister(TickListener element) {
+    if (element instanceof TickLengthPolicy) {
+      policies.remove(element);
+    }
+    return super.unregister(element);
+  }
+
+  @Override
+  void updateTickLength() {
+    final long time = timeLapse.getStartTime();
+    long length = maxTickLength;
+    for (final TickLengthPolicy p : policies) {
+      length = Math.min(length, p.getMaxTickLength(time));
+    }
+    timeLapse.setTickLength(Math.max(minTickLength, length));
+  }
+}
@@ -51,7 +51,9 @@ public interface Clock {
   long getCurrentTime();
 
   /**
-   * @return The length of a single tick.
+   * @return The length of the current tick. When the clock uses an adaptive
+   *         tick length, this is the minimum tick length as long as the clock
+   *         has not yet started.
    */
   @CheckReturnValue
   long getTickLength();
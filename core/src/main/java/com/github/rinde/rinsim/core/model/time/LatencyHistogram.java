@@ -0,0 +1,239 @@
+/*
+ * Copyright (C) 2011-2018 Rinde R.S. van Lon
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rinde.rinsim.core.model.time;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import javax.annotation.Nullable;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * A histogram of non-negative <code>long</code> values (e.g. durations in
+ * nanoseconds) that uses a fixed amount of memory. Values are stored in
+ * log-linear buckets: every power of two is divided in {@link #SUB_BUCKETS}
+ * equally sized buckets, this bounds the relative error of the reported
+ * percentiles to <code>1/{@link #SUB_BUCKETS}</code>. Values smaller than
+ * {@link #SUB_BUCKETS} are stored exactly. The count, minimum, maximum and
+ * total are always exact.
+ * <p>
+ * <b>This class is not thread-safe.</b>
+ * @author Rinde van Lon
+ */
+public final class LatencyHistogram implements Serializable {
+  /**
+   * The number of buckets per power of two.
+   */
+  public static final int SUB_BUCKETS = 32;
+
+  private static final long serialVersionUID = -4400916468722416049L;
+  private static final int SUB_BITS = 5;
+  private static final int MAX_EXPONENT = 62;
+  private static final int NUM_BUCKETS =
+    (MAX_EXPONENT - SUB_BITS + 2) * SUB_BUCKETS;
+  private static final double HUNDRED = 100d;
+  private static final double P50 = 50d;
+  private static final double P90 = 90d;
+  private static final double P99 = 99d;
+
+  private final long[] counts;
+  private long count;
+  private long total;
+  private long min;
+  private long max;
+
+  LatencyHistogram() {
+    counts = new long[NUM_BUCKETS];
+    min = Long.MAX_VALUE;
+  }
+
+  private LatencyHistogram(LatencyHistogram h) {
+    counts = h.counts.clone();
+    count = h.count;
+    total = h.total;
+    min = h.min;
+    max = h.max;
+  }
+
+  /**
+   * Records the specified value, negative values are recorded as
+   * <code>0</code>.
+   * @param value The value to record.
+   */
+  public void record(long value) {
+    final long v = Math.max(0L, value);
+    counts[bucketIndex(v)]++;
+    count++;
+    total += v;
+    min = Math.min(min, v);
+    max = Math.max(max, v);
+  }
+
+  /**
+   * @return The number of recorded values.
+   */
+  public long getCount() {
+    return count;
+  }
+
+  /**
+   * @return The sum of all recorded values.
+   */
+  public long getTotal() {
+    return total;
+  }
+
+  /**
+   * @return The smallest recorded value or <code>0</code> if the histogram is
+   *         empty.
+   */
+  public long getMin() {
+    return count == 0 ? 0L : min;
+  }
+
+  /**
+   * @return The largest recorded value or <code>0</code> if the histogram is
+   *         empty.
+   */
+  public long getMax() {
+    return max;
+  }
+
+  /**
+   * @return The mean of all recorded values or <code>0</code> if the histogram
+   *         is empty.
+   */
+  public double getMean() {
+    return count == 0 ? 0d : (double) total / count;
+  }
+
+  /**
+   * Computes an upper bound of the value at the specified percentile. The
+   * returned value is the highest value of the bucket that contains the
+   * percentile, bounded by {@link #getMax()}.
+   * @param percentile The percentile, must be in <code>[0,100]</code>.
+   * @return The value at the percentile or <code>0</code> if the histogram is
+   *         empty.
+   */
+  public long getValueAtPercentile(double percentile) {
+    checkArgument(percentile >= 0d && percentile <= HUNDRED,
+      "Percentile must be in [0,100], found %s.", percentile);
+    if (count == 0) {
+      return 0L;
+    }
+    final long rank =
+      Math.max(1L, (long) Math.ceil(percentile / HUNDRED * count));
+    long cumulative = 0;
+    for (int i = 0; i < counts.length; i++) {
+      cumulative += counts[i];
+      if (cumulative >= rank) {
+        return Math.max(getMin(), Math.min(max, highestValueInBucket(i)));
+      }
+    }
+    return max;
+  }
+
+  /**
+   * Removes all recorded values.
+   */
+  public void reset() {
+    Arrays.fill(counts, 0L);
+    count = 0;
+    total = 0;
+    min = Long.MAX_VALUE;
+    max = 0;
+  }
+
+  /**
+   * @return A copy of this histogram.
+   */
+  public LatencyHistogram copy() {
+    return new LatencyHistogram(this);
+  }
+
+  /**
+   * Adds all values of the specified histogram to this histogram.
+   * @param other The histogram to add.
+   */
+  public void add(LatencyHistogram other) {
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] += other.counts[i];
+    }
+    count += other.count;
+    total += other.total;
+    min = Math.min(min, other.min);
+    max = Math.max(max, other.max);
+  }
+
+  @Override
+  public boolean equals(@Nullable Object other) {
+    if (this == other) {
+      return true;
+    }
+    if (!(other instanceof LatencyHistogram)) {
+      return false;
+    }
+    final LatencyHistogram h = (LatencyHistogram) other;
+    return count == h.count && total == h.total && getMin() == h.getMin()
+      && max == h.max && Arrays.equals(counts, h.counts);
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(counts);
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(LatencyHistogram.class.getSimpleName())
+      .add("count", count)
+      .add("mean", getMean())
+      .add("min", getMin())
+      .add("p50", getValueAtPercentile(P50))
+      .add("p90", getValueAtPercentile(P90))
+      .add("p99", getValueAtPercentile(P99))
+      .add("max", max)
+      .toString();
+  }
+
+  /**
+   * @return A new empty histogram.
+   */
+  public static LatencyHistogram create() {
+    return new LatencyHistogram();
+  }
+
+  static int bucketIndex(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    final int exp = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+    final int sub = (int) (value >>> exp - SUB_BITS) & SUB_BUCKETS - 1;
+    return (exp - SUB_BITS + 1) * SUB_BUCKETS + sub;
+  }
+
+  static long highestValueInBucket(int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+    final int shift = index / SUB_BUCKETS - 1;
+    final long lowest = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+    return lowest + (1L << shift) - 1;
+  }
+}
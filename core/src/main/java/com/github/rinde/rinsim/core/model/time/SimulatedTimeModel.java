@@ -21,7 +21,7 @@ package com.github.rinde.rinsim.core.model.time;
  */
 class SimulatedTimeModel extends TimeModel {
 
-  SimulatedTimeModel(Builder builder) {
+  SimulatedTimeModel(AbstractBuilder<?> builder) {
     super(builder);
   }
 
@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2011-2018 Rinde R.S. van Lon
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rinde.rinsim.core.model.time;
+
+/**
+ * Restricts the length of the ticks of a {@link TimeModel} with an adaptive
+ * tick length (see {@link TimeModel.Builder#withAdaptiveTickLength(long)}).
+ * Any {@link TickListener} that is registered in such a time model and that
+ * also implements this interface is consulted at the start of every tick. The
+ * length of the tick is the smallest of all lengths allowed by the policies,
+ * bounded by the minimum and maximum tick length of the time model.
+ * <p>
+ * In a time model with a fixed tick length policies are ignored.
+ * @author Rinde van Lon
+ */
+public interface TickLengthPolicy {
+
+  /**
+   * Should return the maximum length of the tick that starts at the specified
+   * time.
+   * @param time The start time of the tick.
+   * @return The maximum tick length that is allowed by this policy, or
+   *         {@link Long#MAX_VALUE} if this policy has no preference.
+   */
+  long getMaxTickLength(long time);
+}
@@ -0,0 +1,313 @@
+/*
+ * Copyright (C) 2011-2018 Rinde R.S. van Lon
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rinde.rinsim.core.model.time;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.Serializable;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import javax.annotation.Nullable;
+
+import com.github.rinde.rinsim.core.model.DependencyProvider;
+import com.github.rinde.rinsim.core.model.Model.AbstractModelVoid;
+import com.github.rinde.rinsim.core.model.ModelBuilder;
+import com.github.rinde.rinsim.core.model.ModelBuilder.AbstractModelBuilder;
+import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * An opt-in profiler for the {@link TimeModel}. When this model is added to a
+ * simulator, the {@link TimeModel} measures the time spent in
+ * {@link TickListener#tick(TimeLapse)} and
+ * {@link TickListener#afterTick(TimeLapse)} of every {@link TickListener}, the
+ * results are aggregated per listener class in {@link LatencyHistogram}s. In
+ * addition, the wall time of each complete tick is recorded and, if supported
+ * by the JVM, the number of bytes allocated by the ticking thread. Without this
+ * model the {@link TimeModel} is not instrumented at all.
+ * <p>
+ * All durations are in nanoseconds. The results can be obtained via
+ * {@link #getProfile()}, instances can be obtained via {@link #builder()}.
+ * <p>
+ * <b>Model properties</b>
+ * <ul>
+ * <li><i>Associated type:</i> none.</li>
+ * <li><i>Provides:</i> nothing.</li>
+ * <li><i>Dependencies:</i> {@link Clock}, must be provided by a
+ * {@link TimeModel}.</li>
+ * </ul>
+ * @author Rinde van Lon
+ */
+public final class TickProfiler extends AbstractModelVoid {
+  @Nullable
+  private final com.sun.management.ThreadMXBean threadBean;
+  private final Map<Class<?>, ListenerStats> listeners;
+  private final LatencyHistogram tickTime;
+  private long tickAllocatedBytes;
+
+  // start of the current tick and the current listener invocation
+  private long tickStartAlloc;
+  private long startAlloc;
+
+  TickProfiler() {
+    threadBean = allocationBean();
+    listeners = new LinkedHashMap<>();
+    tickTime = new LatencyHistogram();
+  }
+
+  /**
+   * @return <code>true</code> if the number of allocated bytes is measured,
+   *         <code>false</code> otherwise.
+   */
+  public boolean isMeasuringAllocations() {
+    return threadBean != null;
+  }
+
+  /**
+   * @return A snapshot of all measurements up to now.
+   */
+  public synchronized Profile getProfile() {
+    final ImmutableMap.Builder<String, ListenerProfile> builder =
+      ImmutableMap.builder();
+    for (final Entry<Class<?>, ListenerStats> entry : listeners.entrySet()) {
+      final ListenerStats ls = entry.getValue();
+      builder.put(entry.getKey().getName(),
+        ListenerProfile.create(ls.tickTime.copy(), ls.afterTickTime.copy(),
+          ls.allocatedBytes));
+    }
+    return Profile.create(tickTime.copy(), tickAllocatedBytes,
+      builder.build());
+  }
+
+  synchronized long startTick() {
+    tickStartAlloc = allocatedBytes();
+    return System.nanoTime();
+  }
+
+  synchronized void endTick(long startNanos) {
+    tickTime.record(System.nanoTime() - startNanos);
+    tickAllocatedBytes += allocatedBytes() - tickStartAlloc;
+  }
+
+  synchronized long start() {
+    startAlloc = allocatedBytes();
+    return System.nanoTime();
+  }
+
+  synchronized void recordTick(TickListener l, long startNanos) {
+    final long duration = System.nanoTime() - startNanos;
+    final ListenerStats ls = stats(l);
+    ls.tickTime.record(duration);
+    ls.allocatedBytes += allocatedBytes() - startAlloc;
+  }
+
+  synchronized void recordAfterTick(TickListener l, long startNanos) {
+    final long duration = System.nanoTime() - startNanos;
+    final ListenerStats ls = stats(l);
+    ls.afterTickTime.record(duration);
+    ls.allocatedBytes += allocatedBytes() - startAlloc;
+  }
+
+  private ListenerStats stats(TickListener l) {
+    ListenerStats ls = listeners.get(l.getClass());
+    if (ls == null) {
+      ls = new ListenerStats();
+      listeners.put(l.getClass(), ls);
+    }
+    return ls;
+  }
+
+  private long allocatedBytes() {
+    if (threadBean == null) {
+      return 0L;
+    }
+    return threadBean
+      .getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  @Nullable
+  static com.sun.management.ThreadMXBean allocationBean() {
+    final java.lang.management.ThreadMXBean bean =
+      ManagementFactory.getThreadMXBean();
+    if (bean instanceof com.sun.management.ThreadMXBean) {
+      final com.sun.management.ThreadMXBean sunBean =
+        (com.sun.management.ThreadMXBean) bean;
+      if (sunBean.isThreadAllocatedMemorySupported()
+        && sunBean.isThreadAllocatedMemoryEnabled()) {
+        return sunBean;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return A new builder for constructing a {@link TickProfiler}.
+   */
+  public static ModelBuilder<TickProfiler, Void> builder() {
+    return new AutoValue_TickProfiler_Builder();
+  }
+
+  static final class ListenerStats {
+    final LatencyHistogram tickTime;
+    final LatencyHistogram afterTickTime;
+    long allocatedBytes;
+
+    ListenerStats() {
+      tickTime = new LatencyHistogram();
+      afterTickTime = new LatencyHistogram();
+    }
+  }
+
+  /**
+   * The measurements of a single {@link TickListener} class.
+   * @author Rinde van Lon
+   */
+  @AutoValue
+  public abstract static class ListenerProfile implements Serializable {
+    private static final long serialVersionUID = 6413925226781390461L;
+
+    ListenerProfile() {}
+
+    /**
+     * @return The durations of {@link TickListener#tick(TimeLapse)} in
+     *         nanoseconds.
+     */
+    public abstract LatencyHistogram getTickTime();
+
+    /**
+     * @return The durations of {@link TickListener#afterTick(TimeLapse)} in
+     *         nanoseconds.
+     */
+    public abstract LatencyHistogram getAfterTickTime();
+
+    /**
+     * @return The total number of bytes allocated during both
+     *         {@link TickListener#tick(TimeLapse)} and
+     *         {@link TickListener#afterTick(TimeLapse)}, or <code>0</code> if
+     *         allocations are not measured.
+     */
+    public abstract long getAllocatedBytes();
+
+    static ListenerProfile create(LatencyHistogram tick,
+        LatencyHistogram afterTick, long alloc) {
+      return new AutoValue_TickProfiler_ListenerProfile(tick, afterTick,
+        alloc);
+    }
+  }
+
+  /**
+   * Snapshot of all measurements of a {@link TickProfiler}.
+   * @author Rinde van Lon
+   */
+  @AutoValue
+  public abstract static class Profile implements Serializable {
+    static final String NL = System.getProperty("line.separator");
+    static final char SEP = ',';
+    static final String TICK = "tick";
+    static final double P50 = 50d;
+    static final double P90 = 90d;
+    static final double P99 = 99d;
+    private static final long serialVersionUID = -1367283011364938325L;
+
+    Profile() {}
+
+    /**
+     * @return The wall time of complete ticks in nanoseconds.
+     */
+    public abstract LatencyHistogram getTickTime();
+
+    /**
+     * @return The total number of bytes allocated by the ticking thread during
+     *         all ticks, or <code>0</code> if allocations are not measured.
+     */
+    public abstract long getTickAllocatedBytes();
+
+    /**
+     * @return The measurements per {@link TickListener} class, the keys are the
+     *         class names.
+     */
+    public abstract ImmutableMap<String, ListenerProfile> getListeners();
+
+    /**
+     * Creates a CSV representation of this profile. Each line contains the
+     * measurements of one phase (<code>tick</code> or <code>afterTick</code>)
+     * of one listener, the first data line contains the measurements of the
+     * complete ticks.
+     * @return A CSV string including a header.
+     */
+    public String toCsv() {
+      final StringBuilder sb = new StringBuilder();
+      sb.append("listener,phase,count,total_ns,mean_ns,p50_ns,p90_ns,p99_ns,")
+        .append("max_ns,allocated_bytes").append(NL);
+      appendLine(sb, "*", TICK, getTickTime(), getTickAllocatedBytes());
+      for (final Entry<String, ListenerProfile> entry : getListeners()
+        .entrySet()) {
+        appendLine(sb, entry.getKey(), TICK, entry.getValue().getTickTime(),
+          entry.getValue().getAllocatedBytes());
+        appendLine(sb, entry.getKey(), "afterTick",
+          entry.getValue().getAfterTickTime(), -1);
+      }
+      return sb.toString();
+    }
+
+    static void appendLine(StringBuilder sb, String listener, String phase,
+        LatencyHistogram h, long alloc) {
+      sb.append(listener).append(SEP)
+        .append(phase).append(SEP)
+        .append(h.getCount()).append(SEP)
+        .append(h.getTotal()).append(SEP)
+        .append(h.getMean()).append(SEP)
+        .append(h.getValueAtPercentile(P50)).append(SEP)
+        .append(h.getValueAtPercentile(P90)).append(SEP)
+        .append(h.getValueAtPercentile(P99)).append(SEP)
+        .append(h.getMax()).append(SEP);
+      if (alloc >= 0) {
+        sb.append(alloc);
+      }
+      sb.append(NL);
+    }
+
+    static Profile create(LatencyHistogram tickTime, long alloc,
+        ImmutableMap<String, ListenerProfile> listeners) {
+      return new AutoValue_TickProfiler_Profile(tickTime, alloc, listeners);
+    }
+  }
+
+  @AutoValue
+  abstract static class Builder
+      extends AbstractModelBuilder<TickProfiler, Void> {
+    private static final long serialVersionUID = 2868478196498214335L;
+
+    Builder() {
+      setDependencies(Clock.class);
+    }
+
+    @Override
+    public TickProfiler build(DependencyProvider dependencyProvider) {
+      final Clock clock = dependencyProvider.get(Clock.class);
+      checkArgument(clock instanceof TimeModel,
+        "%s requires a Clock that is provided by a %s, found %s.",
+        TickProfiler.class.getSimpleName(), TimeModel.class.getSimpleName(),
+        clock);
+      final TickProfiler profiler = new TickProfiler();
+      ((TimeModel) clock).setProfiler(profiler);
+      return profiler;
+    }
+  }
+}
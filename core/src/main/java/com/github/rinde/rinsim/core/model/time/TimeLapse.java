@@ -17,6 +17,8 @@ package com.github.rinde.rinsim.core.model.time;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
+import java.io.Serializable;
+
 import javax.measure.quantity.Duration;
 import javax.measure.unit.Unit;
 
@@ -30,7 +32,8 @@ import com.github.rinde.rinsim.core.Simulator;
  * kept.
  * @author Rinde van Lon
  */
-public final class TimeLapse {
+public final class TimeLapse implements Serializable {
+  private static final long serialVersionUID = 9172383875982344810L;
 
   private final Unit<Duration> timeUnit;
   private long startTime;
@@ -58,6 +61,14 @@ public final class TimeLapse {
     reset();
   }
 
+  // changes the end time of the current tick, only allowed before the tick
+  // is dispatched
+  void setTickLength(long length) {
+    checkArgument(length > 0, "tick length (%s) must be positive.", length);
+    endTime = startTime + length;
+    reset();
+  }
+
   /**
    * Consumes the specified amount of time, where time must be strictly positive
    * and there must be enough time left as specified by {@link #getTimeLeft()}.
@@ -102,7 +113,8 @@ public final class TimeLapse {
   }
 
   /**
-   * @return The step (or length) of this time lapse.
+   * @return The step (or length) of this time lapse. When the time model uses
+   *         an adaptive tick length this can be different in every tick.
    */
   public long getTickLength() {
     return endTime - startTime;
@@ -24,6 +24,7 @@ import java.util.concurrent.CopyOnWriteArraySet;
 
 import javax.annotation.CheckReturnValue;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.annotation.OverridingMethodsMustInvokeSuper;
 import javax.measure.quantity.Duration;
 import javax.measure.unit.SI;
@@ -47,7 +48,13 @@ import com.google.common.collect.ImmutableSet;
 /**
  * This model is an implementation of a simulation clock. It notifies
  * {@link TickListener}s of time progress. Instances can be obtained via
- * {@link #builder()}.
+ * {@link #builder()}. The time spent by each {@link TickListener} can be
+ * measured by adding a {@link TickProfiler} to the simulator.
+ * <p>
+ * By default all ticks have the same length. A time model created via
+ * {@link Builder#withAdaptiveTickLength(long)} chooses the length of every
+ * tick between a minimum and a maximum, based on the {@link TickLengthPolicy}
+ * instances that are registered as {@link TickListener}.
  * <p>
  * <b>Model properties</b>
  * <ul>
@@ -69,6 +76,8 @@ public abstract class TimeModel extends AbstractModel<TickListener>
   final EventDispatcher eventDispatcher;
   volatile boolean isTicking;
   private volatile Set<TickListener> tickListeners;
+  @Nullable
+  private volatile TickProfiler profiler;
 
   TimeModel(AbstractBuilder<?> builder, Enum<?>... additionalEventTypes) {
     tickListeners = new CopyOnWriteArraySet<>();
@@ -134,22 +143,57 @@ public abstract class TimeModel extends AbstractModel<TickListener>
   }
 
   final void tickImpl() {
+    updateTickLength();
+    final TickProfiler p = profiler;
+    if (p == null) {
+      for (final TickListener t : tickListeners) {
+        timeLapse.reset();
+        t.tick(timeLapse);
+      }
+      // in the after tick the TimeLapse can no longer be consumed
+      timeLapse.consumeAll();
+      for (final TickListener t : tickListeners) {
+        t.afterTick(timeLapse);
+      }
+    } else {
+      profiledTick(p);
+    }
+    // advance time
+    timeLapse.next();
+
+    if (Thread.interrupted() && isTicking()) {
+      LOGGER.info("Simulation interrupted after tick {}, stopping.", timeLapse);
+      stop();
+    }
+  }
+
+  // called before the start of each tick, allows to change the length of the
+  // tick that is about to start
+  void updateTickLength() {}
+
+  // same as the non-profiled tick in tickImpl, kept separate such that the
+  // non-profiled tick is not instrumented at all
+  private void profiledTick(TickProfiler p) {
+    final long tickStart = p.startTick();
     for (final TickListener t : tickListeners) {
       timeLapse.reset();
+      final long start = p.start();
       t.tick(timeLapse);
+      p.recordTick(t, start);
     }
-    // in the after tick the TimeLapse can no longer be consumed
     timeLapse.consumeAll();
     for (final TickListener t : tickListeners) {
+      final long start = p.start();
       t.afterTick(timeLapse);
+      p.recordAfterTick(t, start);
     }
-    // advance time
-    timeLapse.next();
+    p.endTick(tickStart);
+  }
 
-    if (Thread.interrupted() && isTicking()) {
-      LOGGER.info("Simulation interrupted after tick {}, stopping.", timeLapse);
-      stop();
-    }
+  void setProfiler(TickProfiler p) {
+    checkState(profiler == null, "A %s is already installed.",
+      TickProfiler.class.getSimpleName());
+    profiler = p;
   }
 
   /**
@@ -284,6 +328,23 @@ public abstract class TimeModel extends AbstractModel<TickListener>
         ClockMode.REAL_TIME);
     }
 
+    /**
+     * Create a time model of which the tick length can change during the
+     * simulation. The length of each tick is the smallest of the lengths that
+     * are allowed by the registered {@link TickLengthPolicy} instances, but is
+     * at least the tick length of this builder ({@link #getTickLength()}) and
+     * at most the specified maximum. When no policies are registered all ticks
+     * have the maximum length. The resulting time model is not real-time.
+     * @param maxTickLength The maximum tick length, must be greater than or
+     *          equal to {@link #getTickLength()}.
+     * @return A new builder instance.
+     */
+    @CheckReturnValue
+    public AdaptiveBuilder withAdaptiveTickLength(long maxTickLength) {
+      return AdaptiveBuilder.create(getTickLength(), getTimeUnit(),
+        maxTickLength);
+    }
+
     @CheckReturnValue
     @Override
     public TimeModel build(DependencyProvider dependencyProvider) {
@@ -357,4 +418,75 @@ public abstract class TimeModel extends AbstractModel<TickListener>
       return new AutoValue_TimeModel_RealtimeBuilder(length, unit, mode);
     }
   }
+
+  /**
+   * Builder for a simulated time model with an adaptive tick length, see
+   * {@link Builder#withAdaptiveTickLength(long)}. The tick length of this
+   * builder ({@link #getTickLength()}) is the minimum tick length.
+   * @author Rinde van Lon
+   */
+  @AutoValue
+  public abstract static class AdaptiveBuilder
+      extends AbstractBuilder<AdaptiveBuilder> {
+    private static final long serialVersionUID = -1516353423870493493L;
+
+    AdaptiveBuilder() {
+      setProvidingTypes(Clock.class, ClockController.class);
+    }
+
+    /**
+     * @return The maximum tick length.
+     */
+    public abstract long getMaxTickLength();
+
+    /**
+     * Returns a copy of this builder with the specified minimum tick length.
+     * @param tickLength The minimum tick length, must be less than or equal to
+     *          the maximum tick length.
+     * @return A new builder instance.
+     */
+    @Override
+    public AdaptiveBuilder withTickLength(long tickLength) {
+      return create(tickLength, getTimeUnit(), getMaxTickLength());
+    }
+
+    @Override
+    public AdaptiveBuilder withTimeUnit(Unit<Duration> timeUnit) {
+      return create(getTickLength(), timeUnit, getMaxTickLength());
+    }
+
+    /**
+     * Returns a copy of this builder with the specified maximum tick length.
+     * @param maxTickLength The maximum tick length, must be greater than or
+     *          equal to the minimum tick length.
+     * @return A new builder instance.
+     */
+    @CheckReturnValue
+    public AdaptiveBuilder withMaxTickLength(long maxTickLength) {
+      return create(getTickLength(), getTimeUnit(), maxTickLength);
+    }
+
+    @Override
+    public TimeModel build(DependencyProvider dependencyProvider) {
+      return new AdaptiveTimeModel(this);
+    }
+
+    @Override
+    public String toString() {
+      return super.toString() + ".withAdaptiveTickLength("
+        + getMaxTickLength() + ")";
+    }
+
+    static AdaptiveBuilder create(long minTickLength, Unit<Duration> unit,
+        long maxTickLength) {
+      checkArgument(minTickLength > 0,
+        "The tick length must be positive, found %s.", minTickLength);
+      checkArgument(maxTickLength >= minTickLength,
+        "The maximum tick length (%s) must be greater than or equal to the "
+          + "minimum tick length (%s).",
+        maxTickLength, minTickLength);
+      return new AutoValue_TimeModel_AdaptiveBuilder(minTickLength, unit,
+        maxTickLength);
+    }
+  }
 }
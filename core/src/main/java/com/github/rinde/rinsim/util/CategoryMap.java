@@ -18,6 +18,7 @@ package com.github.rinde.rinsim.util;
 import static com.google.common.collect.Maps.newLinkedHashMap;
 import static com.google.common.collect.Sets.newLinkedHashSet;
 
+import java.io.Serializable;
 import java.util.Collection;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -45,7 +46,8 @@ import com.google.common.collect.SetMultimap;
  *
  */
 // TODO better name: MultiBiMap ?
-public class CategoryMap<C, V> implements SetMultimap<C, V> {
+public class CategoryMap<C, V> implements SetMultimap<C, V>, Serializable {
+  private static final long serialVersionUID = 4147874546810971920L;
 
   // TODO use Guava test tools
   // TODO do a benchmark to compare performance with ordinary multimap
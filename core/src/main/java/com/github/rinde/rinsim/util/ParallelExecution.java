@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2011-2018 Rinde R.S. van Lon
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rinde.rinsim.util;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Utility class for applying a function to many inputs in parallel.
+ * @author Rinde van Lon
+ */
+public final class ParallelExecution {
+
+  private ParallelExecution() {}
+
+  /**
+   * Applies the specified function to each of the specified inputs, using a
+   * pool of at most the specified number of threads. The pool is created for
+   * this invocation only and is shut down before this method returns.
+   * @param inputs The inputs.
+   * @param function The function to apply, must be thread-safe.
+   * @param numThreads The maximum number of threads to use, must be positive.
+   * @param failureMessage The message of the exception that is thrown when the
+   *          function fails for one of the inputs.
+   * @param <F> The input type.
+   * @param <T> The result type.
+   * @return The results in the same order as the inputs.
+   * @throws IllegalStateException if the function failed for one of the
+   *           inputs, the cause is the original exception. Also thrown when
+   *           the calling thread is interrupted, in that case the interrupt
+   *           status is restored.
+   */
+  public static <F, T> ImmutableList<T> map(Iterable<? extends F> inputs,
+      final Function<? super F, ? extends T> function, int numThreads,
+      String failureMessage) {
+    checkArgument(numThreads > 0,
+      "The number of threads must be positive, found %s.", numThreads);
+    final ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+    try {
+      final List<Future<T>> futures = new ArrayList<>();
+      for (final F input : inputs) {
+        futures.add(executor.submit(new Callable<T>() {
+          @Override
+          public T call() {
+            return function.apply(input);
+          }
+        }));
+      }
+      final ImmutableList.Builder<T> results = ImmutableList.builder();
+      for (final Future<T> f : futures) {
+        results.add(f.get());
+      }
+      return results.build();
+    } catch (final ExecutionException e) {
+      throw new IllegalStateException(failureMessage, e.getCause());
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright (C) 2011-2018 Rinde R.S. van Lon
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rinde.rinsim.core;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.math3.random.RandomGenerator;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.rinde.rinsim.core.model.rand.RandomProvider;
+import com.github.rinde.rinsim.core.model.rand.RandomUser;
+import com.github.rinde.rinsim.core.model.road.MovingRoadUser;
+import com.github.rinde.rinsim.core.model.road.RoadModel;
+import com.github.rinde.rinsim.core.model.road.RoadModelBuilders;
+import com.github.rinde.rinsim.core.model.time.TickListener;
+import com.github.rinde.rinsim.core.model.time.TimeLapse;
+import com.github.rinde.rinsim.geom.Point;
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Tests for {@link SimulatorCheckpoint}.
+ * @author Rinde van Lon
+ */
+public class SimulatorCheckpointTest {
+  static final int NUM_AGENTS = 10;
+  static final int TICKS = 50;
+
+  Simulator sim;
+
+  /**
+   * Sets up a simulator with randomly moving agents.
+   */
+  @Before
+  public void setUp() {
+    sim = Simulator.builder()
+      .setRandomSeed(1L)
+      .addModel(RoadModelBuilders.plane())
+      .build();
+    for (int i = 0; i < NUM_AGENTS; i++) {
+      sim.register(new RandomWalker());
+    }
+    tick(sim, TICKS);
+  }
+
+  /**
+   * A fork must continue exactly as the original simulator.
+   */
+  @Test
+  public void testForkIsDeterministic() {
+    final SimulatorCheckpoint cp = sim.checkpoint();
+    assertThat(cp.getTime()).isEqualTo(sim.getCurrentTime());
+
+    final Simulator fork1 = cp.fork();
+    final Simulator fork2 = cp.fork();
+    assertThat(fork1).isNotSameAs(sim);
+    assertThat(fork1.getCurrentTime()).isEqualTo(sim.getCurrentTime());
+    assertThat(positions(fork1)).isEqualTo(positions(sim));
+
+    tick(sim, TICKS);
+    tick(fork1, TICKS);
+    assertThat(positions(fork1)).isEqualTo(positions(sim));
+    assertThat(fork1.getCurrentTime()).isEqualTo(sim.getCurrentTime());
+
+    // fork2 is not affected by the other simulators
+    assertThat(fork2.getCurrentTime()).isEqualTo(cp.getTime());
+    assertThat(fork2.getRandomGenerator().nextLong())
+      .isEqualTo(cp.fork().getRandomGenerator().nextLong());
+  }
+
+  /**
+   * Objects registered in a fork are not visible in other forks.
+   */
+  @Test
+  public void testForksAreIndependent() {
+    final SimulatorCheckpoint cp = sim.checkpoint();
+    final Simulator fork1 = cp.fork();
+    final Simulator fork2 = cp.fork();
+    fork1.register(new RandomWalker());
+    tick(fork1, 1);
+    assertThat(roadModel(fork1).getObjects()).hasSize(NUM_AGENTS + 1);
+    assertThat(roadModel(fork2).getObjects()).hasSize(NUM_AGENTS);
+    assertThat(roadModel(sim).getObjects()).hasSize(NUM_AGENTS);
+
+    // registered objects are copies
+    for (final MovingRoadUser u : roadModel(fork2)
+      .getObjectsOfType(MovingRoadUser.class)) {
+      assertThat(roadModel(sim).containsObject(u)).isFalse();
+    }
+  }
+
+  /**
+   * Tests running continuations in parallel.
+   */
+  @Test
+  public void testRunForks() {
+    final SimulatorCheckpoint cp = sim.checkpoint();
+    final List<Function<Simulator, Map<Integer, Point>>> continuations =
+      new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      continuations.add(new Function<Simulator, Map<Integer, Point>>() {
+        @Override
+        public Map<Integer, Point> apply(Simulator input) {
+          tick(input, TICKS);
+          return positions(input);
+        }
+      });
+    }
+    final ImmutableList<Map<Integer, Point>> results =
+      cp.runForks(continuations, 2);
+    tick(sim, TICKS);
+    assertThat(results).hasSize(4);
+    for (final Map<Integer, Point> result : results) {
+      assertThat(result).isEqualTo(positions(sim));
+    }
+  }
+
+  /**
+   * The complete state of JDK objects is copied, e.g. the access order of a
+   * {@link LinkedHashMap}, thread locals are shared.
+   */
+  @Test
+  public void testAccessOrderedMap() {
+    final Cache cache = new Cache();
+    sim.register(cache);
+    for (int i = 0; i < 4; i++) {
+      cache.map.put(i, i);
+    }
+    cache.map.get(0);
+    assertThat(cache.map.keySet()).containsExactly(1, 2, 3, 0).inOrder();
+
+    final Simulator fork = sim.checkpoint().fork();
+    final Cache copy = fork.getModelProvider().getModel(RoadModel.class)
+      .getObjectsOfType(Cache.class).iterator().next();
+    assertThat(copy).isNotSameAs(cache);
+    assertThat(copy.map).isNotSameAs(cache.map);
+    assertThat(copy.map.keySet()).containsExactly(1, 2, 3, 0).inOrder();
+    copy.map.get(1);
+    assertThat(copy.map.keySet()).containsExactly(2, 3, 0, 1).inOrder();
+    assertThat(cache.map.keySet()).containsExactly(1, 2, 3, 0).inOrder();
+    assertThat(copy.local).isSameAs(cache.local);
+  }
+
+  static void tick(Simulator s, int ticks) {
+    for (int i = 0; i < ticks; i++) {
+      s.tick();
+    }
+  }
+
+  static RoadModel roadModel(Simulator s) {
+    return s.getModelProvider().getModel(RoadModel.class);
+  }
+
+  static Map<Integer, Point> positions(Simulator s) {
+    final Map<Integer, Point> map = new HashMap<>();
+    final RoadModel rm = roadModel(s);
+    for (final RandomWalker w : rm.getObjectsOfType(RandomWalker.class)) {
+      map.put(w.id, rm.getPosition(w));
+    }
+    return map;
+  }
+
+  static class Cache implements MovingRoadUser, Serializable {
+    private static final long serialVersionUID = 6123702245418235171L;
+    final Map<Integer, Integer> map;
+    final ThreadLocal<Integer> local;
+
+    Cache() {
+      map = new LinkedHashMap<>(NUM_AGENTS, .75f, true);
+      local = new ThreadLocal<>();
+    }
+
+    @Override
+    public void initRoadUser(RoadModel model) {
+      model.addObjectAt(this, new Point(0, 0));
+    }
+
+    @Override
+    public double getSpeed() {
+      return 1d;
+    }
+  }
+
+  static class RandomWalker
+      implements MovingRoadUser, TickListener, RandomUser, Serializable {
+    private static final long serialVersionUID = -2380113620306932452L;
+    static int counter;
+    final int id;
+    RoadModel roadModel;
+    RandomGenerator rng;
+    Point destination;
+
+    RandomWalker() {
+      id = counter++;
+    }
+
+    @Override
+    public void initRoadUser(RoadModel model) {
+      roadModel = model;
+      model.addObjectAt(this, new Point(id % NUM_AGENTS, 0));
+    }
+
+    @Override
+    public void setRandomGenerator(RandomProvider provider) {
+      rng = provider.sharedInstance(RandomWalker.class);
+    }
+
+    @Override
+    public double getSpeed() {
+      return 1d;
+    }
+
+    @Override
+    public void tick(TimeLapse timeLapse) {
+      if (destination == null
+        || roadModel.getPosition(this).equals(destination)) {
+        destination = roadModel.getRandomPosition(rng);
+      }
+      roadModel.moveTo(this, destination, timeLapse);
+    }
+
+    @Override
+    public void afterTick(TimeLapse timeLapse) {}
+  }
+}
@@ -17,9 +17,10 @@ package com.github.rinde.rinsim.core;
 
 import java.util.List;
 
+import javax.annotation.Nullable;
+
 import com.github.rinde.rinsim.core.model.Model;
 import com.github.rinde.rinsim.core.model.ModelProvider;
-import com.google.common.base.Optional;
 
 /**
  * @author Rinde van Lon
@@ -35,18 +36,23 @@ public class TestModelProvider implements ModelProvider {
 
   @SuppressWarnings("unchecked")
   @Override
+  @Nullable
   public <T extends Model<?>> T tryGetModel(Class<T> clazz) {
     for (final Model<?> model : models) {
       if (clazz.isInstance(model)) {
         return (T) model;
       }
     }
-    throw new IllegalArgumentException("There is no model of type: "
-      + clazz);
+    return null;
   }
 
   @Override
   public <T extends Model<?>> T getModel(Class<T> clazz) {
-    return Optional.fromNullable(tryGetModel(clazz)).get();
+    final T model = tryGetModel(clazz);
+    if (model == null) {
+      throw new IllegalArgumentException("There is no model of type: "
+        + clazz);
+    }
+    return model;
   }
 }
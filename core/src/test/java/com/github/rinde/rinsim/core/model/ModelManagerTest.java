@@ -382,6 +382,55 @@ public class ModelManagerTest {
 
   }
 
+  /**
+   * Tests batch registration and the per class cache of receiving models.
+   */
+  @Test
+  public void registerAllTest() {
+    final ModelA mA = new ModelA();
+    final ModelB mB = new ModelB();
+    final SpecialModelB mSB = new SpecialModelB();
+    final ModelManager mm = new ModelManager(ImmutableSet.<Model<?>>of(
+      mA, mB, mSB));
+
+    assertThat(mm.getReceivers(SpecialB.class)).containsExactly(mB, mSB)
+      .inOrder();
+    assertThat(mm.getReceivers(SpecialB.class))
+      .isSameAs(mm.getReceivers(SpecialB.class));
+    assertThat(mm.getReceivers(ObjectC.class)).isEmpty();
+
+    final ObjectA a1 = new ObjectA();
+    final ObjectA a2 = new ObjectA();
+    final ObjectB b1 = new ObjectB();
+    final SpecialB s1 = new SpecialB();
+    mm.registerAll(asList(a1, b1, a2, s1));
+    assertEquals(asList(a1, a2), mA.getRegisteredElements());
+    assertEquals(asList(b1, s1), mB.getRegisteredElements());
+    assertEquals(asList(s1), mSB.getRegisteredElements());
+
+    mm.unregisterAll(asList(s1, a1));
+    assertEquals(asList(a1), mA.getUnregisteredElements());
+    assertEquals(asList(s1), mB.getUnregisteredElements());
+    assertEquals(asList(s1), mSB.getUnregisteredElements());
+
+    boolean fail = false;
+    try {
+      mm.registerAll(asList(a1, new ObjectC()));
+    } catch (final IllegalArgumentException e) {
+      fail = true;
+    }
+    assertTrue(fail);
+    assertEquals(asList(a1, a2, a1), mA.getRegisteredElements());
+
+    fail = false;
+    try {
+      mm.registerAll(asList(b1, mA));
+    } catch (final IllegalArgumentException e) {
+      fail = true;
+    }
+    assertTrue(fail);
+  }
+
   /**
    * Test for anonymous model.
    */
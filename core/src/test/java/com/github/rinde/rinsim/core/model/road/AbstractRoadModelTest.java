@@ -268,6 +268,44 @@ public abstract class AbstractRoadModelTest<T extends GenericRoadModel> {
     assertEquals(3, posCopy.size());
   }
 
+  /**
+   * Tests that the type index includes subtypes and is kept up to date.
+   */
+  @Test
+  public void testGetObjectsOfTypeIndex() {
+    final TestRoadUser agent1 = new TestRoadUser();
+    final TestRoadUser2 agent2 = new TestRoadUser2();
+    final NonMovingRoadUser agent3 = new NonMovingRoadUser();
+    model.addObjectAt(agent1, SW);
+    model.addObjectAt(agent2, SE);
+
+    final Set<TrivialRoadUser> trivial =
+      model.getObjectsOfType(TrivialRoadUser.class);
+    assertThat(trivial).containsExactly(agent1, agent2).inOrder();
+    assertThat(model.getObjectsOfType(MovingRoadUser.class))
+      .containsExactly(agent1, agent2).inOrder();
+    assertThat(model.getObjectsOfType(TrivialRoadUser.class))
+      .isSameAs(trivial);
+
+    model.addObjectAt(agent3, NE);
+    assertThat(model.getObjectsOfType(TrivialRoadUser.class))
+      .isSameAs(trivial);
+    assertThat(model.getObjectsOfType(RoadUser.class))
+      .containsExactly(agent1, agent2, agent3).inOrder();
+
+    model.addObjectAtSamePosition(new TestRoadUser2(), agent1);
+    model.removeObject(agent1);
+    assertThat(trivial).hasSize(2);
+    assertThat(model.getObjectsOfType(TrivialRoadUser.class)).hasSize(2);
+    assertThat(model.getObjectsOfType(TestRoadUser.class)).isEmpty();
+
+    model.clear();
+    assertThat(model.getObjectsOfType(TrivialRoadUser.class)).isEmpty();
+    model.addObjectAt(agent1, SW);
+    assertThat(model.getObjectsOfType(TestRoadUser.class))
+      .containsExactly(agent1);
+  }
+
   @Test
   public void getObjectsAt() {
     final NonMovingRoadUser agent1 = new NonMovingRoadUser();
@@ -438,6 +476,101 @@ public abstract class AbstractRoadModelTest<T extends GenericRoadModel> {
     assertEquals(model, list.getHistory().get(0).getIssuer());
   }
 
+  /**
+   * Tests that all moves of a tick are dispatched as a single
+   * {@link AggregatedMoveEvent}.
+   */
+  @Test
+  public void aggregatedMoveEvent() {
+    final MovingRoadUser user1 = new TestRoadUser();
+    final MovingRoadUser user2 = new TestRoadUser();
+    model.addObjectAt(user1, SW);
+    model.addObjectAt(user2, NE);
+
+    final ListenerEventHistory list = new ListenerEventHistory();
+    model.getEventAPI().addListener(list, RoadEventType.AGGREGATED_MOVE);
+    final TimeLapse tl = TimeLapseFactory.create(0, 10);
+    final MoveProgress mp1 = model.moveTo(user1, SE, tl);
+    final MoveProgress mp2 = model.moveTo(user2, NW, tl);
+    final MoveProgress mp3 = model.moveTo(user1, SE, tl);
+    assertTrue(list.getHistory().isEmpty());
+
+    dispatchAggregatedMoves();
+    assertEquals(1, list.getHistory().size());
+    final AggregatedMoveEvent event =
+      (AggregatedMoveEvent) list.getHistory().get(0);
+    assertSame(model, event.roadModel);
+    assertEquals(2, event.size());
+    assertSame(user1, event.getRoadUser(0));
+    assertSame(user2, event.getRoadUser(1));
+    assertEquals(mp1.distanceValue() + mp3.distanceValue(),
+      event.getDistance(0), EPSILON);
+    assertEquals(mp2.distanceValue(), event.getDistance(1), EPSILON);
+    assertEquals(mp1.timeValue() + mp3.timeValue(), event.getTime(0));
+
+    // no moves, no event
+    dispatchAggregatedMoves();
+    assertEquals(1, list.getHistory().size());
+  }
+
+  /**
+   * A road user that is removed and added again within a tick has a single
+   * entry in the {@link AggregatedMoveEvent} containing all its moves.
+   */
+  @Test
+  public void aggregatedMoveEventRemoveAdd() {
+    final MovingRoadUser user1 = new TestRoadUser();
+    final MovingRoadUser user2 = new TestRoadUser();
+    model.addObjectAt(user1, SW);
+    model.addObjectAt(user2, NE);
+
+    final ListenerEventHistory list = new ListenerEventHistory();
+    model.getEventAPI().addListener(list, RoadEventType.AGGREGATED_MOVE);
+    final TimeLapse tl = TimeLapseFactory.create(0, 10);
+    final MoveProgress mp1 = model.moveTo(user1, SE, tl);
+    model.removeObject(user1);
+    model.addObjectAt(user1, SW);
+    final MoveProgress mp2 = model.moveTo(user2, NW, tl);
+    final MoveProgress mp3 = model.moveTo(user1, SE, tl);
+    model.removeObject(user1);
+    model.addObjectAt(user1, SW);
+
+    dispatchAggregatedMoves();
+    final AggregatedMoveEvent event1 =
+      (AggregatedMoveEvent) list.getHistory().get(0);
+    assertEquals(2, event1.size());
+    assertSame(user1, event1.getRoadUser(0));
+    assertSame(user2, event1.getRoadUser(1));
+    assertEquals(mp1.distanceValue() + mp3.distanceValue(),
+      event1.getDistance(0), EPSILON);
+    assertEquals(mp2.distanceValue(), event1.getDistance(1), EPSILON);
+
+    // the slot of a removed road user is reused by another road user
+    model.removeObject(user1);
+    final MovingRoadUser user3 = new TestRoadUser();
+    model.addObjectAt(user3, SW);
+    final TimeLapse tl2 = TimeLapseFactory.create(10, 20);
+    final MoveProgress mp4 = model.moveTo(user3, SE, tl2);
+    final MoveProgress mp5 = model.moveTo(user2, NE, tl2);
+    dispatchAggregatedMoves();
+    assertEquals(2, list.getHistory().size());
+    final AggregatedMoveEvent event2 =
+      (AggregatedMoveEvent) list.getHistory().get(1);
+    assertEquals(2, event2.size());
+    assertSame(user3, event2.getRoadUser(0));
+    assertSame(user2, event2.getRoadUser(1));
+    assertEquals(mp4.distanceValue(), event2.getDistance(0), EPSILON);
+    assertEquals(mp5.distanceValue(), event2.getDistance(1), EPSILON);
+  }
+
+  void dispatchAggregatedMoves() {
+    GenericRoadModel rm = model;
+    while (rm instanceof ForwardingRoadModel) {
+      rm = ((ForwardingRoadModel<?>) rm).delegate();
+    }
+    ((AbstractRoadModel) rm).dispatchAggregatedMoves();
+  }
+
   /**
    * Tests whether the iteration order in the model is according to insertion
    * ordering.
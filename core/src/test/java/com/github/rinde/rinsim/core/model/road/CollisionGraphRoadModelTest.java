@@ -102,6 +102,27 @@ public class CollisionGraphRoadModelTest {
     assertThat(model.getPosition(agv1)).isEqualTo(model.getPosition(p));
   }
 
+  /**
+   * Only {@link MovingRoadUser}s can be on a connection, other objects can not
+   * be added at the position of a vehicle that is on a connection.
+   */
+  @Test
+  public void testAddObjectOnConnection() {
+    final MovingRoadUser agv1 = new TestRoadUser();
+    model.addObjectAt(agv1, NW);
+    model.moveTo(agv1, SW, meter(5));
+    assertThat(model.getConnection(agv1).isPresent()).isTrue();
+
+    boolean fail = false;
+    try {
+      model.addObjectAtSamePosition(Parcel.builder(NW, SW).build(), agv1);
+    } catch (final IllegalArgumentException e) {
+      assertThat(e.getMessage()).contains("crossroad");
+      fail = true;
+    }
+    assertTrue(fail);
+  }
+
   /**
    * Adding an object to an occupied node is not allowed, but when the node is
    * free it is allowed.
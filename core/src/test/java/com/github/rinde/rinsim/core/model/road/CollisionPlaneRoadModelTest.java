@@ -72,6 +72,29 @@ public class CollisionPlaneRoadModelTest {
         .build());
   }
 
+  /**
+   * An object at max speed (1 m/s) may travel at most half its radius (.25 m)
+   * in a tick, the tick length of an adaptive time model is limited to 250 ms.
+   */
+  @Test
+  public void adaptiveTickLength() {
+    assertThat(model.getMaxTickLength(0L)).isEqualTo(250L);
+
+    final Simulator sim = Simulator.builder()
+      .addModel(TimeModel.builder()
+        .withTickLength(100L)
+        .withAdaptiveTickLength(10000L))
+      .addModel(RoadModelBuilders.plane()
+        .withCollisionAvoidance()
+        .withDistanceUnit(SI.METER)
+        .withSpeedUnit(SI.METERS_PER_SECOND)
+        .withMaxSpeed(1)
+        .withObjectRadius(.5d))
+      .build();
+    sim.tick();
+    assertThat(sim.getCurrentTime()).isEqualTo(250L);
+  }
+
   @Test
   public void addObjectAtOccupiedPosition() {
     boolean fail = false;
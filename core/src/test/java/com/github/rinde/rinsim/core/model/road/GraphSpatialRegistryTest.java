@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2011-2018 Rinde R.S. van Lon
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rinde.rinsim.core.model.road;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.rinde.rinsim.geom.Connection;
+import com.github.rinde.rinsim.geom.Point;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Tests the graph specific features of {@link GraphSpatialRegistry}.
+ * @author Rinde van Lon
+ */
+public class GraphSpatialRegistryTest {
+  static final Point A = new Point(0, 0);
+  static final Point B = new Point(10, 0);
+  static final Connection<?> AB = Connection.create(A, B);
+
+  GraphSpatialRegistry<String> reg;
+
+  /**
+   * Set up.
+   */
+  @Before
+  public void setUp() {
+    reg = GraphSpatialRegistry.create();
+  }
+
+  /**
+   * Tests moving objects over a connection.
+   */
+  @Test
+  public void testConnection() {
+    reg.addAt("x", A);
+    assertThat(reg.isOnConnection("x")).isFalse();
+    assertThat(reg.hasObjectOn(A)).isTrue();
+
+    final Point p = reg.addAt("x", AB, 4d, 0d);
+    assertThat(p).isEqualTo(new Point(4, 0));
+    assertThat(reg.getPosition("x")).isEqualTo(p);
+    assertThat(reg.hasObjectOn(A)).isFalse();
+    assertThat(reg.isOnConnection("x")).isTrue();
+    assertThat(reg.isOnConnection(p)).isTrue();
+    assertThat(reg.getConnection("x")).isEqualTo(AB);
+    assertThat(reg.getConnection(p)).isEqualTo(AB);
+    assertThat(reg.getRelativePosition("x")).isEqualTo(4d);
+    assertThat(reg.getRelativePosition(p)).isEqualTo(4d);
+    assertThat(reg.getObjectsOn(AB)).containsExactly("x");
+
+    // adding an object at a position on a connection puts it on that
+    // connection
+    reg.addAt("y", p);
+    assertThat(reg.getConnection("y")).isEqualTo(AB);
+    assertThat(reg.getRelativePosition("y")).isEqualTo(4d);
+    assertThat(reg.getObjectsOn(p)).containsExactly("x", "y").inOrder();
+    assertThat(reg.getObjectsOn(AB)).containsExactly("x", "y").inOrder();
+
+    reg.addAt("x", AB, 6d, 0d);
+    assertThat(reg.getObjectsOn(p)).containsExactly("y");
+    assertThat(reg.getObjectsOn(AB)).containsExactly("x", "y");
+
+    // within precision of the end of the connection
+    assertThat(reg.addAt("x", AB, 9.99, .01)).isEqualTo(B);
+    assertThat(reg.isOnConnection("x")).isFalse();
+    assertThat(reg.getOptionalConnection("x").isPresent()).isFalse();
+    assertThat(reg.getObjectsOn(AB)).containsExactly("y");
+
+    reg.removeObject("y");
+    assertThat(reg.hasObjectOn(AB)).isFalse();
+    assertThat(reg.hasObjectOn(p)).isFalse();
+    assertThat(reg.getObjectsOn(AB)).isEmpty();
+  }
+
+  /**
+   * A moved object is placed last, as if it was removed and added again.
+   */
+  @Test
+  public void testOrder() {
+    reg.addAt("x", AB, 2d, 0d);
+    reg.addAt("y", AB, 3d, 0d);
+    reg.addAt("z", A);
+    assertThat(reg.getObjects()).containsExactly("x", "y", "z").inOrder();
+
+    reg.addAt("x", AB, 4d, 0d);
+    assertThat(reg.getObjects()).containsExactly("y", "z", "x").inOrder();
+    assertThat(reg.getObjectsAndPositions().keySet())
+      .containsExactly("y", "z", "x").inOrder();
+    assertThat(reg.getObjectsOn(AB)).containsExactly("y", "x").inOrder();
+
+    reg.addAt("y", new Point(4, 0));
+    assertThat(reg.getObjects()).containsExactly("z", "x", "y").inOrder();
+    assertThat(reg.getObjectsOn(new Point(4, 0)))
+      .containsExactly("x", "y").inOrder();
+    assertThat(reg.getObjectsOn(AB)).containsExactly("x", "y").inOrder();
+  }
+
+  /**
+   * The deprecated delegate registry is kept in sync.
+   */
+  @SuppressWarnings("deprecation")
+  @Test
+  public void testDelegate() {
+    final SpatialRegistry<String> delegate = MapSpatialRegistry.create();
+    reg = GraphSpatialRegistry.create(delegate);
+    reg.addAt("x", AB, 2d, 0d);
+    reg.addAt("y", B);
+    reg.addAt("x", AB, 4d, 0d);
+    assertThat(delegate.getObjectsAndPositions()).containsExactly(
+      "y", B, "x", new Point(4, 0)).inOrder();
+    assertThat(reg.getConnection("x")).isEqualTo(AB);
+
+    reg.removeObject("y");
+    assertThat(delegate.getObjects()).containsExactly("x");
+    reg.clear();
+    assertThat(delegate.getObjects()).isEmpty();
+
+    delegate.addAt("z", A);
+    boolean fail = false;
+    try {
+      GraphSpatialRegistry.create(delegate);
+    } catch (final IllegalArgumentException e) {
+      fail = true;
+    }
+    assertThat(fail).isTrue();
+  }
+
+  /**
+   * Tests that views are reused until the registry is modified and that ids
+   * are reused.
+   */
+  @Test
+  public void testViews() {
+    for (int i = 0; i < 100; i++) {
+      reg.addAt(Integer.toString(i), new Point(i, 0));
+    }
+    final ImmutableMap<String, Point> view = reg.getObjectsAndPositions();
+    assertThat(view).hasSize(100);
+    assertThat(reg.getObjectsAndPositions()).isSameAs(view);
+    assertThat(reg.getObjects()).isSameAs(reg.getObjects());
+
+    for (int i = 0; i < 50; i++) {
+      reg.removeObject(Integer.toString(i));
+    }
+    assertThat(reg.getObjectsAndPositions()).isNotSameAs(view);
+    assertThat(reg.getObjects()).hasSize(50);
+    for (int i = 0; i < 50; i++) {
+      reg.addAt("n" + i, new Point(i, 1));
+    }
+    assertThat(reg.getObjects()).hasSize(100);
+    assertThat(reg.getPosition("n3")).isEqualTo(new Point(3, 1));
+    assertThat(reg.getPosition("73")).isEqualTo(new Point(73, 0));
+    assertThat(reg.findObjectsInRect(new Point(0, .5), new Point(10, 1.5)))
+      .hasSize(11);
+
+    reg.clear();
+    assertThat(reg.getObjects()).isEmpty();
+    assertThat(reg.containsObject("73")).isFalse();
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2011-2018 Rinde R.S. van Lon
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rinde.rinsim.core.model.road;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.rinde.rinsim.geom.Point;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Tests the versioning of {@link MapSpatialRegistry}.
+ * @author Rinde van Lon
+ */
+public class MapSpatialRegistryTest {
+  MapSpatialRegistry<String> reg;
+
+  /**
+   * Set up.
+   */
+  @Before
+  public void setUp() {
+    reg = MapSpatialRegistry.create();
+  }
+
+  /**
+   * Tests that views are reused as long as the version does not change.
+   */
+  @Test
+  public void testVersionedViews() {
+    final long v0 = reg.getVersion();
+    reg.addAt("a", new Point(0, 0));
+    reg.addAt("b", new Point(1, 0));
+    final long v1 = reg.getVersion();
+    assertThat(v1).isGreaterThan(v0);
+
+    final ImmutableMap<String, Point> positions = reg.getObjectsAndPositions();
+    final ImmutableSet<String> objects = reg.getObjects();
+    assertThat(reg.getObjectsAndPositions()).isSameAs(positions);
+    assertThat(reg.getObjects()).isSameAs(objects);
+    assertThat(objects).containsExactly("a", "b").inOrder();
+
+    // a no-op does not change the version
+    reg.removeObject("c");
+    assertThat(reg.getVersion()).isEqualTo(v1);
+    assertThat(reg.getObjects()).isSameAs(objects);
+
+    // moving an object changes the positions
+    reg.addAt("a", new Point(2, 2));
+    assertThat(reg.getVersion()).isGreaterThan(v1);
+    assertThat(reg.getObjectsAndPositions()).isNotSameAs(positions);
+    assertThat(reg.getObjectsAndPositions().get("a"))
+      .isEqualTo(new Point(2, 2));
+    assertThat(positions.get("a")).isEqualTo(new Point(0, 0));
+
+    reg.removeObject("a");
+    assertThat(reg.getObjects()).containsExactly("b");
+    assertThat(objects).containsExactly("a", "b");
+
+    reg.clear();
+    assertThat(reg.getObjects()).isEmpty();
+    assertThat(reg.getObjectsAndPositions()).isEmpty();
+  }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2011-2018 Rinde R.S. van Lon
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rinde.rinsim.core.model.road;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.rinde.rinsim.geom.Connection;
+import com.github.rinde.rinsim.geom.Point;
+import com.google.common.base.VerifyException;
+
+/**
+ * Tests for {@link OccupancyIndex}.
+ * @author Rinde van Lon
+ */
+public class OccupancyIndexTest {
+  static final Point A = new Point(0, 0);
+  static final Point B = new Point(10, 0);
+  static final Point C = new Point(20, 0);
+
+  OccupancyIndex index;
+  MovingRoadUser u1;
+  MovingRoadUser u2;
+  MovingRoadUser u3;
+
+  /**
+   * Set up.
+   */
+  @Before
+  public void setUp() {
+    index = new OccupancyIndex();
+    u1 = new TestRoadUser();
+    u2 = new TestRoadUser();
+    u3 = new TestRoadUser();
+  }
+
+  /**
+   * Tests the node to user and user to node lookups.
+   */
+  @Test
+  public void testNodes() {
+    assertThat(index.isOccupied(A)).isFalse();
+    index.occupy(u1, A);
+    index.occupy(u1, B);
+    assertThat(index.isOccupied(A)).isTrue();
+    assertThat(index.isOccupiedBy(A, u1)).isTrue();
+    assertThat(index.isOccupiedBy(B, u1)).isTrue();
+    assertThat(index.isOccupiedBy(A, u2)).isFalse();
+    assertThat(index.getOccupiedNodes()).containsExactly(A, B);
+
+    boolean fail = false;
+    try {
+      index.occupy(u2, B);
+    } catch (final VerifyException e) {
+      fail = true;
+    }
+    assertThat(fail).isTrue();
+
+    index.release(u1);
+    assertThat(index.getOccupiedNodes()).isEmpty();
+    index.occupy(u2, B);
+    assertThat(index.isOccupiedBy(B, u2)).isTrue();
+    index.remove(u2);
+    assertThat(index.isOccupied(B)).isFalse();
+  }
+
+  /**
+   * Tests finding the nearest user ahead on a connection.
+   */
+  @Test
+  public void testNearestAhead() {
+    final Connection<?> ab = Connection.create(A, B);
+    final Connection<?> bc = Connection.create(B, C);
+
+    assertThat(index.findNearestAhead(ab, 0d))
+      .isEqualTo(Double.POSITIVE_INFINITY);
+
+    index.updateConnection(u1, ab, 8d);
+    index.updateConnection(u2, ab, 3d);
+    index.updateConnection(u3, bc, 1d);
+
+    assertThat(index.findNearestAhead(ab, 0d)).isEqualTo(3d);
+    assertThat(index.findNearestAhead(ab, 3d)).isEqualTo(8d);
+    assertThat(index.findNearestAhead(ab, 8d))
+      .isEqualTo(Double.POSITIVE_INFINITY);
+    assertThat(index.findNearestAhead(bc, 0d)).isEqualTo(1d);
+
+    // u2 moves forward
+    index.updateConnection(u2, ab, 5d);
+    assertThat(index.findNearestAhead(ab, 0d)).isEqualTo(5d);
+
+    // u2 leaves the connection
+    index.updateConnection(u2, null, 0d);
+    assertThat(index.findNearestAhead(ab, 0d)).isEqualTo(8d);
+
+    index.remove(u1);
+    assertThat(index.findNearestAhead(ab, 0d))
+      .isEqualTo(Double.POSITIVE_INFINITY);
+
+    index.clear();
+    assertThat(index.findNearestAhead(bc, 0d))
+      .isEqualTo(Double.POSITIVE_INFINITY);
+  }
+
+  /**
+   * Two users can not have the same position on a connection.
+   */
+  @Test
+  public void testSamePosition() {
+    final Connection<?> ab = Connection.create(A, B);
+    index.updateConnection(u1, ab, 8d);
+    try {
+      index.updateConnection(u2, ab, 8d);
+      fail();
+    } catch (final VerifyException e) {
+      assertThat(e.getMessage()).contains("same position");
+    }
+  }
+}
@@ -17,6 +17,7 @@ package com.github.rinde.rinsim.core.model.road;
 
 import static com.google.common.collect.Lists.newLinkedList;
 import static java.util.Arrays.asList;
+import static com.google.common.truth.Truth.assertThat;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
@@ -28,7 +29,14 @@ import org.apache.commons.math3.random.MersenneTwister;
 import org.apache.commons.math3.random.RandomGenerator;
 import org.junit.Test;
 
+import com.github.rinde.rinsim.core.Simulator;
 import com.github.rinde.rinsim.core.model.DependencyProvider;
+import com.github.rinde.rinsim.core.model.road.GenericRoadModel.RoadEventType;
+import com.github.rinde.rinsim.core.model.time.TickListener;
+import com.github.rinde.rinsim.core.model.time.TimeLapse;
+import com.github.rinde.rinsim.core.model.time.TimeLapseFactory;
+import com.github.rinde.rinsim.event.Event;
+import com.github.rinde.rinsim.event.Listener;
 import com.github.rinde.rinsim.geom.Point;
 
 /**
@@ -36,6 +44,7 @@ import com.github.rinde.rinsim.geom.Point;
  *
  */
 public class PlaneRoadModelTest extends AbstractRoadModelTest<PlaneRoadModel> {
+  static final double TOLERANCE = 1e-10;
 
   @Override
   public void doSetUp() {
@@ -46,6 +55,37 @@ public class PlaneRoadModelTest extends AbstractRoadModelTest<PlaneRoadModel> {
       .build(mock(DependencyProvider.class));
   }
 
+  /**
+   * The moves of the last tick are dispatched when the clock stops, also when
+   * they are made after the road model dispatched the moves of that tick.
+   */
+  @Test
+  public void aggregatedMovesOfLastTick() {
+    final Simulator sim = Simulator.builder()
+      .setTickLength(1000L)
+      .addModel(RoadModelBuilders.plane()
+        .withMinPoint(new Point(0, 0))
+        .withMaxPoint(new Point(100, 100))
+        .withMaxSpeed(10d))
+      .build();
+    final RoadModel rm = sim.getModelProvider().getModel(RoadModel.class);
+    final DistanceListener listener = new DistanceListener();
+    rm.getEventAPI().addListener(listener, RoadEventType.AGGREGATED_MOVE);
+
+    // the first move registers the road model with the clock
+    final TestRoadUser user = new TestRoadUser();
+    rm.addObjectAt(user, new Point(0, 0));
+    rm.moveTo(user, new Point(100, 0), TimeLapseFactory.create(0, 1000L));
+    final LateMover mover = new LateMover(sim);
+    sim.register(mover);
+    sim.start();
+
+    assertThat(sim.getCurrentTime()).isEqualTo(LateMover.END_TIME);
+    assertThat(mover.moved).isGreaterThan(0d);
+    assertEquals(rm.getPosition(user).x + mover.moved, listener.distance,
+      TOLERANCE);
+  }
+
   /**
    * Supplying the builder with illegal points should yield an exception.
    */
@@ -218,4 +258,53 @@ public class PlaneRoadModelTest extends AbstractRoadModelTest<PlaneRoadModel> {
       .getShortestPathTo(new Point(0, 0), new Point(5, 5)));
   }
 
+
+  static class DistanceListener implements Listener {
+    double distance;
+
+    @Override
+    public void handleEvent(Event e) {
+      final AggregatedMoveEvent event = (AggregatedMoveEvent) e;
+      for (int i = 0; i < event.size(); i++) {
+        distance += event.getDistance(i);
+      }
+    }
+  }
+
+  // moves in afterTick, after the road model dispatched the moves of the tick
+  static class LateMover implements MovingRoadUser, TickListener {
+    static final long END_TIME = 5000L;
+    final Simulator simulator;
+    double moved;
+
+    LateMover(Simulator sim) {
+      simulator = sim;
+    }
+
+    @Override
+    public void initRoadUser(RoadModel model) {
+      model.addObjectAt(this, new Point(0, 50));
+    }
+
+    @Override
+    public double getSpeed() {
+      return 1d;
+    }
+
+    @Override
+    public void tick(TimeLapse timeLapse) {}
+
+    @Override
+    public void afterTick(TimeLapse timeLapse) {
+      final RoadModel rm = simulator.getModelProvider()
+        .getModel(RoadModel.class);
+      // the time lapse is already consumed by the time model
+      final TimeLapse tl = TimeLapseFactory.create(timeLapse.getStartTime(),
+        timeLapse.getEndTime());
+      moved += rm.moveTo(this, new Point(100, 50), tl).distanceValue();
+      if (timeLapse.getEndTime() >= END_TIME) {
+        simulator.stop();
+      }
+    }
+  }
 }
@@ -17,11 +17,18 @@ package com.github.rinde.rinsim.core.model.road;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import java.util.Arrays;
+import java.util.Collection;
+
 import org.junit.Before;
 import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
 
 import com.github.rinde.rinsim.geom.Point;
 
+@RunWith(Parameterized.class)
 public class SpatialRegistryTest {
 
   String A = "A";
@@ -31,11 +38,80 @@ public class SpatialRegistryTest {
   String D = "D";
   String E = "E";
 
+  final Creator creator;
   SpatialRegistry<String> reg;
 
+  public SpatialRegistryTest(Creator c) {
+    creator = c;
+  }
+
+  @Parameters
+  public static Collection<Object[]> configs() {
+    return Arrays.asList(new Object[][] {
+      {new Creator() {
+        @Override
+        public SpatialRegistry<String> create() {
+          return MapSpatialRegistry.create();
+        }
+      }},
+      {new Creator() {
+        @Override
+        public SpatialRegistry<String> create() {
+          return GridSpatialRegistry.create(1d);
+        }
+      }},
+      {new Creator() {
+        @Override
+        public SpatialRegistry<String> create() {
+          return GridSpatialRegistry.create(.3);
+        }
+      }},
+      {new Creator() {
+        @Override
+        public SpatialRegistry<String> create() {
+          return GraphSpatialRegistry.create();
+        }
+      }},
+      {new Creator() {
+        @SuppressWarnings("deprecation")
+        @Override
+        public SpatialRegistry<String> create() {
+          return GraphSpatialRegistry.create(
+            MapSpatialRegistry.<String>create());
+        }
+      }}
+    });
+  }
+
   @Before
   public void setUp() {
-    reg = MapSpatialRegistry.create();
+    reg = creator.create();
+  }
+
+  @Test
+  public void moveObjectTest() {
+    reg.addAt(A, new Point(0, 0));
+    reg.addAt(B, new Point(.1, 0));
+    assertThat(reg.findObjectsWithinRadius(new Point(0, 0), .5))
+      .containsExactly(A, B);
+
+    reg.addAt(A, new Point(5, 5));
+    assertThat(reg.getPosition(A)).isEqualTo(new Point(5, 5));
+    assertThat(reg.findObjectsWithinRadius(new Point(0, 0), .5))
+      .containsExactly(B);
+    assertThat(reg.findObjectsWithinRadius(new Point(5, 5), .5))
+      .containsExactly(A);
+    assertThat(reg.findObjectsInRect(new Point(-1, -1), new Point(6, 6)))
+      .containsExactly(A, B);
+
+    reg.removeObject(A);
+    assertThat(reg.containsObject(A)).isFalse();
+    assertThat(reg.findObjectsWithinRadius(new Point(5, 5), .5)).isEmpty();
+    assertThat(reg.getObjects()).containsExactly(B);
+
+    reg.clear();
+    assertThat(reg.getObjects()).isEmpty();
+    assertThat(reg.findObjectsWithinRadius(new Point(0, 0), .5)).isEmpty();
   }
 
   @Test
@@ -96,4 +172,8 @@ public class SpatialRegistryTest {
       .containsExactly(A, B, C, D, E);
 
   }
+
+  interface Creator {
+    SpatialRegistry<String> create();
+  }
 }
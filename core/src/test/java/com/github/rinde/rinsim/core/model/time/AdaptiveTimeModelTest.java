@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2011-2018 Rinde R.S. van Lon
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rinde.rinsim.core.model.time;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.github.rinde.rinsim.core.model.FakeDependencyProvider;
+
+/**
+ * Tests for the time model with an adaptive tick length.
+ * @author Rinde van Lon
+ */
+public class AdaptiveTimeModelTest {
+
+  /**
+   * Without policies all ticks have the maximum length, before the start the
+   * clock reports the minimum length.
+   */
+  @Test
+  public void testNoPolicies() {
+    final TimeModel tm = TimeModel.builder()
+      .withTickLength(100L)
+      .withAdaptiveTickLength(1000L)
+      .build(FakeDependencyProvider.empty());
+    assertThat(tm.getTickLength()).isEqualTo(100L);
+
+    final Recorder rec = new Recorder();
+    tm.register(rec);
+    tm.tick();
+    tm.tick();
+    assertThat(rec.lengths).containsExactly(1000L, 1000L).inOrder();
+    assertThat(tm.getCurrentTime()).isEqualTo(2000L);
+  }
+
+  /**
+   * The smallest length of all policies is used, bounded by the minimum and
+   * maximum.
+   */
+  @Test
+  public void testPolicies() {
+    final TimeModel tm = TimeModel.builder()
+      .withTickLength(100L)
+      .withAdaptiveTickLength(1000L)
+      .build(FakeDependencyProvider.empty());
+
+    final Recorder rec = new Recorder();
+    // ticks should end at multiples of 700
+    final FixedPolicy p1 = new FixedPolicy(700L);
+    final FixedPolicy p2 = new FixedPolicy(Long.MAX_VALUE);
+    tm.register(rec);
+    tm.register(p1);
+    tm.register(p2);
+
+    for (int i = 0; i < 4; i++) {
+      tm.tick();
+    }
+    // [0,700) [700,1400) [1400,2100) [2100,2800)
+    assertThat(rec.lengths).containsExactly(700L, 700L, 700L, 700L);
+    assertThat(p1.times).containsExactly(0L, 700L, 1400L, 2100L).inOrder();
+
+    p2.length = 10L;
+    tm.tick();
+    assertThat(rec.lengths.get(4)).isEqualTo(100L);
+
+    // back to the next multiple of 700
+    tm.unregister(p2);
+    tm.tick();
+    assertThat(rec.lengths.get(5)).isEqualTo(600L);
+
+    tm.unregister(p1);
+    tm.tick();
+    assertThat(rec.lengths.get(6)).isEqualTo(1000L);
+    assertThat(tm.getCurrentTime()).isEqualTo(4500L);
+  }
+
+  /**
+   * Policies are ignored by a time model with a fixed tick length.
+   */
+  @Test
+  public void testFixedTickLength() {
+    final TimeModel tm = TimeModel.builder()
+      .withTickLength(100L)
+      .build(FakeDependencyProvider.empty());
+    final Recorder rec = new Recorder();
+    tm.register(rec);
+    tm.register(new FixedPolicy(10L));
+    tm.tick();
+    assertThat(rec.lengths).containsExactly(100L);
+  }
+
+  /**
+   * The maximum may not be smaller than the minimum.
+   */
+  @Test
+  public void testBuilder() {
+    final TimeModel.AdaptiveBuilder b = TimeModel.builder()
+      .withTickLength(100L)
+      .withAdaptiveTickLength(100L);
+    assertThat(b.getTickLength()).isEqualTo(100L);
+    assertThat(b.getMaxTickLength()).isEqualTo(100L);
+    assertThat(b.withMaxTickLength(500L).withTickLength(200L).getTickLength())
+      .isEqualTo(200L);
+
+    boolean fail = false;
+    try {
+      b.withTickLength(200L);
+    } catch (final IllegalArgumentException e) {
+      fail = true;
+      assertThat(e.getMessage()).contains("maximum tick length (100)");
+    }
+    assertThat(fail).isTrue();
+  }
+
+  static class Recorder implements TickListener {
+    final List<Long> lengths = new ArrayList<>();
+
+    @Override
+    public void tick(TimeLapse timeLapse) {
+      lengths.add(timeLapse.getTickLength());
+    }
+
+    @Override
+    public void afterTick(TimeLapse timeLapse) {}
+  }
+
+  // ends each tick at a multiple of the specified length
+  static class FixedPolicy implements TickListener, TickLengthPolicy {
+    final List<Long> times = new ArrayList<>();
+    long length;
+
+    FixedPolicy(long l) {
+      length = l;
+    }
+
+    @Override
+    public long getMaxTickLength(long time) {
+      times.add(time);
+      if (length == Long.MAX_VALUE) {
+        return length;
+      }
+      return length - time % length;
+    }
+
+    @Override
+    public void tick(TimeLapse timeLapse) {}
+
+    @Override
+    public void afterTick(TimeLapse timeLapse) {}
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2011-2018 Rinde R.S. van Lon
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rinde.rinsim.core.model.time;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Test;
+
+import com.github.rinde.rinsim.core.Simulator;
+import com.github.rinde.rinsim.core.model.time.TickProfiler.ListenerProfile;
+import com.github.rinde.rinsim.core.model.time.TickProfiler.Profile;
+
+/**
+ * Tests for {@link TickProfiler} and {@link LatencyHistogram}.
+ * @author Rinde van Lon
+ */
+public class TickProfilerTest {
+
+  /**
+   * Tests that all listeners are profiled per class.
+   */
+  @Test
+  public void testProfile() {
+    final Simulator sim = Simulator.builder()
+      .addModel(TimeModel.builder())
+      .addModel(TickProfiler.builder())
+      .build();
+    final TickProfiler profiler =
+      sim.getModelProvider().getModel(TickProfiler.class);
+
+    sim.register(new LimitingTickListener(sim.getModelProvider()
+      .getModel(TimeModel.class), 5));
+    sim.register(new NopTickListener());
+    sim.register(new NopTickListener());
+    sim.start();
+
+    final Profile profile = profiler.getProfile();
+    assertThat(profile.getTickTime().getCount()).isEqualTo(5L);
+    // the simulator itself also registers a tick listener
+    assertThat(profile.getListeners().keySet()).containsAllOf(
+      LimitingTickListener.class.getName(), NopTickListener.class.getName())
+      .inOrder();
+    final ListenerProfile nop =
+      profile.getListeners().get(NopTickListener.class.getName());
+    assertThat(nop.getTickTime().getCount()).isEqualTo(10L);
+    assertThat(nop.getAfterTickTime().getCount()).isEqualTo(10L);
+    assertThat(profile.getTickTime().getTotal())
+      .isAtLeast(nop.getTickTime().getTotal());
+    assertThat(profile.toCsv().split("\n")).hasLength(
+      2 + 2 * profile.getListeners().size());
+  }
+
+  /**
+   * Tests the bucketing and percentiles of {@link LatencyHistogram}.
+   */
+  @Test
+  public void testHistogram() {
+    final LatencyHistogram h = new LatencyHistogram();
+    assertThat(h.getValueAtPercentile(50)).isEqualTo(0L);
+    for (long i = 1; i <= 1000; i++) {
+      h.record(i);
+    }
+    assertThat(h.getCount()).isEqualTo(1000L);
+    assertThat(h.getMin()).isEqualTo(1L);
+    assertThat(h.getMax()).isEqualTo(1000L);
+    assertThat(h.getMean()).isWithin(1e-9).of(500.5);
+    assertThat(h.getValueAtPercentile(0)).isEqualTo(1L);
+    assertThat(h.getValueAtPercentile(100)).isEqualTo(1000L);
+    // bucket size limits the relative error
+    assertThat((double) h.getValueAtPercentile(50)).isWithin(500d / 32d)
+      .of(500d);
+    assertThat((double) h.getValueAtPercentile(99)).isWithin(990d / 32d)
+      .of(990d);
+
+    final LatencyHistogram copy = h.copy();
+    assertThat(copy).isEqualTo(h);
+    copy.add(h);
+    assertThat(copy.getCount()).isEqualTo(2000L);
+    assertThat(copy.getValueAtPercentile(50))
+      .isEqualTo(h.getValueAtPercentile(50));
+
+    for (long v = 1; v > 0 && v < Long.MAX_VALUE / 2; v *= 3) {
+      final int index = LatencyHistogram.bucketIndex(v);
+      assertThat(LatencyHistogram.highestValueInBucket(index)).isAtLeast(v);
+      assertThat(LatencyHistogram.bucketIndex(
+        LatencyHistogram.highestValueInBucket(index))).isEqualTo(index);
+    }
+    assertThat(LatencyHistogram.bucketIndex(Long.MAX_VALUE))
+      .isLessThan(1888);
+
+    copy.reset();
+    assertThat(copy).isEqualTo(LatencyHistogram.create());
+  }
+
+  static class NopTickListener implements TickListener {
+    @Override
+    public void tick(TimeLapse timeLapse) {}
+
+    @Override
+    public void afterTick(TimeLapse timeLapse) {}
+  }
+}
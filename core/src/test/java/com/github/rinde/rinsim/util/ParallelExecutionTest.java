@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2011-2018 Rinde R.S. van Lon
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rinde.rinsim.util;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.util.Arrays.asList;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import com.google.common.base.Function;
+
+/**
+ * Tests for {@link ParallelExecution}.
+ * @author Rinde van Lon
+ */
+public class ParallelExecutionTest {
+  static final Function<Integer, Integer> SQUARE =
+    new Function<Integer, Integer>() {
+      @Override
+      public Integer apply(Integer input) {
+        if (input < 0) {
+          throw new IllegalArgumentException("negative");
+        }
+        return input * input;
+      }
+    };
+
+  /**
+   * The results are in the order of the inputs.
+   */
+  @Test
+  public void testOrder() {
+    assertThat(ParallelExecution.map(asList(3, 1, 4, 1, 5), SQUARE, 2, "fail"))
+      .containsExactly(9, 1, 16, 1, 25)
+      .inOrder();
+  }
+
+  /**
+   * A failure is rethrown with the original exception as cause.
+   */
+  @Test
+  public void testFailure() {
+    try {
+      ParallelExecution.map(asList(1, -1), SQUARE, 2, "fail");
+      fail();
+    } catch (final IllegalStateException e) {
+      assertThat(e.getMessage()).isEqualTo("fail");
+      assertThat(e.getCause()).isInstanceOf(IllegalArgumentException.class);
+    }
+  }
+
+  /**
+   * The number of threads must be positive.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidNumThreads() {
+    ParallelExecution.map(asList(1), SQUARE, 0, "fail");
+  }
+}
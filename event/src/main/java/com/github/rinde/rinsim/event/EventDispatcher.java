@@ -19,6 +19,7 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static java.util.Arrays.asList;
 
+import java.io.Serializable;
 import java.util.HashSet;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -36,7 +37,8 @@ import com.google.common.collect.SetMultimap;
  * and adding of listeners.
  * @author Rinde van Lon
  */
-public final class EventDispatcher implements EventAPI {
+public final class EventDispatcher implements EventAPI, Serializable {
+  private static final long serialVersionUID = 1039587897563790424L;
 
   /**
    * A map of event types to registered {@link Listener}s.
@@ -272,7 +274,8 @@ public final class EventDispatcher implements EventAPI {
     return publicAPI;
   }
 
-  static class PublicEventAPI implements EventAPI {
+  static class PublicEventAPI implements EventAPI, Serializable {
+    private static final long serialVersionUID = 1439902197216647898L;
     private final EventDispatcher ref;
 
     PublicEventAPI(EventDispatcher ed) {
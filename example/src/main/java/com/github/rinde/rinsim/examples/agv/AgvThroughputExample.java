@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2011-2018 Rinde R.S. van Lon
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rinde.rinsim.examples.agv;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.Lists.newArrayList;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.measure.unit.SI;
+
+import com.github.rinde.rinsim.core.Simulator;
+import com.github.rinde.rinsim.core.model.road.CollisionGraphRoadModelImpl;
+import com.github.rinde.rinsim.core.model.road.RoadModelBuilders;
+import com.github.rinde.rinsim.geom.Graph;
+import com.github.rinde.rinsim.geom.Graphs;
+import com.github.rinde.rinsim.geom.LengthData;
+import com.github.rinde.rinsim.geom.ListenableGraph;
+import com.github.rinde.rinsim.geom.Point;
+import com.github.rinde.rinsim.geom.TableGraph;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Table;
+
+/**
+ * Headless throughput benchmark of the {@link CollisionGraphRoadModelImpl}.
+ * A warehouse like graph (see {@link AgvExample}) of configurable size is
+ * populated with a configurable number of AGVs that drive to random
+ * destinations. The benchmark reports the number of simulated ticks per second
+ * and the number of AGV ticks (i.e. ticks times AGVs) per second.
+ * @author Rinde van Lon
+ */
+public final class AgvThroughputExample {
+  private static final double VEHICLE_LENGTH = 2d;
+  private static final int DEFAULT_NUM_AGVS = 500;
+  private static final int DEFAULT_COLS = 40;
+  private static final int DEFAULT_ROWS = 30;
+  private static final int DEFAULT_TICKS = 5000;
+  private static final int WARMUP_TICKS = 500;
+  private static final long SEED = 123L;
+
+  private AgvThroughputExample() {}
+
+  /**
+   * Runs the benchmark, usage:
+   * <code>AgvThroughputExample [numAgvs] [cols] [rows] [ticks]</code>.
+   * @param args The optional arguments.
+   */
+  public static void main(String[] args) {
+    final int numAgvs = arg(args, 0, DEFAULT_NUM_AGVS);
+    final int cols = arg(args, 1, DEFAULT_COLS);
+    final int rows = arg(args, 2, DEFAULT_ROWS);
+    final int ticks = arg(args, 2 + 1, DEFAULT_TICKS);
+
+    // warm up
+    run(numAgvs, cols, rows, WARMUP_TICKS);
+    final long nanos = run(numAgvs, cols, rows, ticks);
+
+    final double seconds = nanos / (double) TimeUnit.SECONDS.toNanos(1);
+    System.out.printf(
+      "agvs=%d graph=%dx%d ticks=%d time=%.3fs ticks/s=%.1f agv-ticks/s=%.1f%n",
+      numAgvs, cols, rows, ticks, seconds, ticks / seconds,
+      (double) ticks * numAgvs / seconds);
+  }
+
+  /**
+   * Runs a headless AGV simulation.
+   * @param numAgvs The number of AGVs, must be smaller than the number of
+   *          nodes in the graph.
+   * @param cols The number of columns in the warehouse graph.
+   * @param rows The number of rows in the warehouse graph.
+   * @param ticks The number of ticks to simulate.
+   * @return The wall clock time in nanoseconds that was spent in simulating the
+   *         ticks, excluding the set up of the simulator.
+   */
+  public static long run(int numAgvs, int cols, int rows, int ticks) {
+    checkArgument(numAgvs < cols * rows,
+      "The number of AGVs (%s) must be smaller than the number of nodes (%s).",
+      numAgvs, cols * rows);
+    final Simulator sim = Simulator.builder()
+      .setRandomSeed(SEED)
+      .addModel(
+        RoadModelBuilders.dynamicGraph(createGraph(cols, rows))
+          .withCollisionAvoidance()
+          .withDistanceUnit(SI.METER)
+          .withVehicleLength(VEHICLE_LENGTH))
+      .build();
+
+    for (int i = 0; i < numAgvs; i++) {
+      sim.register(new AgvAgent(sim.getRandomGenerator()));
+    }
+
+    final long start = System.nanoTime();
+    for (int i = 0; i < ticks; i++) {
+      sim.tick();
+    }
+    return System.nanoTime() - start;
+  }
+
+  /**
+   * Creates a warehouse like graph: all columns are one-way lanes with
+   * alternating directions that are connected by a one-way lane at the top
+   * and one at the bottom.
+   * @param cols The number of columns, must be even.
+   * @param rows The number of rows.
+   * @return A new graph.
+   */
+  static ListenableGraph<LengthData> createGraph(int cols, int rows) {
+    checkArgument(cols % 2 == 0, "The number of columns must be even.");
+    final Graph<LengthData> g = new TableGraph<>();
+    final Table<Integer, Integer, Point> matrix =
+      AgvExample.GraphCreator.createMatrix(cols, rows, new Point(0, 0));
+
+    for (int i = 0; i < matrix.columnMap().size(); i++) {
+      final Iterable<Point> path;
+      if (i % 2 == 0) {
+        path = Lists.reverse(newArrayList(matrix.column(i).values()));
+      } else {
+        path = matrix.column(i).values();
+      }
+      Graphs.addPath(g, path);
+    }
+
+    Graphs.addPath(g, matrix.row(0).values());
+    Graphs.addPath(g, Lists.reverse(newArrayList(matrix.row(
+      matrix.rowKeySet().size() - 1).values())));
+    return new ListenableGraph<>(g);
+  }
+
+  static int arg(String[] args, int index, int defaultValue) {
+    return args.length > index ? Integer.parseInt(args[index])
+      : defaultValue;
+  }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2011-2018 Rinde R.S. van Lon
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rinde.rinsim.examples.gradientfield;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.Arrays;
+
+import javax.annotation.Nullable;
+
+/**
+ * Barnes-Hut approximation of the potential of an {@link EmitterSnapshot}.
+ * The emitters are stored in a quadtree, a cell of width <code>w</code> at
+ * distance <code>d</code> of the query position is approximated as a whole
+ * when <code>w / d &lt; theta</code>. Since emitters can both attract and
+ * repel, the positive and negative strengths of a cell are aggregated
+ * separately, each at its own centroid. A <code>theta</code> of zero yields
+ * the exact potential, larger values are faster but less accurate.
+ * @author Rinde van Lon
+ */
+final class BarnesHutTree implements FieldEvaluator {
+  static final int LEAF_CAPACITY = 8;
+  static final int MAX_DEPTH = 24;
+  private static final int QUADRANTS = 4;
+
+  final EmitterSnapshot emitters;
+  final double thetaSquared;
+  @Nullable
+  final Cell root;
+
+  BarnesHutTree(EmitterSnapshot snapshot, double theta) {
+    checkArgument(theta >= 0d, "Theta must be non-negative, found %s.",
+      theta);
+    emitters = snapshot;
+    thetaSquared = theta * theta;
+    if (snapshot.size == 0) {
+      root = null;
+      return;
+    }
+    double minX = Double.POSITIVE_INFINITY;
+    double minY = Double.POSITIVE_INFINITY;
+    double maxX = Double.NEGATIVE_INFINITY;
+    double maxY = Double.NEGATIVE_INFINITY;
+    final int[] indices = new int[snapshot.size];
+    for (int i = 0; i < snapshot.size; i++) {
+      indices[i] = i;
+      minX = Math.min(minX, snapshot.xs[i]);
+      minY = Math.min(minY, snapshot.ys[i]);
+      maxX = Math.max(maxX, snapshot.xs[i]);
+      maxY = Math.max(maxY, snapshot.ys[i]);
+    }
+    final double half = Math.max(maxX - minX, maxY - minY) / 2d;
+    root = new Cell(snapshot, indices, (minX + maxX) / 2d,
+      (minY + maxY) / 2d, half, 0);
+  }
+
+  @Override
+  public double evaluate(double x, double y) {
+    if (root == null) {
+      return 0d;
+    }
+    return root.evaluate(x, y);
+  }
+
+  static double aggregate(double strength, double cx, double cy, double x,
+      double y) {
+    if (strength == 0d) {
+      return 0d;
+    }
+    final double dx = cx - x;
+    final double dy = cy - y;
+    return strength / Math.sqrt(dx * dx + dy * dy);
+  }
+
+  final class Cell {
+    final double width;
+    final double centroidX;
+    final double centroidY;
+    final double posStrength;
+    final double posX;
+    final double posY;
+    final double negStrength;
+    final double negX;
+    final double negY;
+    @Nullable
+    final int[] leaf;
+    @Nullable
+    final Cell[] children;
+
+    Cell(EmitterSnapshot s, int[] indices, double cx, double cy, double half,
+        int depth) {
+      width = 2d * half;
+      double ps = 0d;
+      double px = 0d;
+      double py = 0d;
+      double ns = 0d;
+      double nx = 0d;
+      double ny = 0d;
+      for (final int i : indices) {
+        final double str = s.strengths[i];
+        if (str > 0) {
+          ps += str;
+          px += str * s.xs[i];
+          py += str * s.ys[i];
+        } else {
+          ns += str;
+          nx += str * s.xs[i];
+          ny += str * s.ys[i];
+        }
+      }
+      posStrength = ps;
+      posX = ps == 0d ? cx : px / ps;
+      posY = ps == 0d ? cy : py / ps;
+      negStrength = ns;
+      negX = ns == 0d ? cx : nx / ns;
+      negY = ns == 0d ? cy : ny / ns;
+      // weighted by absolute strength
+      final double total = ps - ns;
+      centroidX = (px - nx) / total;
+      centroidY = (py - ny) / total;
+
+      if (indices.length <= LEAF_CAPACITY || depth >= MAX_DEPTH) {
+        leaf = indices;
+        children = null;
+        return;
+      }
+      leaf = null;
+      final int[][] parts = new int[QUADRANTS][indices.length];
+      final int[] counts = new int[QUADRANTS];
+      for (final int i : indices) {
+        final int q = (s.xs[i] < cx ? 0 : 1) + (s.ys[i] < cy ? 0 : 2);
+        parts[q][counts[q]++] = i;
+      }
+      final double quarter = half / 2d;
+      final Cell[] cs = new Cell[QUADRANTS];
+      for (int q = 0; q < QUADRANTS; q++) {
+        if (counts[q] > 0) {
+          cs[q] = new Cell(s, Arrays.copyOf(parts[q], counts[q]),
+            cx + ((q & 1) == 0 ? -quarter : quarter),
+            cy + ((q & 2) == 0 ? -quarter : quarter), quarter, depth + 1);
+        }
+      }
+      children = cs;
+    }
+
+    double evaluate(double x, double y) {
+      if (leaf != null) {
+        double field = 0d;
+        for (final int i : leaf) {
+          field += emitters.potential(i, x, y);
+        }
+        return field;
+      }
+      final double dx = centroidX - x;
+      final double dy = centroidY - y;
+      if (width * width < thetaSquared * (dx * dx + dy * dy)) {
+        return aggregate(posStrength, posX, posY, x, y)
+          + aggregate(negStrength, negX, negY, x, y);
+      }
+      double field = 0d;
+      for (final Cell c : children) {
+        if (c != null) {
+          field += c.evaluate(x, y);
+        }
+      }
+      return field;
+    }
+  }
+}
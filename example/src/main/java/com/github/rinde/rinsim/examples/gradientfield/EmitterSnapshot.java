@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2011-2018 Rinde R.S. van Lon
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rinde.rinsim.examples.gradientfield;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import com.github.rinde.rinsim.geom.Point;
+
+/**
+ * The positions and strengths of a set of {@link FieldEmitter}s at a specific
+ * moment in time. Emitters with a strength of zero are omitted. As a
+ * {@link FieldEvaluator} it computes the exact potential by summing over all
+ * emitters.
+ * @author Rinde van Lon
+ */
+final class EmitterSnapshot implements FieldEvaluator {
+  final double[] xs;
+  final double[] ys;
+  final double[] strengths;
+  final int size;
+
+  EmitterSnapshot(double[] x, double[] y, double[] s, int n) {
+    xs = x;
+    ys = y;
+    strengths = s;
+    size = n;
+  }
+
+  static EmitterSnapshot of(Collection<? extends FieldEmitter> emitters) {
+    final int capacity = emitters.size();
+    final double[] x = new double[capacity];
+    final double[] y = new double[capacity];
+    final double[] s = new double[capacity];
+    int n = 0;
+    for (final FieldEmitter emitter : emitters) {
+      final float strength = emitter.getStrength();
+      if (strength == 0f) {
+        continue;
+      }
+      final Point p = emitter.getPosition();
+      x[n] = p.x;
+      y[n] = p.y;
+      s[n] = strength;
+      n++;
+    }
+    return new EmitterSnapshot(Arrays.copyOf(x, n), Arrays.copyOf(y, n),
+      Arrays.copyOf(s, n), n);
+  }
+
+  @Override
+  public double evaluate(double x, double y) {
+    double field = 0d;
+    for (int i = 0; i < size; i++) {
+      field += potential(i, x, y);
+    }
+    return field;
+  }
+
+  double potential(int i, double x, double y) {
+    final double dx = xs[i] - x;
+    final double dy = ys[i] - y;
+    return strengths[i] / Math.sqrt(dx * dx + dy * dy);
+  }
+}
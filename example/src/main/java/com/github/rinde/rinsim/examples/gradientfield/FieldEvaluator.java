@@ -0,0 +1,34 @@
+/*
+ * Copyright (C) 2011-2018 Rinde R.S. van Lon
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rinde.rinsim.examples.gradientfield;
+
+/**
+ * Computes the potential of a set of {@link FieldEmitter}s. The potential of a
+ * single emitter at distance <code>d</code> is <code>strength / d</code>, the
+ * potential of the set is the sum over all emitters. Implementations are
+ * immutable and can be queried concurrently.
+ * @author Rinde van Lon
+ */
+interface FieldEvaluator {
+
+  /**
+   * Computes the potential at the specified position.
+   * @param x The x coordinate.
+   * @param y The y coordinate.
+   * @return The (possibly approximated) potential.
+   */
+  double evaluate(double x, double y);
+}
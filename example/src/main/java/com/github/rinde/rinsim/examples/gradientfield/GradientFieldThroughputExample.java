@@ -0,0 +1,239 @@
+/*
+ * Copyright (C) 2011-2018 Rinde R.S. van Lon
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rinde.rinsim.examples.gradientfield;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import com.github.rinde.rinsim.examples.gradientfield.GradientFieldExample.ParcelHandler;
+import com.github.rinde.rinsim.examples.gradientfield.GradientFieldExample.VehicleHandler;
+import com.github.rinde.rinsim.examples.gradientfield.GradientModel.Approximation;
+import com.github.rinde.rinsim.experiment.Experiment;
+import com.github.rinde.rinsim.experiment.ExperimentResults;
+import com.github.rinde.rinsim.experiment.MASConfiguration;
+import com.github.rinde.rinsim.experiment.PostProcessors;
+import com.github.rinde.rinsim.geom.Point;
+import com.github.rinde.rinsim.pdptw.common.AddParcelEvent;
+import com.github.rinde.rinsim.pdptw.common.AddVehicleEvent;
+import com.github.rinde.rinsim.pdptw.common.ObjectiveFunction;
+import com.github.rinde.rinsim.pdptw.common.StatisticsDTO;
+import com.github.rinde.rinsim.scenario.gendreau06.Gendreau06ObjectiveFunction;
+import com.github.rinde.rinsim.scenario.gendreau06.Gendreau06Parser;
+import com.github.rinde.rinsim.scenario.gendreau06.Gendreau06Scenario;
+
+/**
+ * Headless benchmark of the approximations of the {@link GradientModel}. The
+ * benchmark consists of two parts:
+ * <ol>
+ * <li>The {@link FieldEvaluator}s are built for a configurable number of
+ * random emitters and queried at a configurable number of random positions.
+ * For each approximation the build time, the query time and the largest
+ * relative error with respect to the exact potential are reported.</li>
+ * <li>The gradient field example is simulated without GUI for each
+ * approximation, the wall clock time and the resulting statistics are
+ * reported. Note that the statistics of the approximations may differ from
+ * the exact ones, since the trucks may choose different targets.</li>
+ * </ol>
+ * All random numbers are generated with a fixed seed, the benchmark is
+ * therefore reproducible.
+ * @author Rinde van Lon
+ */
+public final class GradientFieldThroughputExample {
+  private static final int DEFAULT_EMITTERS = 2000;
+  private static final int DEFAULT_QUERIES = 2000;
+  private static final int DEFAULT_REPETITIONS = 20;
+  private static final double SIZE = 5d;
+  private static final long SEED = 123L;
+  private static final double NANOS_PER_MILLI = 1e6;
+
+  private GradientFieldThroughputExample() {}
+
+  /**
+   * Runs the benchmark, usage:
+   * <code>GradientFieldThroughputExample [emitters] [queries] [repetitions]
+   * </code>.
+   * @param args The optional arguments.
+   */
+  public static void main(String[] args) {
+    final int numEmitters = arg(args, 0, DEFAULT_EMITTERS);
+    final int numQueries = arg(args, 1, DEFAULT_QUERIES);
+    final int repetitions = arg(args, 2, DEFAULT_REPETITIONS);
+
+    final Random rng = new Random(SEED);
+    final EmitterSnapshot snapshot = randomEmitters(rng, numEmitters);
+    final double[][] queries = randomPositions(rng, numQueries);
+    final RangeExecutor executor = new RangeExecutor(1);
+    try {
+      for (final GradientModel.Builder b : builders()) {
+        // warm up
+        benchmarkEvaluator(b, snapshot, queries, repetitions, executor);
+        final double[] result =
+          benchmarkEvaluator(b, snapshot, queries, repetitions, executor);
+        System.out.printf(
+          "%s emitters=%d queries=%d build=%.3fms query=%.3fms "
+            + "max-rel-error=%.2e%n",
+          name(b), numEmitters, numQueries, result[0], result[1], result[2]);
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    final Gendreau06Scenario scenario = Gendreau06Parser.parser()
+      .addFile(GradientFieldThroughputExample.class
+        .getResourceAsStream("/data/gendreau06/req_rapide_1_240_24"),
+        "req_rapide_1_240_24")
+      .allowDiversion()
+      .parse().get(0);
+    final ObjectiveFunction objFunc = Gendreau06ObjectiveFunction.instance();
+    for (final GradientModel.Builder b : builders()) {
+      final long start = System.nanoTime();
+      final StatisticsDTO stats = simulate(scenario, b, objFunc);
+      final double seconds = (System.nanoTime() - start)
+        / (double) TimeUnit.SECONDS.toNanos(1);
+      System.out.printf("%s simulation time=%.3fs cost=%.3f valid=%b%n",
+        name(b), seconds, objFunc.computeCost(stats),
+        objFunc.isValidResult(stats));
+    }
+  }
+
+  static GradientModel.Builder[] builders() {
+    final GradientModel.Builder exact = GradientModel.builder();
+    return new GradientModel.Builder[] {
+      exact,
+      exact.withBarnesHut(GradientModel.Builder.DEFAULT_THETA),
+      exact.withPotentialGrid(GradientModel.Builder.DEFAULT_CELL_SIZE, 0L)};
+  }
+
+  static String name(GradientModel.Builder b) {
+    switch (b.approximation()) {
+    case BARNES_HUT:
+      return String.format("%s(theta=%s)", b.approximation(), b.theta());
+    case POTENTIAL_GRID:
+      return String.format("%s(cell=%s)", b.approximation(), b.cellSize());
+    default:
+      return b.approximation().toString();
+    }
+  }
+
+  /**
+   * Builds the evaluator of the specified builder and queries it.
+   * @param b The builder that defines the approximation.
+   * @param snapshot The emitters.
+   * @param queries The query positions.
+   * @param repetitions The number of repetitions.
+   * @param executor The executor for building a grid.
+   * @return The average build time in ms, the average time for all queries
+   *         in ms and the largest relative error.
+   */
+  static double[] benchmarkEvaluator(GradientModel.Builder b,
+      EmitterSnapshot snapshot, double[][] queries, int repetitions,
+      RangeExecutor executor) {
+    long buildNanos = 0L;
+    long queryNanos = 0L;
+    double maxError = 0d;
+    // the sum of all potentials prevents dead code elimination
+    double sum = 0d;
+    for (int r = 0; r < repetitions; r++) {
+      final long start = System.nanoTime();
+      final FieldEvaluator ev = create(b, snapshot, executor);
+      final long built = System.nanoTime();
+      for (final double[] q : queries) {
+        sum += ev.evaluate(q[0], q[1]);
+      }
+      buildNanos += built - start;
+      queryNanos += System.nanoTime() - built;
+      if (r == 0) {
+        for (final double[] q : queries) {
+          final double exact = snapshot.evaluate(q[0], q[1]);
+          maxError = Math.max(maxError,
+            Math.abs(ev.evaluate(q[0], q[1]) - exact) / Math.abs(exact));
+        }
+      }
+    }
+    if (Double.isNaN(sum)) {
+      throw new IllegalStateException("The potential is not a number.");
+    }
+    return new double[] {
+      buildNanos / NANOS_PER_MILLI / repetitions,
+      queryNanos / NANOS_PER_MILLI / repetitions,
+      maxError};
+  }
+
+  static FieldEvaluator create(GradientModel.Builder b,
+      EmitterSnapshot snapshot, RangeExecutor executor) {
+    if (b.approximation() == Approximation.BARNES_HUT) {
+      return new BarnesHutTree(snapshot, b.theta());
+    } else if (b.approximation() == Approximation.POTENTIAL_GRID) {
+      return new PotentialGrid(snapshot, new Point(0, 0),
+        new Point(SIZE, SIZE), b.cellSize(), executor);
+    }
+    return snapshot;
+  }
+
+  /**
+   * Simulates the gradient field example without GUI.
+   * @param scenario The scenario to simulate.
+   * @param b The builder of the gradient model.
+   * @param objFunc The objective function that is used for validating the
+   *          result.
+   * @return The statistics of the simulation.
+   */
+  static StatisticsDTO simulate(Gendreau06Scenario scenario,
+      GradientModel.Builder b, ObjectiveFunction objFunc) {
+    final ExperimentResults results = Experiment.builder()
+      .withRandomSeed(GradientFieldExample.RANDOM_SEED)
+      .withThreads(1)
+      .addConfiguration(MASConfiguration.pdptwBuilder()
+        .setName(name(b))
+        .addEventHandler(AddVehicleEvent.class, VehicleHandler.INSTANCE)
+        .addEventHandler(AddParcelEvent.class, ParcelHandler.INSTANCE)
+        .addModel(b)
+        .build())
+      .addScenario(scenario)
+      .usePostProcessor(PostProcessors.statisticsPostProcessor(objFunc))
+      .repeat(1)
+      .perform();
+    return (StatisticsDTO) results.getResults().iterator().next()
+      .getResultObject();
+  }
+
+  static EmitterSnapshot randomEmitters(Random rng, int num) {
+    final double[] xs = new double[num];
+    final double[] ys = new double[num];
+    final double[] ss = new double[num];
+    for (int i = 0; i < num; i++) {
+      xs[i] = rng.nextDouble() * SIZE;
+      ys[i] = rng.nextDouble() * SIZE;
+      // trucks repel and parcels attract
+      ss[i] = i % 2 == 0 ? -1d : GFParcel.AVAILABLE_STRENGTH;
+    }
+    return new EmitterSnapshot(xs, ys, ss, num);
+  }
+
+  static double[][] randomPositions(Random rng, int num) {
+    final double[][] positions = new double[num][];
+    for (int i = 0; i < num; i++) {
+      positions[i] = new double[] {rng.nextDouble() * SIZE,
+        rng.nextDouble() * SIZE};
+    }
+    return positions;
+  }
+
+  static int arg(String[] args, int index, int defaultValue) {
+    return args.length > index ? Integer.parseInt(args[index])
+      : defaultValue;
+  }
+}
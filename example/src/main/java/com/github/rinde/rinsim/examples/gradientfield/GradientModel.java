@@ -15,6 +15,7 @@
  */
 package com.github.rinde.rinsim.examples.gradientfield;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Verify.verifyNotNull;
 
 import java.io.Serializable;
@@ -25,6 +26,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.CopyOnWriteArrayList;
 
+import javax.annotation.CheckReturnValue;
 import javax.annotation.Nullable;
 
 import com.github.rinde.rinsim.core.model.DependencyProvider;
@@ -35,34 +37,63 @@ import com.github.rinde.rinsim.core.model.ModelReceiver;
 import com.github.rinde.rinsim.core.model.pdp.PDPModel;
 import com.github.rinde.rinsim.core.model.pdp.Parcel;
 import com.github.rinde.rinsim.core.model.road.RoadModel;
+import com.github.rinde.rinsim.core.model.time.Clock;
+import com.github.rinde.rinsim.core.model.time.TickListener;
+import com.github.rinde.rinsim.core.model.time.TimeLapse;
+import com.github.rinde.rinsim.event.Event;
+import com.github.rinde.rinsim.event.Listener;
+import com.github.rinde.rinsim.examples.gradientfield.RangeExecutor.RangeTask;
 import com.github.rinde.rinsim.geom.Point;
 import com.google.auto.value.AutoValue;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 
 /**
- * Model for gradient field implementation.
+ * Model for gradient field implementation. At the start of every tick the
+ * positions and strengths of all emitters are captured, after which the fields
+ * around all trucks are evaluated in a single batch, optionally in parallel.
+ * The potential of the emitters can be computed exactly or approximated using
+ * a {@link BarnesHutTree} or a {@link PotentialGrid}, see {@link Builder}.
  * @author David Merckx
  * @author Rinde van Lon
  */
 public class GradientModel
     extends AbstractModel<FieldEmitter>
-    implements ModelReceiver {
+    implements ModelReceiver, TickListener {
   /**
    * Possibilities (-1,1) (0,1) (1,1) (-1,0) (1,0 (-1,-1) (0,-1) (1,-1).
    */
   private static final int[] X = {-1, 0, 1, 1, 1, 0, -1, -1};
   private static final int[] Y = {1, 1, 1, 0, -1, -1, -1, 0};
+  private static final double DELIVERY_STRENGTH = 2d;
 
   private final List<FieldEmitter> emitters;
+  private final Builder builder;
+  private final RangeExecutor executor;
   private double minX;
   private double maxX;
   private double minY;
   private double maxY;
   @Nullable
   private PDPModel pdpModel;
+  @Nullable
+  private FieldEvaluator evaluator;
+  private long nextRebuildTime;
+  private volatile ImmutableMap<Truck, float[]> truckFields;
 
-  GradientModel() {
+  GradientModel(Builder b, Clock clock) {
     emitters = new CopyOnWriteArrayList<FieldEmitter>();
+    builder = b;
+    executor = new RangeExecutor(b.threads());
+    truckFields = ImmutableMap.of();
+    // the threads are released while the clock is stopped, the executor
+    // creates them again when the clock is restarted
+    clock.getEventAPI().addListener(new Listener() {
+      @Override
+      public void handleEvent(Event e) {
+        executor.shutdown();
+      }
+    }, Clock.ClockEventType.STOPPED);
   }
 
   List<FieldEmitter> getEmitters() {
@@ -81,40 +112,124 @@ public class GradientModel
     return trucks;
   }
 
+  @Override
+  public void tick(TimeLapse timeLapse) {
+    if (evaluator == null
+      || builder.approximation() != Approximation.POTENTIAL_GRID
+      || timeLapse.getStartTime() >= nextRebuildTime) {
+      evaluator = createEvaluator(EmitterSnapshot.of(emitters));
+      nextRebuildTime = timeLapse.getStartTime() + builder.rebuildInterval();
+    }
+    final FieldEvaluator ev = verifyNotNull(evaluator);
+
+    final List<Truck> trucks = getTruckEmitters();
+    final int size = trucks.size();
+    final Point[] positions = new Point[size];
+    final List<List<Point>> destinations = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      positions[i] = trucks.get(i).getPosition();
+      destinations.add(getDestinations(trucks.get(i)));
+    }
+
+    final float[][] fields = new float[size][];
+    executor.execute(size, new RangeTask() {
+      @Override
+      public void run(int from, int to) {
+        for (int i = from; i < to; i++) {
+          fields[i] = computeFields(ev, positions[i], destinations.get(i));
+        }
+      }
+    });
+
+    final ImmutableMap.Builder<Truck, float[]> map = ImmutableMap.builder();
+    for (int i = 0; i < size; i++) {
+      map.put(trucks.get(i), fields[i]);
+    }
+    truckFields = map.build();
+  }
+
+  @Override
+  public void afterTick(TimeLapse timeLapse) {}
+
+  FieldEvaluator createEvaluator(EmitterSnapshot snapshot) {
+    switch (builder.approximation()) {
+    case BARNES_HUT:
+      return new BarnesHutTree(snapshot, builder.theta());
+    case POTENTIAL_GRID:
+      return new PotentialGrid(snapshot, new Point(minX, minY),
+        new Point(maxX, maxY), builder.cellSize(), executor);
+    default:
+      return snapshot;
+    }
+  }
+
   @Nullable
   Point getTargetFor(Truck element) {
     float maxField = Float.NEGATIVE_INFINITY;
     Point maxFieldPoint = null;
 
+    final float[] fields = getFieldsOf(element);
     for (int i = 0; i < X.length; i++) {
-      final Point p = new Point(element.getPosition().x + X[i],
-        element.getPosition().y + Y[i]);
-
-      if (p.x < minX || p.x > maxX || p.y < minY || p.y > maxY) {
+      if (Float.isNaN(fields[i])) {
         continue;
       }
-
-      final float field = getField(p, element);
-      if (field >= maxField) {
-        maxField = field;
-        maxFieldPoint = p;
+      if (fields[i] >= maxField) {
+        maxField = fields[i];
+        maxFieldPoint = new Point(element.getPosition().x + X[i],
+          element.getPosition().y + Y[i]);
       }
     }
 
     return maxFieldPoint;
   }
 
-  float getField(Point in, Truck truck) {
-    float field = 0.0f;
-    for (final FieldEmitter emitter : emitters) {
-      field = field + (float) (emitter.getStrength()
-        / Point.distance(emitter.getPosition(), in));
+  float[] getFieldsOf(Truck truck) {
+    final float[] fields = truckFields.get(truck);
+    if (fields != null) {
+      return fields;
     }
+    // the truck was registered after the start of the current tick
+    final FieldEvaluator ev = evaluator == null
+      ? EmitterSnapshot.of(emitters)
+      : evaluator;
+    return computeFields(ev, truck.getPosition(), getDestinations(truck));
+  }
 
+  List<Point> getDestinations(Truck truck) {
+    final List<Point> destinations = new ArrayList<>();
     for (final Parcel p : verifyNotNull(pdpModel).getContents(truck)) {
-      field = field + (float) (2 / Point.distance(p.getDeliveryLocation(), in));
+      destinations.add(p.getDeliveryLocation());
     }
-    return field;
+    return destinations;
+  }
+
+  /**
+   * Computes the field at each of the neighbors of the specified position.
+   * @param ev The evaluator for the potential of the emitters.
+   * @param pos The position.
+   * @param destinations The delivery locations of the parcels in the cargo of
+   *          the truck, each attracts the truck with strength
+   *          {@link #DELIVERY_STRENGTH}.
+   * @return The field for each neighbor, <code>NaN</code> if the neighbor is
+   *         outside the bounds of the road model.
+   */
+  float[] computeFields(FieldEvaluator ev, Point pos,
+      List<Point> destinations) {
+    final float[] fields = new float[X.length];
+    for (int i = 0; i < X.length; i++) {
+      final double x = pos.x + X[i];
+      final double y = pos.y + Y[i];
+      if (x < minX || x > maxX || y < minY || y > maxY) {
+        fields[i] = Float.NaN;
+        continue;
+      }
+      double field = ev.evaluate(x, y);
+      for (final Point d : destinations) {
+        field += DELIVERY_STRENGTH / Point.distance(d, new Point(x, y));
+      }
+      fields[i] = (float) field;
+    }
+    return fields;
   }
 
   @Override
@@ -130,18 +245,24 @@ public class GradientModel
     return false;
   }
 
+  /**
+   * Returns the fields around the specified truck as computed at the start of
+   * the last tick, this method can be called from any thread.
+   * @param truck The truck.
+   * @return A map of relative positions to fields, relative to the average
+   *         field.
+   */
   Map<Point, Float> getFields(Truck truck) {
     final Map<Point, Float> fields = new HashMap<Point, Float>();
+    final float[] values = truckFields.get(truck);
+    if (values == null) {
+      return fields;
+    }
 
     for (int i = 0; i < X.length; i++) {
-      final Point p = new Point(truck.getPosition().x + X[i],
-        truck.getPosition().y + Y[i]);
-
-      if (p.x < minX || p.x > maxX || p.y < minY || p.y > maxY) {
-        continue;
+      if (!Float.isNaN(values[i])) {
+        fields.put(new Point(X[i], Y[i]), values[i]);
       }
-
-      fields.put(new Point(X[i], Y[i]), getField(p, truck));
     }
 
     float avg = 0;
@@ -173,23 +294,111 @@ public class GradientModel
   }
 
   static Builder builder() {
-    return new AutoValue_GradientModel_Builder();
+    return Builder.create(Approximation.EXACT, Builder.DEFAULT_THETA,
+      Builder.DEFAULT_CELL_SIZE, 0L, 1);
+  }
+
+  /**
+   * The method that is used for computing the potential of the emitters.
+   */
+  enum Approximation {
+    /**
+     * Sums over all emitters, <code>O(emitters)</code> per evaluation.
+     */
+    EXACT,
+    /**
+     * Uses a {@link BarnesHutTree}, <code>O(log emitters)</code> per
+     * evaluation.
+     */
+    BARNES_HUT,
+    /**
+     * Uses a {@link PotentialGrid}, constant time per evaluation.
+     */
+    POTENTIAL_GRID;
   }
 
   @AutoValue
   abstract static class Builder
       extends AbstractModelBuilder<GradientModel, FieldEmitter>
       implements Serializable {
-
+    static final double DEFAULT_THETA = .5;
+    static final double DEFAULT_CELL_SIZE = .1;
     private static final long serialVersionUID = 4464819196521333718L;
 
     Builder() {
+      setDependencies(Clock.class);
       setProvidingTypes(GradientModel.class);
     }
 
+    abstract Approximation approximation();
+
+    abstract double theta();
+
+    abstract double cellSize();
+
+    abstract long rebuildInterval();
+
+    abstract int threads();
+
+    /**
+     * Approximates the potential of the emitters using a Barnes-Hut quadtree
+     * that is rebuilt every tick.
+     * @param theta The error bound, the ratio of the width of a cell and the
+     *          distance to a cell below which the cell is approximated as a
+     *          whole. Zero is exact, <code>.5</code> is typical.
+     * @return A new builder instance.
+     */
+    @CheckReturnValue
+    Builder withBarnesHut(double theta) {
+      checkArgument(theta >= 0d, "Theta must be non-negative, found %s.",
+        theta);
+      return create(Approximation.BARNES_HUT, theta, cellSize(),
+        rebuildInterval(), threads());
+    }
+
+    /**
+     * Approximates the potential of the emitters by interpolating on a grid
+     * that covers the bounds of the road model.
+     * @param size The size of a grid cell, emitters closer than this distance
+     *          are evaluated exactly.
+     * @param interval The simulation time between two rebuilds of the grid,
+     *          in between the grid reflects the emitters as they were at the
+     *          last rebuild. Zero rebuilds the grid every tick.
+     * @return A new builder instance.
+     */
+    @CheckReturnValue
+    Builder withPotentialGrid(double size, long interval) {
+      checkArgument(size > 0d, "The cell size must be positive, found %s.",
+        size);
+      checkArgument(interval >= 0L,
+        "The rebuild interval must be non-negative, found %s.", interval);
+      return create(Approximation.POTENTIAL_GRID, theta(), size, interval,
+        threads());
+    }
+
+    /**
+     * Sets the number of threads that are used for evaluating the fields of
+     * all trucks and for building the grid. Default: <code>1</code>.
+     * @param num The number of threads, must be positive.
+     * @return A new builder instance.
+     */
+    @CheckReturnValue
+    Builder withThreads(int num) {
+      checkArgument(num > 0,
+        "The number of threads must be positive, found %s.", num);
+      return create(approximation(), theta(), cellSize(), rebuildInterval(),
+        num);
+    }
+
     @Override
     public GradientModel build(DependencyProvider dependencyProvider) {
-      return new GradientModel();
+      return new GradientModel(this, dependencyProvider.get(Clock.class));
+    }
+
+    static Builder create(Approximation approximation, double theta,
+        double cellSize, long rebuildInterval, int threads) {
+      return new AutoValue_GradientModel_Builder(approximation, theta,
+        cellSize, rebuildInterval, threads);
     }
   }
 }
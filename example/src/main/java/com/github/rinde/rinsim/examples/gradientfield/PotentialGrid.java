@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2011-2018 Rinde R.S. van Lon
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rinde.rinsim.examples.gradientfield;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.github.rinde.rinsim.examples.gradientfield.RangeExecutor.RangeTask;
+import com.github.rinde.rinsim.geom.Point;
+
+/**
+ * Approximation of the potential of an {@link EmitterSnapshot} by
+ * interpolating between precomputed values on a regular grid. Since the
+ * potential is singular at the position of an emitter, the grid stores a
+ * smoothed potential (distances smaller than the cell size are rounded up to
+ * the cell size). When querying a position, the emitters in the surrounding
+ * cells are evaluated exactly and their smoothed contribution is subtracted
+ * from the interpolated value. As a result, only the potential of emitters
+ * that are further away than one cell is interpolated.
+ * <p>
+ * Building the grid takes <code>O(nodes * emitters)</code> time, a query takes
+ * constant time plus the number of nearby emitters. It pays off when the grid
+ * is queried many times before it is rebuilt.
+ * @author Rinde van Lon
+ */
+final class PotentialGrid implements FieldEvaluator {
+  private static final int NEAR_CELLS = 1;
+
+  final EmitterSnapshot emitters;
+  final double originX;
+  final double originY;
+  final double cellSize;
+  final int cols;
+  final int rows;
+  // (cols + 1) * (rows + 1) node values, row major
+  final double[] values;
+  // the emitters per cell in compressed form: the emitters of cell c are
+  // cellItems[cellStart[c]] until cellItems[cellStart[c + 1]]
+  final int[] cellStart;
+  final int[] cellItems;
+
+  PotentialGrid(EmitterSnapshot snapshot, Point min, Point max, double size,
+      RangeExecutor executor) {
+    checkArgument(size > 0d, "The cell size must be positive, found %s.",
+      size);
+    emitters = snapshot;
+    originX = min.x;
+    originY = min.y;
+    cellSize = size;
+    cols = Math.max(1, (int) Math.ceil((max.x - min.x) / size));
+    rows = Math.max(1, (int) Math.ceil((max.y - min.y) / size));
+
+    final int[] cellOf = new int[snapshot.size];
+    cellStart = new int[cols * rows + 1];
+    for (int i = 0; i < snapshot.size; i++) {
+      cellOf[i] = row(snapshot.ys[i]) * cols + col(snapshot.xs[i]);
+      cellStart[cellOf[i] + 1]++;
+    }
+    for (int c = 0; c < cols * rows; c++) {
+      cellStart[c + 1] += cellStart[c];
+    }
+    cellItems = new int[snapshot.size];
+    final int[] fill = new int[cols * rows];
+    for (int i = 0; i < snapshot.size; i++) {
+      cellItems[cellStart[cellOf[i]] + fill[cellOf[i]]++] = i;
+    }
+
+    values = new double[(cols + 1) * (rows + 1)];
+    executor.execute(rows + 1, new RangeTask() {
+      @Override
+      public void run(int from, int to) {
+        for (int r = from; r < to; r++) {
+          for (int c = 0; c <= cols; c++) {
+            double v = 0d;
+            for (int i = 0; i < emitters.size; i++) {
+              v += smoothed(i, originX + c * cellSize, originY + r * cellSize);
+            }
+            values[r * (cols + 1) + c] = v;
+          }
+        }
+      }
+    });
+  }
+
+  @Override
+  public double evaluate(double x, double y) {
+    final double gx = (x - originX) / cellSize;
+    final double gy = (y - originY) / cellSize;
+    if (gx < 0 || gy < 0 || gx > cols || gy > rows) {
+      return emitters.evaluate(x, y);
+    }
+    final int c = Math.min(cols - 1, (int) gx);
+    final int r = Math.min(rows - 1, (int) gy);
+    final double fx = gx - c;
+    final double fy = gy - r;
+    final int n = r * (cols + 1) + c;
+    double field = interpolate(values[n], values[n + 1],
+      values[n + cols + 1], values[n + cols + 2], fx, fy);
+
+    final double x0 = originX + c * cellSize;
+    final double y0 = originY + r * cellSize;
+    final double x1 = x0 + cellSize;
+    final double y1 = y0 + cellSize;
+    final int maxRow = Math.min(rows - 1, r + NEAR_CELLS);
+    final int maxCol = Math.min(cols - 1, c + NEAR_CELLS);
+    for (int nr = Math.max(0, r - NEAR_CELLS); nr <= maxRow; nr++) {
+      for (int nc = Math.max(0, c - NEAR_CELLS); nc <= maxCol; nc++) {
+        final int cell = nr * cols + nc;
+        for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+          final int i = cellItems[k];
+          field += emitters.potential(i, x, y)
+            - interpolate(smoothed(i, x0, y0), smoothed(i, x1, y0),
+              smoothed(i, x0, y1), smoothed(i, x1, y1), fx, fy);
+        }
+      }
+    }
+    return field;
+  }
+
+  double smoothed(int i, double x, double y) {
+    final double dx = emitters.xs[i] - x;
+    final double dy = emitters.ys[i] - y;
+    return emitters.strengths[i]
+      / Math.max(cellSize, Math.sqrt(dx * dx + dy * dy));
+  }
+
+  int col(double x) {
+    return clamp((x - originX) / cellSize, cols);
+  }
+
+  int row(double y) {
+    return clamp((y - originY) / cellSize, rows);
+  }
+
+  static int clamp(double index, int size) {
+    if (index <= 0) {
+      return 0;
+    }
+    return (int) Math.min(size - 1, Math.floor(index));
+  }
+
+  static double interpolate(double v00, double v10, double v01, double v11,
+      double fx, double fy) {
+    return (v00 * (1 - fx) + v10 * fx) * (1 - fy)
+      + (v01 * (1 - fx) + v11 * fx) * fy;
+  }
+}
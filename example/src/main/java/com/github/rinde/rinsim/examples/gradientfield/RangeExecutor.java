@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2011-2018 Rinde R.S. van Lon
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rinde.rinsim.examples.gradientfield;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.annotation.Nullable;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Executes a loop over a range of indices, when more than one thread is used
+ * the range is split in contiguous chunks that are executed in parallel. The
+ * calling thread blocks until the whole range is done. The threads are
+ * created when they are first needed, after {@link #shutdown()} they are
+ * created again by the next call to {@link #execute(int, RangeTask)}.
+ * @author Rinde van Lon
+ */
+final class RangeExecutor {
+  final int threads;
+  @Nullable
+  private ExecutorService executor;
+
+  RangeExecutor(int numThreads) {
+    checkArgument(numThreads > 0,
+      "The number of threads must be positive, found %s.", numThreads);
+    threads = numThreads;
+  }
+
+  synchronized void execute(int size, final RangeTask task) {
+    final int chunks = Math.min(threads, size);
+    if (chunks < 2) {
+      task.run(0, size);
+      return;
+    }
+    if (executor == null) {
+      executor = Executors.newFixedThreadPool(threads,
+        new ThreadFactoryBuilder()
+          .setDaemon(true)
+          .setNameFormat("GradientModel-%d")
+          .build());
+    }
+    final List<Callable<Object>> jobs = new ArrayList<>(chunks);
+    for (int i = 0; i < chunks; i++) {
+      final int from = (int) ((long) size * i / chunks);
+      final int to = (int) ((long) size * (i + 1) / chunks);
+      jobs.add(new Callable<Object>() {
+        @Override
+        public Object call() {
+          task.run(from, to);
+          return to;
+        }
+      });
+    }
+    try {
+      for (final Future<Object> f : executor.invokeAll(jobs)) {
+        f.get();
+      }
+    } catch (final ExecutionException e) {
+      throw new IllegalStateException("Evaluating the field failed.",
+        e.getCause());
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    }
+  }
+
+  synchronized void shutdown() {
+    if (executor != null) {
+      executor.shutdown();
+      executor = null;
+    }
+  }
+
+  interface RangeTask {
+    /**
+     * Executes the task for the indices in <code>[from, to)</code>.
+     * @param from The first index, inclusive.
+     * @param to The last index, exclusive.
+     */
+    void run(int from, int to);
+  }
+}
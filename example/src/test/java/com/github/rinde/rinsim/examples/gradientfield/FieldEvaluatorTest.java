@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2011-2018 Rinde R.S. van Lon
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rinde.rinsim.examples.gradientfield;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.rinde.rinsim.geom.Point;
+
+/**
+ * Compares the approximations of the potential with the exact potential.
+ * @author Rinde van Lon
+ */
+public class FieldEvaluatorTest {
+  static final int EMITTERS = 2000;
+  static final int QUERIES = 2000;
+  static final double SIZE = 5d;
+
+  EmitterSnapshot snapshot;
+  double[][] queries;
+
+  /**
+   * Creates random attracting and repelling emitters and query positions.
+   */
+  @Before
+  public void setUp() {
+    final Random rng = new Random(123L);
+    final double[] xs = new double[EMITTERS];
+    final double[] ys = new double[EMITTERS];
+    final double[] ss = new double[EMITTERS];
+    for (int i = 0; i < EMITTERS; i++) {
+      xs[i] = rng.nextDouble() * SIZE;
+      ys[i] = rng.nextDouble() * SIZE;
+      ss[i] = i % 2 == 0 ? -1d : GFParcel.AVAILABLE_STRENGTH;
+    }
+    snapshot = new EmitterSnapshot(xs, ys, ss, EMITTERS);
+    queries = new double[QUERIES][];
+    for (int i = 0; i < QUERIES; i++) {
+      queries[i] = new double[] {rng.nextDouble() * SIZE,
+        rng.nextDouble() * SIZE};
+    }
+  }
+
+  /**
+   * A theta of zero is exact.
+   */
+  @Test
+  public void testBarnesHutExact() {
+    assertThat(maxRelativeError(new BarnesHutTree(snapshot, 0d)))
+      .isLessThan(1e-9);
+  }
+
+  /**
+   * The error decreases with theta.
+   */
+  @Test
+  public void testBarnesHutAccuracy() {
+    final double coarse = maxRelativeError(new BarnesHutTree(snapshot, .8));
+    final double fine = maxRelativeError(new BarnesHutTree(snapshot, .3));
+    assertThat(fine).isLessThan(coarse);
+    assertThat(fine).isLessThan(.01);
+  }
+
+  /**
+   * The error decreases with the cell size.
+   */
+  @Test
+  public void testPotentialGridAccuracy() {
+    final RangeExecutor executor = new RangeExecutor(2);
+    final double coarse = maxRelativeError(new PotentialGrid(snapshot,
+      new Point(0, 0), new Point(SIZE, SIZE), .25, executor));
+    final double fine = maxRelativeError(new PotentialGrid(snapshot,
+      new Point(0, 0), new Point(SIZE, SIZE), .05, executor));
+    executor.shutdown();
+    assertThat(fine).isLessThan(coarse);
+    assertThat(fine).isLessThan(.01);
+  }
+
+  /**
+   * Outside the grid the potential is computed exactly.
+   */
+  @Test
+  public void testPotentialGridOutside() {
+    final PotentialGrid grid = new PotentialGrid(snapshot, new Point(1, 1),
+      new Point(2, 2), .1, new RangeExecutor(1));
+    assertThat(grid.evaluate(-1, 3)).isEqualTo(snapshot.evaluate(-1, 3));
+  }
+
+  /**
+   * Measures the error relative to the sum of the absolute contributions of
+   * all emitters, since the attracting and repelling emitters may cancel each
+   * other out.
+   */
+  double maxRelativeError(FieldEvaluator ev) {
+    double max = 0d;
+    for (final double[] q : queries) {
+      double scale = 0d;
+      for (int i = 0; i < snapshot.size; i++) {
+        scale += Math.abs(snapshot.potential(i, q[0], q[1]));
+      }
+      final double error =
+        Math.abs(ev.evaluate(q[0], q[1]) - snapshot.evaluate(q[0], q[1]));
+      max = Math.max(max, error / scale);
+    }
+    return max;
+  }
+}
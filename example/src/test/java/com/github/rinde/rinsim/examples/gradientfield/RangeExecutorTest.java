@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2011-2018 Rinde R.S. van Lon
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rinde.rinsim.examples.gradientfield;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.Test;
+
+import com.github.rinde.rinsim.examples.gradientfield.RangeExecutor.RangeTask;
+
+/**
+ * Tests for {@link RangeExecutor}.
+ * @author Rinde van Lon
+ */
+public class RangeExecutorTest {
+
+  /**
+   * The executor can be used again after a shutdown, as happens when the
+   * simulation is paused and resumed.
+   */
+  @Test
+  public void testExecuteAfterShutdown() {
+    final RangeExecutor executor = new RangeExecutor(3);
+    final AtomicIntegerArray counts = new AtomicIntegerArray(10);
+    final RangeTask task = new RangeTask() {
+      @Override
+      public void run(int from, int to) {
+        for (int i = from; i < to; i++) {
+          counts.incrementAndGet(i);
+        }
+      }
+    };
+    executor.execute(10, task);
+    executor.shutdown();
+    executor.execute(10, task);
+    executor.shutdown();
+    executor.shutdown();
+    for (int i = 0; i < counts.length(); i++) {
+      assertThat(counts.get(i)).isEqualTo(2);
+    }
+  }
+}